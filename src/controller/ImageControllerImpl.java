@@ -1,6 +1,7 @@
 package controller;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.InputMismatchException;
 import java.util.Map;
@@ -9,16 +10,32 @@ import java.util.Scanner;
 import java.util.function.Function;
 
 import controller.commands.BlueGreyScaleCommand;
+import controller.commands.BlurCommand;
+import controller.commands.BoxBlurCommand;
 import controller.commands.BrightenCommand;
+import controller.commands.CropCommand;
+import controller.commands.EqualizeCommand;
+import controller.commands.FlipCommand;
+import controller.commands.GaussianBlurCommand;
 import controller.commands.GreenGreyScaleCommand;
 import controller.commands.ICommand;
 import controller.commands.IntensityGreyScaleCommand;
+import controller.commands.LevelsCommand;
 import controller.commands.LoadCommand;
 import controller.commands.LumaGreyScaleCommand;
+import controller.commands.MaterializeCommand;
+import controller.commands.MultiComponentCommand;
+import controller.commands.RankFilterCommand;
 import controller.commands.RedGreyScaleCommand;
+import controller.commands.ResizeCommand;
+import controller.commands.RotateCommand;
 import controller.commands.SaveCommand;
+import controller.commands.SharpenCommand;
+import controller.commands.SobelCommand;
+import controller.commands.StatsCommand;
 import controller.commands.ValueGreyScaleCommand;
 import model.IImageStorage;
+import operations.ResizeFilter;
 
 /**
  * Controller to process the image.
@@ -151,6 +168,221 @@ public class ImageControllerImpl implements IImageController {
                 "Wrong inputs. Usage: luma-component image-name dest-image-name");
       }
     });
+    // All components in one pass Command
+    knownCommands.put("components", (Scanner s) -> {
+      try {
+        String componentList = s.next();
+        String sourceName = s.next();
+        String destPrefix = s.next();
+        return new MultiComponentCommand(
+                Arrays.asList(componentList.split(",")), sourceName, destPrefix, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: components component-list image-name dest-prefix");
+      }
+    });
+    // Equalize Command
+    knownCommands.put("equalize", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        String destName = s.next();
+        return new EqualizeCommand(sourceName, destName, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: equalize image-name dest-image-name");
+      }
+    });
+    // Auto levels Command
+    knownCommands.put("levels", (Scanner s) -> {
+      try {
+        double clipPercent = s.nextDouble();
+        String sourceName = s.next();
+        String destName = s.next();
+        return new LevelsCommand(clipPercent, sourceName, destName, imageDatabase);
+      } catch (InputMismatchException e) {
+        throw new IllegalArgumentException("clip-percent must be a number");
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: levels clip-percent image-name dest-image-name");
+      }
+    });
+    // Blur Command
+    knownCommands.put("blur", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        String destName = s.next();
+        return new BlurCommand(sourceName, destName, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: blur image-name dest-image-name");
+      }
+    });
+    // Sharpen Command
+    knownCommands.put("sharpen", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        String destName = s.next();
+        return new SharpenCommand(sourceName, destName, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: sharpen image-name dest-image-name");
+      }
+    });
+    // Sobel edge Command
+    knownCommands.put("sobel", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        String destName = s.next();
+        return new SobelCommand(sourceName, destName, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: sobel image-name dest-image-name");
+      }
+    });
+    // Box blur Command
+    knownCommands.put("box-blur", (Scanner s) -> {
+      try {
+        int radius = s.nextInt();
+        String sourceName = s.next();
+        String destName = s.next();
+        return new BoxBlurCommand(radius, sourceName, destName, imageDatabase);
+      } catch (InputMismatchException e) {
+        throw new IllegalArgumentException("radius must be an integer");
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: box-blur radius image-name dest-image-name");
+      }
+    });
+    // Gaussian blur Command
+    knownCommands.put("gaussian-blur", (Scanner s) -> {
+      try {
+        double sigma = s.nextDouble();
+        String sourceName = s.next();
+        String destName = s.next();
+        return new GaussianBlurCommand(sigma, sourceName, destName, imageDatabase);
+      } catch (InputMismatchException e) {
+        throw new IllegalArgumentException("sigma must be a number");
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: gaussian-blur sigma image-name dest-image-name");
+      }
+    });
+    // Median Command
+    knownCommands.put("median", (Scanner s) -> {
+      try {
+        int radius = s.nextInt();
+        String sourceName = s.next();
+        String destName = s.next();
+        return new RankFilterCommand(radius, 50, sourceName, destName, imageDatabase);
+      } catch (InputMismatchException e) {
+        throw new IllegalArgumentException("radius must be an integer");
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: median radius image-name dest-image-name");
+      }
+    });
+    // Rank filter Command
+    knownCommands.put("rank", (Scanner s) -> {
+      try {
+        double percentile = s.nextDouble();
+        int radius = s.nextInt();
+        String sourceName = s.next();
+        String destName = s.next();
+        return new RankFilterCommand(radius, percentile, sourceName, destName, imageDatabase);
+      } catch (InputMismatchException e) {
+        throw new IllegalArgumentException(
+                "percentile must be a number and radius must be an integer");
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: rank percentile radius image-name dest-image-name");
+      }
+    });
+    // Crop Command
+    knownCommands.put("crop", (Scanner s) -> {
+      try {
+        int x = s.nextInt();
+        int y = s.nextInt();
+        int width = s.nextInt();
+        int height = s.nextInt();
+        String sourceName = s.next();
+        String destName = s.next();
+        return new CropCommand(x, y, width, height, sourceName, destName, imageDatabase);
+      } catch (InputMismatchException e) {
+        throw new IllegalArgumentException("x, y, width and height must be integers");
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: crop x y width height image-name dest-image-name");
+      }
+    });
+    // Flip horizontal Command
+    knownCommands.put("flip-horizontal", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        String destName = s.next();
+        return new FlipCommand(true, sourceName, destName, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: flip-horizontal image-name dest-image-name");
+      }
+    });
+    // Flip vertical Command
+    knownCommands.put("flip-vertical", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        String destName = s.next();
+        return new FlipCommand(false, sourceName, destName, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: flip-vertical image-name dest-image-name");
+      }
+    });
+    // Rotate Command
+    knownCommands.put("rotate-90", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        String destName = s.next();
+        return new RotateCommand(90, sourceName, destName, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: rotate-90 image-name dest-image-name");
+      }
+    });
+    // Materialize Command
+    knownCommands.put("materialize", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        String destName = s.next();
+        return new MaterializeCommand(sourceName, destName, imageDatabase);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: materialize image-name dest-image-name");
+      }
+    });
+    // Resize Command
+    knownCommands.put("resize", (Scanner s) -> {
+      try {
+        int width = s.nextInt();
+        int height = s.nextInt();
+        ResizeFilter filter = ResizeCommand.parseFilter(s.next());
+        String sourceName = s.next();
+        String destName = s.next();
+        return new ResizeCommand(width, height, filter, sourceName, destName, imageDatabase);
+      } catch (InputMismatchException e) {
+        throw new IllegalArgumentException("width and height must be integers");
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException(
+                "Wrong inputs. Usage: resize width height filter image-name dest-image-name");
+      }
+    });
+    // Statistics Command
+    knownCommands.put("stats", (Scanner s) -> {
+      try {
+        String sourceName = s.next();
+        return new StatsCommand(sourceName, imageDatabase, appendable);
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException("Wrong inputs. Usage: stats image-name");
+      }
+    });
   }
 
   /**
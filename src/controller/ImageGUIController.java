@@ -1,24 +1,42 @@
 package controller;
 
-import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import controller.commands.BlueGreyScaleCommand;
 import controller.commands.BrightenCommand;
+import controller.commands.EqualizeCommand;
 import controller.commands.GreenGreyScaleCommand;
 import controller.commands.ICommand;
 import controller.commands.IntensityGreyScaleCommand;
+import controller.commands.LevelsCommand;
 import controller.commands.LoadCommand;
 import controller.commands.LumaGreyScaleCommand;
+import controller.commands.MultiComponentCommand;
 import controller.commands.RedGreyScaleCommand;
+import controller.commands.ResizeCommand;
 import controller.commands.SaveCommand;
 import controller.commands.ValueGreyScaleCommand;
 import model.IImage;
 import model.IImageHistogram;
 import model.IImageStorage;
 import model.ImageHistogramImpl;
+import model.LazyImage;
+import operations.BrightenOperation;
 import view.GUIView;
 import view.ImageViewListener;
-import view.writer.StandardImageWriter;
 
 /**
  * Controller for the GUI view of the program.
@@ -26,8 +44,27 @@ import view.writer.StandardImageWriter;
  * to handle high-level view events and trigger the correct commands.
  */
 public class ImageGUIController implements ImageViewListener, IImageController {
+  // images with more pixels first show a sampled histogram, then the exact one
+  private static final long SAMPLING_THRESHOLD = 16_000_000L;
+  private static final double DEFAULT_HISTOGRAM_ERROR_BOUND = 0.01;
+  // share of outliers ignored at each end by the auto levels button
+  private static final double LEVELS_CLIP_PERCENT = 0.5;
+
   private final GUIView view;
   private final IImageStorage imageStorage;
+  private final double histogramErrorBound;
+  private final Set<IImage> refining; // images whose exact histogram is being computed
+  // commands run one at a time off the event dispatch thread, in the order they were requested
+  private final ExecutorService worker;
+  // jobs that are queued or running, by the key that newer requests replace them with
+  private final Map<String, Job> jobs;
+  private final ThumbnailGenerator thumbnails;
+  // lazy images next to the selected one are decoded here, behind the operations
+  private final ExecutorService prefetcher;
+  private final Map<LazyImage, ImageLease> prefetching;
+  private String displayedImageName;
+  private IImageHistogram displayedHistogram; // histogram shown for the displayed image
+  private int previewAmount; // brightness previewed on the displayed image, 0 for none
 
   /**
    * Constructor for the GUI controller.
@@ -36,8 +73,44 @@ public class ImageGUIController implements ImageViewListener, IImageController {
    * @param imageStorage the image storage model.
    */
   public ImageGUIController(GUIView view, IImageStorage imageStorage) {
+    this(view, imageStorage, DEFAULT_HISTOGRAM_ERROR_BOUND);
+  }
+
+  /**
+   * Constructor for the GUI controller with the error bound of sampled histograms.
+   * Large images first show a histogram sampled to this bound, and the exact histogram
+   * replaces it once it is computed in the background.
+   *
+   * @param view                the GUI view.
+   * @param imageStorage        the image storage model.
+   * @param histogramErrorBound the largest error of the cumulative share of any value,
+   *                            between 0 and 1 exclusive.
+   * @throws IllegalArgumentException if histogramErrorBound is out of range.
+   */
+  public ImageGUIController(
+          GUIView view, IImageStorage imageStorage, double histogramErrorBound) {
+    if (!(histogramErrorBound > 0 && histogramErrorBound < 1)) {
+      throw new IllegalArgumentException("Error bound must be between 0 and 1");
+    }
     this.view = view;
     this.imageStorage = imageStorage;
+    this.histogramErrorBound = histogramErrorBound;
+    this.refining = Collections.newSetFromMap(new IdentityHashMap<>());
+    this.worker = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "image-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.jobs = new LinkedHashMap<>();
+    this.thumbnails = new ThumbnailGenerator(
+            GUIView.THUMBNAIL_SIZE, imageStorage, this::showThumbnail);
+    this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "prefetch-worker");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    this.prefetching = new IdentityHashMap<>();
 
     // Add Event Listeners
     view.addViewListener(this);
@@ -63,12 +136,12 @@ public class ImageGUIController implements ImageViewListener, IImageController {
   @Override
   public void onLoadImage(String filePath, String imageName) {
     try {
-      // Load the image with the path
-      ICommand loadCommand = new LoadCommand(filePath, imageName, imageStorage);
+      // Read the header of the image in the background, the pixels are decoded on first use
+      StagedStorage staging = new StagedStorage(imageStorage);
+      ICommand loadCommand = new LoadCommand(filePath, imageName, staging, true);
 
-      runAndDisplayImage(loadCommand, imageName, imageStorage, view);
-
-      view.showMessage("Image loaded successfully: " + imageName);
+      submit(imageName, new Job("Loading " + imageName, "Failed to load image: ",
+              loadCommand, staging, "Image loaded successfully: " + imageName));
 
     } catch (Exception e) {
       view.showError("Failed to load image: " + e.getMessage());
@@ -76,6 +149,36 @@ public class ImageGUIController implements ImageViewListener, IImageController {
 
   }
 
+  /**
+   * Called when the user requests to load several images at once.
+   * Only the headers are read, so even thousands of images are listed quickly, and the pixels
+   * of each image are decoded when it is first displayed, used or saved.
+   *
+   * @param filePaths  the paths to the image files.
+   * @param imageNames the names to assign to the loaded images, in the same order.
+   */
+  @Override
+  public void onLoadImages(List<String> filePaths, List<String> imageNames) {
+    try {
+      if (filePaths.size() != imageNames.size()) {
+        throw new IllegalArgumentException("Every file needs a name");
+      }
+      StagedStorage staging = new StagedStorage(imageStorage);
+      ICommand loadCommand = () -> {
+        for (int i = 0; i < filePaths.size(); i++) {
+          new LoadCommand(filePaths.get(i), imageNames.get(i), staging, true).run();
+        }
+      };
+
+      submit("load:" + String.join(",", imageNames), new Job(
+              "Loading " + filePaths.size() + " images", "Failed to load images: ",
+              loadCommand, staging, filePaths.size() + " images loaded successfully"));
+
+    } catch (Exception e) {
+      view.showError("Failed to load images: " + e.getMessage());
+    }
+  }
+
   /**
    * Called when the user requests to save an image.
    *
@@ -85,11 +188,12 @@ public class ImageGUIController implements ImageViewListener, IImageController {
   @Override
   public void onSaveImage(String filePath, String imageName) {
     try {
-      // Create and execute save command
-      ICommand saveCommand = new SaveCommand(filePath, imageName, imageStorage);
-      saveCommand.run();
+      // Create and execute save command in the background
+      StagedStorage staging = new StagedStorage(imageStorage, imageName);
+      ICommand saveCommand = new SaveCommand(filePath, imageName, staging);
 
-      view.showMessage("Image saved successfully to: " + filePath);
+      submit("save:" + filePath, new Job("Saving " + imageName, "Failed to save image: ",
+              saveCommand, staging, "Image saved successfully to: " + filePath));
 
     } catch (Exception e) {
       view.showError("Failed to save image: " + e.getMessage());
@@ -134,17 +238,64 @@ public class ImageGUIController implements ImageViewListener, IImageController {
       String destName = imageName + "-bright" + amount;
 
       // Create and execute brighten command. Command adds new image to storage
-      ICommand brightenCommand = new BrightenCommand(amount, imageName, destName, imageStorage);
+      StagedStorage staging = new StagedStorage(imageStorage, imageName);
+      ICommand brightenCommand = new BrightenCommand(amount, imageName, destName, staging);
 
-      runAndDisplayImage(brightenCommand, destName, imageStorage, view);
-
-      view.showMessage("Brightness adjusted by " + amount);
+      submit(destName, new Job("Adjusting brightness of " + imageName,
+              "Failed to adjust brightness: ", brightenCommand, staging,
+              "Brightness adjusted by " + amount).endingPreviewOf(imageName));
 
     } catch (Exception e) {
       view.showError("Failed to adjust brightness: " + e.getMessage());
     }
   }
 
+  /**
+   * Called on every change of the brightness slider, before the brightness is applied.
+   * The histogram of the displayed image is moved by the amount analytically, in time
+   * proportional to the number of bins, so it follows the slider on images of any size.
+   *
+   * @param imageName the name of the previewed image.
+   * @param amount    the amount previewed, 0 when the preview ends.
+   */
+  @Override
+  public void onBrightnessPreview(String imageName, int amount) {
+    if (imageName.equals(displayedImageName)) {
+      previewAmount = amount;
+      view.updateHistogram(getPreviewHistogram());
+    }
+  }
+
+  /**
+   * Helper function to get the histogram of the displayed image with the brightness preview
+   * applied. The histogram is shown unchanged if the brightened one cannot be derived.
+   *
+   * @return the histogram to show, or null if there is none.
+   */
+  private IImageHistogram getPreviewHistogram() {
+    if (previewAmount == 0 || displayedHistogram == null
+            || !imageStorage.hasImage(displayedImageName)) {
+      return displayedHistogram;
+    }
+    int maxValue = imageStorage.getImage(displayedImageName).getMaxValue();
+    IImageHistogram moved = new BrightenOperation(previewAmount)
+            .mapHistogram(displayedHistogram, maxValue);
+    return moved != null ? moved : displayedHistogram;
+  }
+
+  /**
+   * Helper function to end the brightness preview of an image whose brighten failed or was
+   * cancelled, the brightened image that would have replaced the preview never comes.
+   *
+   * @param imageName the name of the previewed image.
+   */
+  private void endPreview(String imageName) {
+    if (view.endBrightnessPreview() && imageName.equals(displayedImageName)) {
+      previewAmount = 0;
+      view.updateHistogram(displayedHistogram);
+    }
+  }
+
   /**
    * Called when the user requests a grayscale operation.
    *
@@ -159,9 +310,11 @@ public class ImageGUIController implements ImageViewListener, IImageController {
       String destName = imageName + "-" + operation.replace("-", "");
 
       // Create and execute the appropriate command
-      ICommand command = createGrayscaleCommand(operation, imageName, destName);
+      StagedStorage staging = new StagedStorage(imageStorage, imageName);
+      ICommand command = createGrayscaleCommand(operation, imageName, destName, staging);
 
-      runAndDisplayImage(command, destName, imageStorage, view);
+      submit(destName, new Job("Applying " + operation + " to " + imageName,
+              "Failed to apply " + operation + ": ", command, staging, null));
 
     } catch (Exception e) {
       view.showError("Failed to apply " + operation + ": " + e.getMessage());
@@ -169,54 +322,201 @@ public class ImageGUIController implements ImageViewListener, IImageController {
   }
 
   /**
-   * Called when the user selects an image from already loaded images.
+   * Called when the user requests to resize an image.
    *
-   * @param imageName the name of the image to display.
+   * @param imageName the name of the source image.
+   * @param width     the width of the result, 0 to keep the aspect ratio.
+   * @param height    the height of the result, 0 to keep the aspect ratio.
+   * @param filter    the name of the filter ("nearest", "bilinear", "area" or "lanczos").
    */
   @Override
-  public void displaySelectedImage(String imageName) {
+  public void onResizeOperation(String imageName, int width, int height, String filter) {
     try {
-      // Get the selected image from storage
-      IImage selectedImage = imageStorage.getImage(imageName);
+      String destName = imageName + "-resize";
+      StagedStorage staging = new StagedStorage(imageStorage, imageName);
+      ICommand command = new ResizeCommand(width, height, ResizeCommand.parseFilter(filter),
+              imageName, destName, staging);
+      submit(destName, new Job("Resizing " + imageName, "Failed to resize: ",
+              command, staging, null));
+    } catch (Exception e) {
+      view.showError("Failed to resize: " + e.getMessage());
+    }
+  }
 
-      // Convert to BufferedImage and display
-      BufferedImage bufferedImage = convertToBufferedImage(selectedImage);
-      view.updateViewingArea(bufferedImage);
+  /**
+   * Called when the user requests all greyscale components of an image at once.
+   * The six components are created in a single pass over the source image.
+   *
+   * @param imageName the name of the source image.
+   */
+  @Override
+  public void onAllComponentsOperation(String imageName) {
+    try {
+      StagedStorage staging = new StagedStorage(imageStorage, imageName);
+      ICommand command = new MultiComponentCommand(
+              MultiComponentCommand.ALL_COMPONENTS, imageName, imageName, staging);
 
-      // Generate and update histogram
-      IImageHistogram histogram = generateHistogram(selectedImage);
-      view.updateHistogram(histogram);
+      // All results are added to the view, the first one is selected and displayed
+      submit(imageName + "-components", new Job("Extracting components of " + imageName,
+              "Failed to extract components: ", command, staging, null));
 
     } catch (Exception e) {
-      view.showError("Failed to display selected image: " + e.getMessage());
+      view.showError("Failed to extract components: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Called when the user requests a tone adjustment built from the histogram of the image.
+   * The histogram shown for the source is reused, so the source is not scanned again.
+   *
+   * @param imageName the name of the source image.
+   * @param operation the type of adjustment ("equalize" or "levels").
+   */
+  @Override
+  public void onAdjustmentOperation(String imageName, String operation) {
+    try {
+      // Create destination name
+      String destName = imageName + "-" + operation;
+
+      StagedStorage staging = new StagedStorage(imageStorage, imageName);
+      ICommand command;
+      switch (operation) {
+        case "equalize":
+          command = new EqualizeCommand(imageName, destName, staging);
+          break;
+        case "levels":
+          command = new LevelsCommand(LEVELS_CLIP_PERCENT, imageName, destName, staging);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown adjustment: " + operation);
+      }
+
+      submit(destName, new Job("Applying " + operation + " to " + imageName,
+              "Failed to apply " + operation + ": ", command, staging, null));
+
+    } catch (Exception e) {
+      view.showError("Failed to apply " + operation + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Called when the user cancels the running and queued operations.
+   * Queued operations never start, the result of the running one is thrown away.
+   */
+  @Override
+  public void onCancelOperations() {
+    for (Job job : new ArrayList<>(jobs.values())) {
+      job.cancel(true);
     }
   }
 
   /**
-   * Helper function to save, load image to view, and generate the histogram.
+   * Called when rows of the image list need thumbnails.
+   * They are created one at a time in the background, separately from the operations,
+   * and the ones of rows that were scrolled out of view are dropped.
    *
-   * @param command      the command to execute.
-   * @param imageName    name of the image.
-   * @param imageStorage THe image database.
-   * @param view         GUI view to display the image in.
+   * @param imageNames the names of the visible images without a thumbnail, from the top.
    */
-  private void runAndDisplayImage(
-          ICommand command, String imageName, IImageStorage imageStorage, GUIView view) {
-    command.run();
+  @Override
+  public void onThumbnailsRequested(List<String> imageNames) {
+    Map<String, IImage> sources = new LinkedHashMap<>();
+    for (String imageName : imageNames) {
+      if (imageStorage.hasImage(imageName)) {
+        sources.put(imageName, imageStorage.getImage(imageName));
+      }
+    }
+    thumbnails.request(sources);
+  }
+
+  /**
+   * Helper function to hand a thumbnail that is ready to the view.
+   *
+   * @param imageName the name of the image.
+   * @param source    the image the thumbnail was taken from.
+   * @param thumbnail the thumbnail.
+   */
+  private void showThumbnail(String imageName, IImage source, IImage thumbnail) {
+    // the image may have been replaced or deleted in the meantime
+    if (imageStorage.hasImage(imageName) && imageStorage.getImage(imageName) == source) {
+      view.updateThumbnail(imageName, thumbnail);
+    }
+  }
+
+  /**
+   * Called with the images next to the selected one, to decode them in the background
+   * before they are selected. Decoding that has not started for images that are no longer
+   * neighbors is cancelled.
+   *
+   * @param imageNames the names of the neighboring images, nearest first.
+   */
+  @Override
+  public void onPrefetchImages(List<String> imageNames) {
+    List<LazyImage> wanted = new ArrayList<>();
+    for (String imageName : imageNames) {
+      if (imageStorage.hasImage(imageName)
+              && imageStorage.getImage(imageName) instanceof LazyImage) {
+        wanted.add((LazyImage) imageStorage.getImage(imageName));
+      }
+    }
+    Iterator<Map.Entry<LazyImage, ImageLease>> queued = prefetching.entrySet().iterator();
+    while (queued.hasNext()) {
+      Map.Entry<LazyImage, ImageLease> entry = queued.next();
+      if (entry.getValue().isReleased() || !wanted.contains(entry.getKey())) {
+        // a decoding that has not started is skipped when its turn comes
+        entry.getValue().cancel();
+        queued.remove();
+      }
+    }
+    for (LazyImage image : wanted) {
+      if (!image.isDecoded() && !prefetching.containsKey(image)) {
+        ImageLease lease = new ImageLease(imageStorage, List.of(image));
+        prefetching.put(image, lease);
+        prefetcher.execute(() -> {
+          if (!lease.begin()) {
+            return;
+          }
+          try {
+            image.getImage();
+          } catch (IllegalStateException e) {
+            // reported when the image is used
+          } finally {
+            lease.end();
+          }
+        });
+      }
+    }
+  }
 
-    // Add the imageId to the view
-    view.addImageId(imageName);
+  /**
+   * Called when the user selects an image from already loaded images.
+   *
+   * @param imageName the name of the image to display.
+   */
+  @Override
+  public void displaySelectedImage(String imageName) {
+    try {
+      // Convert the level of the selected image that suits the zoom and display it
+      showImage(imageName);
 
-    // Display to view
-    IImage loadedImage = imageStorage.getImage(imageName);
+      // Generate and update histogram
+      displayedImageName = imageName;
+      displayedHistogram = generateHistogram(imageName);
+      previewAmount = 0;
+      view.updateHistogram(displayedHistogram);
 
-    // Convert IImage to a buffered image
-    BufferedImage bufferedImage = convertToBufferedImage(loadedImage);
-    view.updateViewingArea(bufferedImage);
+    } catch (Exception e) {
+      view.showError("Failed to display selected image: " + e.getMessage());
+    }
+  }
 
-    // Generate and update histogram
-    IImageHistogram histogram = generateHistogram(loadedImage);
-    view.updateHistogram(histogram);
+  /**
+   * Helper function to display a stored image. The view draws it from the pyramid of the
+   * image, converting only the visible tiles of the level that suits its zoom.
+   *
+   * @param imageName the name of the image to display.
+   */
+  private void showImage(String imageName) {
+    view.updateViewingArea(imageStorage.getPyramid(imageName));
   }
 
   /**
@@ -225,46 +525,52 @@ public class ImageGUIController implements ImageViewListener, IImageController {
    * @param operation  the grayscale operation type.
    * @param sourceName the source image name.
    * @param destName   the destination image name.
+   * @param storage    the storage the command reads and writes.
    * @return the command to execute.
    */
-  private ICommand createGrayscaleCommand(String operation, String sourceName, String destName) {
+  private ICommand createGrayscaleCommand(
+          String operation, String sourceName, String destName, IImageStorage storage) {
     switch (operation) {
       case "red-component":
-        return new RedGreyScaleCommand(sourceName, destName, imageStorage);
+        return new RedGreyScaleCommand(sourceName, destName, storage);
       case "green-component":
-        return new GreenGreyScaleCommand(sourceName, destName, imageStorage);
+        return new GreenGreyScaleCommand(sourceName, destName, storage);
       case "blue-component":
-        return new BlueGreyScaleCommand(sourceName, destName, imageStorage);
+        return new BlueGreyScaleCommand(sourceName, destName, storage);
       case "value-component":
-        return new ValueGreyScaleCommand(sourceName, destName, imageStorage);
+        return new ValueGreyScaleCommand(sourceName, destName, storage);
       case "intensity-component":
-        return new IntensityGreyScaleCommand(sourceName, destName, imageStorage);
+        return new IntensityGreyScaleCommand(sourceName, destName, storage);
       case "luma-component":
-        return new LumaGreyScaleCommand(sourceName, destName, imageStorage);
+        return new LumaGreyScaleCommand(sourceName, destName, storage);
       default:
         throw new IllegalArgumentException("Unknown grayscale operation: " + operation);
     }
   }
 
   /**
-   * Convert IImage to BufferedImage for display in the view.
-   *
-   * @param image the IImage to convert.
-   * @return BufferedImage for Swing display.
-   */
-  private BufferedImage convertToBufferedImage(IImage image) {
-    return StandardImageWriter.convertToBufferedImage(image);
-  }
-
-  /**
-   * Generate histogram data for the given image using the factory.
+   * Get the histogram data of a stored image.
+   * The storage caches histograms, so images that were displayed before cost nothing.
+   * Without a cached histogram a sampled histogram is returned straight away
+   * and the exact one is computed in the background. Images that are not decoded yet
+   * have no histogram until the exact one is ready.
    *
-   * @param image the image to generate histogram for.
+   * @param imageName the name of the image to generate histogram for.
    * @return the histogram data, or null if generation fails.
    */
-  private IImageHistogram generateHistogram(IImage image) {
+  private IImageHistogram generateHistogram(String imageName) {
     try {
-      return new ImageHistogramImpl(image);
+      IImage image = imageStorage.getImage(imageName);
+      if (imageStorage.hasHistogram(imageName)) {
+        return imageStorage.getHistogram(imageName);
+      }
+
+      refineHistogram(imageName, image);
+      if (image instanceof LazyImage && !((LazyImage) image).isDecoded()) {
+        // even sampling would decode the image here, the exact histogram follows instead
+        return null;
+      }
+      return ImageHistogramImpl.sampled(image, histogramErrorBound);
     } catch (Exception e) {
       // If histogram generation fails, return null
       // View handles this error and displays "no histogram data"
@@ -272,4 +578,222 @@ public class ImageGUIController implements ImageViewListener, IImageController {
       return null;
     }
   }
+
+  /**
+   * Compute the exact histogram of an image in the background.
+   * It is cached once done and shown if the image is still displayed.
+   * Storage and view are only touched on the event dispatch thread.
+   *
+   * @param imageName the name of the image.
+   * @param image     the image stored under the name.
+   */
+  private void refineHistogram(String imageName, IImage image) {
+    if (!refining.add(image)) {
+      // already being computed
+      return;
+    }
+
+    ImageLease lease = new ImageLease(imageStorage, List.of(image));
+    new SwingWorker<IImageHistogram, Void>() {
+      @Override
+      protected IImageHistogram doInBackground() {
+        lease.begin();
+        try {
+          return new ImageHistogramImpl(image);
+        } finally {
+          lease.end();
+        }
+      }
+
+      @Override
+      protected void done() {
+        refining.remove(image);
+        try {
+          IImageHistogram histogram = get();
+          // the image may have been replaced or deleted in the meantime
+          if (imageStorage.hasImage(imageName) && imageStorage.getImage(imageName) == image) {
+            imageStorage.putHistogram(imageName, histogram);
+            if (imageName.equals(displayedImageName)) {
+              displayedHistogram = histogram;
+              view.updateHistogram(getPreviewHistogram());
+            }
+          }
+        } catch (InterruptedException | ExecutionException e) {
+          System.err.println("Failed to generate histogram: " + e.getMessage());
+        }
+      }
+    }.execute();
+  }
+
+  /**
+   * Helper function to queue a job on the background worker.
+   * A queued or running job with the same key is cancelled, so repeating a request quickly,
+   * e.g. the same operation on the same image, only keeps the result of the last one.
+   * Must be called on the event dispatch thread.
+   *
+   * @param key the key of the request, usually the destination image name.
+   * @param job the job to run.
+   */
+  private void submit(String key, Job job) {
+    Job previous = jobs.remove(key);
+    if (previous != null) {
+      previous.cancel(true);
+    }
+    job.key = key;
+    jobs.put(key, job);
+    worker.execute(job);
+    showProgress();
+  }
+
+  /**
+   * Helper function to show what the worker is busy with, or hide the progress bar when
+   * nothing is queued.
+   */
+  private void showProgress() {
+    Job running = null;
+    for (Job job : jobs.values()) {
+      if (job.started) {
+        running = job;
+        break;
+      }
+    }
+    if (jobs.isEmpty()) {
+      view.hideProgress();
+      return;
+    }
+    Job shown = running != null ? running : jobs.values().iterator().next();
+    int waiting = jobs.size() - 1;
+    view.showProgress(shown.description + (waiting > 0 ? " (" + waiting + " more queued)" : ""));
+  }
+
+  /**
+   * A command run on the background worker against a staging storage.
+   * The images it writes are committed to the storage, added to the view and displayed on the
+   * event dispatch thread. A single result that is small enough gets its exact histogram
+   * computed in the background too, larger ones are refined after they are shown.
+   * Cancelling interrupts the command, which stops at the next band of rows, and what it wrote
+   * is discarded on the worker once the command has returned, never while it still writes.
+   */
+  private final class Job extends SwingWorker<Void, Void> {
+    private final String description;
+    private final String errorPrefix;
+    private final ICommand command;
+    private final StagedStorage staging;
+    private final String successMessage;
+    private String key;
+    private String previewedName; // image whose brightness preview the job ends, or null
+    private volatile boolean started;
+    private volatile boolean ended; // the command has returned, the staging area is settled
+
+    /**
+     * Constructor creates a job that has not been queued yet.
+     *
+     * @param description    what the job does, shown next to the progress bar.
+     * @param errorPrefix    the start of the error shown if the command fails.
+     * @param command        the command to run, reading and writing the staging storage.
+     * @param staging        the staging storage, seeded with the images the command reads.
+     * @param successMessage the message shown once the job is done, or null for none.
+     */
+    private Job(String description, String errorPrefix, ICommand command,
+                StagedStorage staging, String successMessage) {
+      this.description = description;
+      this.errorPrefix = errorPrefix;
+      this.command = command;
+      this.staging = staging;
+      this.successMessage = successMessage;
+    }
+
+    /**
+     * Make the job end the brightness preview of an image if it fails or is cancelled,
+     * a preview otherwise stays until the result of the job is displayed.
+     *
+     * @param imageName the name of the previewed image.
+     * @return this job.
+     */
+    private Job endingPreviewOf(String imageName) {
+      this.previewedName = imageName;
+      return this;
+    }
+
+    @Override
+    protected Void doInBackground() {
+      if (!staging.getLease().begin()) {
+        return null;
+      }
+      boolean finished = false;
+      try {
+        started = true;
+        SwingUtilities.invokeLater(ImageGUIController.this::showProgress);
+        command.run();
+
+        List<String> written = staging.getWrittenNames();
+        if (written.size() == 1) {
+          IImage image = staging.getImage(written.get(0));
+          if ((long) image.getWidth() * image.getHeight() < SAMPLING_THRESHOLD) {
+            staging.getHistogram(written.get(0));
+          }
+        }
+        finished = true;
+        return null;
+      } finally {
+        staging.getLease().end();
+        ended = true;
+        // nothing is committed after a failure or a cancel, done() may already have run
+        if (!finished || isCancelled()) {
+          staging.discard();
+        }
+      }
+    }
+
+    @Override
+    protected void done() {
+      if (jobs.get(key) == this) {
+        jobs.remove(key);
+      }
+      showProgress();
+      if (isCancelled()) {
+        // a job that never began releases its images here, a running one when it ends
+        staging.getLease().cancel();
+        if (ended) {
+          // cancelled after the command returned, nothing writes to the staging area any more
+          staging.discard();
+        }
+        endPreview();
+        return;
+      }
+      try {
+        get();
+        staging.commit();
+
+        // Add the results to the view, the first one is selected and displayed
+        List<String> written = staging.getWrittenNames();
+        if (written.size() == 1) {
+          view.addImageId(written.get(0));
+          displaySelectedImage(written.get(0));
+        } else if (!written.isEmpty()) {
+          view.addImageIds(written);
+        }
+        if (successMessage != null) {
+          view.showMessage(successMessage);
+        }
+      } catch (ExecutionException e) {
+        endPreview();
+        view.showError(errorPrefix + e.getCause().getMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        endPreview();
+        view.showError(errorPrefix + e.getMessage());
+      }
+    }
+
+    /**
+     * Helper function to end the brightness preview the job was started from, if any.
+     */
+    private void endPreview() {
+      if (previewedName != null) {
+        ImageGUIController.this.endPreview(previewedName);
+      }
+    }
+  }
 }
@@ -0,0 +1,87 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.IImage;
+import model.IImageStorage;
+
+/**
+ * Keeps stored images open for a task that reads them off the event dispatch thread.
+ * The images are retained in the storage when the lease is taken on the event dispatch thread,
+ * and released exactly once: by the task when it ends, or by cancel() if the task never began.
+ * An image removed or overwritten in the meantime is only closed once nothing reads it.
+ */
+final class ImageLease {
+  private static final int NEW = 0;
+  private static final int READING = 1;
+  private static final int RELEASED = 2;
+
+  private final IImageStorage storage;
+  private final List<IImage> images;
+  private final AtomicInteger state;
+
+  /**
+   * Constructor retains the images. Must be called on the event dispatch thread,
+   * while the images are stored.
+   *
+   * @param storage the storage the images are stored in.
+   * @param images  the images the task reads.
+   */
+  ImageLease(IImageStorage storage, Collection<IImage> images) {
+    this.storage = storage;
+    this.images = new ArrayList<>(images);
+    this.state = new AtomicInteger(NEW);
+    for (IImage image : this.images) {
+      storage.retain(image);
+    }
+  }
+
+  /**
+   * Called by the task before it reads the images.
+   *
+   * @return true if the task may read the images, false if the lease was cancelled.
+   */
+  boolean begin() {
+    return state.compareAndSet(NEW, READING);
+  }
+
+  /**
+   * Called by the task once it no longer reads the images, if begin() returned true.
+   */
+  void end() {
+    if (state.compareAndSet(READING, RELEASED)) {
+      releaseAll();
+    }
+  }
+
+  /**
+   * Release the images if the task has not begun, it then never reads them.
+   * A task that has begun releases them itself when it ends.
+   */
+  void cancel() {
+    if (state.compareAndSet(NEW, RELEASED)) {
+      releaseAll();
+    }
+  }
+
+  /**
+   * Checks if the images have been released, by the task or by cancel().
+   *
+   * @return true if the lease no longer holds the images open.
+   */
+  boolean isReleased() {
+    return state.get() == RELEASED;
+  }
+
+  /**
+   * Helper function to release every image of the lease.
+   */
+  private void releaseAll() {
+    for (IImage image : images) {
+      storage.release(image);
+    }
+  }
+}
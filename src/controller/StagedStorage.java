@@ -0,0 +1,252 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.IImage;
+import model.IImageHistogram;
+import model.IImagePyramid;
+import model.IImageStorage;
+import model.ImageHistogramImpl;
+import model.ImagePyramidImpl;
+
+/**
+ * Class implements IImageStorage interface as a private staging area for a command that runs
+ * off the event dispatch thread. It is seeded on the event dispatch thread with the images the
+ * command reads, and keeps what the command writes to itself, so the background thread never
+ * touches the real storage. The written images are committed to the real storage on the event
+ * dispatch thread once the command is done, or discarded if it was cancelled. The seeded images
+ * are held open by a lease until the command no longer reads them.
+ */
+class StagedStorage implements IImageStorage {
+  private final IImageStorage storage;
+  private final Map<String, IImage> images;
+  private final Map<String, IImageHistogram> histograms;
+  private final Set<String> written;
+  private final Set<IImage> seeded; // the stored images, never closed by the staging area
+  private final ImageLease lease;
+
+  /**
+   * Constructor seeds the staging area with stored images and their cached histograms.
+   * Must be called on the thread that owns the real storage.
+   *
+   * @param storage the real storage, committed to later.
+   * @param names   the names of the stored images the command reads.
+   * @throws IllegalArgumentException if no image is stored under one of the names.
+   */
+  StagedStorage(IImageStorage storage, String... names) {
+    this.storage = storage;
+    this.images = new HashMap<>();
+    this.histograms = new HashMap<>();
+    this.written = new LinkedHashSet<>();
+    for (String name : names) {
+      images.put(name, storage.getImage(name));
+      if (storage.hasHistogram(name)) {
+        histograms.put(name, storage.getHistogram(name));
+      }
+    }
+    this.seeded = Collections.newSetFromMap(new IdentityHashMap<>());
+    seeded.addAll(images.values());
+    this.lease = new ImageLease(storage, seeded);
+  }
+
+  /**
+   * Get the lease that holds the seeded images open while the command reads them.
+   *
+   * @return the lease of the seeded images.
+   */
+  ImageLease getLease() {
+    return lease;
+  }
+
+  /**
+   * Adds an image to the staging area with the given name.
+   *
+   * @param name  the name of the image.
+   * @param image of type IImage to store.
+   * @throws IllegalArgumentException if name is null/empty or image is null.
+   * @throws IllegalStateException    if an image with this name already exists.
+   */
+  @Override
+  public synchronized void addImage(String name, IImage image) {
+    if (images.containsKey(name)) {
+      throw new IllegalStateException("Image with the same name already exists: " + name);
+    }
+    putImage(name, image);
+  }
+
+  /**
+   * Retrieves an image by name.
+   *
+   * @param name the name of the image.
+   * @return of type IImage to associated with the name.
+   * @throws IllegalArgumentException if name is null/empty or no image exists with this name.
+   */
+  @Override
+  public synchronized IImage getImage(String name) {
+    IImage image = images.get(name);
+    if (image == null) {
+      throw new IllegalArgumentException("Image object does not exist for the name: " + name);
+    }
+    return image;
+  }
+
+  /**
+   * Checks if an image exists with the given name.
+   *
+   * @param name the name of the image to check.
+   * @return true if an image exists with this name, false otherwise.
+   */
+  @Override
+  public synchronized boolean hasImage(String name) {
+    return images.containsKey(name);
+  }
+
+  /**
+   * Overwrite an existing image or add a new one. Nothing is closed, the real storage
+   * decides that on commit.
+   *
+   * @param name  the name of the image.
+   * @param image of type IImage to store.
+   * @throws IllegalArgumentException if name is null/empty or image is null.
+   */
+  @Override
+  public synchronized void putImage(String name, IImage image) {
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Name cannot be null or empty.");
+    }
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    images.put(name, image);
+    histograms.remove(name);
+    written.add(name);
+  }
+
+  /**
+   * Gets all images in the staging area.
+   *
+   * @return the map of image names and their IImage objects.
+   */
+  @Override
+  public synchronized Map<String, IImage> getAllImages() {
+    return new HashMap<>(images);
+  }
+
+  /**
+   * Removing images is left to the real storage, commands that run in the background
+   * only read and write images.
+   *
+   * @param name name of the image to delete.
+   * @throws IllegalStateException always.
+   */
+  @Override
+  public void removeImage(String name) {
+    throw new IllegalStateException("Images cannot be removed in the background");
+  }
+
+  /**
+   * Get the histogram of an image in the staging area, computing it if it is not known.
+   *
+   * @param name the name of the image.
+   * @return the histogram of the image.
+   * @throws IllegalArgumentException if no image exists with this name.
+   */
+  @Override
+  public synchronized IImageHistogram getHistogram(String name) {
+    IImageHistogram histogram = histograms.get(name);
+    if (histogram == null) {
+      histogram = new ImageHistogramImpl(getImage(name));
+      histograms.put(name, histogram);
+    }
+    return histogram;
+  }
+
+  /**
+   * Checks if the histogram of an image in the staging area is known.
+   *
+   * @param name the name of the image.
+   * @return true if the histogram is known.
+   */
+  @Override
+  public synchronized boolean hasHistogram(String name) {
+    return histograms.containsKey(name);
+  }
+
+  /**
+   * Keep a known histogram of an image in the staging area.
+   *
+   * @param name      the name of the image.
+   * @param histogram the histogram of the image.
+   * @throws IllegalArgumentException if histogram is null or no image exists with this name.
+   */
+  @Override
+  public synchronized void putHistogram(String name, IImageHistogram histogram) {
+    if (histogram == null) {
+      throw new IllegalArgumentException("Histogram cannot be null");
+    }
+    getImage(name);
+    histograms.put(name, histogram);
+  }
+
+  /**
+   * Get a new pyramid of an image in the staging area, nothing is cached.
+   *
+   * @param name the name of the image.
+   * @return the pyramid of the image.
+   * @throws IllegalArgumentException if no image exists with this name.
+   */
+  @Override
+  public synchronized IImagePyramid getPyramid(String name) {
+    return new ImagePyramidImpl(getImage(name));
+  }
+
+  /**
+   * Get the names the command wrote images to, in the order they were first written.
+   *
+   * @return the written names.
+   */
+  synchronized List<String> getWrittenNames() {
+    return new ArrayList<>(written);
+  }
+
+  /**
+   * Put every written image into the real storage, with its histogram if it is known.
+   * Must be called on the thread that owns the real storage.
+   */
+  synchronized void commit() {
+    for (String name : written) {
+      storage.putImage(name, images.get(name));
+      IImageHistogram histogram = histograms.get(name);
+      if (histogram != null) {
+        storage.putHistogram(name, histogram);
+      }
+    }
+  }
+
+  /**
+   * Drop the written images, closing those that hold memory outside the heap.
+   * Images the staging area was seeded with belong to the real storage and are left alone.
+   * The real storage is not touched, so this is called on the background thread once the
+   * command has returned.
+   */
+  synchronized void discard() {
+    for (String name : written) {
+      IImage image = images.get(name);
+      if (image instanceof AutoCloseable && !seeded.contains(image)) {
+        try {
+          ((AutoCloseable) image).close();
+        } catch (Exception e) {
+          // nothing else holds the image, it is dropped either way
+        }
+      }
+    }
+    written.clear();
+  }
+}
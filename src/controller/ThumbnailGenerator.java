@@ -0,0 +1,178 @@
+package controller;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+import model.IImage;
+import model.IImageStorage;
+import model.LazyImage;
+import operations.ResizeFilter;
+import operations.ResizeOperation;
+
+/**
+ * Creates the thumbnails of the image list on a background thread of its own,
+ * so they never wait for an operation and never hold up the event dispatch thread.
+ * Each request lists the rows that are visible, and thumbnails that were requested before
+ * but are no longer visible are cancelled before they start.
+ * Thumbnails are taken with the nearest filter, so only the rows and columns that end up in
+ * the thumbnail are read. An image that is not decoded yet is decoded subsampled for its
+ * thumbnail, and stays undecoded. Every requested image is held open in the storage until its
+ * thumbnail is done or cancelled.
+ */
+final class ThumbnailGenerator {
+  private final int size;
+  private final IImageStorage storage;
+  private final Listener listener;
+  private final ExecutorService executor;
+  private final Map<String, Task> pending; // queued or running, only used on the EDT
+
+  /**
+   * Called on the event dispatch thread when a thumbnail is ready.
+   */
+  interface Listener {
+    /**
+     * Called when the thumbnail of an image is ready.
+     *
+     * @param imageName the name of the image.
+     * @param source    the image the thumbnail was taken from.
+     * @param thumbnail the thumbnail.
+     */
+    void thumbnailReady(String imageName, IImage source, IImage thumbnail);
+  }
+
+  /**
+   * Constructor creates a generator with its own background thread.
+   *
+   * @param size     the width and height thumbnails are fitted into.
+   * @param storage  the storage the images are stored in.
+   * @param listener the listener told about every thumbnail that is ready.
+   * @throws IllegalArgumentException if size is not positive, or storage or listener is null.
+   */
+  ThumbnailGenerator(int size, IImageStorage storage, Listener listener) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Thumbnail size must be positive");
+    }
+    if (storage == null) {
+      throw new IllegalArgumentException("Storage cannot be null");
+    }
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener cannot be null");
+    }
+    this.size = size;
+    this.storage = storage;
+    this.listener = listener;
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "thumbnail-worker");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    this.pending = new HashMap<>();
+  }
+
+  /**
+   * Request the thumbnails of the visible rows, in the order they should be created.
+   * Requests of earlier calls for other images, or for an image that was replaced since,
+   * are cancelled. Must be called on the event dispatch thread.
+   *
+   * @param sources the images by name, in the order to create them.
+   */
+  void request(Map<String, IImage> sources) {
+    Iterator<Map.Entry<String, Task>> tasks = pending.entrySet().iterator();
+    while (tasks.hasNext()) {
+      Map.Entry<String, Task> entry = tasks.next();
+      if (sources.get(entry.getKey()) != entry.getValue().source) {
+        entry.getValue().lease.cancel();
+        tasks.remove();
+      }
+    }
+    for (Map.Entry<String, IImage> entry : sources.entrySet()) {
+      if (!pending.containsKey(entry.getKey())) {
+        Task task = new Task(entry.getKey(), entry.getValue());
+        pending.put(entry.getKey(), task);
+        executor.execute(task);
+      }
+    }
+  }
+
+  /**
+   * Create the thumbnail of an image, fitted into a square and keeping the aspect ratio.
+   * Images that already fit are returned as they are.
+   *
+   * @param image the image.
+   * @param size  the width and height of the square.
+   * @return the thumbnail.
+   * @throws IllegalStateException if the image cannot be decoded.
+   */
+  static IImage createThumbnail(IImage image, int size) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (width <= size && height <= size) {
+      return image instanceof LazyImage ? ((LazyImage) image).getImage() : image;
+    }
+    double scale = (double) size / Math.max(width, height);
+    int thumbnailWidth = Math.max(1, (int) Math.round(width * scale));
+    int thumbnailHeight = Math.max(1, (int) Math.round(height * scale));
+
+    IImage source = image;
+    if (image instanceof LazyImage) {
+      // decode no more pixels than the thumbnail needs
+      int step = Math.max(1, Math.min(width / thumbnailWidth, height / thumbnailHeight));
+      source = ((LazyImage) image).getSubsampled(step);
+    }
+    return new ResizeOperation(thumbnailWidth, thumbnailHeight, ResizeFilter.NEAREST)
+            .apply(source);
+  }
+
+  /**
+   * The creation of one thumbnail on the background thread.
+   */
+  private final class Task implements Runnable {
+    private final String imageName;
+    private final IImage source;
+    private final ImageLease lease;
+
+    /**
+     * Constructor creates the task of one image, holding the image open until it is done.
+     *
+     * @param imageName the name of the image.
+     * @param source    the image.
+     */
+    private Task(String imageName, IImage source) {
+      this.imageName = imageName;
+      this.source = source;
+      this.lease = new ImageLease(storage, List.of(source));
+    }
+
+    @Override
+    public void run() {
+      if (!lease.begin()) {
+        return; // cancelled before it started
+      }
+      IImage thumbnail;
+      try {
+        thumbnail = createThumbnail(source, size);
+      } catch (RuntimeException e) {
+        System.err.println("Failed to create thumbnail: " + e.getMessage());
+        thumbnail = null;
+      } finally {
+        lease.end();
+      }
+      IImage result = thumbnail;
+      SwingUtilities.invokeLater(() -> {
+        if (pending.get(imageName) == this) {
+          pending.remove(imageName);
+          if (result != null) {
+            listener.thumbnailReady(imageName, source, result);
+          }
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageStorage;
+import operations.IOperation;
+
+/**
+ * Abstract class for commands that run a spatial filter, e.g. blur or edge detection.
+ * It contains the logic similar to all filters
+ * but only abstracts the operation that is used to perform the image manipulation.
+ */
+public abstract class AbstractFilterCommand implements ICommand {
+  protected final String sourceName;
+  protected final String destName;
+  protected final IImageStorage imageDatabase;
+
+  /**
+   * Constructor initializes the variables to filter an image.
+   *
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public AbstractFilterCommand(String sourceName, String destName, IImageStorage imageDatabase) {
+    this.sourceName = sourceName;
+    this.destName = destName;
+    this.imageDatabase = imageDatabase;
+  }
+
+  /**
+   * Executes the image manipulation operation.
+   *
+   * @throws IllegalArgumentException if command is null or not found.
+   */
+  @Override
+  public void run() throws IllegalArgumentException {
+    IImage sourceImage = imageDatabase.getImage(sourceName);
+    IImage result = getFilterOperation().apply(sourceImage);
+    imageDatabase.putImage(destName, result);
+  }
+
+  /**
+   * Get the specific IOperation class to apply on the image.
+   *
+   * @return the IOperation class to apply on the image.
+   */
+  protected abstract IOperation getFilterOperation();
+}
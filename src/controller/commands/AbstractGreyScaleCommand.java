@@ -1,6 +1,7 @@
 package controller.commands;
 
 import model.IImage;
+import model.IImageHistogram;
 import model.IImageStorage;
 import operations.IOperation;
 
@@ -37,8 +38,11 @@ public abstract class AbstractGreyScaleCommand implements ICommand {
     IImage sourceImage = imageDatabase.getImage(sourceName);
     IOperation greyscaleOperation = getGreyScaleOperation();
     IImage result = greyscaleOperation.apply(sourceImage);
+    IImageHistogram histogram = DerivedHistograms.derive(
+            imageDatabase, sourceName, sourceImage, greyscaleOperation);
 
     imageDatabase.putImage(destName, result);
+    DerivedHistograms.store(imageDatabase, destName, result, histogram);
   }
 
   /**
@@ -0,0 +1,68 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageHistogram;
+import model.IImageStorage;
+
+/**
+ * Abstract class for commands that store a view of an image, e.g. a crop or a flip.
+ * No pixels are copied, the result reads them from the source image.
+ */
+public abstract class AbstractViewCommand implements ICommand {
+  protected final String sourceName;
+  protected final String destName;
+  protected final IImageStorage imageDatabase;
+
+  /**
+   * Constructor initializes the variables to create a view of an image.
+   *
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public AbstractViewCommand(String sourceName, String destName, IImageStorage imageDatabase) {
+    this.sourceName = sourceName;
+    this.destName = destName;
+    this.imageDatabase = imageDatabase;
+  }
+
+  /**
+   * Executes the image manipulation operation.
+   * A cached histogram of the source is kept for views that only move pixels around.
+   *
+   * @throws IllegalArgumentException if command is null or not found.
+   */
+  @Override
+  public void run() throws IllegalArgumentException {
+    IImage sourceImage = imageDatabase.getImage(sourceName);
+    IImage view = createView(sourceImage);
+    IImageHistogram histogram = null;
+    if (keepsEveryPixel() && imageDatabase.hasHistogram(sourceName)) {
+      histogram = imageDatabase.getHistogram(sourceName);
+    }
+
+    imageDatabase.putImage(destName, view);
+    if (histogram != null) {
+      imageDatabase.putHistogram(destName, histogram);
+    }
+  }
+
+  /**
+   * Create the view of the source image.
+   *
+   * @param sourceImage the image to view.
+   * @return the view.
+   * @throws IllegalArgumentException if the view does not fit the image.
+   */
+  protected abstract IImage createView(IImage sourceImage);
+
+  /**
+   * Check whether the view shows every pixel of the source exactly once, so its histogram
+   * is the histogram of the source.
+   *
+   * @return true unless the view drops pixels.
+   */
+  protected boolean keepsEveryPixel() {
+    return true;
+  }
+}
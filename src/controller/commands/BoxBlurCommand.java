@@ -0,0 +1,36 @@
+package controller.commands;
+
+import model.IImageStorage;
+import operations.BoxBlurOperation;
+import operations.IOperation;
+
+/**
+ * Command class to blur an image with the mean of a square window around every pixel.
+ */
+public class BoxBlurCommand extends AbstractFilterCommand {
+  private final int radius;
+
+  /**
+   * Constructor initializes the variables to blur an image.
+   *
+   * @param radius        of type int, the number of pixels the window reaches on each side.
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public BoxBlurCommand(
+          int radius, String sourceName, String destName, IImageStorage imageDatabase) {
+    super(sourceName, destName, imageDatabase);
+    this.radius = radius;
+  }
+
+  /**
+   * Get the specific IOperation class to apply on the image.
+   *
+   * @return the IOperation class to apply on the image.
+   */
+  @Override
+  protected IOperation getFilterOperation() {
+    return new BoxBlurOperation(radius);
+  }
+}
@@ -1,6 +1,7 @@
 package controller.commands;
 
 import model.IImage;
+import model.IImageHistogram;
 import model.IImageStorage;
 import operations.BrightenOperation;
 
@@ -37,7 +38,12 @@ public class BrightenCommand implements ICommand {
   @Override
   public void run() throws IllegalArgumentException {
     IImage sourceImage = imageDatabase.getImage(sourceName);
-    IImage result = new BrightenOperation(value).apply(sourceImage);
+    BrightenOperation operation = new BrightenOperation(value);
+    IImage result = operation.apply(sourceImage);
+    IImageHistogram histogram = DerivedHistograms.derive(
+            imageDatabase, sourceName, sourceImage, operation);
+
     imageDatabase.putImage(destName, result);
+    DerivedHistograms.store(imageDatabase, destName, result, histogram);
   }
 }
@@ -0,0 +1,57 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageStorage;
+import model.ImageView;
+
+/**
+ * Command class to crop a rectangle of an image without copying its pixels.
+ */
+public class CropCommand extends AbstractViewCommand {
+  private final int x;
+  private final int y;
+  private final int width;
+  private final int height;
+
+  /**
+   * Constructor initializes the variables to crop an image.
+   *
+   * @param x             of type int, the left column of the rectangle.
+   * @param y             of type int, the top row of the rectangle.
+   * @param width         of type int, the width of the rectangle.
+   * @param height        of type int, the height of the rectangle.
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public CropCommand(int x, int y, int width, int height, String sourceName, String destName,
+                     IImageStorage imageDatabase) {
+    super(sourceName, destName, imageDatabase);
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Create the view of the source image.
+   *
+   * @param sourceImage the image to view.
+   * @return the view.
+   * @throws IllegalArgumentException if the view does not fit the image.
+   */
+  @Override
+  protected IImage createView(IImage sourceImage) {
+    return ImageView.crop(sourceImage, x, y, width, height);
+  }
+
+  /**
+   * A crop drops the pixels outside of the rectangle.
+   *
+   * @return false.
+   */
+  @Override
+  protected boolean keepsEveryPixel() {
+    return false;
+  }
+}
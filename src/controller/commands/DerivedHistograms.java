@@ -0,0 +1,55 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageHistogram;
+import model.IImageStorage;
+import model.ImageHistogramImpl;
+import operations.IOperation;
+import operations.IPointOperation;
+
+/**
+ * Helper functions for commands whose operation can derive the histogram of its result.
+ * When the histogram of the source image is already cached, the histogram of the result is
+ * derived from it and cached as well, so displaying the result does not scan it again.
+ * Nothing is computed when the source histogram is not cached, e.g. when running scripts.
+ */
+final class DerivedHistograms {
+  private DerivedHistograms() {
+  }
+
+  /**
+   * Derive the histogram of the result of an operation from the cached source histogram.
+   * This has to happen before the result is stored, since storing it may replace the source.
+   *
+   * @param imageDatabase the storage the source image is in.
+   * @param sourceName    the name of the source image.
+   * @param sourceImage   the source image.
+   * @param operation     the operation that creates the result.
+   * @return the derived histogram, which may not have every channel,
+   *         or null if it cannot be derived.
+   */
+  static IImageHistogram derive(IImageStorage imageDatabase, String sourceName,
+                                IImage sourceImage, IOperation operation) {
+    if (!(operation instanceof IPointOperation) || !imageDatabase.hasHistogram(sourceName)) {
+      return null;
+    }
+    return ((IPointOperation) operation).mapHistogram(
+            imageDatabase.getHistogram(sourceName), sourceImage.getMaxValue());
+  }
+
+  /**
+   * Cache a derived histogram for a stored result.
+   * Channels the operation could not derive are counted from the result.
+   *
+   * @param imageDatabase the storage the result is in.
+   * @param destName      the name the result is stored under.
+   * @param result        the result image.
+   * @param histogram     the derived histogram, or null to cache nothing.
+   */
+  static void store(IImageStorage imageDatabase, String destName,
+                    IImage result, IImageHistogram histogram) {
+    if (histogram != null) {
+      imageDatabase.putHistogram(destName, ImageHistogramImpl.complete(histogram, result));
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageHistogram;
+import model.IImageStorage;
+import operations.EqualizeOperation;
+
+/**
+ * Command class to equalize the histogram of an image.
+ * The cached histogram of the source is used to build the lookup tables.
+ */
+public class EqualizeCommand implements ICommand {
+  private final String sourceName;
+  private final String destName;
+  private final IImageStorage imageDatabase;
+
+  /**
+   * Constructor initializes the variables to equalize an image.
+   *
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public EqualizeCommand(String sourceName, String destName, IImageStorage imageDatabase) {
+    this.sourceName = sourceName;
+    this.destName = destName;
+    this.imageDatabase = imageDatabase;
+  }
+
+  /**
+   * Executes the image manipulation operation.
+   *
+   * @throws IllegalArgumentException if command is null or not found.
+   */
+  @Override
+  public void run() throws IllegalArgumentException {
+    IImage sourceImage = imageDatabase.getImage(sourceName);
+    EqualizeOperation operation = new EqualizeOperation(imageDatabase.getHistogram(sourceName));
+    IImage result = operation.apply(sourceImage);
+    IImageHistogram histogram = DerivedHistograms.derive(
+            imageDatabase, sourceName, sourceImage, operation);
+
+    imageDatabase.putImage(destName, result);
+    DerivedHistograms.store(imageDatabase, destName, result, histogram);
+  }
+}
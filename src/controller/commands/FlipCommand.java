@@ -0,0 +1,39 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageStorage;
+import model.ImageView;
+
+/**
+ * Command class to mirror an image left to right or top to bottom without copying its pixels.
+ */
+public class FlipCommand extends AbstractViewCommand {
+  private final boolean horizontal;
+
+  /**
+   * Constructor initializes the variables to flip an image.
+   *
+   * @param horizontal    of type boolean, true to mirror left to right, false top to bottom.
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public FlipCommand(boolean horizontal, String sourceName, String destName,
+                     IImageStorage imageDatabase) {
+    super(sourceName, destName, imageDatabase);
+    this.horizontal = horizontal;
+  }
+
+  /**
+   * Create the view of the source image.
+   *
+   * @param sourceImage the image to view.
+   * @return the view.
+   * @throws IllegalArgumentException if the view does not fit the image.
+   */
+  @Override
+  protected IImage createView(IImage sourceImage) {
+    return horizontal ? ImageView.flipHorizontal(sourceImage)
+            : ImageView.flipVertical(sourceImage);
+  }
+}
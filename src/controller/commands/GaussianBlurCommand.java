@@ -0,0 +1,36 @@
+package controller.commands;
+
+import model.IImageStorage;
+import operations.GaussianBlurOperation;
+import operations.IOperation;
+
+/**
+ * Command class to blur an image with a Gaussian of any standard deviation.
+ */
+public class GaussianBlurCommand extends AbstractFilterCommand {
+  private final double sigma;
+
+  /**
+   * Constructor initializes the variables to blur an image.
+   *
+   * @param sigma         of type double, the standard deviation of the Gaussian in pixels.
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public GaussianBlurCommand(
+          double sigma, String sourceName, String destName, IImageStorage imageDatabase) {
+    super(sourceName, destName, imageDatabase);
+    this.sigma = sigma;
+  }
+
+  /**
+   * Get the specific IOperation class to apply on the image.
+   *
+   * @return the IOperation class to apply on the image.
+   */
+  @Override
+  protected IOperation getFilterOperation() {
+    return new GaussianBlurOperation(sigma);
+  }
+}
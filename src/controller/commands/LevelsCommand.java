@@ -0,0 +1,52 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageHistogram;
+import model.IImageStorage;
+import operations.LevelsOperation;
+
+/**
+ * Command class to set the levels of an image automatically.
+ * The cached histogram of the source is used to find the black and white points.
+ */
+public class LevelsCommand implements ICommand {
+  private final double clipPercent;
+  private final String sourceName;
+  private final String destName;
+  private final IImageStorage imageDatabase;
+
+  /**
+   * Constructor initializes the variables to set the levels of an image.
+   *
+   * @param clipPercent   of type double, percent of pixels ignored at each end of a channel.
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public LevelsCommand(
+          double clipPercent, String sourceName, String destName, IImageStorage imageDatabase) {
+    this.clipPercent = clipPercent;
+    this.sourceName = sourceName;
+    this.destName = destName;
+    this.imageDatabase = imageDatabase;
+  }
+
+  /**
+   * Executes the image manipulation operation.
+   *
+   * @throws IllegalArgumentException if command is null or not found,
+   *                                  or the clip percent is out of range.
+   */
+  @Override
+  public void run() throws IllegalArgumentException {
+    IImage sourceImage = imageDatabase.getImage(sourceName);
+    LevelsOperation operation =
+            new LevelsOperation(clipPercent, imageDatabase.getHistogram(sourceName));
+    IImage result = operation.apply(sourceImage);
+    IImageHistogram histogram = DerivedHistograms.derive(
+            imageDatabase, sourceName, sourceImage, operation);
+
+    imageDatabase.putImage(destName, result);
+    DerivedHistograms.store(imageDatabase, destName, result, histogram);
+  }
+}
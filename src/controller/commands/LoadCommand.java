@@ -1,22 +1,27 @@
 package controller.commands;
 
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 
 import model.IImage;
 import model.IImageStorage;
+import model.LazyImage;
 import view.reader.IViewReader;
 import view.reader.PPMReader;
 import view.reader.StandardImageReader;
 
 /**
  * Class to load the image and create the IImage object and store them in a hashmap.
+ * A lazy load only reads the header of the file and stores a LazyImage,
+ * the pixels are decoded from the file when they are first used.
  */
 public class LoadCommand implements ICommand {
   private final String filePath;
   private final String srcImageName;
   private final IImageStorage imageDatabase;
+  private final boolean lazy;
 
   /**
    * Constructor takes in the file path, image name and database to create the IImage object
@@ -27,9 +32,24 @@ public class LoadCommand implements ICommand {
    * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
    */
   public LoadCommand(String filePath, String srcImageName, IImageStorage imageDatabase) {
+    this(filePath, srcImageName, imageDatabase, false);
+  }
+
+  /**
+   * Constructor takes in the file path, image name and database, and whether to only read the
+   * header of the file now and decode the pixels when they are first used.
+   *
+   * @param filePath      of type String, the file path where the image is located.
+   * @param srcImageName  of type String. Name of the source image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   * @param lazy          true to store a LazyImage that decodes the file on first use.
+   */
+  public LoadCommand(
+          String filePath, String srcImageName, IImageStorage imageDatabase, boolean lazy) {
     this.filePath = filePath;
     this.srcImageName = srcImageName;
     this.imageDatabase = imageDatabase;
+    this.lazy = lazy;
   }
 
   /**
@@ -39,29 +59,18 @@ public class LoadCommand implements ICommand {
    */
   @Override
   public void run() throws IllegalArgumentException {
+    String format = getFormat(getFileExtension(filePath));
     try {
-      IViewReader reader;
-      String extension = getFileExtension(filePath);
-
-      switch (extension.toLowerCase()) {
-        case "ppm":
-          reader = new PPMReader(new FileReader(filePath));
-          break;
-        case "jpg":
-        case "jpeg":
-          reader = new StandardImageReader(new FileInputStream(filePath), "jpg");
-          break;
-        case "png":
-          reader = new StandardImageReader(new FileInputStream(filePath), "png");
-          break;
-        case "bmp":
-          reader = new StandardImageReader(new FileInputStream(filePath), "bmp");
-          break;
-        default:
-          throw new IllegalArgumentException("Unsupported file format: " + extension);
+      IImage image;
+      if (lazy) {
+        int[] header;
+        try (InputStream input = new FileInputStream(filePath)) {
+          header = createReader(input, format).readHeader();
+        }
+        image = new LazyImage(header[0], header[1], header[2], step -> read(format, step));
+      } else {
+        image = read(format, 1);
       }
-
-      IImage image = reader.read();
       imageDatabase.putImage(srcImageName, image);
 
     } catch (IOException e) {
@@ -69,6 +78,58 @@ public class LoadCommand implements ICommand {
     }
   }
 
+  /**
+   * Helper function to read the pixels of the file.
+   *
+   * @param format the format of the file.
+   * @param step   the distance between the pixels kept, 1 to read every pixel.
+   * @return the image read.
+   * @throws IOException if fail to read the file.
+   */
+  private IImage read(String format, int step) throws IOException {
+    try (InputStream input = new FileInputStream(filePath)) {
+      return createReader(input, format).read(step);
+    }
+  }
+
+  /**
+   * Helper function to create the reader of a format.
+   *
+   * @param input  the stream of the file.
+   * @param format the format of the file.
+   * @return the reader.
+   */
+  private static IViewReader createReader(InputStream input, String format) {
+    if (format.equals("ppm")) {
+      return new PPMReader(new InputStreamReader(input));
+    }
+    return new StandardImageReader(input, format);
+  }
+
+  /**
+   * Helper function to get the format of a file extension.
+   *
+   * @param extension the file extension.
+   * @return "ppm" for PPM and PGM files, otherwise the format name ImageIO uses.
+   * @throws IllegalArgumentException if the format is not supported.
+   */
+  private static String getFormat(String extension) {
+    switch (extension.toLowerCase()) {
+      case "ppm":
+      case "pgm":
+        return "ppm";
+      case "jpg":
+      case "jpeg":
+        return "jpg";
+      case "png":
+        return "png";
+      case "bmp":
+        return "bmp";
+      default:
+        throw new IllegalArgumentException("Unsupported file format: " + extension);
+    }
+  }
+
   /**
    * Helper class to get the file type name.
    *
@@ -84,4 +145,3 @@ public class LoadCommand implements ICommand {
     return filePath.substring(lastDot + 1);
   }
 }
-
@@ -0,0 +1,56 @@
+package controller.commands;
+
+import model.CopyOnWriteImage;
+import model.IImage;
+import model.IImageHistogram;
+import model.IImageStorage;
+import model.ImageView;
+
+/**
+ * Command class to copy the pixels of a view into an image of its own, so it no longer reads
+ * from the image it was created from. A copy-on-write image is stored as a snapshot, which
+ * takes constant time and keeps the two names independent. Other images are stored as they are.
+ */
+public class MaterializeCommand implements ICommand {
+  private final String sourceName;
+  private final String destName;
+  private final IImageStorage imageDatabase;
+
+  /**
+   * Constructor initializes the variables to materialize an image.
+   *
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public MaterializeCommand(String sourceName, String destName, IImageStorage imageDatabase) {
+    this.sourceName = sourceName;
+    this.destName = destName;
+    this.imageDatabase = imageDatabase;
+  }
+
+  /**
+   * Executes the image manipulation operation.
+   *
+   * @throws IllegalArgumentException if command is null or not found.
+   */
+  @Override
+  public void run() throws IllegalArgumentException {
+    IImage sourceImage = imageDatabase.getImage(sourceName);
+    IImage result = sourceImage;
+    if (sourceImage instanceof ImageView) {
+      result = ((ImageView) sourceImage).materialize();
+    } else if (sourceImage instanceof CopyOnWriteImage) {
+      result = ((CopyOnWriteImage) sourceImage).snapshot();
+    }
+    IImageHistogram histogram = null;
+    if (imageDatabase.hasHistogram(sourceName)) {
+      histogram = imageDatabase.getHistogram(sourceName);
+    }
+
+    imageDatabase.putImage(destName, result);
+    if (histogram != null) {
+      imageDatabase.putHistogram(destName, histogram);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package controller.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import model.IImage;
+import model.IImageHistogram;
+import model.IImageStorage;
+import operations.AbstractGrayScaleOperation;
+import operations.BlueGreyScaleOperation;
+import operations.GreenGreyScaleOperation;
+import operations.IntensityGreyScaleOperation;
+import operations.LumaGreyScaleOperation;
+import operations.MultiComponentOperation;
+import operations.RedGreyScaleOperation;
+import operations.ValueGreyScaleOperation;
+
+/**
+ * Command class to create several greyscale component images from one source in one pass.
+ * Each result is stored as the destination prefix followed by the component name,
+ * e.g. "koala-red" and "koala-luma" for the prefix "koala".
+ */
+public class MultiComponentCommand implements ICommand {
+  public static final List<String> ALL_COMPONENTS = List.of(
+          "red", "green", "blue", "value", "intensity", "luma");
+
+  private final List<String> components;
+  private final String sourceName;
+  private final String destPrefix;
+  private final IImageStorage imageDatabase;
+
+  /**
+   * Constructor initializes the variables to extract the components of an image.
+   *
+   * @param components    the component names (red, green, blue, value, intensity, luma),
+   *                      or a single "all" for every component.
+   * @param sourceName    of type string, source name of the image.
+   * @param destPrefix    of type string, prefix of the destination image names.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   * @throws IllegalArgumentException if a component name is not known.
+   */
+  public MultiComponentCommand(
+          List<String> components, String sourceName, String destPrefix,
+          IImageStorage imageDatabase) {
+    if (components == null || components.isEmpty()) {
+      throw new IllegalArgumentException("At least one component is needed");
+    }
+    if (components.size() == 1 && components.get(0).equalsIgnoreCase("all")) {
+      this.components = ALL_COMPONENTS;
+    } else {
+      List<String> names = new ArrayList<>();
+      for (String component : components) {
+        String name = component.toLowerCase();
+        createOperation(name); // fail early on unknown names
+        if (!names.contains(name)) {
+          names.add(name);
+        }
+      }
+      this.components = Collections.unmodifiableList(names);
+    }
+    this.sourceName = sourceName;
+    this.destPrefix = destPrefix;
+    this.imageDatabase = imageDatabase;
+  }
+
+  /**
+   * Executes the image manipulation operation.
+   *
+   * @throws IllegalArgumentException if command is null or not found.
+   */
+  @Override
+  public void run() throws IllegalArgumentException {
+    IImage sourceImage = imageDatabase.getImage(sourceName);
+
+    List<AbstractGrayScaleOperation> operations = new ArrayList<>();
+    for (String component : components) {
+      operations.add(createOperation(component));
+    }
+    List<IImage> results = new MultiComponentOperation(operations).apply(sourceImage);
+
+    // derive before storing, the source may be overwritten by one of the results
+    List<IImageHistogram> histograms = new ArrayList<>();
+    for (AbstractGrayScaleOperation operation : operations) {
+      histograms.add(DerivedHistograms.derive(imageDatabase, sourceName, sourceImage, operation));
+    }
+
+    List<String> destNames = getDestNames();
+    for (int i = 0; i < results.size(); i++) {
+      imageDatabase.putImage(destNames.get(i), results.get(i));
+      DerivedHistograms.store(imageDatabase, destNames.get(i), results.get(i), histograms.get(i));
+    }
+  }
+
+  /**
+   * Get the names the results are stored under, in the order of the components.
+   *
+   * @return the destination image names.
+   */
+  public List<String> getDestNames() {
+    List<String> names = new ArrayList<>();
+    for (String component : components) {
+      names.add(destPrefix + "-" + component);
+    }
+    return names;
+  }
+
+  /**
+   * Helper function to create the greyscale operation for a component name.
+   *
+   * @param component the component name.
+   * @return the greyscale operation of the component.
+   * @throws IllegalArgumentException if the component name is not known.
+   */
+  private static AbstractGrayScaleOperation createOperation(String component) {
+    switch (component) {
+      case "red":
+        return new RedGreyScaleOperation();
+      case "green":
+        return new GreenGreyScaleOperation();
+      case "blue":
+        return new BlueGreyScaleOperation();
+      case "value":
+        return new ValueGreyScaleOperation();
+      case "intensity":
+        return new IntensityGreyScaleOperation();
+      case "luma":
+        return new LumaGreyScaleOperation();
+      default:
+        throw new IllegalArgumentException("Unknown component: " + component);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package controller.commands;
+
+import model.IImageStorage;
+import operations.IOperation;
+import operations.RankFilterOperation;
+
+/**
+ * Command class to replace every pixel with a percentile of the window around it,
+ * e.g. the median to remove noise.
+ */
+public class RankFilterCommand extends AbstractFilterCommand {
+  private final int radius;
+  private final double percentile;
+
+  /**
+   * Constructor initializes the variables to filter an image.
+   *
+   * @param radius        of type int, the number of pixels the window reaches on each side.
+   * @param percentile    of type double, the percentile to take from 0 to 100.
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public RankFilterCommand(int radius, double percentile, String sourceName, String destName,
+                           IImageStorage imageDatabase) {
+    super(sourceName, destName, imageDatabase);
+    this.radius = radius;
+    this.percentile = percentile;
+  }
+
+  /**
+   * Get the specific IOperation class to apply on the image.
+   *
+   * @return the IOperation class to apply on the image.
+   */
+  @Override
+  protected IOperation getFilterOperation() {
+    return new RankFilterOperation(radius, percentile);
+  }
+}
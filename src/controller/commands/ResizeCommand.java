@@ -0,0 +1,84 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageStorage;
+import operations.ResizeFilter;
+import operations.ResizeOperation;
+
+/**
+ * Command class to resize an image.
+ * A width or height of 0 is computed from the other one to keep the aspect ratio of the image.
+ */
+public class ResizeCommand implements ICommand {
+  private final int width;
+  private final int height;
+  private final ResizeFilter filter;
+  private final String sourceName;
+  private final String destName;
+  private final IImageStorage imageDatabase;
+
+  /**
+   * Constructor initializes the variables to resize an image.
+   *
+   * @param width         of type int, the width of the result, 0 to keep the aspect ratio.
+   * @param height        of type int, the height of the result, 0 to keep the aspect ratio.
+   * @param filter        of type ResizeFilter, how the source pixels are blended.
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   * @throws IllegalArgumentException if a dimension is negative, both are 0 or filter is null.
+   */
+  public ResizeCommand(int width, int height, ResizeFilter filter,
+                       String sourceName, String destName, IImageStorage imageDatabase) {
+    if (width < 0 || height < 0 || (width == 0 && height == 0)) {
+      throw new IllegalArgumentException("Dimensions must be positive, or 0 for one of them");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("Filter cannot be null");
+    }
+    this.width = width;
+    this.height = height;
+    this.filter = filter;
+    this.sourceName = sourceName;
+    this.destName = destName;
+    this.imageDatabase = imageDatabase;
+  }
+
+  /**
+   * Get the filter with a name, ignoring case, e.g. "lanczos".
+   *
+   * @param name the name of the filter.
+   * @return the filter.
+   * @throws IllegalArgumentException if no filter has the name.
+   */
+  public static ResizeFilter parseFilter(String name) {
+    for (ResizeFilter filter : ResizeFilter.values()) {
+      if (filter.name().equalsIgnoreCase(name)) {
+        return filter;
+      }
+    }
+    throw new IllegalArgumentException(
+            "Unknown filter: " + name + ", use nearest, bilinear, area or lanczos");
+  }
+
+  /**
+   * Executes the image manipulation operation.
+   *
+   * @throws IllegalArgumentException if command is null or not found.
+   */
+  @Override
+  public void run() throws IllegalArgumentException {
+    IImage sourceImage = imageDatabase.getImage(sourceName);
+    int resultWidth = width;
+    int resultHeight = height;
+    if (resultWidth == 0) {
+      resultWidth = (int) Math.max(1, Math.round(
+              (double) sourceImage.getWidth() * resultHeight / sourceImage.getHeight()));
+    } else if (resultHeight == 0) {
+      resultHeight = (int) Math.max(1, Math.round(
+              (double) sourceImage.getHeight() * resultWidth / sourceImage.getWidth()));
+    }
+    IImage result = new ResizeOperation(resultWidth, resultHeight, filter).apply(sourceImage);
+    imageDatabase.putImage(destName, result);
+  }
+}
@@ -0,0 +1,39 @@
+package controller.commands;
+
+import model.IImage;
+import model.IImageStorage;
+import model.ImageView;
+
+/**
+ * Command class to rotate an image clockwise by a multiple of 90 degrees without copying its
+ * pixels.
+ */
+public class RotateCommand extends AbstractViewCommand {
+  private final int degrees;
+
+  /**
+   * Constructor initializes the variables to rotate an image.
+   *
+   * @param degrees       of type int, the clockwise angle, 90, 180 or 270.
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public RotateCommand(int degrees, String sourceName, String destName,
+                       IImageStorage imageDatabase) {
+    super(sourceName, destName, imageDatabase);
+    this.degrees = degrees;
+  }
+
+  /**
+   * Create the view of the source image.
+   *
+   * @param sourceImage the image to view.
+   * @return the view.
+   * @throws IllegalArgumentException if the view does not fit the image.
+   */
+  @Override
+  protected IImage createView(IImage sourceImage) {
+    return ImageView.rotate(sourceImage, degrees);
+  }
+}
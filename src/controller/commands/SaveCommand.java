@@ -6,6 +6,7 @@ import java.io.IOException;
 
 import model.IImage;
 import model.IImageStorage;
+import model.LazyImage;
 import view.writer.IWriter;
 import view.writer.PPMWriter;
 import view.writer.StandardImageWriter;
@@ -40,6 +41,10 @@ public class SaveCommand implements ICommand {
   public void run() throws IllegalArgumentException {
     try {
       IImage image = imageDatabase.getImage(destImageName);
+      if (image instanceof LazyImage) {
+        // the writers recognize how the decoded image is stored, e.g. as greyscale
+        image = ((LazyImage) image).getImage();
+      }
       IWriter writer;
       String fileType = getFileExtension(filePath);
 
@@ -47,6 +52,9 @@ public class SaveCommand implements ICommand {
         case "ppm":
           writer = new PPMWriter(new FileWriter(filePath));
           break;
+        case "pgm":
+          writer = new PPMWriter(new FileWriter(filePath), true);
+          break;
         case "jpg":
         case "jpeg":
           writer = new StandardImageWriter(new FileOutputStream(filePath), "jpg");
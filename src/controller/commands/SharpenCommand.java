@@ -0,0 +1,32 @@
+package controller.commands;
+
+import model.IImageStorage;
+import operations.ConvolutionOperation;
+import operations.IOperation;
+import operations.Kernel;
+
+/**
+ * Command class to sharpen an image with the 5x5 sharpen kernel.
+ */
+public class SharpenCommand extends AbstractFilterCommand {
+  /**
+   * Constructor initializes the variables to filter an image.
+   *
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public SharpenCommand(String sourceName, String destName, IImageStorage imageDatabase) {
+    super(sourceName, destName, imageDatabase);
+  }
+
+  /**
+   * Get the specific IOperation class to apply on the image.
+   *
+   * @return the IOperation class to apply on the image.
+   */
+  @Override
+  protected IOperation getFilterOperation() {
+    return new ConvolutionOperation(Kernel.sharpen());
+  }
+}
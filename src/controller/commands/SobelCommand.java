@@ -0,0 +1,31 @@
+package controller.commands;
+
+import model.IImageStorage;
+import operations.IOperation;
+import operations.SobelOperation;
+
+/**
+ * Command class to detect the edges of an image with the Sobel operator.
+ */
+public class SobelCommand extends AbstractFilterCommand {
+  /**
+   * Constructor initializes the variables to filter an image.
+   *
+   * @param sourceName    of type string, source name of the image.
+   * @param destName      of type string, destination name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   */
+  public SobelCommand(String sourceName, String destName, IImageStorage imageDatabase) {
+    super(sourceName, destName, imageDatabase);
+  }
+
+  /**
+   * Get the specific IOperation class to apply on the image.
+   *
+   * @return the IOperation class to apply on the image.
+   */
+  @Override
+  protected IOperation getFilterOperation() {
+    return new SobelOperation();
+  }
+}
@@ -0,0 +1,140 @@
+package controller.commands;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Locale;
+
+import model.HistogramChannel;
+import model.IImage;
+import model.IImageHistogram;
+import model.IImageStatistics;
+import model.IImageStorage;
+import model.ImageStatisticsImpl;
+
+/**
+ * Command class to write the statistics of an image as a single line of JSON, e.g.
+ * {"image":"koala","width":1024,"height":768,"maxValue":255,"pixels":786432,
+ * "channels":{"red":{"min":0,"max":255,"mean":117.5,...,"p50":112,...},...}}.
+ * Percentiles come from the cached histogram of the image when there is an exact one,
+ * otherwise they are counted in the same pass over the pixels as the other statistics.
+ */
+public class StatsCommand implements ICommand {
+  private static final double[] PERCENTILES = {1, 5, 25, 50, 75, 95, 99};
+
+  private final String sourceName;
+  private final IImageStorage imageDatabase;
+  private final Appendable output;
+
+  /**
+   * Constructor initializes the variables to write the statistics of an image.
+   *
+   * @param sourceName    of type string, source name of the image.
+   * @param imageDatabase of type IImageStorage. Hashmap where images are stored.
+   * @param output        of type Appendable, where the statistics are written.
+   */
+  public StatsCommand(String sourceName, IImageStorage imageDatabase, Appendable output) {
+    this.sourceName = sourceName;
+    this.imageDatabase = imageDatabase;
+    this.output = output;
+  }
+
+  /**
+   * Executes the command and writes the statistics.
+   *
+   * @throws IllegalArgumentException if no image exists with the source name.
+   * @throws IllegalStateException    if the statistics cannot be written.
+   */
+  @Override
+  public void run() throws IllegalArgumentException, IllegalStateException {
+    IImage sourceImage = imageDatabase.getImage(sourceName);
+    IImageStatistics statistics = null;
+    if (imageDatabase.hasHistogram(sourceName)) {
+      IImageHistogram histogram = imageDatabase.getHistogram(sourceName);
+      if (!histogram.isApproximate()
+              && histogram.getChannels().containsAll(EnumSet.allOf(HistogramChannel.class))) {
+        statistics = new ImageStatisticsImpl(sourceImage, histogram);
+      }
+    }
+    if (statistics == null) {
+      statistics = new ImageStatisticsImpl(sourceImage);
+    }
+
+    StringBuilder json = new StringBuilder();
+    json.append("{\"image\":\"").append(escape(sourceName)).append('"')
+            .append(",\"width\":").append(sourceImage.getWidth())
+            .append(",\"height\":").append(sourceImage.getHeight())
+            .append(",\"maxValue\":").append(sourceImage.getMaxValue())
+            .append(",\"pixels\":").append(statistics.getPixelCount())
+            .append(",\"channels\":{");
+    HistogramChannel[] channels = HistogramChannel.values();
+    for (int i = 0; i < channels.length; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      appendChannel(json, statistics, channels[i]);
+    }
+    json.append("}}\n");
+
+    try {
+      output.append(json);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write statistics: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Helper function to write the statistics of one channel as a JSON member.
+   *
+   * @param json       the JSON being built.
+   * @param statistics the statistics of the image.
+   * @param channel    the channel to write.
+   */
+  private static void appendChannel(
+          StringBuilder json, IImageStatistics statistics, HistogramChannel channel) {
+    json.append('"').append(channel.name().toLowerCase(Locale.ROOT)).append("\":{")
+            .append("\"min\":").append(statistics.getMin(channel))
+            .append(",\"max\":").append(statistics.getMax(channel))
+            .append(",\"mean\":").append(formatNumber(statistics.getMean(channel)))
+            .append(",\"variance\":").append(formatNumber(statistics.getVariance(channel)))
+            .append(",\"stddev\":")
+            .append(formatNumber(statistics.getStandardDeviation(channel)));
+    for (double percentile : PERCENTILES) {
+      json.append(",\"p").append((int) percentile).append("\":")
+              .append(statistics.getPercentile(channel, percentile));
+    }
+    json.append('}');
+  }
+
+  /**
+   * Helper function to format a number the same way on every locale.
+   *
+   * @param value the number.
+   * @return the number with up to 4 decimals.
+   */
+  private static String formatNumber(double value) {
+    String text = String.format(Locale.ROOT, "%.4f", value);
+    // drop trailing zeros so whole numbers stay short
+    text = text.replaceAll("0+$", "");
+    return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+  }
+
+  /**
+   * Helper function to escape an image name for a JSON string.
+   *
+   * @param text the text to escape.
+   * @return the escaped text.
+   */
+  private static String escape(String text) {
+    StringBuilder escaped = new StringBuilder();
+    for (char c : text.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        escaped.append('\\').append(c);
+      } else if (c < 0x20) {
+        escaped.append(String.format("\\u%04x", (int) c));
+      } else {
+        escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+}
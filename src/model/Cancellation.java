@@ -0,0 +1,30 @@
+package model;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lets long loops over the rows or tiles of an image stop early once the thread that started
+ * them is interrupted, e.g. when an operation is cancelled in the GUI. Rows are often processed
+ * on the threads of the common pool, so the thread that started the work is checked rather than
+ * the current thread.
+ */
+public final class Cancellation {
+  /**
+   * Private constructor so the class cannot be created.
+   */
+  private Cancellation() {
+  }
+
+  /**
+   * Stop the work if the thread that started it has been interrupted.
+   * The interrupt status is left set, so the thread can still see it was interrupted.
+   *
+   * @param owner the thread that started the work.
+   * @throws CancellationException if the thread has been interrupted.
+   */
+  public static void check(Thread owner) {
+    if (owner.isInterrupted()) {
+      throw new CancellationException("Operation was cancelled");
+    }
+  }
+}
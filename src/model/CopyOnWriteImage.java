@@ -0,0 +1,309 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Class implements IImage interface with copy-on-write semantics at row granularity.
+ * A snapshot of the image is created in constant time and shares every row with the image
+ * it was taken from. Rows are only copied when one of the images sharing them is modified,
+ * so a mutation after a snapshot copies the touched rows and nothing else.
+ * This makes duplicates and undo history cheap to keep around.
+ * The image is not thread-safe for concurrent writes, the same as ImageImpl.
+ */
+public class CopyOnWriteImage implements IImage {
+  private final int width;
+  private final int height;
+  private final int maxValue;
+  private RowTable table;
+
+  /**
+   * Constructor takes in a width, height,
+   * and maxValue of the image to create a blank copy-on-write image.
+   *
+   * @param width    of the image of type integer.
+   * @param height   of the image of type integer.
+   * @param maxValue of the image components of type integer.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  public CopyOnWriteImage(int width, int height, int maxValue) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be non-zero and positive");
+    }
+    if (maxValue <= 0) {
+      throw new IllegalArgumentException("Max color value must be non-zero and positive");
+    }
+    if ((long) width * 3 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too wide: " + width);
+    }
+
+    this.width = width;
+    this.height = height;
+    this.maxValue = maxValue;
+    this.table = new RowTable(height);
+  }
+
+  /**
+   * Constructor copies the pixels of an existing image into a new copy-on-write image.
+   *
+   * @param image the image to copy.
+   * @throws IllegalArgumentException if image is null.
+   */
+  public CopyOnWriteImage(IImage image) {
+    this(requireImage(image).getWidth(), image.getHeight(), image.getMaxValue());
+
+    for (int y = 0; y < height; y++) {
+      int[] row = new int[width * 3];
+      for (int x = 0; x < width; x++) {
+        int[] pixel = image.getPixel(x, y);
+        row[x * 3] = pixel[0];
+        row[x * 3 + 1] = pixel[1];
+        row[x * 3 + 2] = pixel[2];
+      }
+      table.rows[y] = new Row(row);
+    }
+  }
+
+  /**
+   * Private constructor used by snapshot() to share the row table of another image.
+   *
+   * @param source the image the snapshot is taken from.
+   */
+  private CopyOnWriteImage(CopyOnWriteImage source) {
+    this.width = source.width;
+    this.height = source.height;
+    this.maxValue = source.maxValue;
+    this.table = source.table;
+    this.table.refCount++;
+  }
+
+  /**
+   * Helper function to check the image passed to the copy constructor.
+   *
+   * @param image the image to check.
+   * @return the same image if it is not null.
+   * @throws IllegalArgumentException if image is null.
+   */
+  private static IImage requireImage(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    return image;
+  }
+
+  /**
+   * Create a snapshot of this image in constant time.
+   * The snapshot and this image share all of their rows until either one of them is modified.
+   * Changes made to one image after the snapshot are never visible in the other.
+   *
+   * @return a new CopyOnWriteImage with the same pixels as this image.
+   */
+  public CopyOnWriteImage snapshot() {
+    return new CopyOnWriteImage(this);
+  }
+
+  /**
+   * Set the rgb values of a pixel on a certain x and y coordinate.
+   * Only the row containing the pixel is copied if it is shared with another image.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @param r the red component of the pixel (0 to maxValue).
+   * @param g the green component of the pixel (0 to maxValue).
+   * @param b the blue component of the pixel (0 to maxValue).
+   * @throws IllegalArgumentException if x,y,r,g,b are out of range.
+   */
+  @Override
+  public void setPixel(int x, int y, int r, int g, int b) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    if (r < 0 || r > maxValue || g < 0 || g > maxValue || b < 0 || b > maxValue) {
+      throw new IllegalArgumentException("Color values out of range");
+    }
+
+    int[] row = getWritableRow(y);
+    row[x * 3] = r;
+    row[x * 3 + 1] = g;
+    row[x * 3 + 2] = b;
+  }
+
+  /**
+   * Get the r,g,b values of a pixel as an array[] of integers.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @return the r,g,b values of a pixel as an array[] of integers.
+   * @throws IllegalArgumentException if x,y are out of range.
+   */
+  @Override
+  public int[] getPixel(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    Row row = table.rows[y];
+    if (row == null) {
+      // rows that were never written are black
+      return new int[]{0, 0, 0};
+    }
+    return new int[]{row.data[x * 3], row.data[x * 3 + 1], row.data[x * 3 + 2]};
+  }
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array with a single bulk copy.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   */
+  @Override
+  public void getRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    Row source = table.rows[y];
+    if (source == null) {
+      Arrays.fill(row, 0, width * 3, 0);
+    } else {
+      System.arraycopy(source.data, 0, row, 0, width * 3);
+    }
+  }
+
+  /**
+   * Copy the r,g,b values of a rectangle of pixels into an array with one bulk copy per row.
+   *
+   * @param x            the left column of the rectangle.
+   * @param y            the top row of the rectangle.
+   * @param regionWidth  the width of the rectangle.
+   * @param regionHeight the height of the rectangle.
+   * @param region       the array to copy the values into, at least
+   *                     regionWidth * regionHeight * 3 long.
+   * @throws IllegalArgumentException if the rectangle is not within the image or the array is
+   *                                  too short.
+   */
+  @Override
+  public void getRegion(int x, int y, int regionWidth, int regionHeight, int[] region) {
+    if (x < 0 || y < 0 || regionWidth < 0 || regionHeight < 0
+            || (long) x + regionWidth > width || (long) y + regionHeight > height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (region == null || region.length < (long) regionWidth * regionHeight * 3) {
+      throw new IllegalArgumentException("Region array is too short");
+    }
+    for (int row = 0; row < regionHeight; row++) {
+      Row source = table.rows[y + row];
+      int offset = row * regionWidth * 3;
+      if (source == null) {
+        Arrays.fill(region, offset, offset + regionWidth * 3, 0);
+      } else {
+        System.arraycopy(source.data, x * 3, region, offset, regionWidth * 3);
+      }
+    }
+  }
+
+  /**
+   * Helper function to get a row that this image can modify without affecting other images.
+   * The row table is unshared first if a snapshot still uses it, then the row itself.
+   *
+   * @param y the row to get.
+   * @return the pixel data of the row, owned only by this image.
+   */
+  private int[] getWritableRow(int y) {
+    if (table.refCount > 1) {
+      // another image still uses the table, give this image its own copy of the row pointers
+      table.refCount--;
+      table = table.copy();
+    }
+
+    Row row = table.rows[y];
+    if (row == null) {
+      row = new Row(new int[width * 3]);
+      table.rows[y] = row;
+    } else if (row.refCount > 1) {
+      // the row is shared with another table, copy only this row
+      row.refCount--;
+      row = new Row(row.data.clone());
+      table.rows[y] = row;
+    }
+    return row.data;
+  }
+
+  /**
+   * Get the width of the image.
+   *
+   * @return the width of the image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the image.
+   *
+   * @return the height of the image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * get the max color value of the image.
+   * E.g. For 8 bit image it's 255.
+   *
+   * @return max color value of the image.
+   */
+  @Override
+  public int getMaxValue() {
+    return this.maxValue;
+  }
+
+  /**
+   * A single row of pixels and the number of row tables that point to it.
+   */
+  private static final class Row {
+    private final int[] data; // rgb values of the row [r0,g0,b0,r1,g1,b1]
+    private int refCount;
+
+    private Row(int[] data) {
+      this.data = data;
+      this.refCount = 1;
+    }
+  }
+
+  /**
+   * The table of rows of an image and the number of images that point to it.
+   * Snapshots share the whole table, which is what makes taking them constant time.
+   */
+  private static final class RowTable {
+    private final Row[] rows;
+    private int refCount;
+
+    private RowTable(int height) {
+      this.rows = new Row[height];
+      this.refCount = 1;
+    }
+
+    /**
+     * Copy the row pointers into a new table. Every row becomes shared with the new table.
+     *
+     * @return the new table.
+     */
+    private RowTable copy() {
+      RowTable result = new RowTable(rows.length);
+      for (int i = 0; i < rows.length; i++) {
+        Row row = rows[i];
+        if (row != null) {
+          row.refCount++;
+          result.rows[i] = row;
+        }
+      }
+      return result;
+    }
+  }
+}
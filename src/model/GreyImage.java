@@ -0,0 +1,218 @@
+package model;
+
+/**
+ * Class implements IImage interface for single channel greyscale images.
+ * Only one value is stored for each pixel and it is read back as equal r, g and b values,
+ * which takes a third of the memory of ImageImpl, or a twelfth for 8 bit images.
+ * Writers can recognize this class to save the image in a greyscale format.
+ */
+public class GreyImage implements IImage {
+  private final int width;
+  private final int height;
+  private final int maxValue;
+  private final byte[] bytePixels; // used when maxValue fits in a byte, otherwise null
+  private final int[] intPixels; // used for higher bit depths, otherwise null
+
+  /**
+   * Constructor takes in a width, height,
+   * and maxValue of the image to create a blank greyscale image.
+   *
+   * @param width    of the image of type integer.
+   * @param height   of the image of type integer.
+   * @param maxValue of the image components of type integer.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative,
+   *                                  or too large to fit in a single array.
+   */
+  public GreyImage(int width, int height, int maxValue) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be non-zero and positive");
+    }
+    if (maxValue <= 0) {
+      throw new IllegalArgumentException("Max color value must be non-zero and positive");
+    }
+    if ((long) width * height > ImageImpl.MAX_SAMPLES) {
+      throw new IllegalArgumentException(
+              "Image is too large for GreyImage: " + width + "x" + height);
+    }
+
+    this.width = width;
+    this.height = height;
+    this.maxValue = maxValue;
+    if (maxValue <= 0xFF) {
+      this.bytePixels = new byte[width * height];
+      this.intPixels = null;
+    } else {
+      this.bytePixels = null;
+      this.intPixels = new int[width * height];
+    }
+  }
+
+  /**
+   * Set the rgb values of a pixel on a certain x and y coordinate.
+   * A greyscale image can only hold pixels whose r, g and b values are equal.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @param r the red component of the pixel (0 to maxValue).
+   * @param g the green component of the pixel (0 to maxValue).
+   * @param b the blue component of the pixel (0 to maxValue).
+   * @throws IllegalArgumentException if x,y,r,g,b are out of range or r,g,b are not equal.
+   */
+  @Override
+  public void setPixel(int x, int y, int r, int g, int b) {
+    if (r != g || g != b) {
+      throw new IllegalArgumentException("Greyscale pixels need equal r, g, b values");
+    }
+    setGrey(x, y, r);
+  }
+
+  /**
+   * Set the grey value of a pixel on a certain x and y coordinate.
+   *
+   * @param x     the x-coordinate of the pixel.
+   * @param y     the y-coordinate of the pixel.
+   * @param value the grey value of the pixel (0 to maxValue).
+   * @throws IllegalArgumentException if x,y,value are out of range.
+   */
+  public void setGrey(int x, int y, int value) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    if (value < 0 || value > maxValue) {
+      throw new IllegalArgumentException("Color values out of range");
+    }
+
+    int index = y * width + x;
+    if (bytePixels != null) {
+      bytePixels[index] = (byte) value;
+    } else {
+      intPixels[index] = value;
+    }
+  }
+
+  /**
+   * Get the grey value of a pixel.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @return the grey value of the pixel.
+   * @throws IllegalArgumentException if x,y are out of range.
+   */
+  public int getGrey(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    int index = y * width + x;
+    if (bytePixels != null) {
+      return bytePixels[index] & 0xFF;
+    }
+    return intPixels[index];
+  }
+
+  /**
+   * Get the r,g,b values of a pixel as an array[] of integers.
+   * All three values are the grey value of the pixel.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @return the r,g,b values of a pixel as an array[] of integers.
+   * @throws IllegalArgumentException if x,y are out of range.
+   */
+  @Override
+  public int[] getPixel(int x, int y) {
+    int grey = getGrey(x, y);
+    return new int[]{grey, grey, grey};
+  }
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array,
+   * repeating the grey value of each pixel three times.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   */
+  @Override
+  public void getRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    int start = y * width;
+    for (int x = 0; x < width; x++) {
+      int grey = bytePixels != null ? bytePixels[start + x] & 0xFF : intPixels[start + x];
+      row[x * 3] = grey;
+      row[x * 3 + 1] = grey;
+      row[x * 3 + 2] = grey;
+    }
+  }
+
+  /**
+   * Copy the r,g,b values of a rectangle of pixels into an array, repeating the grey value of
+   * each pixel three times.
+   *
+   * @param x            the left column of the rectangle.
+   * @param y            the top row of the rectangle.
+   * @param regionWidth  the width of the rectangle.
+   * @param regionHeight the height of the rectangle.
+   * @param region       the array to copy the values into, at least
+   *                     regionWidth * regionHeight * 3 long.
+   * @throws IllegalArgumentException if the rectangle is not within the image or the array is
+   *                                  too short.
+   */
+  @Override
+  public void getRegion(int x, int y, int regionWidth, int regionHeight, int[] region) {
+    if (x < 0 || y < 0 || regionWidth < 0 || regionHeight < 0
+            || (long) x + regionWidth > width || (long) y + regionHeight > height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (region == null || region.length < (long) regionWidth * regionHeight * 3) {
+      throw new IllegalArgumentException("Region array is too short");
+    }
+    int i = 0;
+    for (int row = y; row < y + regionHeight; row++) {
+      int start = row * width + x;
+      for (int index = start; index < start + regionWidth; index++) {
+        int grey = bytePixels != null ? bytePixels[index] & 0xFF : intPixels[index];
+        region[i++] = grey;
+        region[i++] = grey;
+        region[i++] = grey;
+      }
+    }
+  }
+
+  /**
+   * Get the width of the image.
+   *
+   * @return the width of the image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the image.
+   *
+   * @return the height of the image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * get the max color value of the image.
+   * E.g. For 8 bit image it's 255.
+   *
+   * @return max color value of the image.
+   */
+  @Override
+  public int getMaxValue() {
+    return this.maxValue;
+  }
+}
@@ -0,0 +1,9 @@
+package model;
+
+/**
+ * The channels an image histogram can be computed for.
+ * Intensity is the average of the red, green and blue components of a pixel.
+ */
+public enum HistogramChannel {
+  RED, GREEN, BLUE, INTENSITY
+}
@@ -51,4 +51,124 @@ public interface IImage {
    * @return max color value of the image.
    */
   int getMaxValue();
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array.
+   * The values are interleaved as [r0,g0,b0,r1,g1,b1...] and fill the first width * 3 entries.
+   * Implementations that store rows contiguously override this with a bulk copy.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   */
+  default void getRow(int y, int[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < getWidth() * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    for (int x = 0; x < getWidth(); x++) {
+      int[] pixel = getPixel(x, y);
+      row[x * 3] = pixel[0];
+      row[x * 3 + 1] = pixel[1];
+      row[x * 3 + 2] = pixel[2];
+    }
+  }
+
+  /**
+   * Set the r,g,b values of a whole row of pixels from an array.
+   * The values are interleaved as [r0,g0,b0,r1,g1,b1...] in the first width * 3 entries.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the values to set, at least width * 3 long.
+   * @throws IllegalArgumentException if y or any value is out of range or the array is too short.
+   */
+  default void setRow(int y, int[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < getWidth() * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    for (int x = 0; x < getWidth(); x++) {
+      setPixel(x, y, row[x * 3], row[x * 3 + 1], row[x * 3 + 2]);
+    }
+  }
+
+  /**
+   * Copy the r,g,b values of a rectangle of pixels into an array, row by row.
+   * Each row of the rectangle takes regionWidth * 3 entries, interleaved as in getRow.
+   * Implementations that store rows contiguously override this with a bulk copy per row.
+   *
+   * @param x            the left column of the rectangle.
+   * @param y            the top row of the rectangle.
+   * @param regionWidth  the width of the rectangle.
+   * @param regionHeight the height of the rectangle.
+   * @param region       the array to copy the values into, at least
+   *                     regionWidth * regionHeight * 3 long.
+   * @throws IllegalArgumentException if the rectangle is not within the image or the array is
+   *                                  too short.
+   */
+  default void getRegion(int x, int y, int regionWidth, int regionHeight, int[] region) {
+    if (x < 0 || y < 0 || regionWidth < 0 || regionHeight < 0
+            || (long) x + regionWidth > getWidth() || (long) y + regionHeight > getHeight()) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (region == null || region.length < (long) regionWidth * regionHeight * 3) {
+      throw new IllegalArgumentException("Region array is too short");
+    }
+    int i = 0;
+    for (int row = y; row < y + regionHeight; row++) {
+      for (int column = x; column < x + regionWidth; column++) {
+        int[] pixel = getPixel(column, row);
+        region[i++] = pixel[0];
+        region[i++] = pixel[1];
+        region[i++] = pixel[2];
+      }
+    }
+  }
+
+  /**
+   * Create a new blank image that stores its pixels the same way as this image.
+   * Operations use this for their result so that, e.g. a tiled image gives a tiled result.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank image of type IImage.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  default IImage createBlank(int width, int height, int maxValue) {
+    return new ImageImpl(width, height, maxValue);
+  }
+
+  /**
+   * Create a new blank image to hold a greyscale result of this image.
+   * Images kept in memory give a single channel GreyImage, images stored outside
+   * the heap give a blank image stored the same way as themselves.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank image of type IImage that accepts pixels with equal r, g, b values.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  default IImage createBlankGrey(int width, int height, int maxValue) {
+    return new GreyImage(width, height, maxValue);
+  }
+
+  /**
+   * Visit the image one tile at a time, in an order that suits how the pixels are stored.
+   * Images that keep all their pixels in memory visit the whole image as a single tile.
+   *
+   * @param visitor the visitor called once for every tile.
+   * @throws IllegalArgumentException if visitor is null.
+   */
+  default void forEachTile(ITileVisitor visitor) {
+    if (visitor == null) {
+      throw new IllegalArgumentException("Visitor cannot be null");
+    }
+    visitor.visit(0, 0, getWidth(), getHeight());
+  }
 }
@@ -1,15 +1,19 @@
 package model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Interface representing an image histogram that tracks the frequency distribution
  * of pixel values for red, green, blue, and intensity components of an image.
- * Each histogram contains 256 entries (for values 0-255).
+ * Each histogram contains one entry for every bin of getBinWidth() values from 0 to
+ * getMaxValue(), e.g. 256 entries for values 0-255 of an 8 bit image.
  */
 public interface IImageHistogram {
   /**
    * Get the histogram array for the red component.
-   * The array contains 256 elements where index 'i' represents the count
-   * of pixels with red value i.
+   * The array contains one element for every bin where index 'i' represents the count
+   * of pixels with red value from i * getBinWidth() to (i + 1) * getBinWidth() - 1.
    *
    * @return a copy of the red histogram array.
    */
@@ -17,8 +21,8 @@ public interface IImageHistogram {
 
   /**
    * Get the histogram array for the green component.
-   * The array contains 256 elements where index 'i' represents the count
-   * of pixels with green value i.
+   * The array contains one element for every bin where index 'i' represents the count
+   * of pixels with green value from i * getBinWidth() to (i + 1) * getBinWidth() - 1.
    *
    * @return a copy of the green histogram array.
    */
@@ -26,8 +30,8 @@ public interface IImageHistogram {
 
   /**
    * Get the histogram array for the blue component.
-   * The array contains 256 elements where index 'i' represents the count
-   * of pixels with blue value i.
+   * The array contains one element for every bin where index 'i' represents the count
+   * of pixels with blue value from i * getBinWidth() to (i + 1) * getBinWidth() - 1.
    *
    * @return a copy of the blue histogram array.
    */
@@ -36,8 +40,8 @@ public interface IImageHistogram {
   /**
    * Get the histogram array for the intensity component.
    * The intensity is calculated as the average of the RGB components.
-   * The array contains 256 elements where index 'i' represents the count
-   * of pixels with intensity value i.
+   * The array contains one element for every bin where index 'i' represents the count
+   * of pixels with intensity value from i * getBinWidth() to (i + 1) * getBinWidth() - 1.
    *
    * @return a copy of the intensity histogram array.
    */
@@ -49,4 +53,51 @@ public interface IImageHistogram {
    * @return the maximum count value across all histograms.
    */
   int getOverallMaxCount();
+
+  /**
+   * Get the max color value of the image the histogram is for.
+   * The last bin holds this value.
+   *
+   * @return the max color value.
+   */
+  int getMaxValue();
+
+  /**
+   * Get the number of values every bin covers.
+   * This is 1 for images up to 16 bits, so every value has its own bin.
+   *
+   * @return the bin width.
+   */
+  int getBinWidth();
+
+  /**
+   * Merge neighbouring bins so that there are at most the given number of bins,
+   * e.g. to draw a 16 bit histogram on a chart with 256 columns.
+   * No pixels are counted again.
+   *
+   * @param bins the most bins the result may have.
+   * @return a histogram with at most that many bins.
+   * @throws IllegalArgumentException if bins is 0 or negative.
+   */
+  IImageHistogram downsample(int bins);
+
+  /**
+   * Get the channels this histogram has counts for.
+   * The histograms of the other channels are empty.
+   *
+   * @return the channels with counts.
+   */
+  default Set<HistogramChannel> getChannels() {
+    return EnumSet.allOf(HistogramChannel.class);
+  }
+
+  /**
+   * Check whether the counts are estimates from a sample of the pixels
+   * rather than exact counts.
+   *
+   * @return true if the histogram is approximate.
+   */
+  default boolean isApproximate() {
+    return false;
+  }
 }
@@ -0,0 +1,67 @@
+package model;
+
+/**
+ * Interface representing a mipmap pyramid of an image.
+ * Level 0 is the image itself and every following level is half the width and height of the
+ * one before, rounded up, down to a single pixel. Levels are created when they are first asked
+ * for, so a pyramid costs nothing until it is used and at most a third more than the image.
+ * The pyramid of a LazyImage does not even decode the image until level 0 is asked for.
+ */
+public interface IImagePyramid {
+  /**
+   * Get the width of level 0, known without creating any level.
+   *
+   * @return the width of the image.
+   */
+  int getWidth();
+
+  /**
+   * Get the height of level 0, known without creating any level.
+   *
+   * @return the height of the image.
+   */
+  int getHeight();
+
+  /**
+   * Get the max color value of the levels, known without creating any level.
+   *
+   * @return max color value of the image.
+   */
+  int getMaxValue();
+
+  /**
+   * Get the number of levels of the pyramid, including the image itself.
+   *
+   * @return the number of levels.
+   */
+  int getLevelCount();
+
+  /**
+   * Get a level of the pyramid, creating it and the levels above it if needed.
+   * Level 0 of a LazyImage is the decoded image, so asking for any level decodes it.
+   *
+   * @param level the level, 0 for the image itself.
+   * @return the image of the level.
+   * @throws IllegalArgumentException if level is out of range.
+   */
+  IImage getLevel(int level) throws IllegalArgumentException;
+
+  /**
+   * Checks if a level has been created, so getting it costs nothing.
+   *
+   * @param level the level, 0 for the image itself.
+   * @return true if the level exists.
+   * @throws IllegalArgumentException if level is out of range.
+   */
+  boolean hasLevel(int level) throws IllegalArgumentException;
+
+  /**
+   * Get the level to draw the image from at a scale, the smallest level that still has at
+   * least as many pixels as are drawn, so it is only ever shrunk further.
+   *
+   * @param scale the drawn size over the size of the image, e.g. 0.25 for a quarter.
+   * @return the level to draw from, 0 for scales of 1 or more.
+   * @throws IllegalArgumentException if scale is not positive.
+   */
+  int getLevelForScale(double scale) throws IllegalArgumentException;
+}
@@ -0,0 +1,71 @@
+package model;
+
+/**
+ * Interface representing summary statistics of the red, green, blue and intensity
+ * components of an image: min, max, mean, variance and percentiles of every channel.
+ * Intensity is the average of the red, green and blue components, as in IImageHistogram.
+ */
+public interface IImageStatistics {
+  /**
+   * Get the number of pixels the statistics were computed from.
+   *
+   * @return the number of pixels.
+   */
+  long getPixelCount();
+
+  /**
+   * Get the smallest value of a channel.
+   *
+   * @param channel the channel.
+   * @return the smallest value.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  int getMin(HistogramChannel channel) throws IllegalArgumentException;
+
+  /**
+   * Get the largest value of a channel.
+   *
+   * @param channel the channel.
+   * @return the largest value.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  int getMax(HistogramChannel channel) throws IllegalArgumentException;
+
+  /**
+   * Get the mean value of a channel.
+   *
+   * @param channel the channel.
+   * @return the mean value.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  double getMean(HistogramChannel channel) throws IllegalArgumentException;
+
+  /**
+   * Get the population variance of the values of a channel.
+   *
+   * @param channel the channel.
+   * @return the variance.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  double getVariance(HistogramChannel channel) throws IllegalArgumentException;
+
+  /**
+   * Get the population standard deviation of the values of a channel.
+   *
+   * @param channel the channel.
+   * @return the standard deviation.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  double getStandardDeviation(HistogramChannel channel) throws IllegalArgumentException;
+
+  /**
+   * Get a percentile of the values of a channel, using the nearest rank:
+   * the smallest value that at least the given share of pixels are at or below.
+   *
+   * @param channel    the channel.
+   * @param percentile the percentile, from 0 to 100.
+   * @return the value at the percentile.
+   * @throws IllegalArgumentException if channel is null or percentile is out of range.
+   */
+  int getPercentile(HistogramChannel channel, double percentile) throws IllegalArgumentException;
+}
@@ -52,8 +52,74 @@ public interface IImageStorage {
 
   /**
    * Remove an image from database.
+   * Images that implement AutoCloseable are closed once no name refers to them,
+   * so memory held outside the heap is freed straight away.
    *
    * @param name name of the image to delete.
    */
   void removeImage(String name);
+
+  /**
+   * Get the histogram of a stored image.
+   * The histogram is computed the first time it is requested and cached until the image
+   * stored under the name is replaced or removed, so asking again costs nothing.
+   *
+   * @param name the name of the image.
+   * @return the histogram of the image.
+   * @throws IllegalArgumentException if name is null/empty or no image exists with this name.
+   */
+  IImageHistogram getHistogram(String name) throws IllegalArgumentException;
+
+  /**
+   * Checks if the histogram of a stored image is cached, so getting it costs nothing.
+   *
+   * @param name the name of the image.
+   * @return true if the histogram of the image stored under the name is cached.
+   */
+  boolean hasHistogram(String name);
+
+  /**
+   * Cache a histogram that is already known for a stored image,
+   * e.g. one derived by the operation that created the image.
+   *
+   * @param name      the name of the image.
+   * @param histogram the histogram of the image stored under the name.
+   * @throws IllegalArgumentException if name is null/empty, histogram is null
+   *                                  or no image exists with this name.
+   */
+  void putHistogram(String name, IImageHistogram histogram) throws IllegalArgumentException;
+
+  /**
+   * Get the mipmap pyramid of a stored image, to draw it at a smaller scale cheaply.
+   * The pyramid is cached until the image stored under the name is replaced or removed,
+   * and its levels are created as they are first asked for.
+   *
+   * @param name the name of the image.
+   * @return the pyramid of the image.
+   * @throws IllegalArgumentException if name is null/empty or no image exists with this name.
+   */
+  IImagePyramid getPyramid(String name) throws IllegalArgumentException;
+
+  /**
+   * Tell the storage that a background thread is about to read an image, so the image is not
+   * closed while it is read, even if it is removed or overwritten in the meantime.
+   * Every call must be followed by one call to release once the thread is done with the image.
+   * Must be called on the thread that owns the storage, while the image is stored.
+   *
+   * @param image the image that is read.
+   */
+  default void retain(IImage image) {
+    // nothing is closed by default, so there is nothing to hold back
+  }
+
+  /**
+   * Tell the storage that a background thread is done reading an image. An image that was
+   * removed or overwritten while it was read is closed once its last reader releases it.
+   * Safe to call from any thread.
+   *
+   * @param image the image that was read.
+   */
+  default void release(IImage image) {
+    // nothing is closed by default
+  }
 }
@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * Interface for visiting an image one rectangular tile at a time.
+ * Images that keep only part of their pixels in memory visit their tiles in an order
+ * that keeps each tile resident while it is being processed.
+ */
+public interface ITileVisitor {
+  /**
+   * Visit one tile of the image.
+   *
+   * @param x      the x-coordinate of the top left pixel of the tile.
+   * @param y      the y-coordinate of the top left pixel of the tile.
+   * @param width  the width of the tile in pixels.
+   * @param height the height of the tile in pixels.
+   */
+  void visit(int x, int y, int width, int height);
+}
@@ -0,0 +1,52 @@
+package model;
+
+/**
+ * Factory class to create a blank image with the pixel storage that suits its size.
+ * Images that fit in a single array use PackedRgbImage, ImageImpl or GreyImage,
+ * larger images use OffHeapImage.
+ */
+public final class ImageFactory {
+  /**
+   * Private constructor so the factory cannot be created.
+   */
+  private ImageFactory() {
+  }
+
+  /**
+   * Create a blank image of the given size.
+   * 8 bit images are packed one integer per pixel, so they can be displayed without a copy.
+   *
+   * @param width    of the image of type integer.
+   * @param height   of the image of type integer.
+   * @param maxValue of the image components of type integer.
+   * @return a new blank image of type IImage.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  public static IImage createImage(int width, int height, int maxValue) {
+    if (maxValue == 255 && width > 0 && height > 0
+            && (long) width * height <= ImageImpl.MAX_SAMPLES) {
+      return new PackedRgbImage(width, height);
+    }
+    if (width > 0 && height > 0 && (long) width * height * 3 > ImageImpl.MAX_SAMPLES) {
+      return new OffHeapImage(width, height, maxValue);
+    }
+    return new ImageImpl(width, height, maxValue);
+  }
+
+  /**
+   * Create a blank greyscale image of the given size.
+   * Images that fit in a single array use GreyImage, larger images use OffHeapImage.
+   *
+   * @param width    of the image of type integer.
+   * @param height   of the image of type integer.
+   * @param maxValue of the image components of type integer.
+   * @return a new blank image of type IImage that accepts pixels with equal r, g, b values.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  public static IImage createGreyImage(int width, int height, int maxValue) {
+    if (width > 0 && height > 0 && (long) width * height > ImageImpl.MAX_SAMPLES) {
+      return new OffHeapImage(width, height, maxValue);
+    }
+    return new GreyImage(width, height, maxValue);
+  }
+}
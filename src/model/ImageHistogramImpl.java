@@ -1,85 +1,525 @@
 package model;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
 /**
  * Implementation of the ImageHistogram interface.
  * Computes and stores histogram data for red, green, blue, and intensity components
- * of an image. Each histogram contains 256 entries representing the frequency
- * of each possible value (0-255) in the image.
+ * of an image. Each histogram has one entry for every possible value (0 to maxValue),
+ * e.g. 256 entries for 8 bit images and 65536 for 16 bit images. Larger max values are
+ * counted in bins that each cover several values, so no histogram has more than 65536 entries.
+ * Counts are integers, so images with more than Integer.MAX_VALUE pixels are rejected rather
+ * than letting a bin overflow.
  */
 public class ImageHistogramImpl implements IImageHistogram {
+  // images smaller than this are counted on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  // chance that a sampled histogram is off by more than its error bound
+  private static final double SAMPLING_FAILURE_PROBABILITY = 0.01;
+  // the most bins a histogram has, higher max values share bins
+  private static final int MAX_BINS = 1 << 16;
+  // histograms with more bins than this use fewer parallel bands to limit the local bins
+  static final int LARGE_BINS = 1 << 12;
+
   private final int[] redHistogram;
   private final int[] greenHistogram;
   private final int[] blueHistogram;
   private final int[] intensityHistogram;
+  private final int maxValue;
+  private final int binWidth;
+  private final Set<HistogramChannel> channels;
+  private final boolean approximate;
 
   /**
    * Constructor that computes histograms for the given image.
    *
    * @param image the image to compute histogram.
-   * @throws IllegalArgumentException if image is null.
+   * @throws IllegalArgumentException if image is null or has too many pixels to count.
    */
   public ImageHistogramImpl(IImage image) {
-    if (image == null) {
-      throw new IllegalArgumentException("Image cannot be null");
+    this(image, EnumSet.allOf(HistogramChannel.class));
+  }
+
+  /**
+   * Constructor that computes histograms for only some channels of the given image.
+   * The histograms of channels that were not requested are left empty.
+   *
+   * @param image    the image to compute histogram.
+   * @param channels the channels to compute.
+   * @throws IllegalArgumentException if image or channels is null, channels is empty,
+   *                                  or the image has too many pixels to count.
+   */
+  public ImageHistogramImpl(IImage image, Set<HistogramChannel> channels) {
+    checkPixelCount(image);
+    if (channels == null || channels.isEmpty()) {
+      throw new IllegalArgumentException("At least one channel is needed");
     }
+    this.channels = Collections.unmodifiableSet(EnumSet.copyOf(channels));
+    this.approximate = false;
+    this.maxValue = image.getMaxValue();
+    this.binWidth = binWidthFor(maxValue);
 
-    // Initialize histogram arrays
-    this.redHistogram = new int[256];
-    this.greenHistogram = new int[256];
-    this.blueHistogram = new int[256];
-    this.intensityHistogram = new int[256];
+    // Compute histograms, one array of bins for each channel in the order of HistogramChannel
+    int[][] bins = computeHistograms(image, this.channels, binWidth, 1, 1);
+    this.redHistogram = bins[HistogramChannel.RED.ordinal()];
+    this.greenHistogram = bins[HistogramChannel.GREEN.ordinal()];
+    this.blueHistogram = bins[HistogramChannel.BLUE.ordinal()];
+    this.intensityHistogram = bins[HistogramChannel.INTENSITY.ordinal()];
+  }
 
-    // Compute histograms
-    computeHistograms(image);
+  /**
+   * Constructor that takes histograms that are already known, e.g. derived from the histogram
+   * of another image. The arrays are copied.
+   * The length of the arrays sets the bin width, e.g. 256 entries for a maxValue of 65535
+   * means every bin covers 256 values.
+   *
+   * @param red       the red histogram.
+   * @param green     the green histogram.
+   * @param blue      the blue histogram.
+   * @param intensity the intensity histogram.
+   * @param maxValue  the max color value of the image the histograms are for.
+   * @throws IllegalArgumentException if any array is null or the arrays do not have
+   *                                  the same length that evenly bins 0 to maxValue.
+   */
+  public ImageHistogramImpl(int[] red, int[] green, int[] blue, int[] intensity, int maxValue) {
+    this(red, green, blue, intensity, maxValue, EnumSet.allOf(HistogramChannel.class));
   }
 
   /**
-   * Compute histograms for all components of the image.
+   * Constructor that takes histograms that are already known for only some channels.
+   * The arrays are copied, the arrays of the other channels should be empty.
    *
-   * @param image the image to analyze.
+   * @param red       the red histogram.
+   * @param green     the green histogram.
+   * @param blue      the blue histogram.
+   * @param intensity the intensity histogram.
+   * @param maxValue  the max color value of the image the histograms are for.
+   * @param channels  the channels whose histograms are known.
+   * @throws IllegalArgumentException if any array is null, the arrays do not have
+   *                                  the same length that evenly bins 0 to maxValue,
+   *                                  or channels is null or empty.
    */
-  private void computeHistograms(IImage image) {
+  public ImageHistogramImpl(int[] red, int[] green, int[] blue, int[] intensity, int maxValue,
+                            Set<HistogramChannel> channels) {
+    if (channels == null || channels.isEmpty()) {
+      throw new IllegalArgumentException("At least one channel is needed");
+    }
+    if (red == null || maxValue <= 0) {
+      throw new IllegalArgumentException("Histograms need bins and a positive max value");
+    }
+    this.maxValue = maxValue;
+    this.binWidth = (int) ((maxValue + (long) red.length) / red.length);
+    int count = binCount(maxValue, binWidth);
+    this.redHistogram = copyBins(red, count);
+    this.greenHistogram = copyBins(green, count);
+    this.blueHistogram = copyBins(blue, count);
+    this.intensityHistogram = copyBins(intensity, count);
+    this.channels = Collections.unmodifiableSet(EnumSet.copyOf(channels));
+    this.approximate = false;
+  }
+
+  /**
+   * Private constructor to keep bins that are already computed.
+   *
+   * @param bins        the bins of every channel, indexed by the ordinal of the channel.
+   * @param maxValue    the max color value of the image.
+   * @param binWidth    the number of values every bin covers.
+   * @param channels    the channels with counts.
+   * @param approximate whether the counts are estimates.
+   */
+  private ImageHistogramImpl(int[][] bins, int maxValue, int binWidth,
+                             Set<HistogramChannel> channels, boolean approximate) {
+    this.redHistogram = bins[HistogramChannel.RED.ordinal()];
+    this.greenHistogram = bins[HistogramChannel.GREEN.ordinal()];
+    this.blueHistogram = bins[HistogramChannel.BLUE.ordinal()];
+    this.intensityHistogram = bins[HistogramChannel.INTENSITY.ordinal()];
+    this.maxValue = maxValue;
+    this.binWidth = binWidth;
+    this.channels = Collections.unmodifiableSet(EnumSet.copyOf(channels));
+    this.approximate = approximate;
+  }
+
+  /**
+   * Create an approximate histogram of the image from an evenly spread grid of sample pixels.
+   * The number of samples follows from the Dvoretzky-Kiefer-Wolfowitz inequality, so that
+   * with 99% confidence the cumulative share of pixels at or below any value is off by at most
+   * the error bound. The counts are scaled up to the size of the image.
+   * Images too small to save anything by sampling get an exact histogram.
+   *
+   * @param image      the image to compute histogram.
+   * @param errorBound the largest error of any cumulative share, between 0 and 1 exclusive.
+   * @return the approximate histogram of the image.
+   * @throws IllegalArgumentException if image is null, errorBound is out of range,
+   *                                  or the image has too many pixels to count.
+   */
+  public static ImageHistogramImpl sampled(IImage image, double errorBound) {
+    checkPixelCount(image);
+    if (!(errorBound > 0 && errorBound < 1)) {
+      throw new IllegalArgumentException("Error bound must be between 0 and 1");
+    }
+
     int width = image.getWidth();
     int height = image.getHeight();
+    long pixels = (long) width * height;
+    double samples = Math.log(2 / SAMPLING_FAILURE_PROBABILITY) / (2 * errorBound * errorBound);
+    int step = (int) Math.sqrt(pixels / samples);
+    if (step <= 1) {
+      return new ImageHistogramImpl(image);
+    }
 
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int[] rgb = image.getPixel(x, y);
+    // one sample in every step x step square, spread over a narrow image if needed
+    int colStep = Math.min(step, width);
+    int rowStep = (int) Math.min(height, (long) step * step / colStep);
+    long sampled = (long) countSamples(width, colStep) * countSamples(height, rowStep);
 
-        // Extract individual components and clamp to 0-255 range
-        int red = clampValue(rgb[0]);
-        int green = clampValue(rgb[1]);
-        int blue = clampValue(rgb[2]);
+    Set<HistogramChannel> all = EnumSet.allOf(HistogramChannel.class);
+    int sampleBinWidth = binWidthFor(image.getMaxValue());
+    int[][] bins = computeHistograms(image, all, sampleBinWidth, rowStep, colStep);
+    double scale = (double) pixels / sampled;
+    for (int[] channel : bins) {
+      for (int value = 0; value < channel.length; value++) {
+        channel[value] = (int) Math.round(channel[value] * scale);
+      }
+    }
+    return new ImageHistogramImpl(bins, image.getMaxValue(), sampleBinWidth, all, true);
+  }
 
-        // Calculate intensity as average of RGB components
-        int intensity = clampValue((red + green + blue) / 3);
+  /**
+   * Fill in the channels a histogram is missing by counting only those channels in the image.
+   *
+   * @param histogram a histogram of the image that may not have every channel.
+   * @param image     the image the histogram belongs to.
+   * @return a histogram with every channel, the same histogram if nothing is missing.
+   * @throws IllegalArgumentException if histogram or image is null.
+   */
+  public static IImageHistogram complete(IImageHistogram histogram, IImage image) {
+    if (histogram == null) {
+      throw new IllegalArgumentException("Histogram cannot be null");
+    }
+    Set<HistogramChannel> missing = EnumSet.complementOf(EnumSet.copyOf(histogram.getChannels()));
+    if (missing.isEmpty()) {
+      return histogram;
+    }
+
+    IImageHistogram counted = new ImageHistogramImpl(image, missing)
+            .downsample(histogram.getRedHistogram().length);
+    return new ImageHistogramImpl(
+            pick(histogram, counted, HistogramChannel.RED).getRedHistogram(),
+            pick(histogram, counted, HistogramChannel.GREEN).getGreenHistogram(),
+            pick(histogram, counted, HistogramChannel.BLUE).getBlueHistogram(),
+            pick(histogram, counted, HistogramChannel.INTENSITY).getIntensityHistogram(),
+            histogram.getMaxValue());
+  }
+
+  /**
+   * Helper function to check an image can be counted without any bin overflowing,
+   * which needs no more pixels than an integer holds.
+   *
+   * @param image the image to count.
+   * @throws IllegalArgumentException if image is null or has too many pixels to count.
+   */
+  private static void checkPixelCount(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    if ((long) image.getWidth() * image.getHeight() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image has too many pixels for a histogram: "
+              + image.getWidth() + "x" + image.getHeight());
+    }
+  }
+
+  /**
+   * Helper function to choose which of two histograms has the counts of a channel.
+   *
+   * @param known   the histogram that was known before.
+   * @param counted the histogram of the missing channels.
+   * @param channel the channel.
+   * @return the histogram with counts for the channel.
+   */
+  private static IImageHistogram pick(
+          IImageHistogram known, IImageHistogram counted, HistogramChannel channel) {
+    return known.getChannels().contains(channel) ? known : counted;
+  }
 
-        // Increment histogram counters
-        redHistogram[red]++;
-        greenHistogram[green]++;
-        blueHistogram[blue]++;
-        intensityHistogram[intensity]++;
+  /**
+   * Helper function to get the bin width for a max value,
+   * 1 unless there would be more than MAX_BINS bins.
+   *
+   * @param maxValue the max color value of the image.
+   * @return the number of values every bin covers.
+   */
+  static int binWidthFor(int maxValue) {
+    return (int) ((maxValue + (long) MAX_BINS) / MAX_BINS);
+  }
+
+  /**
+   * Helper function to get the number of bins needed to cover 0 to maxValue.
+   *
+   * @param maxValue the max color value of the image.
+   * @param binWidth the number of values every bin covers.
+   * @return the number of bins.
+   */
+  static int binCount(int maxValue, int binWidth) {
+    return (int) ((maxValue + (long) binWidth) / binWidth);
+  }
+
+  /**
+   * Helper function to check and copy the bins passed to the constructor.
+   *
+   * @param bins  the bins to copy.
+   * @param count the number of bins expected.
+   * @return a copy of the bins.
+   * @throws IllegalArgumentException if bins is null or does not have count entries.
+   */
+  private static int[] copyBins(int[] bins, int count) {
+    if (bins == null || bins.length != count) {
+      throw new IllegalArgumentException("Histograms need " + count + " entries");
+    }
+    return bins.clone();
+  }
+
+  /**
+   * Helper function to count the samples taken along one side of the image.
+   * Samples sit in the middle of each step, the first at step / 2.
+   *
+   * @param length the width or height of the image.
+   * @param step   the distance between samples.
+   * @return the number of samples.
+   */
+  private static int countSamples(int length, int step) {
+    return (length - step / 2 + step - 1) / step;
+  }
+
+  /**
+   * Compute histograms for the requested channels of the image.
+   * The rows are split into bands that are counted in parallel, each into its own local bins,
+   * and the bins of all bands are summed at the end so no counter is shared between threads.
+   * With steps above 1 only every step-th row and column is counted.
+   *
+   * @param image    the image to analyze.
+   * @param channels the channels to compute.
+   * @param binWidth the number of values every bin covers.
+   * @param rowStep  the distance between counted rows.
+   * @param colStep  the distance between counted columns.
+   * @return the bins of every channel, indexed by the ordinal of the channel.
+   */
+  private static int[][] computeHistograms(IImage image, Set<HistogramChannel> channels,
+                                           int binWidth, int rowStep, int colStep) {
+    int rows = countSamples(image.getHeight(), rowStep);
+    long pixels = (long) countSamples(image.getWidth(), colStep) * rows;
+    int bins = binCount(image.getMaxValue(), binWidth);
+
+    int bandCount = 1;
+    if (pixels >= PARALLEL_THRESHOLD) {
+      // a few bands per worker so uneven bands still balance out,
+      // but only one per worker when every band needs large local bins
+      int bandsPerWorker = bins > LARGE_BINS ? 1 : 4;
+      bandCount = Math.min(rows, ForkJoinPool.getCommonPoolParallelism() * bandsPerWorker);
+    }
+    int bands = bandCount;
+
+    IntStream indices = IntStream.range(0, bands);
+    if (bands > 1) {
+      indices = indices.parallel();
+    }
+    Thread owner = Thread.currentThread();
+    int[][] result = indices
+            .mapToObj(band -> {
+              Cancellation.check(owner);
+              return countRows(image, channels, bins, binWidth,
+                      (int) ((long) rows * band / bands),
+                      (int) ((long) rows * (band + 1) / bands), rowStep, colStep);
+            })
+            .reduce(ImageHistogramImpl::mergeBins)
+            .orElseThrow();
+
+    // channels that were not counted have no local bins, give them empty ones once
+    for (int channel = 0; channel < result.length; channel++) {
+      if (result[channel].length == 0) {
+        result[channel] = new int[bins];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Count the values of a band of rows into new local bins.
+   *
+   * @param image    the image to analyze.
+   * @param channels the channels to count.
+   * @param bins     the number of bins of every channel.
+   * @param binWidth the number of values every bin covers.
+   * @param start    the first counted row of the band, as an index among the counted rows.
+   * @param end      the counted row after the last row of the band.
+   * @param rowStep  the distance between counted rows.
+   * @param colStep  the distance between counted columns.
+   * @return the bins of every channel, indexed by the ordinal of the channel.
+   */
+  private static int[][] countRows(IImage image, Set<HistogramChannel> channels,
+                                   int bins, int binWidth,
+                                   int start, int end, int rowStep, int colStep) {
+    boolean countRed = channels.contains(HistogramChannel.RED);
+    boolean countGreen = channels.contains(HistogramChannel.GREEN);
+    boolean countBlue = channels.contains(HistogramChannel.BLUE);
+    boolean countIntensity = channels.contains(HistogramChannel.INTENSITY);
+    int maxValue = image.getMaxValue();
+
+    int[] red = new int[countRed ? bins : 0];
+    int[] green = new int[countGreen ? bins : 0];
+    int[] blue = new int[countBlue ? bins : 0];
+    int[] intensity = new int[countIntensity ? bins : 0];
+    int[] row = new int[image.getWidth() * 3];
+
+    for (int k = start; k < end; k++) {
+      image.getRow(rowStep / 2 + k * rowStep, row);
+      for (int i = (colStep / 2) * 3; i < row.length; i += colStep * 3) {
+        // Extract individual components and clamp to 0-maxValue range
+        int r = clampValue(row[i], maxValue);
+        int g = clampValue(row[i + 1], maxValue);
+        int b = clampValue(row[i + 2], maxValue);
+
+        if (countRed) {
+          red[r / binWidth]++;
+        }
+        if (countGreen) {
+          green[g / binWidth]++;
+        }
+        if (countBlue) {
+          blue[b / binWidth]++;
+        }
+        if (countIntensity) {
+          // Calculate intensity as average of RGB components
+          intensity[(int) (((long) r + g + b) / 3) / binWidth]++;
+        }
       }
     }
+    return new int[][]{red, green, blue, intensity};
   }
 
   /**
-   * Clamp a value to the range 0-255.
+   * Add the bins of one band to the bins of another.
    *
-   * @param value the value to clamp.
-   * @return the clamped value between 0 and 255.
+   * @param total the bins to add to, which are returned.
+   * @param band  the bins to add.
+   * @return the summed bins.
    */
-  private int clampValue(int value) {
+  private static int[][] mergeBins(int[][] total, int[][] band) {
+    for (int channel = 0; channel < total.length; channel++) {
+      for (int value = 0; value < total[channel].length; value++) {
+        total[channel][value] += band[channel][value];
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Clamp a value to the range 0-maxValue.
+   *
+   * @param value    the value to clamp.
+   * @param maxValue the max color value of the image.
+   * @return the clamped value between 0 and maxValue.
+   */
+  private static int clampValue(int value, int maxValue) {
     if (value < 0) {
       return 0;
     }
-    return Math.min(value, 255);
+    return Math.min(value, maxValue);
+  }
+
+  /**
+   * Get the channels this histogram has counts for.
+   *
+   * @return the channels with counts.
+   */
+  @Override
+  public Set<HistogramChannel> getChannels() {
+    return channels;
+  }
+
+  /**
+   * Check whether the counts are estimates from a sample of the pixels.
+   *
+   * @return true if the histogram was sampled.
+   */
+  @Override
+  public boolean isApproximate() {
+    return approximate;
+  }
+
+  /**
+   * Get the max color value of the image the histogram is for.
+   *
+   * @return the max color value.
+   */
+  @Override
+  public int getMaxValue() {
+    return maxValue;
+  }
+
+  /**
+   * Get the number of values every bin covers, 1 unless bins were merged.
+   *
+   * @return the bin width.
+   */
+  @Override
+  public int getBinWidth() {
+    return binWidth;
+  }
+
+  /**
+   * Merge neighbouring bins so that there are at most the given number of bins,
+   * e.g. to draw a 16 bit histogram on a chart with 256 columns.
+   * No pixels are counted again.
+   *
+   * @param bins the most bins the result may have.
+   * @return a histogram with at most that many bins, this histogram if it already has.
+   * @throws IllegalArgumentException if bins is 0 or negative.
+   */
+  @Override
+  public IImageHistogram downsample(int bins) {
+    if (bins <= 0) {
+      throw new IllegalArgumentException("Number of bins must be positive");
+    }
+    int count = redHistogram.length;
+    if (count <= bins) {
+      return this;
+    }
+
+    int factor = (count + bins - 1) / bins;
+    int newWidth = (int) Math.min(Integer.MAX_VALUE, (long) binWidth * factor);
+    int newCount = binCount(maxValue, newWidth);
+    int[][] merged = {
+        mergeNeighbours(redHistogram, factor, newCount),
+        mergeNeighbours(greenHistogram, factor, newCount),
+        mergeNeighbours(blueHistogram, factor, newCount),
+        mergeNeighbours(intensityHistogram, factor, newCount)};
+    return new ImageHistogramImpl(merged, maxValue, newWidth, channels, approximate);
+  }
+
+  /**
+   * Helper function to sum every factor neighbouring bins into one.
+   *
+   * @param bins     the bins to merge.
+   * @param factor   the number of bins to merge into one.
+   * @param newCount the number of merged bins.
+   * @return the merged bins.
+   */
+  private static int[] mergeNeighbours(int[] bins, int factor, int newCount) {
+    int[] result = new int[newCount];
+    for (int i = 0; i < bins.length; i++) {
+      result[i / factor] += bins[i];
+    }
+    return result;
   }
 
   /**
    * Get the histogram array for the red component.
-   * The array contains 256 elements where index 'i' represents the count
-   * of pixels with red value i.
+   * The array has one entry for every bin, where index 'i' represents the count
+   * of pixels with red value from i * binWidth to (i + 1) * binWidth - 1.
    *
    * @return a copy of the red histogram array.
    */
@@ -91,8 +531,8 @@ public class ImageHistogramImpl implements IImageHistogram {
 
   /**
    * Get the histogram array for the green component.
-   * The array contains 256 elements where index 'i' represents the count
-   * of pixels with green value i.
+   * The array has one entry for every bin, where index 'i' represents the count
+   * of pixels with green value from i * binWidth to (i + 1) * binWidth - 1.
    *
    * @return a copy of the green histogram array.
    */
@@ -104,8 +544,8 @@ public class ImageHistogramImpl implements IImageHistogram {
 
   /**
    * Get the histogram array for the blue component.
-   * The array contains 256 elements where index 'i' represents the count
-   * of pixels with blue value i.
+   * The array has one entry for every bin, where index 'i' represents the count
+   * of pixels with blue value from i * binWidth to (i + 1) * binWidth - 1.
    *
    * @return a copy of the blue histogram array.
    */
@@ -118,8 +558,8 @@ public class ImageHistogramImpl implements IImageHistogram {
   /**
    * Get the histogram array for the intensity component.
    * The intensity is calculated as the average of the RGB components.
-   * The array contains 256 elements where index 'i' represents the count
-   * of pixels with intensity value i.
+   * The array has one entry for every bin, where index 'i' represents the count
+   * of pixels with intensity value from i * binWidth to (i + 1) * binWidth - 1.
    *
    * @return a copy of the intensity histogram array.
    */
@@ -165,8 +605,8 @@ public class ImageHistogramImpl implements IImageHistogram {
   @Override
   public String toString() {
     return String.format(
-            "ImageHistogram[maxCount=%d, totalArrays=4]",
-            getOverallMaxCount()
+            "ImageHistogram[maxCount=%d, totalArrays=4, bins=%d, maxValue=%d]",
+            getOverallMaxCount(), redHistogram.length, maxValue
     );
   }
 }
@@ -6,6 +6,8 @@ package model;
  * Other methods include getters for getting the x,y coordinate, height, width, and max color value.
  */
 public class ImageImpl implements IImage {
+  static final int MAX_SAMPLES = Integer.MAX_VALUE - 8; // largest array the JVM can allocate
+
   private final int width;
   private final int height;
   private final int maxValue;
@@ -18,7 +20,8 @@ public class ImageImpl implements IImage {
    * @param width    of the image of type integer.
    * @param height   of the image of type integer.
    * @param maxValue of the image components of type integer.
-   * @throws IllegalArgumentException if dimensions are 0 or negative.
+   * @throws IllegalArgumentException if dimensions are 0 or negative,
+   *                                  or too large to fit in a single array.
    */
   public ImageImpl(int width, int height, int maxValue) {
     if (width <= 0 || height <= 0) {
@@ -27,6 +30,11 @@ public class ImageImpl implements IImage {
     if (maxValue <= 0) {
       throw new IllegalArgumentException("Max color value must be non-zero and positive");
     }
+    if ((long) width * height * 3 > MAX_SAMPLES) {
+      // the int pixel index would overflow, use OffHeapImage or TiledImage for these images
+      throw new IllegalArgumentException(
+              "Image is too large for ImageImpl: " + width + "x" + height);
+    }
 
     this.width = width;
     this.height = height;
@@ -119,4 +127,72 @@ public class ImageImpl implements IImage {
   public int getMaxValue() {
     return this.maxValue;
   }
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array with a single bulk copy.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   */
+  @Override
+  public void getRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    System.arraycopy(pixels, getPixelIndex(0, y), row, 0, width * 3);
+  }
+
+  /**
+   * Set the r,g,b values of a whole row of pixels from an array with a single bulk copy.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the values to set, at least width * 3 long.
+   * @throws IllegalArgumentException if y or any value is out of range or the array is too short.
+   */
+  @Override
+  public void setRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    for (int i = 0; i < width * 3; i++) {
+      if (row[i] < 0 || row[i] > maxValue) {
+        throw new IllegalArgumentException("Color values out of range");
+      }
+    }
+    System.arraycopy(row, 0, pixels, getPixelIndex(0, y), width * 3);
+  }
+
+  /**
+   * Copy the r,g,b values of a rectangle of pixels into an array with one bulk copy per row.
+   *
+   * @param x            the left column of the rectangle.
+   * @param y            the top row of the rectangle.
+   * @param regionWidth  the width of the rectangle.
+   * @param regionHeight the height of the rectangle.
+   * @param region       the array to copy the values into, at least
+   *                     regionWidth * regionHeight * 3 long.
+   * @throws IllegalArgumentException if the rectangle is not within the image or the array is
+   *                                  too short.
+   */
+  @Override
+  public void getRegion(int x, int y, int regionWidth, int regionHeight, int[] region) {
+    if (x < 0 || y < 0 || regionWidth < 0 || regionHeight < 0
+            || (long) x + regionWidth > width || (long) y + regionHeight > height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (region == null || region.length < (long) regionWidth * regionHeight * 3) {
+      throw new IllegalArgumentException("Region array is too short");
+    }
+    for (int row = 0; row < regionHeight; row++) {
+      System.arraycopy(pixels, getPixelIndex(x, y + row), region, row * regionWidth * 3,
+              regionWidth * 3);
+    }
+  }
 }
@@ -0,0 +1,309 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Class implements IImagePyramid interface.
+ * Every level is made from the one before by averaging blocks of 2x2 pixels, blocks on a right
+ * or bottom edge of odd length average the pixels they have. Rows of large levels are averaged
+ * in parallel. Levels are stored the same way as the image, greyscale images give greyscale
+ * levels and images outside the heap give levels outside the heap, which close() frees.
+ * Asking if a level exists never takes a lock, so it never waits for a level that is being
+ * made or for a LazyImage that is being decoded. Levels are made one thread at a time under a
+ * build lock that nothing else waits for: close() returns at once, and a level that is being
+ * made when the pyramid is closed is freed by the thread making it once it is done.
+ */
+public class ImagePyramidImpl implements IImagePyramid, AutoCloseable {
+  // levels smaller than this are made on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private final AtomicReferenceArray<IImage> levels;
+  private final IImage source;
+  private final ReentrantLock buildLock;
+  private volatile boolean closed;
+  private volatile Runnable whenFreed;
+  private boolean freed; // guarded by buildLock
+
+  /**
+   * Constructor creates the pyramid of an image. Only level 0 exists until others are asked for.
+   *
+   * @param image the image at level 0.
+   * @throws IllegalArgumentException if image is null.
+   */
+  public ImagePyramidImpl(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    int count = 1;
+    int width = image.getWidth();
+    int height = image.getHeight();
+    while (width > 1 || height > 1) {
+      width = (width + 1) / 2;
+      height = (height + 1) / 2;
+      count++;
+    }
+    this.levels = new AtomicReferenceArray<>(count);
+    this.source = image;
+    this.buildLock = new ReentrantLock();
+    if (!(image instanceof LazyImage)) {
+      this.levels.set(0, image);
+    }
+  }
+
+  /**
+   * Get the width of level 0, known without creating any level.
+   *
+   * @return the width of the image.
+   */
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  /**
+   * Get the height of level 0, known without creating any level.
+   *
+   * @return the height of the image.
+   */
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  /**
+   * Get the max color value of the levels, known without creating any level.
+   *
+   * @return max color value of the image.
+   */
+  @Override
+  public int getMaxValue() {
+    return source.getMaxValue();
+  }
+
+  /**
+   * Get the image the pyramid was created from, without decoding it if it is a LazyImage.
+   *
+   * @return the image at level 0 as it was given to the constructor.
+   */
+  IImage getSource() {
+    return source;
+  }
+
+  /**
+   * Get the number of levels of the pyramid, including the image itself.
+   *
+   * @return the number of levels.
+   */
+  @Override
+  public int getLevelCount() {
+    return levels.length();
+  }
+
+  /**
+   * Get a level of the pyramid, creating it and the levels above it if needed.
+   * Safe to call from several threads, a level is only ever created once.
+   *
+   * @param level the level, 0 for the image itself.
+   * @return the image of the level.
+   * @throws IllegalArgumentException if level is out of range.
+   * @throws IllegalStateException    if the pyramid has been closed.
+   */
+  @Override
+  public IImage getLevel(int level) throws IllegalArgumentException {
+    if (level < 0 || level >= levels.length()) {
+      throw new IllegalArgumentException("Level out of range: " + level);
+    }
+    checkOpen();
+    IImage existing = levels.get(level);
+    if (existing != null) {
+      return existing;
+    }
+    // decode before taking the lock, the lazy image has a lock of its own
+    IImage decoded = source instanceof LazyImage ? ((LazyImage) source).getImage() : source;
+    buildLock.lock();
+    try {
+      checkOpen();
+      levels.set(0, decoded);
+      int known = level;
+      while (levels.get(known) == null) {
+        known--;
+      }
+      for (int i = known + 1; i <= level; i++) {
+        levels.set(i, halve(levels.get(i - 1)));
+      }
+      return levels.get(level);
+    } finally {
+      buildLock.unlock();
+      // the pyramid may have been closed while the level was made
+      freeIfClosed();
+    }
+  }
+
+  /**
+   * Checks if a level has been created, so getting it costs nothing.
+   *
+   * @param level the level, 0 for the image itself.
+   * @return true if the level exists, false once the pyramid has been closed.
+   * @throws IllegalArgumentException if level is out of range.
+   */
+  @Override
+  public boolean hasLevel(int level) throws IllegalArgumentException {
+    if (level < 0 || level >= levels.length()) {
+      throw new IllegalArgumentException("Level out of range: " + level);
+    }
+    if (closed) {
+      return false;
+    }
+    if (level == 0 && source instanceof LazyImage) {
+      return ((LazyImage) source).isDecoded();
+    }
+    return levels.get(level) != null;
+  }
+
+  /**
+   * Get the level to draw the image from at a scale, the smallest level that still has at
+   * least as many pixels as are drawn, so it is only ever shrunk further.
+   *
+   * @param scale the drawn size over the size of the image, e.g. 0.25 for a quarter.
+   * @return the level to draw from, 0 for scales of 1 or more.
+   * @throws IllegalArgumentException if scale is not positive.
+   */
+  @Override
+  public int getLevelForScale(double scale) throws IllegalArgumentException {
+    if (!(scale > 0)) {
+      throw new IllegalArgumentException("Scale must be positive");
+    }
+    int level = 0;
+    // allow for rounding so that exact powers of two pick their own level
+    while (level + 1 < levels.length() && Math.scalb(1.0, -(level + 1)) >= scale * (1 - 1e-9)) {
+      level++;
+    }
+    return level;
+  }
+
+  /**
+   * Free the levels that were created outside the heap, without waiting for a level that is
+   * being made. Level 0 belongs to whoever created the pyramid and is left open, use
+   * close(Runnable) to know when the pyramid no longer reads it.
+   * The pyramid cannot be used afterwards.
+   */
+  @Override
+  public void close() {
+    close(null);
+  }
+
+  /**
+   * Free the levels that were created outside the heap, without waiting for a level that is
+   * being made. The pyramid cannot be used afterwards.
+   *
+   * @param whenFreed run once the levels are freed and level 0 is no longer read, on this thread
+   *                  or on the thread that was making a level, may be null.
+   */
+  void close(Runnable whenFreed) {
+    this.whenFreed = whenFreed;
+    closed = true;
+    freeIfClosed();
+  }
+
+  /**
+   * Helper function to free the levels once the pyramid is closed and no level is being made.
+   * Called by close() and by every thread that made a level, after it let go of the build lock,
+   * so whichever comes last frees the levels, exactly once.
+   */
+  private void freeIfClosed() {
+    if (!closed || !buildLock.tryLock()) {
+      return;
+    }
+    Runnable callback = null;
+    try {
+      if (!freed) {
+        freed = true;
+        callback = whenFreed;
+        levels.set(0, null);
+        for (int i = 1; i < levels.length(); i++) {
+          IImage level = levels.getAndSet(i, null);
+          if (level instanceof AutoCloseable) {
+            try {
+              ((AutoCloseable) level).close();
+            } catch (Exception e) {
+              // nothing else holds the level, it is dropped either way
+            }
+          }
+        }
+      }
+    } finally {
+      buildLock.unlock();
+    }
+    if (callback != null) {
+      callback.run();
+    }
+  }
+
+  /**
+   * Helper function to check the pyramid can still be used.
+   *
+   * @throws IllegalStateException if the pyramid has been closed.
+   */
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Pyramid has been closed");
+    }
+  }
+
+  /**
+   * Helper function to create an image of half the width and height of another,
+   * every pixel the rounded mean of a block of up to 2x2 pixels.
+   *
+   * @param image the image to halve.
+   * @return the halved image.
+   */
+  private static IImage halve(IImage image) {
+    int sourceWidth = image.getWidth();
+    int sourceHeight = image.getHeight();
+    int width = (sourceWidth + 1) / 2;
+    int height = (sourceHeight + 1) / 2;
+    IImage result = image instanceof GreyImage
+            ? image.createBlankGrey(width, height, image.getMaxValue())
+            : image.createBlank(width, height, image.getMaxValue());
+
+    IntStream rows = IntStream.range(0, height);
+    if ((long) sourceWidth * sourceHeight >= PARALLEL_THRESHOLD
+            && ForkJoinPool.getCommonPoolParallelism() > 1) {
+      rows = rows.parallel();
+    }
+    rows.forEach(y -> {
+      int[] top = new int[sourceWidth * 3];
+      int[] bottom = new int[sourceWidth * 3];
+      int[] out = new int[width * 3];
+      image.getRow(y * 2, top);
+      boolean pair = y * 2 + 1 < sourceHeight;
+      if (pair) {
+        image.getRow(y * 2 + 1, bottom);
+      }
+      for (int x = 0; x < width; x++) {
+        int left = x * 6;
+        boolean wide = x * 2 + 1 < sourceWidth;
+        int count = (wide ? 2 : 1) * (pair ? 2 : 1);
+        for (int c = 0; c < 3; c++) {
+          // four samples near Integer.MAX_VALUE overflow an int
+          long sum = top[left + c];
+          if (wide) {
+            sum += top[left + 3 + c];
+          }
+          if (pair) {
+            sum += bottom[left + c];
+            if (wide) {
+              sum += bottom[left + 3 + c];
+            }
+          }
+          out[x * 3 + c] = (int) ((sum + count / 2) / count);
+        }
+      }
+      result.setRow(y, out);
+    });
+    return result;
+  }
+}
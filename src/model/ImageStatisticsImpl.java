@@ -0,0 +1,344 @@
+package model;
+
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Implementation of the IImageStatistics interface.
+ * Min, max, mean and variance of all channels are computed in one pass over the pixels.
+ * The rows are split into bands that are processed in parallel, each keeping running moments
+ * with Welford's method, and the moments of the bands are merged pairwise at the end
+ * (Chan et al.), which stays accurate even for very large images.
+ * Percentiles come from bins counted in the same pass, the way ImageHistogramImpl bins values,
+ * or from an exact histogram of the image that is already known, so they cost no extra pass.
+ */
+public class ImageStatisticsImpl implements IImageStatistics {
+  // images smaller than this are processed on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private final Moments[] moments; // indexed by the ordinal of the channel
+  private final int binWidth;
+
+  /**
+   * Constructor that computes the statistics of an image, counting the bins for percentiles
+   * in the same pass as the moments.
+   *
+   * @param image the image to compute the statistics of.
+   * @throws IllegalArgumentException if image is null.
+   */
+  public ImageStatisticsImpl(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    this.binWidth = ImageHistogramImpl.binWidthFor(image.getMaxValue());
+    this.moments = computeMoments(image,
+            ImageHistogramImpl.binCount(image.getMaxValue(), binWidth), binWidth);
+  }
+
+  /**
+   * Constructor that computes the statistics of an image whose exact histogram is known,
+   * so the bins for percentiles are taken from the histogram instead of counted.
+   *
+   * @param image     the image to compute the statistics of.
+   * @param histogram the exact histogram of the image, used for percentiles.
+   * @throws IllegalArgumentException if image or histogram is null, the histogram is
+   *                                  approximate, is missing a channel or does not belong
+   *                                  to the image.
+   */
+  public ImageStatisticsImpl(IImage image, IImageHistogram histogram) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    if (histogram == null) {
+      throw new IllegalArgumentException("Histogram cannot be null");
+    }
+    if (histogram.isApproximate() || histogram.getMaxValue() != image.getMaxValue()
+            || !histogram.getChannels().containsAll(EnumSet.allOf(HistogramChannel.class))) {
+      throw new IllegalArgumentException("Histogram must be the exact histogram of the image");
+    }
+    this.binWidth = histogram.getBinWidth();
+    this.moments = computeMoments(image, 0, binWidth);
+    int[][] known = {histogram.getRedHistogram(), histogram.getGreenHistogram(),
+        histogram.getBlueHistogram(), histogram.getIntensityHistogram()};
+    for (int channel = 0; channel < moments.length; channel++) {
+      moments[channel].bins = new long[known[channel].length];
+      for (int i = 0; i < known[channel].length; i++) {
+        moments[channel].bins[i] = known[channel][i];
+      }
+    }
+  }
+
+  /**
+   * Compute the moments of every channel in parallel bands of rows.
+   *
+   * @param image    the image to analyze.
+   * @param bins     the number of bins to count every channel into, 0 to count none.
+   * @param binWidth the number of values every bin covers.
+   * @return the merged moments of every channel, indexed by the ordinal of the channel.
+   */
+  private static Moments[] computeMoments(IImage image, int bins, int binWidth) {
+    int height = image.getHeight();
+    long pixels = (long) image.getWidth() * height;
+
+    int bandCount = 1;
+    if (pixels >= PARALLEL_THRESHOLD) {
+      // a few bands per worker so uneven bands still balance out,
+      // but only one per worker when every band needs large local bins
+      int bandsPerWorker = bins > ImageHistogramImpl.LARGE_BINS ? 1 : 4;
+      bandCount = Math.min(height, ForkJoinPool.getCommonPoolParallelism() * bandsPerWorker);
+    }
+    int bands = bandCount;
+
+    IntStream indices = IntStream.range(0, bands);
+    if (bands > 1) {
+      indices = indices.parallel();
+    }
+    return indices
+            .mapToObj(band -> measureRows(image, bins, binWidth,
+                    (int) ((long) height * band / bands),
+                    (int) ((long) height * (band + 1) / bands)))
+            .reduce(ImageStatisticsImpl::mergeMoments)
+            .orElseThrow();
+  }
+
+  /**
+   * Keep running moments of every channel over a band of rows, and count the values into
+   * local bins when asked to.
+   *
+   * @param image    the image to analyze.
+   * @param bins     the number of bins to count every channel into, 0 to count none.
+   * @param binWidth the number of values every bin covers.
+   * @param startY   the first row of the band.
+   * @param endY     the row after the last row of the band.
+   * @return the moments of every channel, indexed by the ordinal of the channel.
+   */
+  private static Moments[] measureRows(IImage image, int bins, int binWidth,
+                                       int startY, int endY) {
+    Moments red = new Moments(bins, binWidth);
+    Moments green = new Moments(bins, binWidth);
+    Moments blue = new Moments(bins, binWidth);
+    Moments intensity = new Moments(bins, binWidth);
+    int[] row = new int[image.getWidth() * 3];
+
+    for (int y = startY; y < endY; y++) {
+      image.getRow(y, row);
+      for (int i = 0; i < row.length; i += 3) {
+        red.add(row[i]);
+        green.add(row[i + 1]);
+        blue.add(row[i + 2]);
+        intensity.add((int) (((long) row[i] + row[i + 1] + row[i + 2]) / 3));
+      }
+    }
+    return new Moments[]{red, green, blue, intensity};
+  }
+
+  /**
+   * Merge the moments of one band into the moments of another.
+   *
+   * @param total the moments to merge into, which are returned.
+   * @param band  the moments to merge.
+   * @return the merged moments.
+   */
+  private static Moments[] mergeMoments(Moments[] total, Moments[] band) {
+    for (int channel = 0; channel < total.length; channel++) {
+      total[channel].merge(band[channel]);
+    }
+    return total;
+  }
+
+  /**
+   * Helper function to get the moments of a channel.
+   *
+   * @param channel the channel.
+   * @return the moments of the channel.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  private Moments getMoments(HistogramChannel channel) {
+    if (channel == null) {
+      throw new IllegalArgumentException("Channel cannot be null");
+    }
+    return moments[channel.ordinal()];
+  }
+
+  /**
+   * Get the number of pixels the statistics were computed from.
+   *
+   * @return the number of pixels.
+   */
+  @Override
+  public long getPixelCount() {
+    return moments[0].count;
+  }
+
+  /**
+   * Get the smallest value of a channel.
+   *
+   * @param channel the channel.
+   * @return the smallest value.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  @Override
+  public int getMin(HistogramChannel channel) {
+    return getMoments(channel).min;
+  }
+
+  /**
+   * Get the largest value of a channel.
+   *
+   * @param channel the channel.
+   * @return the largest value.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  @Override
+  public int getMax(HistogramChannel channel) {
+    return getMoments(channel).max;
+  }
+
+  /**
+   * Get the mean value of a channel.
+   *
+   * @param channel the channel.
+   * @return the mean value.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  @Override
+  public double getMean(HistogramChannel channel) {
+    return getMoments(channel).mean;
+  }
+
+  /**
+   * Get the population variance of the values of a channel.
+   *
+   * @param channel the channel.
+   * @return the variance.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  @Override
+  public double getVariance(HistogramChannel channel) {
+    Moments channelMoments = getMoments(channel);
+    return channelMoments.m2 / channelMoments.count;
+  }
+
+  /**
+   * Get the population standard deviation of the values of a channel.
+   *
+   * @param channel the channel.
+   * @return the standard deviation.
+   * @throws IllegalArgumentException if channel is null.
+   */
+  @Override
+  public double getStandardDeviation(HistogramChannel channel) {
+    return Math.sqrt(getVariance(channel));
+  }
+
+  /**
+   * Get a percentile of the values of a channel, using the nearest rank:
+   * the smallest value that at least the given share of pixels are at or below.
+   * It is read from the bins of the channel; when bins cover several values
+   * the result is the lowest value of the bin.
+   *
+   * @param channel    the channel.
+   * @param percentile the percentile, from 0 to 100.
+   * @return the value at the percentile.
+   * @throws IllegalArgumentException if channel is null or percentile is out of range.
+   */
+  @Override
+  public int getPercentile(HistogramChannel channel, double percentile) {
+    Moments channelMoments = getMoments(channel);
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    if (percentile == 0) {
+      return channelMoments.min;
+    }
+
+    long rank = (long) Math.ceil(percentile / 100 * channelMoments.count);
+    long[] bins = channelMoments.bins;
+    long seen = 0;
+    for (int i = 0; i < bins.length; i++) {
+      seen += bins[i];
+      if (seen >= rank) {
+        // never report a value outside of what the image holds
+        long value = (long) i * binWidth;
+        return (int) Math.max(channelMoments.min, Math.min(value, channelMoments.max));
+      }
+    }
+    return channelMoments.max;
+  }
+
+  /**
+   * Running count, min, max, mean and sum of squared differences from the mean
+   * of the values of one channel, and the number of values in every bin.
+   */
+  private static final class Moments {
+    private final int binWidth;
+    private long count;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+    private double mean;
+    private double m2;
+    private long[] bins; // empty when the values are not counted into bins
+
+    /**
+     * Constructor creates empty moments.
+     *
+     * @param bins     the number of bins to count the values into, 0 to count none.
+     * @param binWidth the number of values every bin covers.
+     */
+    private Moments(int bins, int binWidth) {
+      this.bins = new long[bins];
+      this.binWidth = binWidth;
+    }
+
+    /**
+     * Add one value with Welford's update.
+     *
+     * @param value the value to add.
+     */
+    private void add(int value) {
+      count++;
+      if (bins.length > 0) {
+        bins[value / binWidth]++;
+      }
+      if (value < min) {
+        min = value;
+      }
+      if (value > max) {
+        max = value;
+      }
+      double delta = value - mean;
+      mean += delta / count;
+      m2 += delta * (value - mean);
+    }
+
+    /**
+     * Merge the moments of another set of values into these.
+     *
+     * @param other the moments to merge.
+     */
+    private void merge(Moments other) {
+      if (other.count == 0) {
+        return;
+      }
+      for (int i = 0; i < bins.length; i++) {
+        bins[i] += other.bins[i];
+      }
+      if (count == 0) {
+        count = other.count;
+        min = other.min;
+        max = other.max;
+        mean = other.mean;
+        m2 = other.m2;
+        return;
+      }
+      long total = count + other.count;
+      double delta = other.mean - mean;
+      mean += delta * other.count / total;
+      m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+      count = total;
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+    }
+  }
+}
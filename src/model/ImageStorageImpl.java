@@ -1,20 +1,35 @@
 package model;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Class implements IImageStorage interface.
  * It creates and hashmap to store images, and it's IImage object.
+ * Histograms and pyramids of stored images are cached by name until the image is replaced
+ * or removed. Images that hold memory outside the heap are closed once no name refers to them,
+ * or later once the last background thread reading them releases them.
  */
 public class ImageStorageImpl implements IImageStorage {
   private final Map<String, IImage> images;
+  private final Map<String, CachedHistogram> histograms;
+  private final Map<String, ImagePyramidImpl> pyramids;
+  // images read by background threads and how many read them, guarded by itself
+  private final Map<IImage, Integer> readers;
+  private final Set<IImage> closing; // removed images waiting for their last reader
 
   /**
    * Constructor initializes a new hashmap to store images, and it's IImage object.
    */
   public ImageStorageImpl() {
     this.images = new HashMap<>();
+    this.histograms = new HashMap<>();
+    this.pyramids = new HashMap<>();
+    this.readers = new IdentityHashMap<>();
+    this.closing = Collections.newSetFromMap(new IdentityHashMap<>());
   }
 
   /**
@@ -39,7 +54,7 @@ public class ImageStorageImpl implements IImageStorage {
     }
 
     images.put(name, image);
-
+    keepOpen(image);
   }
 
   /**
@@ -77,6 +92,7 @@ public class ImageStorageImpl implements IImageStorage {
 
   /**
    * Overwrite an existing image or add a new one.
+   * An overwritten image that holds memory outside the heap is closed.
    *
    * @param name  the name of the image.
    * @param image of type IImage to store.
@@ -90,7 +106,13 @@ public class ImageStorageImpl implements IImageStorage {
     if (image == null) {
       throw new IllegalArgumentException("Image cannot be null");
     }
-    images.put(name, image);
+    IImage previous = images.put(name, image);
+    keepOpen(image);
+    histograms.remove(name);
+    releasePyramid(name);
+    if (previous != null && previous != image) {
+      releaseImage(previous);
+    }
   }
 
   /**
@@ -105,6 +127,7 @@ public class ImageStorageImpl implements IImageStorage {
 
   /**
    * Remove an image from database.
+   * An image that holds memory outside the heap is closed once no name refers to it.
    *
    * @param name name of the image to delete.
    */
@@ -117,6 +140,233 @@ public class ImageStorageImpl implements IImageStorage {
       throw new IllegalArgumentException("Image '" + name + "' does not exist");
     }
 
-    images.remove(name);
+    histograms.remove(name);
+    releasePyramid(name);
+    releaseImage(images.remove(name));
+  }
+
+  /**
+   * Get the histogram of a stored image.
+   * The histogram is computed the first time it is requested and cached until the image
+   * stored under the name is replaced or removed, so asking again costs nothing.
+   *
+   * @param name the name of the image.
+   * @return the histogram of the image.
+   * @throws IllegalArgumentException if name is null/empty or no image exists with this name.
+   */
+  @Override
+  public IImageHistogram getHistogram(String name) throws IllegalArgumentException {
+    IImage image = getImage(name);
+    CachedHistogram cached = histograms.get(name);
+    // the identity check also catches images changed through getAllImages()
+    if (cached == null || cached.image != image) {
+      cached = new CachedHistogram(image, new ImageHistogramImpl(image));
+      histograms.put(name, cached);
+    }
+    return cached.histogram;
+  }
+
+  /**
+   * Checks if the histogram of a stored image is cached, so getting it costs nothing.
+   *
+   * @param name the name of the image.
+   * @return true if the histogram of the image stored under the name is cached.
+   */
+  @Override
+  public boolean hasHistogram(String name) {
+    CachedHistogram cached = histograms.get(name);
+    return cached != null && cached.image == images.get(name);
+  }
+
+  /**
+   * Cache a histogram that is already known for a stored image,
+   * e.g. one derived by the operation that created the image.
+   *
+   * @param name      the name of the image.
+   * @param histogram the histogram of the image stored under the name.
+   * @throws IllegalArgumentException if name is null/empty, histogram is null
+   *                                  or no image exists with this name.
+   */
+  @Override
+  public void putHistogram(String name, IImageHistogram histogram)
+          throws IllegalArgumentException {
+    if (histogram == null) {
+      throw new IllegalArgumentException("Histogram cannot be null");
+    }
+    histograms.put(name, new CachedHistogram(getImage(name), histogram));
+  }
+
+  /**
+   * Get the mipmap pyramid of a stored image, to draw it at a smaller scale cheaply.
+   * The pyramid is cached until the image stored under the name is replaced or removed,
+   * and its levels are created as they are first asked for.
+   *
+   * @param name the name of the image.
+   * @return the pyramid of the image.
+   * @throws IllegalArgumentException if name is null/empty or no image exists with this name.
+   */
+  @Override
+  public IImagePyramid getPyramid(String name) throws IllegalArgumentException {
+    IImage image = getImage(name);
+    ImagePyramidImpl pyramid = pyramids.get(name);
+    // the identity check also catches images changed through getAllImages(),
+    // it compares the source so a lazy image is not decoded just to find its pyramid
+    if (pyramid == null || pyramid.getSource() != image) {
+      releasePyramid(name);
+      pyramid = new ImagePyramidImpl(image);
+      pyramids.put(name, pyramid);
+    }
+    return pyramid;
+  }
+
+  /**
+   * Helper function to drop the cached pyramid of a name and free its levels.
+   * The image is retained until the pyramid no longer reads it, a level may still be being made.
+   *
+   * @param name the name of the image.
+   */
+  private void releasePyramid(String name) {
+    ImagePyramidImpl pyramid = pyramids.remove(name);
+    if (pyramid != null) {
+      IImage source = pyramid.getSource();
+      retain(source);
+      pyramid.close(() -> release(source));
+    }
+  }
+
+  /**
+   * Helper function to free an image that is no longer stored under any name.
+   * Images that hold memory or files outside the heap implement AutoCloseable.
+   * An image is kept open while a stored view still reads from it, and released with the
+   * last such view.
+   *
+   * @param image the image that was removed or overwritten.
+   */
+  private void releaseImage(IImage image) {
+    if (image instanceof ImageView) {
+      // the view may have been the last thing keeping its parent open
+      releaseImage(((ImageView) image).getParent());
+      return;
+    }
+    if (image instanceof AutoCloseable && !images.containsValue(image) && !isViewed(image)) {
+      synchronized (readers) {
+        if (readers.containsKey(image)) {
+          // closed by the last reader instead
+          closing.add(image);
+          return;
+        }
+      }
+      closeImage(image);
+    }
+  }
+
+  /**
+   * Tell the storage that a background thread is about to read an image, so the image is not
+   * closed while it is read, even if it is removed or overwritten in the meantime.
+   * A view holds the image it reads from open.
+   *
+   * @param image the image that is read.
+   */
+  @Override
+  public void retain(IImage image) {
+    IImage owner = getOwner(image);
+    if (owner instanceof AutoCloseable) {
+      synchronized (readers) {
+        readers.merge(owner, 1, Integer::sum);
+      }
+    }
+  }
+
+  /**
+   * Tell the storage that a background thread is done reading an image. An image that was
+   * removed or overwritten while it was read is closed on this thread once its last reader
+   * releases it.
+   *
+   * @param image the image that was read.
+   */
+  @Override
+  public void release(IImage image) {
+    IImage owner = getOwner(image);
+    synchronized (readers) {
+      Integer count = readers.get(owner);
+      if (count == null) {
+        return;
+      }
+      if (count > 1) {
+        readers.put(owner, count - 1);
+        return;
+      }
+      readers.remove(owner);
+      if (!closing.remove(owner)) {
+        return;
+      }
+    }
+    closeImage(owner);
+  }
+
+  /**
+   * Helper function to keep an image that is stored again from being closed by its last reader.
+   *
+   * @param image the image that is stored.
+   */
+  private void keepOpen(IImage image) {
+    synchronized (readers) {
+      closing.remove(getOwner(image));
+    }
+  }
+
+  /**
+   * Helper function to get the image that holds the pixels a view reads.
+   *
+   * @param image the image or view.
+   * @return the image itself if it is not a view.
+   */
+  private static IImage getOwner(IImage image) {
+    IImage owner = image;
+    while (owner instanceof ImageView) {
+      owner = ((ImageView) owner).getParent();
+    }
+    return owner;
+  }
+
+  /**
+   * Helper function to close an image that nothing refers to any more.
+   *
+   * @param image the image to close.
+   */
+  private static void closeImage(IImage image) {
+    try {
+      ((AutoCloseable) image).close();
+    } catch (Exception e) {
+      // the image is no longer reachable from storage, nothing else to do
+    }
+  }
+
+  /**
+   * Helper function to check whether a stored view reads from an image.
+   *
+   * @param image the image to check.
+   * @return true if a stored ImageView has the image as its parent.
+   */
+  private boolean isViewed(IImage image) {
+    for (IImage stored : images.values()) {
+      if (stored instanceof ImageView && ((ImageView) stored).getParent() == image) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A cached histogram and the image it was computed for.
+   */
+  private static final class CachedHistogram {
+    private final IImage image;
+    private final IImageHistogram histogram;
+
+    private CachedHistogram(IImage image, IImageHistogram histogram) {
+      this.image = image;
+      this.histogram = histogram;
+    }
   }
 }
@@ -0,0 +1,405 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Class implements IImage interface as a view of another image that copies no pixels.
+ * Pixel (x, y) of the view is pixel (originX + x * xx + y * yx, originY + x * xy + y * yy) of
+ * the parent, which covers crops, flips, transposes and rotations by multiples of 90 degrees.
+ * A view of a view maps straight to the image underneath, so views never form chains.
+ * Views are read-only and show later changes to their parent. Operations read them like any
+ * other image and give results stored the same way as the parent. Copy the pixels with
+ * materialize() when the view should no longer depend on its parent.
+ */
+public final class ImageView implements IImage {
+  // side of the square blocks a transposed view is copied in, 64 * 64 pixels fit the L2 cache
+  private static final int BLOCK_SIZE = 64;
+  // views smaller than this are copied on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private final IImage parent;
+  private final int width;
+  private final int height;
+  private final int originX;
+  private final int originY;
+  private final int xx; // parent x step for a step along a view row
+  private final int xy; // parent y step for a step along a view row
+  private final int yx; // parent x step for a step down a view column
+  private final int yy; // parent y step for a step down a view column
+
+  /**
+   * Private constructor used by the factory functions, the parent is never a view.
+   */
+  private ImageView(IImage parent, int width, int height, int originX, int originY,
+                    int xx, int xy, int yx, int yy) {
+    this.parent = parent;
+    this.width = width;
+    this.height = height;
+    this.originX = originX;
+    this.originY = originY;
+    this.xx = xx;
+    this.xy = xy;
+    this.yx = yx;
+    this.yy = yy;
+  }
+
+  /**
+   * Helper function to create a view of an image, merging it with the image if it is a view.
+   */
+  private static ImageView of(IImage image, int width, int height, int originX, int originY,
+                              int xx, int xy, int yx, int yy) {
+    if (!(image instanceof ImageView)) {
+      return new ImageView(image, width, height, originX, originY, xx, xy, yx, yy);
+    }
+    ImageView view = (ImageView) image;
+    return new ImageView(view.parent, width, height,
+            view.originX + view.xx * originX + view.yx * originY,
+            view.originY + view.xy * originX + view.yy * originY,
+            view.xx * xx + view.yx * xy, view.xy * xx + view.yy * xy,
+            view.xx * yx + view.yx * yy, view.xy * yx + view.yy * yy);
+  }
+
+  /**
+   * Helper function to check the image a view is created from.
+   *
+   * @param image the image to check.
+   * @return the same image if it is not null.
+   * @throws IllegalArgumentException if image is null.
+   */
+  private static IImage requireImage(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    return image;
+  }
+
+  /**
+   * Create a view of a rectangle of an image.
+   *
+   * @param image  the image to crop.
+   * @param x      the left column of the rectangle.
+   * @param y      the top row of the rectangle.
+   * @param width  the width of the rectangle.
+   * @param height the height of the rectangle.
+   * @return the view of the rectangle.
+   * @throws IllegalArgumentException if image is null or the rectangle is empty or not
+   *                                  within the image.
+   */
+  public static ImageView crop(IImage image, int x, int y, int width, int height) {
+    requireImage(image);
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be non-zero and positive");
+    }
+    if (x < 0 || y < 0 || (long) x + width > image.getWidth()
+            || (long) y + height > image.getHeight()) {
+      throw new IllegalArgumentException("Crop rectangle is outside of the image");
+    }
+    return of(image, width, height, x, y, 1, 0, 0, 1);
+  }
+
+  /**
+   * Create a view of an image mirrored left to right.
+   *
+   * @param image the image to flip.
+   * @return the flipped view.
+   * @throws IllegalArgumentException if image is null.
+   */
+  public static ImageView flipHorizontal(IImage image) {
+    requireImage(image);
+    return of(image, image.getWidth(), image.getHeight(),
+            image.getWidth() - 1, 0, -1, 0, 0, 1);
+  }
+
+  /**
+   * Create a view of an image mirrored top to bottom.
+   *
+   * @param image the image to flip.
+   * @return the flipped view.
+   * @throws IllegalArgumentException if image is null.
+   */
+  public static ImageView flipVertical(IImage image) {
+    requireImage(image);
+    return of(image, image.getWidth(), image.getHeight(),
+            0, image.getHeight() - 1, 1, 0, 0, -1);
+  }
+
+  /**
+   * Create a view of an image mirrored along its main diagonal, rows become columns.
+   *
+   * @param image the image to transpose.
+   * @return the transposed view.
+   * @throws IllegalArgumentException if image is null.
+   */
+  public static ImageView transpose(IImage image) {
+    requireImage(image);
+    return of(image, image.getHeight(), image.getWidth(), 0, 0, 0, 1, 1, 0);
+  }
+
+  /**
+   * Create a view of an image rotated clockwise by a multiple of 90 degrees.
+   *
+   * @param image   the image to rotate.
+   * @param degrees the angle, 90, 180 or 270.
+   * @return the rotated view.
+   * @throws IllegalArgumentException if image is null or the angle is not 90, 180 or 270.
+   */
+  public static ImageView rotate(IImage image, int degrees) {
+    requireImage(image);
+    int w = image.getWidth();
+    int h = image.getHeight();
+    switch (degrees) {
+      case 90:
+        return of(image, h, w, 0, h - 1, 0, -1, 1, 0);
+      case 180:
+        return of(image, w, h, w - 1, h - 1, -1, 0, 0, -1);
+      case 270:
+        return of(image, h, w, w - 1, 0, 0, 1, -1, 0);
+      default:
+        throw new IllegalArgumentException("Rotation must be 90, 180 or 270 degrees");
+    }
+  }
+
+  /**
+   * Get the image the view reads its pixels from. It is never a view itself.
+   *
+   * @return the parent image.
+   */
+  public IImage getParent() {
+    return parent;
+  }
+
+  /**
+   * Check whether rows of the view are read from columns of the parent.
+   *
+   * @return true if the view is transposed or rotated by 90 or 270 degrees.
+   */
+  public boolean isTransposed() {
+    return xx == 0;
+  }
+
+  /**
+   * Copy the pixels of the view into a new image stored the same way as the parent.
+   * Bands of rows are copied in parallel. Rows of a transposed view are columns of the parent,
+   * so they are gathered in square blocks small enough for the cache: each block is read from
+   * the parent with a bulk copy per row and scattered into the band, instead of striding
+   * through a whole column of the parent for every pixel.
+   *
+   * @return the new image, independent of the parent.
+   */
+  public IImage materialize() {
+    IImage result = parent.createBlank(width, height, parent.getMaxValue());
+    int bands = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    int taskCount = 1;
+    if ((long) width * height >= PARALLEL_THRESHOLD) {
+      // a few tasks per worker so uneven tasks still balance out
+      taskCount = Math.min(bands, ForkJoinPool.getCommonPoolParallelism() * 4);
+    }
+    int tasks = taskCount;
+
+    IntStream indices = IntStream.range(0, tasks);
+    if (tasks > 1) {
+      indices = indices.parallel();
+    }
+    Thread owner = Thread.currentThread();
+    indices.forEach(task -> {
+      // the buffers are reused for every band of the task
+      int[][] lines = new int[Math.min(BLOCK_SIZE, height)][width * 3];
+      int[] block = isTransposed() ? new int[BLOCK_SIZE * BLOCK_SIZE * 3] : null;
+      int endBand = (int) ((long) bands * (task + 1) / tasks);
+      for (int band = (int) ((long) bands * task / tasks); band < endBand; band++) {
+        Cancellation.check(owner);
+        int startY = band * BLOCK_SIZE;
+        int rows = Math.min(BLOCK_SIZE, height - startY);
+        if (isTransposed()) {
+          copyBlocks(startY, rows, lines, block);
+        } else {
+          for (int y = 0; y < rows; y++) {
+            copyRow(startY + y, lines[y]);
+          }
+        }
+        for (int y = 0; y < rows; y++) {
+          result.setRow(startY + y, lines[y]);
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Helper function to fill a band of rows of a transposed view block by block.
+   *
+   * @param startY the first row of the band.
+   * @param rows   the number of rows in the band.
+   * @param lines  the rows of the band to fill.
+   * @param block  an array for one block of the parent, BLOCK_SIZE^2 * 3 long.
+   */
+  private void copyBlocks(int startY, int rows, int[][] lines, int[] block) {
+    for (int startX = 0; startX < width; startX += BLOCK_SIZE) {
+      int columns = Math.min(BLOCK_SIZE, width - startX);
+      // the parent rectangle under the block, from two opposite corners
+      int x0 = originX + startX * xx + startY * yx;
+      int y0 = originY + startX * xy + startY * yy;
+      int x1 = x0 + (columns - 1) * xx + (rows - 1) * yx;
+      int y1 = y0 + (columns - 1) * xy + (rows - 1) * yy;
+      int left = Math.min(x0, x1);
+      int top = Math.min(y0, y1);
+      int blockWidth = Math.abs(x1 - x0) + 1;
+      parent.getRegion(left, top, blockWidth, Math.abs(y1 - y0) + 1, block);
+
+      int step = (xy * blockWidth + xx) * 3; // along a view row
+      for (int y = 0; y < rows; y++) {
+        int[] line = lines[y];
+        int source = ((y0 + y * yy - top) * blockWidth + (x0 + y * yx - left)) * 3;
+        for (int i = startX * 3; i < (startX + columns) * 3; i += 3) {
+          line[i] = block[source];
+          line[i + 1] = block[source + 1];
+          line[i + 2] = block[source + 2];
+          source += step;
+        }
+      }
+    }
+  }
+
+  /**
+   * Views are read-only.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @param r the red component of the pixel.
+   * @param g the green component of the pixel.
+   * @param b the blue component of the pixel.
+   * @throws IllegalStateException always, materialize the view to edit it.
+   */
+  @Override
+  public void setPixel(int x, int y, int r, int g, int b) {
+    throw new IllegalStateException("Views are read-only, materialize the view first");
+  }
+
+  /**
+   * Get the r,g,b values of a pixel from the parent.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @return the r,g,b values of a pixel as an array[] of integers.
+   * @throws IllegalArgumentException if x,y are out of range.
+   */
+  @Override
+  public int[] getPixel(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    return parent.getPixel(originX + x * xx + y * yx, originY + x * xy + y * yy);
+  }
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array.
+   * Rows that lie along a row of the parent are read from it in bulk, only the span of the
+   * parent row under the view is read.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   */
+  @Override
+  public void getRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    if (isTransposed()) {
+      for (int x = 0; x < width; x++) {
+        int[] pixel = getPixel(x, y);
+        row[x * 3] = pixel[0];
+        row[x * 3 + 1] = pixel[1];
+        row[x * 3 + 2] = pixel[2];
+      }
+      return;
+    }
+    copyRow(y, row);
+  }
+
+  /**
+   * Helper function to copy a row of a view that is not transposed from a row of the parent.
+   * The span under the view is read straight into the row, and reversed in place if the view
+   * is flipped, so no buffer is needed.
+   *
+   * @param y   the row of the view.
+   * @param row the array to copy the values into, at least width * 3 long.
+   */
+  private void copyRow(int y, int[] row) {
+    int start = originX + y * yx;
+    int left = xx == 1 ? start : start - width + 1;
+    parent.getRegion(left, originY + y * yy, width, 1, row);
+    if (xx == -1) {
+      for (int i = 0, j = (width - 1) * 3; i < j; i += 3, j -= 3) {
+        for (int c = 0; c < 3; c++) {
+          int swap = row[i + c];
+          row[i + c] = row[j + c];
+          row[j + c] = swap;
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the width of the image.
+   *
+   * @return the width of the image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the image.
+   *
+   * @return the height of the image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * get the max color value of the image.
+   * E.g. For 8 bit image it's 255.
+   *
+   * @return max color value of the image.
+   */
+  @Override
+  public int getMaxValue() {
+    return parent.getMaxValue();
+  }
+
+  /**
+   * Create a new blank image stored the same way as the parent.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank image of type IImage.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  @Override
+  public IImage createBlank(int width, int height, int maxValue) {
+    return parent.createBlank(width, height, maxValue);
+  }
+
+  /**
+   * Create a new blank greyscale image stored the same way as the parent would store it.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank image of type IImage that accepts pixels with equal r, g, b values.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  @Override
+  public IImage createBlankGrey(int width, int height, int maxValue) {
+    return parent.createBlankGrey(width, height, maxValue);
+  }
+}
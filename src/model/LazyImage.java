@@ -0,0 +1,315 @@
+package model;
+
+import java.io.IOException;
+
+/**
+ * Class implements IImage interface for an image whose pixels are only decoded when first used.
+ * The size and max value are known up front, e.g. from the header of a file, so an image can be
+ * stored and listed without decoding it. The first access to a pixel decodes the whole image
+ * once, on the thread that accesses it, and every later access goes to the decoded image.
+ * Safe to use from several threads, the image is only ever decoded once.
+ */
+public class LazyImage implements IImage, AutoCloseable {
+  private final int width;
+  private final int height;
+  private final int maxValue;
+  private final Decoder decoder;
+  private volatile IImage image; // null until decoded
+  private String failure; // the message of a decoding that failed, it is not tried again
+
+  /**
+   * Decodes the pixels of a lazy image.
+   */
+  public interface Decoder {
+    /**
+     * Decode the image, keeping only every step-th pixel of every step-th row.
+     *
+     * @param step the distance between the pixels kept, 1 to decode every pixel.
+     * @return the decoded image, of the size divided by step and rounded up.
+     * @throws IOException if fail to decode the image.
+     */
+    IImage decode(int step) throws IOException;
+  }
+
+  /**
+   * Constructor takes in the size and max value of the image and how to decode it.
+   *
+   * @param width    of the image of type integer.
+   * @param height   of the image of type integer.
+   * @param maxValue of the image components of type integer.
+   * @param decoder  decodes the pixels when they are first used.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative,
+   *                                  or decoder is null.
+   */
+  public LazyImage(int width, int height, int maxValue, Decoder decoder) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be non-zero and positive");
+    }
+    if (maxValue <= 0) {
+      throw new IllegalArgumentException("Max color value must be non-zero and positive");
+    }
+    if (decoder == null) {
+      throw new IllegalArgumentException("Decoder cannot be null");
+    }
+    this.width = width;
+    this.height = height;
+    this.maxValue = maxValue;
+    this.decoder = decoder;
+  }
+
+  /**
+   * Checks if the pixels have been decoded, so using them costs nothing.
+   * Never waits for a decoding that is in progress.
+   *
+   * @return true if the image is decoded.
+   */
+  public boolean isDecoded() {
+    return image != null;
+  }
+
+  /**
+   * Get the decoded image, decoding it if this is the first time.
+   *
+   * @return the decoded image.
+   * @throws IllegalStateException if the image cannot be decoded, or its size or max value is
+   *                               not the one given to the constructor.
+   */
+  public IImage getImage() {
+    IImage decoded = image;
+    if (decoded != null) {
+      return decoded;
+    }
+    synchronized (this) {
+      if (image == null) {
+        if (failure != null) {
+          throw new IllegalStateException(failure);
+        }
+        try {
+          decoded = decoder.decode(1);
+        } catch (IOException | RuntimeException e) {
+          failure = "Failed to decode image: " + e.getMessage();
+          throw new IllegalStateException(failure);
+        }
+        if (decoded.getWidth() != width || decoded.getHeight() != height
+                || decoded.getMaxValue() != maxValue) {
+          failure = "Decoded image does not match its header";
+          throw new IllegalStateException(failure);
+        }
+        image = decoded;
+      }
+      return image;
+    }
+  }
+
+  /**
+   * Get a subsampled copy of the image, keeping every step-th pixel of every step-th row.
+   * An image that is not decoded yet is decoded subsampled and stays undecoded, which reads
+   * far fewer pixels, so this suits previews such as thumbnails.
+   *
+   * @param step the distance between the pixels kept, 1 for the image itself.
+   * @return the subsampled image, of the size divided by step and rounded up.
+   * @throws IllegalArgumentException if step is not positive.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  public IImage getSubsampled(int step) {
+    if (step <= 0) {
+      throw new IllegalArgumentException("Step must be positive");
+    }
+    if (step == 1 || isDecoded()) {
+      return step == 1 ? getImage() : subsample(getImage(), step);
+    }
+    try {
+      return decoder.decode(step);
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalStateException("Failed to decode image: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Helper function to keep every step-th pixel of every step-th row of a decoded image.
+   *
+   * @param source the image to subsample.
+   * @param step   the distance between the pixels kept.
+   * @return the subsampled image.
+   */
+  private static IImage subsample(IImage source, int step) {
+    int resultWidth = (source.getWidth() + step - 1) / step;
+    int resultHeight = (source.getHeight() + step - 1) / step;
+    IImage result = source.createBlank(resultWidth, resultHeight, source.getMaxValue());
+    int[] row = new int[source.getWidth() * 3];
+    int[] out = new int[resultWidth * 3];
+    for (int y = 0; y < resultHeight; y++) {
+      source.getRow(y * step, row);
+      for (int x = 0; x < resultWidth; x++) {
+        System.arraycopy(row, x * step * 3, out, x * 3, 3);
+      }
+      result.setRow(y, out);
+    }
+    return result;
+  }
+
+  /**
+   * Set the rgb values of a pixel on a certain x and y coordinate, decoding the image first.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @param r the red component of the pixel (0 to maxValue).
+   * @param g the green component of the pixel (0 to maxValue).
+   * @param b the blue component of the pixel (0 to maxValue).
+   * @throws IllegalArgumentException if x,y,r,g,b are out of range.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  @Override
+  public void setPixel(int x, int y, int r, int g, int b) {
+    getImage().setPixel(x, y, r, g, b);
+  }
+
+  /**
+   * Get the r,g,b values of a pixel as an array[] of integers, decoding the image first.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @return the r,g,b values of a pixel as an array[] of integers.
+   * @throws IllegalArgumentException if x,y are out of range.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  @Override
+  public int[] getPixel(int x, int y) {
+    return getImage().getPixel(x, y);
+  }
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array, decoding the image first.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  @Override
+  public void getRow(int y, int[] row) {
+    getImage().getRow(y, row);
+  }
+
+  /**
+   * Set the r,g,b values of a whole row of pixels from an array, decoding the image first.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the values to set, at least width * 3 long.
+   * @throws IllegalArgumentException if y or any value is out of range or the array is too short.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  @Override
+  public void setRow(int y, int[] row) {
+    getImage().setRow(y, row);
+  }
+
+  /**
+   * Copy the r,g,b values of a rectangle of pixels into an array, decoding the image first.
+   *
+   * @param x            the left column of the rectangle.
+   * @param y            the top row of the rectangle.
+   * @param regionWidth  the width of the rectangle.
+   * @param regionHeight the height of the rectangle.
+   * @param region       the array to copy the values into, at least
+   *                     regionWidth * regionHeight * 3 long.
+   * @throws IllegalArgumentException if the rectangle is not within the image or the array is
+   *                                  too short.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  @Override
+  public void getRegion(int x, int y, int regionWidth, int regionHeight, int[] region) {
+    getImage().getRegion(x, y, regionWidth, regionHeight, region);
+  }
+
+  /**
+   * Create a new blank image that stores its pixels the same way as the decoded image.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank image of type IImage.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  @Override
+  public IImage createBlank(int width, int height, int maxValue) {
+    return getImage().createBlank(width, height, maxValue);
+  }
+
+  /**
+   * Create a new blank image to hold a greyscale result of the decoded image.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank image of type IImage that accepts pixels with equal r, g, b values.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  @Override
+  public IImage createBlankGrey(int width, int height, int maxValue) {
+    return getImage().createBlankGrey(width, height, maxValue);
+  }
+
+  /**
+   * Visit the decoded image one tile at a time, decoding it first.
+   *
+   * @param visitor the visitor called once for every tile.
+   * @throws IllegalArgumentException if visitor is null.
+   * @throws IllegalStateException    if the image cannot be decoded.
+   */
+  @Override
+  public void forEachTile(ITileVisitor visitor) {
+    getImage().forEachTile(visitor);
+  }
+
+  /**
+   * Get the width of the image, known without decoding it.
+   *
+   * @return the width of the image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the image, known without decoding it.
+   *
+   * @return the height of the image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * get the max color value of the image, known without decoding it.
+   * E.g. For 8 bit image it's 255.
+   *
+   * @return max color value of the image.
+   */
+  @Override
+  public int getMaxValue() {
+    return this.maxValue;
+  }
+
+  /**
+   * Free the decoded image if it is stored outside the heap. Nothing is freed if the image
+   * was never decoded.
+   *
+   * @throws IllegalStateException if the decoded image fails to close.
+   */
+  @Override
+  public void close() {
+    IImage decoded = image;
+    if (decoded instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) decoded).close();
+      } catch (Exception e) {
+        throw new IllegalStateException("Failed to close image: " + e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,329 @@
+package model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Class implements IImage interface with pixels stored outside the Java heap.
+ * The pixels are split over direct ByteBuffer chunks and located with long arithmetic,
+ * so the image is not limited by the size of one int indexed array like ImageImpl.
+ * Each component uses 1, 2 or 4 bytes depending on the max color value.
+ * The memory is freed as soon as close() is called rather than when the garbage collector runs,
+ * the image storage closes an image when it is removed.
+ */
+public class OffHeapImage implements IImage, AutoCloseable {
+  private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+  private final int width;
+  private final int height;
+  private final int maxValue;
+  private final int bytesPerSample;
+  private final int pixelBytes;
+  private final long chunkPixels; // number of whole pixels in each chunk
+  private volatile ByteBuffer[] chunks; // null once closed, read by every thread
+
+  /**
+   * Constructor takes in a width, height,
+   * and maxValue of the image to create a blank off-heap image.
+   *
+   * @param width    of the image of type integer.
+   * @param height   of the image of type integer.
+   * @param maxValue of the image components of type integer.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  public OffHeapImage(int width, int height, int maxValue) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be non-zero and positive");
+    }
+    if (maxValue <= 0) {
+      throw new IllegalArgumentException("Max color value must be non-zero and positive");
+    }
+
+    this.width = width;
+    this.height = height;
+    this.maxValue = maxValue;
+    if (maxValue <= 0xFF) {
+      this.bytesPerSample = 1;
+    } else if (maxValue <= 0xFFFF) {
+      this.bytesPerSample = 2;
+    } else {
+      this.bytesPerSample = 4;
+    }
+    this.pixelBytes = bytesPerSample * 3;
+    // chunks hold a whole number of pixels so a pixel never spans two chunks
+    this.chunkPixels = MAX_CHUNK_BYTES / pixelBytes;
+
+    long totalPixels = (long) width * height;
+    int chunkCount = (int) ((totalPixels + chunkPixels - 1) / chunkPixels);
+    this.chunks = new ByteBuffer[chunkCount];
+    for (int i = 0; i < chunkCount; i++) {
+      long pixelsInChunk = Math.min(chunkPixels, totalPixels - i * chunkPixels);
+      chunks[i] = ByteBuffer.allocateDirect((int) (pixelsInChunk * pixelBytes));
+    }
+  }
+
+  /**
+   * Helper function to get the chunk holding a pixel.
+   *
+   * @param pixelIndex the index of the pixel, row by row.
+   * @return the chunk that holds the pixel.
+   * @throws IllegalStateException if the image has been closed.
+   */
+  private ByteBuffer getChunk(long pixelIndex) {
+    ByteBuffer[] current = chunks;
+    if (current == null) {
+      throw new IllegalStateException("Image has been closed");
+    }
+    return current[(int) (pixelIndex / chunkPixels)];
+  }
+
+  /**
+   * Set the rgb values of a pixel on a certain x and y coordinate.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @param r the red component of the pixel (0 to maxValue).
+   * @param g the green component of the pixel (0 to maxValue).
+   * @param b the blue component of the pixel (0 to maxValue).
+   * @throws IllegalArgumentException if x,y,r,g,b are out of range.
+   */
+  @Override
+  public void setPixel(int x, int y, int r, int g, int b) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    if (r < 0 || r > maxValue || g < 0 || g > maxValue || b < 0 || b > maxValue) {
+      throw new IllegalArgumentException("Color values out of range");
+    }
+
+    long pixelIndex = (long) y * width + x;
+    ByteBuffer chunk = getChunk(pixelIndex);
+    int startingIndex = (int) (pixelIndex % chunkPixels) * pixelBytes;
+    putSample(chunk, startingIndex, r);
+    putSample(chunk, startingIndex + bytesPerSample, g);
+    putSample(chunk, startingIndex + 2 * bytesPerSample, b);
+  }
+
+  /**
+   * Get the r,g,b values of a pixel as an array[] of integers.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @return the r,g,b values of a pixel as an array[] of integers.
+   * @throws IllegalArgumentException if x,y are out of range.
+   */
+  @Override
+  public int[] getPixel(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    long pixelIndex = (long) y * width + x;
+    ByteBuffer chunk = getChunk(pixelIndex);
+    int startingIndex = (int) (pixelIndex % chunkPixels) * pixelBytes;
+    return new int[]{
+        getSample(chunk, startingIndex),
+        getSample(chunk, startingIndex + bytesPerSample),
+        getSample(chunk, startingIndex + 2 * bytesPerSample)};
+  }
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array.
+   * The chunk is looked up once for each run of the row that lies in it.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   */
+  @Override
+  public void getRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    long pixelIndex = (long) y * width;
+    int x = 0;
+    while (x < width) {
+      ByteBuffer chunk = getChunk(pixelIndex + x);
+      int offset = (int) ((pixelIndex + x) % chunkPixels);
+      int run = (int) Math.min(width - x, chunkPixels - offset);
+      int byteIndex = offset * pixelBytes;
+      for (int i = x * 3; i < (x + run) * 3; i++) {
+        row[i] = getSample(chunk, byteIndex);
+        byteIndex += bytesPerSample;
+      }
+      x += run;
+    }
+  }
+
+  /**
+   * Copy the r,g,b values of a rectangle of pixels into an array, looking up the chunk once
+   * for each run of a row that lies in it.
+   *
+   * @param x            the left column of the rectangle.
+   * @param y            the top row of the rectangle.
+   * @param regionWidth  the width of the rectangle.
+   * @param regionHeight the height of the rectangle.
+   * @param region       the array to copy the values into, at least
+   *                     regionWidth * regionHeight * 3 long.
+   * @throws IllegalArgumentException if the rectangle is not within the image or the array is
+   *                                  too short.
+   */
+  @Override
+  public void getRegion(int x, int y, int regionWidth, int regionHeight, int[] region) {
+    if (x < 0 || y < 0 || regionWidth < 0 || regionHeight < 0
+            || (long) x + regionWidth > width || (long) y + regionHeight > height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (region == null || region.length < (long) regionWidth * regionHeight * 3) {
+      throw new IllegalArgumentException("Region array is too short");
+    }
+    int i = 0;
+    for (int row = y; row < y + regionHeight; row++) {
+      long pixelIndex = (long) row * width + x;
+      int done = 0;
+      while (done < regionWidth) {
+        ByteBuffer chunk = getChunk(pixelIndex + done);
+        int offset = (int) ((pixelIndex + done) % chunkPixels);
+        int run = (int) Math.min(regionWidth - done, chunkPixels - offset);
+        int byteIndex = offset * pixelBytes;
+        for (int end = i + run * 3; i < end; i++) {
+          region[i] = getSample(chunk, byteIndex);
+          byteIndex += bytesPerSample;
+        }
+        done += run;
+      }
+    }
+  }
+
+  /**
+   * Helper function to write one component using the sample size of this image.
+   *
+   * @param chunk the chunk to write to.
+   * @param index the byte index in the chunk.
+   * @param value the component value.
+   */
+  private void putSample(ByteBuffer chunk, int index, int value) {
+    if (bytesPerSample == 1) {
+      chunk.put(index, (byte) value);
+    } else if (bytesPerSample == 2) {
+      chunk.putShort(index, (short) value);
+    } else {
+      chunk.putInt(index, value);
+    }
+  }
+
+  /**
+   * Helper function to read one component using the sample size of this image.
+   *
+   * @param chunk the chunk to read from.
+   * @param index the byte index in the chunk.
+   * @return the component value.
+   */
+  private int getSample(ByteBuffer chunk, int index) {
+    if (bytesPerSample == 1) {
+      return chunk.get(index) & 0xFF;
+    } else if (bytesPerSample == 2) {
+      return chunk.getShort(index) & 0xFFFF;
+    } else {
+      return chunk.getInt(index);
+    }
+  }
+
+  /**
+   * Create a new blank off-heap image.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank OffHeapImage.
+   */
+  @Override
+  public IImage createBlank(int width, int height, int maxValue) {
+    return new OffHeapImage(width, height, maxValue);
+  }
+
+  /**
+   * Create a new blank image for a greyscale result, stored the same way as this image
+   * so the result does not have to fit in the heap either.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank OffHeapImage.
+   */
+  @Override
+  public IImage createBlankGrey(int width, int height, int maxValue) {
+    return createBlank(width, height, maxValue);
+  }
+
+  /**
+   * Free the off-heap memory of the image straight away.
+   * The image must not be used after it is closed, the image storage only closes an image once
+   * no background thread reads it. Closing twice has no effect.
+   */
+  @Override
+  public synchronized void close() {
+    ByteBuffer[] released = chunks;
+    chunks = null;
+    if (released == null) {
+      return;
+    }
+    for (ByteBuffer chunk : released) {
+      freeDirectBuffer(chunk);
+    }
+  }
+
+  /**
+   * Helper function to release the memory of a direct buffer without waiting for the
+   * garbage collector. If the JDK does not allow it, the memory is freed by the collector later.
+   *
+   * @param buffer the direct buffer to free.
+   */
+  private static void freeDirectBuffer(ByteBuffer buffer) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      invokeCleaner.invoke(theUnsafe.get(null), buffer);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // fall back to the garbage collector
+    }
+  }
+
+  /**
+   * Get the width of the image.
+   *
+   * @return the width of the image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the image.
+   *
+   * @return the height of the image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * get the max color value of the image.
+   * E.g. For 8 bit image it's 255.
+   *
+   * @return max color value of the image.
+   */
+  @Override
+  public int getMaxValue() {
+    return this.maxValue;
+  }
+}
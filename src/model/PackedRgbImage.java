@@ -0,0 +1,227 @@
+package model;
+
+import java.awt.image.DataBufferInt;
+
+/**
+ * Class implements IImage interface for 8 bit rgb images.
+ * Every pixel is packed into a single integer as 0x00RRGGBB, the same layout as a
+ * BufferedImage of TYPE_INT_RGB, which takes a third of the memory of ImageImpl.
+ * The pixels are kept in a DataBufferInt so the view can display the image by wrapping
+ * the buffer in a BufferedImage instead of copying every pixel.
+ */
+public class PackedRgbImage implements IImage {
+  private static final int MAX_VALUE = 255;
+
+  private final int width;
+  private final int height;
+  private final DataBufferInt buffer;
+  private final int[] pixels; // the data of the buffer [rgb0,rgb1...], 0x00RRGGBB each
+
+  /**
+   * Constructor takes in a width and height to create a blank 8 bit image.
+   *
+   * @param width  of the image of type integer.
+   * @param height of the image of type integer.
+   * @throws IllegalArgumentException if dimensions are 0 or negative,
+   *                                  or too large to fit in a single array.
+   */
+  public PackedRgbImage(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be non-zero and positive");
+    }
+    if ((long) width * height > ImageImpl.MAX_SAMPLES) {
+      throw new IllegalArgumentException(
+              "Image is too large for PackedRgbImage: " + width + "x" + height);
+    }
+
+    this.width = width;
+    this.height = height;
+    this.buffer = new DataBufferInt(width * height);
+    this.pixels = buffer.getData();
+  }
+
+  /**
+   * Get the buffer the pixels are stored in, one 0x00RRGGBB integer per pixel, row by row.
+   * The buffer is shared with the image and not copied, so changes to the image are visible
+   * through it. The top byte of every pixel must stay 0 if the buffer is written to.
+   *
+   * @return the pixel buffer of the image.
+   */
+  public DataBufferInt getDataBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Set the rgb values of a pixel on a certain x and y coordinate.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @param r the red component of the pixel (0 to 255).
+   * @param g the green component of the pixel (0 to 255).
+   * @param b the blue component of the pixel (0 to 255).
+   * @throws IllegalArgumentException if x,y,r,g,b are out of range.
+   */
+  @Override
+  public void setPixel(int x, int y, int r, int g, int b) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    if (r < 0 || r > MAX_VALUE || g < 0 || g > MAX_VALUE || b < 0 || b > MAX_VALUE) {
+      throw new IllegalArgumentException("Color values out of range");
+    }
+
+    pixels[y * width + x] = (r << 16) | (g << 8) | b;
+  }
+
+  /**
+   * Get the r,g,b values of a pixel as an array[] of integers.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @return the r,g,b values of a pixel as an array[] of integers.
+   * @throws IllegalArgumentException if x,y are out of range.
+   */
+  @Override
+  public int[] getPixel(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    int rgb = pixels[y * width + x];
+    return new int[]{rgb >> 16, (rgb >> 8) & 0xFF, rgb & 0xFF};
+  }
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array, unpacking each pixel.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   */
+  @Override
+  public void getRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    unpack(y * width, width, row, 0);
+  }
+
+  /**
+   * Set the r,g,b values of a whole row of pixels from an array, packing each pixel.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the values to set, at least width * 3 long.
+   * @throws IllegalArgumentException if y or any value is out of range or the array is too short.
+   */
+  @Override
+  public void setRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    for (int i = 0; i < width * 3; i++) {
+      if (row[i] < 0 || row[i] > MAX_VALUE) {
+        throw new IllegalArgumentException("Color values out of range");
+      }
+    }
+    int start = y * width;
+    for (int x = 0; x < width; x++) {
+      pixels[start + x] = (row[x * 3] << 16) | (row[x * 3 + 1] << 8) | row[x * 3 + 2];
+    }
+  }
+
+  /**
+   * Copy the r,g,b values of a rectangle of pixels into an array, unpacking each pixel.
+   *
+   * @param x            the left column of the rectangle.
+   * @param y            the top row of the rectangle.
+   * @param regionWidth  the width of the rectangle.
+   * @param regionHeight the height of the rectangle.
+   * @param region       the array to copy the values into, at least
+   *                     regionWidth * regionHeight * 3 long.
+   * @throws IllegalArgumentException if the rectangle is not within the image or the array is
+   *                                  too short.
+   */
+  @Override
+  public void getRegion(int x, int y, int regionWidth, int regionHeight, int[] region) {
+    if (x < 0 || y < 0 || regionWidth < 0 || regionHeight < 0
+            || (long) x + regionWidth > width || (long) y + regionHeight > height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (region == null || region.length < (long) regionWidth * regionHeight * 3) {
+      throw new IllegalArgumentException("Region array is too short");
+    }
+    for (int row = 0; row < regionHeight; row++) {
+      unpack((y + row) * width + x, regionWidth, region, row * regionWidth * 3);
+    }
+  }
+
+  /**
+   * Create a new blank image that stores its pixels the same way as this image.
+   * Images with another max value cannot be packed and use the storage ImageFactory picks.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank image of type IImage.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  @Override
+  public IImage createBlank(int width, int height, int maxValue) {
+    return ImageFactory.createImage(width, height, maxValue);
+  }
+
+  /**
+   * Helper function to unpack a run of pixels into interleaved r,g,b values.
+   *
+   * @param start  the index of the first pixel.
+   * @param count  the number of pixels.
+   * @param target the array to write the values into.
+   * @param offset the index of target to start writing at.
+   */
+  private void unpack(int start, int count, int[] target, int offset) {
+    for (int i = 0; i < count; i++) {
+      int rgb = pixels[start + i];
+      target[offset++] = rgb >> 16;
+      target[offset++] = (rgb >> 8) & 0xFF;
+      target[offset++] = rgb & 0xFF;
+    }
+  }
+
+  /**
+   * Get the width of the image.
+   *
+   * @return the width of the image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the image.
+   *
+   * @return the height of the image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * get the max color value of the image.
+   * Packed images are always 8 bit, so it is 255.
+   *
+   * @return max color value of the image.
+   */
+  @Override
+  public int getMaxValue() {
+    return MAX_VALUE;
+  }
+}
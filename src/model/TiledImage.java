@@ -0,0 +1,455 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class implements IImage interface by splitting the image into square tiles.
+ * Tiles are only allocated when a pixel in them is first written, tiles that were never
+ * written read as black. At most a fixed number of tiles stay in memory, the least recently
+ * used tile is evicted to a temporary backing file and loaded back when it is needed again.
+ * This lets an image be larger than the heap and larger than one int array can index.
+ * Operations should visit the image with forEachTile() so each tile is processed while resident.
+ */
+public class TiledImage implements IImage, AutoCloseable {
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  private final int width;
+  private final int height;
+  private final int maxValue;
+  private final int tileSize;
+  private final int tilesX;
+  private final int tilesY;
+  private final int maxResidentTiles;
+  private final int tileBytes;
+
+  private final LinkedHashMap<Integer, int[]> residentTiles; // in least recently used order
+  private final BitSet dirtyTiles; // resident tiles that differ from the backing file
+  private final BitSet storedTiles; // tiles that have been written to the backing file
+  private File backingFile;
+  private RandomAccessFile backingStore;
+  private ByteBuffer transferBuffer;
+  private int lastTileIndex;
+  private int[] lastTile;
+
+  /**
+   * Constructor takes in a width, height,
+   * and maxValue of the image to create a tiled image with the default tile size.
+   * The number of resident tiles is chosen from the maximum heap size.
+   *
+   * @param width    of the image of type integer.
+   * @param height   of the image of type integer.
+   * @param maxValue of the image components of type integer.
+   * @throws IllegalArgumentException if dimensions or maxValue are 0 or negative.
+   */
+  public TiledImage(int width, int height, int maxValue) {
+    this(width, height, maxValue, DEFAULT_TILE_SIZE, defaultResidentTiles(DEFAULT_TILE_SIZE));
+  }
+
+  /**
+   * Constructor takes in a width, height, maxValue, tile size,
+   * and the maximum number of tiles to keep in memory.
+   *
+   * @param width            of the image of type integer.
+   * @param height           of the image of type integer.
+   * @param maxValue         of the image components of type integer.
+   * @param tileSize         the width and height of each tile in pixels.
+   * @param maxResidentTiles the number of tiles kept in memory before evicting to disk.
+   * @throws IllegalArgumentException if any of the values are 0 or negative,
+   *                                  or the image has too many tiles.
+   */
+  public TiledImage(int width, int height, int maxValue, int tileSize, int maxResidentTiles) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be non-zero and positive");
+    }
+    if (maxValue <= 0) {
+      throw new IllegalArgumentException("Max color value must be non-zero and positive");
+    }
+    if (tileSize <= 0 || (long) tileSize * tileSize * 3 * Integer.BYTES > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid tile size: " + tileSize);
+    }
+    if (maxResidentTiles <= 0) {
+      throw new IllegalArgumentException("Number of resident tiles must be positive");
+    }
+
+    this.width = width;
+    this.height = height;
+    this.maxValue = maxValue;
+    this.tileSize = tileSize;
+    this.tilesX = (width + tileSize - 1) / tileSize;
+    this.tilesY = (height + tileSize - 1) / tileSize;
+    if ((long) tilesX * tilesY > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image has too many tiles, use a larger tile size");
+    }
+    this.maxResidentTiles = maxResidentTiles;
+    this.tileBytes = tileSize * tileSize * 3 * Integer.BYTES;
+
+    this.residentTiles = new LinkedHashMap<>(16, 0.75f, true);
+    this.dirtyTiles = new BitSet();
+    this.storedTiles = new BitSet();
+    this.lastTileIndex = -1;
+  }
+
+  /**
+   * Helper function to pick how many tiles to keep in memory, a quarter of the heap.
+   *
+   * @param tileSize the width and height of each tile in pixels.
+   * @return the number of tiles to keep in memory, at least 16.
+   */
+  private static int defaultResidentTiles(int tileSize) {
+    long tileBytes = (long) tileSize * tileSize * 3 * Integer.BYTES;
+    long budget = Runtime.getRuntime().maxMemory() / 4;
+    return (int) Math.max(16, Math.min(Integer.MAX_VALUE, budget / tileBytes));
+  }
+
+  /**
+   * Set the rgb values of a pixel on a certain x and y coordinate.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @param r the red component of the pixel (0 to maxValue).
+   * @param g the green component of the pixel (0 to maxValue).
+   * @param b the blue component of the pixel (0 to maxValue).
+   * @throws IllegalArgumentException if x,y,r,g,b are out of range.
+   */
+  @Override
+  public synchronized void setPixel(int x, int y, int r, int g, int b) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    if (r < 0 || r > maxValue || g < 0 || g > maxValue || b < 0 || b > maxValue) {
+      throw new IllegalArgumentException("Color values out of range");
+    }
+
+    int tileIndex = (y / tileSize) * tilesX + x / tileSize;
+    int[] tile = getTile(tileIndex);
+    int startingIndex = ((y % tileSize) * tileSize + x % tileSize) * 3;
+    tile[startingIndex] = r;
+    tile[startingIndex + 1] = g;
+    tile[startingIndex + 2] = b;
+    dirtyTiles.set(tileIndex);
+  }
+
+  /**
+   * Get the r,g,b values of a pixel as an array[] of integers.
+   *
+   * @param x the x-coordinate of the pixel.
+   * @param y the y-coordinate of the pixel.
+   * @return the r,g,b values of a pixel as an array[] of integers.
+   * @throws IllegalArgumentException if x,y are out of range.
+   */
+  @Override
+  public synchronized int[] getPixel(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+
+    int[] tile = getTile((y / tileSize) * tilesX + x / tileSize);
+    int startingIndex = ((y % tileSize) * tileSize + x % tileSize) * 3;
+    return new int[]{tile[startingIndex], tile[startingIndex + 1], tile[startingIndex + 2]};
+  }
+
+  /**
+   * Copy the r,g,b values of a whole row of pixels into an array,
+   * one bulk copy for each tile the row passes through.
+   *
+   * @param y   the y-coordinate of the row.
+   * @param row the array to copy the values into, at least width * 3 long.
+   * @throws IllegalArgumentException if y is out of range or the array is too short.
+   */
+  @Override
+  public synchronized void getRow(int y, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (row == null || row.length < width * 3) {
+      throw new IllegalArgumentException("Row array is too short");
+    }
+    int rowOffset = (y % tileSize) * tileSize * 3;
+    for (int tileX = 0; tileX < tilesX; tileX++) {
+      int[] tile = getTile((y / tileSize) * tilesX + tileX);
+      int x = tileX * tileSize;
+      System.arraycopy(tile, rowOffset, row, x * 3, Math.min(tileSize, width - x) * 3);
+    }
+  }
+
+  /**
+   * Copy the r,g,b values of a rectangle of pixels into an array, looking up every tile the
+   * rectangle covers once and copying its part of each row in bulk.
+   *
+   * @param x            the left column of the rectangle.
+   * @param y            the top row of the rectangle.
+   * @param regionWidth  the width of the rectangle.
+   * @param regionHeight the height of the rectangle.
+   * @param region       the array to copy the values into, at least
+   *                     regionWidth * regionHeight * 3 long.
+   * @throws IllegalArgumentException if the rectangle is not within the image or the array is
+   *                                  too short.
+   */
+  @Override
+  public synchronized void getRegion(int x, int y, int regionWidth, int regionHeight,
+                                     int[] region) {
+    if (x < 0 || y < 0 || regionWidth < 0 || regionHeight < 0
+            || (long) x + regionWidth > width || (long) y + regionHeight > height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    if (region == null || region.length < (long) regionWidth * regionHeight * 3) {
+      throw new IllegalArgumentException("Region array is too short");
+    }
+    int endX = x + regionWidth;
+    int endY = y + regionHeight;
+    for (int tileY = y / tileSize; tileY * tileSize < endY; tileY++) {
+      int top = Math.max(y, tileY * tileSize);
+      int bottom = Math.min(endY, (tileY + 1) * tileSize);
+      for (int tileX = x / tileSize; tileX * tileSize < endX; tileX++) {
+        int left = Math.max(x, tileX * tileSize);
+        int right = Math.min(endX, (tileX + 1) * tileSize);
+        int[] tile = getTile(tileY * tilesX + tileX);
+        for (int row = top; row < bottom; row++) {
+          System.arraycopy(tile, ((row % tileSize) * tileSize + left % tileSize) * 3,
+                  region, ((row - y) * regionWidth + left - x) * 3, (right - left) * 3);
+        }
+      }
+    }
+  }
+
+  /**
+   * Helper function to get a resident tile, loading it from the backing file
+   * or allocating it if needed, and evicting the least recently used tile if over the limit.
+   *
+   * @param tileIndex the index of the tile, row by row.
+   * @return the pixel data of the tile [r0,g0,b0,r1,g1,b1] row by row.
+   */
+  private int[] getTile(int tileIndex) {
+    if (tileIndex == lastTileIndex) {
+      return lastTile;
+    }
+
+    int[] tile = residentTiles.get(tileIndex);
+    if (tile == null) {
+      tile = new int[tileSize * tileSize * 3];
+      if (storedTiles.get(tileIndex)) {
+        readTile(tileIndex, tile);
+      }
+      residentTiles.put(tileIndex, tile);
+      evictTiles();
+    }
+
+    lastTileIndex = tileIndex;
+    lastTile = tile;
+    return tile;
+  }
+
+  /**
+   * Helper function to evict least recently used tiles until the limit is respected.
+   * Only tiles that changed since they were last stored are written to the backing file.
+   */
+  private void evictTiles() {
+    Iterator<Map.Entry<Integer, int[]>> iterator = residentTiles.entrySet().iterator();
+    while (residentTiles.size() > maxResidentTiles && iterator.hasNext()) {
+      Map.Entry<Integer, int[]> eldest = iterator.next();
+      int tileIndex = eldest.getKey();
+      if (dirtyTiles.get(tileIndex)) {
+        writeTile(tileIndex, eldest.getValue());
+        dirtyTiles.clear(tileIndex);
+        storedTiles.set(tileIndex);
+      }
+      iterator.remove();
+    }
+    lastTileIndex = -1;
+    lastTile = null;
+  }
+
+  /**
+   * Helper function to write a tile to its slot in the backing file.
+   *
+   * @param tileIndex the index of the tile.
+   * @param tile      the pixel data of the tile.
+   * @throws IllegalStateException if the backing file cannot be written.
+   */
+  private void writeTile(int tileIndex, int[] tile) {
+    try {
+      FileChannel channel = getBackingStore().getChannel();
+      transferBuffer.clear();
+      transferBuffer.asIntBuffer().put(tile);
+      long position = (long) tileIndex * tileBytes;
+      while (transferBuffer.hasRemaining()) {
+        position += channel.write(transferBuffer, position);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write tile to backing file: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Helper function to read a tile back from its slot in the backing file.
+   *
+   * @param tileIndex the index of the tile.
+   * @param tile      the array to read the pixel data into.
+   * @throws IllegalStateException if the backing file cannot be read.
+   */
+  private void readTile(int tileIndex, int[] tile) {
+    try {
+      FileChannel channel = getBackingStore().getChannel();
+      transferBuffer.clear();
+      long position = (long) tileIndex * tileBytes;
+      while (transferBuffer.hasRemaining()) {
+        int read = channel.read(transferBuffer, position);
+        if (read < 0) {
+          throw new IOException("Unexpected end of backing file");
+        }
+        position += read;
+      }
+      transferBuffer.flip();
+      transferBuffer.asIntBuffer().get(tile);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to read tile from backing file: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Helper function to create the backing file the first time a tile is evicted.
+   *
+   * @return the open backing file.
+   * @throws IOException if the temporary file cannot be created.
+   */
+  private RandomAccessFile getBackingStore() throws IOException {
+    if (backingStore == null) {
+      backingFile = File.createTempFile("tiled-image", ".tiles");
+      backingFile.deleteOnExit();
+      backingStore = new RandomAccessFile(backingFile, "rw");
+      transferBuffer = ByteBuffer.allocateDirect(tileBytes);
+    }
+    return backingStore;
+  }
+
+  /**
+   * Visit the image one tile at a time, row of tiles by row of tiles.
+   * Each tile stays resident while it is visited as long as the visitor only
+   * touches pixels inside the tile.
+   *
+   * @param visitor the visitor called once for every tile.
+   * @throws IllegalArgumentException if visitor is null.
+   */
+  @Override
+  public void forEachTile(ITileVisitor visitor) {
+    if (visitor == null) {
+      throw new IllegalArgumentException("Visitor cannot be null");
+    }
+    for (int tileY = 0; tileY < tilesY; tileY++) {
+      for (int tileX = 0; tileX < tilesX; tileX++) {
+        int x = tileX * tileSize;
+        int y = tileY * tileSize;
+        visitor.visit(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+      }
+    }
+  }
+
+  /**
+   * Create a new blank tiled image with the same tile size and memory limit as this image.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank TiledImage.
+   */
+  @Override
+  public IImage createBlank(int width, int height, int maxValue) {
+    return new TiledImage(width, height, maxValue, tileSize, maxResidentTiles);
+  }
+
+  /**
+   * Create a new blank image for a greyscale result, stored the same way as this image
+   * so the result does not have to fit in the heap either.
+   *
+   * @param width    of the new image of type integer.
+   * @param height   of the new image of type integer.
+   * @param maxValue of the new image components of type integer.
+   * @return a new blank TiledImage.
+   */
+  @Override
+  public IImage createBlankGrey(int width, int height, int maxValue) {
+    return createBlank(width, height, maxValue);
+  }
+
+  /**
+   * Get the width and height of each tile in pixels.
+   *
+   * @return the tile size.
+   */
+  public int getTileSize() {
+    return this.tileSize;
+  }
+
+  /**
+   * Get the number of tiles currently held in memory.
+   *
+   * @return the number of resident tiles.
+   */
+  public synchronized int getResidentTileCount() {
+    return residentTiles.size();
+  }
+
+  /**
+   * Release the resident tiles and delete the backing file.
+   * The image must not be used after it is closed.
+   */
+  @Override
+  public synchronized void close() {
+    residentTiles.clear();
+    dirtyTiles.clear();
+    storedTiles.clear();
+    lastTileIndex = -1;
+    lastTile = null;
+    if (backingStore != null) {
+      try {
+        backingStore.close();
+      } catch (IOException e) {
+        // the file is deleted below or on exit anyway
+      }
+      backingStore = null;
+      if (!backingFile.delete()) {
+        backingFile.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Get the width of the image.
+   *
+   * @return the width of the image.
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the image.
+   *
+   * @return the height of the image.
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * get the max color value of the image.
+   * E.g. For 8 bit image it's 255.
+   *
+   * @return max color value of the image.
+   */
+  @Override
+  public int getMaxValue() {
+    return this.maxValue;
+  }
+}
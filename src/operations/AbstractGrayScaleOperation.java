@@ -1,7 +1,10 @@
 package operations;
 
+import model.Cancellation;
+import model.HistogramChannel;
 import model.IImage;
-import model.ImageImpl;
+import model.IImageHistogram;
+import model.ImageHistogramImpl;
 
 /**
  * Abstract class that implements IOperation interface.
@@ -9,7 +12,7 @@ import model.ImageImpl;
  * It implements the apply() method and let the respective operation class implement
  * the grey value to use for the new IImage Object.
  */
-public abstract class AbstractGrayScaleOperation implements IOperation {
+public abstract class AbstractGrayScaleOperation implements IPointOperation {
   /**
    * Apply the respective operation by changing the rgb values of each pixel in the image.
    *
@@ -23,15 +26,22 @@ public abstract class AbstractGrayScaleOperation implements IOperation {
       throw new IllegalArgumentException("Image object cannot be null");
     }
 
-    IImage result = new ImageImpl(image.getWidth(), image.getHeight(), image.getMaxValue());
+    // greyscale results only need one channel
+    IImage result = image.createBlankGrey(
+            image.getWidth(), image.getHeight(), image.getMaxValue());
 
-    for (int y = 0; y < image.getHeight(); y++) {
-      for (int x = 0; x < image.getWidth(); x++) {
-        int[] pixel = image.getPixel(x, y);
-        int grayValue = getValueToUse(pixel[0], pixel[1], pixel[2]);
-        result.setPixel(x, y, grayValue, grayValue, grayValue);
+    // go tile by tile so images that do not fit in memory are processed one piece at a time
+    Thread owner = Thread.currentThread();
+    image.forEachTile((tileX, tileY, tileWidth, tileHeight) -> {
+      Cancellation.check(owner);
+      for (int y = tileY; y < tileY + tileHeight; y++) {
+        for (int x = tileX; x < tileX + tileWidth; x++) {
+          int[] pixel = image.getPixel(x, y);
+          int grayValue = getValueToUse(pixel[0], pixel[1], pixel[2]);
+          result.setPixel(x, y, grayValue, grayValue, grayValue);
+        }
       }
-    }
+    });
 
     return result;
   }
@@ -45,4 +55,60 @@ public abstract class AbstractGrayScaleOperation implements IOperation {
    * @return value of type integer to be used to create the greyscale image.
    */
   protected abstract int getValueToUse(int r, int g, int b);
+
+  /**
+   * Derive the histogram of the greyscale image from the source histogram.
+   * Most greyscale values depend on more than one channel of a pixel,
+   * so by default the histogram cannot be derived.
+   *
+   * @param histogram the histogram of the source image.
+   * @param maxValue  the max color value of the source image.
+   * @return null, subclasses that read a single channel return the derived histogram.
+   * @throws IllegalArgumentException if histogram is null.
+   */
+  @Override
+  public IImageHistogram mapHistogram(IImageHistogram histogram, int maxValue) {
+    if (histogram == null) {
+      throw new IllegalArgumentException("Histogram cannot be null");
+    }
+    return null;
+  }
+
+  /**
+   * Helper function for greyscale values that are one channel of the source histogram.
+   * A grey pixel has the value in all of r, g and b, and its intensity is the same value,
+   * so all four histograms of the result are the histogram of that channel.
+   *
+   * @param histogram the histogram of the source image.
+   * @param maxValue  the max color value of the source image.
+   * @param channel   the channel the grey value is taken from.
+   * @return the histogram of the result, or null if it cannot be derived exactly.
+   * @throws IllegalArgumentException if histogram is null.
+   */
+  protected IImageHistogram mapChannelHistogram(
+          IImageHistogram histogram, int maxValue, HistogramChannel channel) {
+    if (histogram == null) {
+      throw new IllegalArgumentException("Histogram cannot be null");
+    }
+    if (histogram.getMaxValue() != maxValue || !histogram.getChannels().contains(channel)) {
+      return null;
+    }
+
+    int[] bins;
+    switch (channel) {
+      case RED:
+        bins = histogram.getRedHistogram();
+        break;
+      case GREEN:
+        bins = histogram.getGreenHistogram();
+        break;
+      case BLUE:
+        bins = histogram.getBlueHistogram();
+        break;
+      default:
+        bins = histogram.getIntensityHistogram();
+        break;
+    }
+    return new ImageHistogramImpl(bins, bins, bins, bins, maxValue);
+  }
 }
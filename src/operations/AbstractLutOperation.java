@@ -0,0 +1,159 @@
+package operations;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import model.Cancellation;
+import model.HistogramChannel;
+import model.IImage;
+import model.IImageHistogram;
+import model.ImageHistogramImpl;
+
+/**
+ * Abstract class for operations that map every red, green and blue value through a lookup
+ * table built from the histogram of the source image, e.g. equalization and auto levels.
+ * The tables are built once in time proportional to the number of bins, and the image is then
+ * mapped in a single pass of table lookups over parallel bands of rows.
+ * A histogram that is already known, e.g. cached in storage, can be passed in so the source
+ * is not scanned twice.
+ */
+public abstract class AbstractLutOperation implements IPointOperation {
+  // images smaller than this are mapped on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  private static final Set<HistogramChannel> RGB = EnumSet.of(
+          HistogramChannel.RED, HistogramChannel.GREEN, HistogramChannel.BLUE);
+
+  private final IImageHistogram histogram;
+
+  /**
+   * Constructor takes in the histogram of the image the operation will be applied to.
+   *
+   * @param histogram the histogram of the source image, or null to compute it on apply.
+   */
+  protected AbstractLutOperation(IImageHistogram histogram) {
+    this.histogram = histogram;
+  }
+
+  /**
+   * Apply the lookup tables to the r,g,b values of every pixel in the image.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null or the histogram given to the
+   *                                  constructor does not belong to the image.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    IImageHistogram source = histogram;
+    if (source == null) {
+      // only the channels the tables are built from
+      source = new ImageHistogramImpl(image, RGB);
+    } else if (source.getMaxValue() != image.getMaxValue()) {
+      throw new IllegalArgumentException("Histogram does not belong to the image");
+    }
+
+    int[] redLut = buildLut(source.getRedHistogram(), source.getBinWidth(), image.getMaxValue());
+    int[] greenLut = buildLut(
+            source.getGreenHistogram(), source.getBinWidth(), image.getMaxValue());
+    int[] blueLut = buildLut(
+            source.getBlueHistogram(), source.getBinWidth(), image.getMaxValue());
+    int binWidth = source.getBinWidth();
+
+    int width = image.getWidth();
+    int height = image.getHeight();
+    IImage result = image.createBlank(width, height, image.getMaxValue());
+
+    int bandCount = 1;
+    if ((long) width * height >= PARALLEL_THRESHOLD) {
+      // a few bands per worker so uneven bands still balance out
+      bandCount = Math.min(height, ForkJoinPool.getCommonPoolParallelism() * 4);
+    }
+    int bands = bandCount;
+
+    IntStream indices = IntStream.range(0, bands);
+    if (bands > 1) {
+      indices = indices.parallel();
+    }
+    Thread owner = Thread.currentThread();
+    indices.forEach(band -> {
+      Cancellation.check(owner);
+      int[] row = new int[width * 3];
+      int endY = (int) ((long) height * (band + 1) / bands);
+      for (int y = (int) ((long) height * band / bands); y < endY; y++) {
+        image.getRow(y, row);
+        for (int i = 0; i < row.length; i += 3) {
+          row[i] = redLut[row[i] / binWidth];
+          row[i + 1] = greenLut[row[i + 1] / binWidth];
+          row[i + 2] = blueLut[row[i + 2] / binWidth];
+        }
+        result.setRow(y, row);
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Derive the histogram of the result from the source histogram by moving every red, green
+   * and blue bin through its lookup table. Intensity depends on how the channels of each
+   * pixel move together, so it is left out of the derived histogram.
+   *
+   * @param histogram the histogram of the source image.
+   * @param maxValue  the max color value of the source image.
+   * @return the histogram of the result without intensity, or null if it cannot be derived.
+   * @throws IllegalArgumentException if histogram is null.
+   */
+  @Override
+  public IImageHistogram mapHistogram(IImageHistogram histogram, int maxValue) {
+    if (histogram == null) {
+      throw new IllegalArgumentException("Histogram cannot be null");
+    }
+    IImageHistogram source = this.histogram != null ? this.histogram : histogram;
+    if (histogram.getMaxValue() != maxValue || source.getMaxValue() != maxValue
+            || histogram.getBinWidth() != 1 || source.getBinWidth() != 1
+            || !histogram.getChannels().containsAll(RGB)) {
+      // values that share a bin may map to different bins
+      return null;
+    }
+
+    int[] red = histogram.getRedHistogram();
+    int[] green = histogram.getGreenHistogram();
+    int[] blue = histogram.getBlueHistogram();
+    return new ImageHistogramImpl(
+            mapBins(red, buildLut(source.getRedHistogram(), 1, maxValue)),
+            mapBins(green, buildLut(source.getGreenHistogram(), 1, maxValue)),
+            mapBins(blue, buildLut(source.getBlueHistogram(), 1, maxValue)),
+            new int[red.length], maxValue, RGB);
+  }
+
+  /**
+   * Helper function to move every bin to the bin of its mapped value.
+   *
+   * @param bins the bins of one channel.
+   * @param lut  the lookup table of the channel.
+   * @return the moved bins.
+   */
+  private static int[] mapBins(int[] bins, int[] lut) {
+    int[] result = new int[bins.length];
+    for (int i = 0; i < bins.length; i++) {
+      result[lut[i]] += bins[i];
+    }
+    return result;
+  }
+
+  /**
+   * Build the lookup table of one channel from its histogram.
+   * Entry 'i' is the new value of every value in bin 'i'.
+   *
+   * @param bins     the histogram of the channel.
+   * @param binWidth the number of values every bin covers.
+   * @param maxValue the max color value of the image.
+   * @return the lookup table, one entry for every bin, values from 0 to maxValue.
+   */
+  protected abstract int[] buildLut(int[] bins, int binWidth, int maxValue);
+}
@@ -0,0 +1,51 @@
+package operations;
+
+/**
+ * How spatial filters read pixels outside of the image near its borders.
+ */
+public enum BorderMode {
+  /**
+   * Repeat the nearest edge pixel.
+   */
+  CLAMP,
+  /**
+   * Mirror the image at its edge without repeating the edge pixel.
+   */
+  REFLECT,
+  /**
+   * Continue from the opposite edge, as if the image were tiled.
+   */
+  WRAP,
+  /**
+   * Treat pixels outside of the image as black.
+   */
+  ZERO;
+
+  /**
+   * Map a row or column index that may be outside of the image to the index to read.
+   *
+   * @param index  the index, possibly negative or past the end.
+   * @param length the width or height of the image.
+   * @return the index to read, or -1 if the pixel is black.
+   */
+  int resolve(int index, int length) {
+    if (index >= 0 && index < length) {
+      return index;
+    }
+    switch (this) {
+      case CLAMP:
+        return index < 0 ? 0 : length - 1;
+      case REFLECT:
+        if (length == 1) {
+          return 0;
+        }
+        int period = 2 * (length - 1);
+        int folded = Math.floorMod(index, period);
+        return folded < length ? folded : period - folded;
+      case WRAP:
+        return Math.floorMod(index, length);
+      default:
+        return -1;
+    }
+  }
+}
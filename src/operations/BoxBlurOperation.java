@@ -0,0 +1,184 @@
+package operations;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import model.IImage;
+
+/**
+ * Class implements IOperation interface.
+ * It replaces every r,g,b value with the mean of its channel over a square window around the
+ * pixel. The window sums are differences of a summed-area table that is evaluated one row at
+ * a time: prefix sums along each row give the horizontal sums and a running sum down each
+ * column adds the row entering the window and subtracts the row leaving it. Every pixel
+ * costs the same few additions whatever the radius, and only a few rows of sums are kept
+ * in memory, so large images do not need a full table. Bands of rows are blurred in parallel.
+ */
+public class BoxBlurOperation implements IOperation {
+  /**
+   * The largest radius. Window sums of images up to a max value of about 2^31 - 2^16 fit in a
+   * long at this radius; apply checks the sums of the image it is given.
+   */
+  public static final int MAX_RADIUS = 1 << 15;
+  // images smaller than this are blurred on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private final int radius;
+  private final BorderMode border;
+
+  /**
+   * Constructor takes in the radius, pixels outside of the image repeat the edge.
+   *
+   * @param radius the number of pixels the window reaches on each side, 0 copies the image.
+   * @throws IllegalArgumentException if radius is negative or larger than MAX_RADIUS.
+   */
+  public BoxBlurOperation(int radius) {
+    this(radius, BorderMode.CLAMP);
+  }
+
+  /**
+   * Constructor takes in the radius and how pixels outside of the image are read.
+   *
+   * @param radius the number of pixels the window reaches on each side, 0 copies the image.
+   * @param border how pixels outside of the image are read.
+   * @throws IllegalArgumentException if radius is negative or larger than MAX_RADIUS,
+   *                                  or border is null.
+   */
+  public BoxBlurOperation(int radius, BorderMode border) {
+    if (radius < 0 || radius > MAX_RADIUS) {
+      throw new IllegalArgumentException("Radius must be between 0 and " + MAX_RADIUS);
+    }
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode cannot be null");
+    }
+    this.radius = radius;
+    this.border = border;
+  }
+
+  /**
+   * Blur the image with the box window.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null, or the window sums of its
+   *                                  max value would not fit in a long at this radius.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    int size = 2 * radius + 1;
+    try {
+      // the largest window sum plus the half added when rounding the mean
+      Math.multiplyExact((long) size * size, image.getMaxValue() + 1L);
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Radius " + radius
+              + " is too large for images with a max value of " + image.getMaxValue());
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    IImage result = image.createBlank(width, height, image.getMaxValue());
+
+    int bandCount = 1;
+    if ((long) width * height >= PARALLEL_THRESHOLD) {
+      // every band starts by summing a whole window, keep that small next to the band
+      bandCount = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4,
+              Math.max(1, height / (2 * size)));
+    }
+    int bands = bandCount;
+
+    IntStream indices = IntStream.range(0, bands);
+    if (bands > 1) {
+      indices = indices.parallel();
+    }
+    indices.forEach(band -> {
+      int startY = (int) ((long) height * band / bands);
+      int endY = (int) ((long) height * (band + 1) / bands);
+      Window window = new Window(image);
+      for (int y = startY - radius; y <= startY + radius; y++) {
+        window.addRow(y, 1);
+      }
+      int[] row = new int[width * 3];
+      for (int y = startY; y < endY; y++) {
+        window.mean(row);
+        result.setRow(y, row);
+        if (y + 1 < endY) {
+          window.addRow(y + radius + 1, 1);
+          window.addRow(y - radius, -1);
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * The running column sums of the window of one band of rows.
+   */
+  private final class Window {
+    private final IImage image;
+    private final int width;
+    private final long area;
+    private final int[] columns; // source column of every padded column, -1 for black
+    private final int[] row;
+    private final long[] prefix;
+    private final long[] sums;
+
+    private Window(IImage image) {
+      this.image = image;
+      this.width = image.getWidth();
+      int size = 2 * radius + 1;
+      this.area = (long) size * size;
+      this.columns = new int[width + 2 * radius];
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = border.resolve(i - radius, width);
+      }
+      this.row = new int[width * 3];
+      this.prefix = new long[(columns.length + 1) * 3];
+      this.sums = new long[width * 3];
+    }
+
+    /**
+     * Add the horizontal window sums of a row to the column sums, or subtract them.
+     *
+     * @param y    the row, may be outside of the image.
+     * @param sign 1 to add the row, -1 to subtract it.
+     */
+    private void addRow(int y, int sign) {
+      int sourceY = border.resolve(y, image.getHeight());
+      if (sourceY < 0) {
+        return; // black
+      }
+      image.getRow(sourceY, row);
+      for (int p = 0; p < columns.length; p++) {
+        int x = columns[p];
+        int i = p * 3;
+        if (x < 0) {
+          prefix[i + 3] = prefix[i];
+          prefix[i + 4] = prefix[i + 1];
+          prefix[i + 5] = prefix[i + 2];
+        } else {
+          prefix[i + 3] = prefix[i] + row[x * 3];
+          prefix[i + 4] = prefix[i + 1] + row[x * 3 + 1];
+          prefix[i + 5] = prefix[i + 2] + row[x * 3 + 2];
+        }
+      }
+      int span = (2 * radius + 1) * 3;
+      for (int i = 0; i < sums.length; i++) {
+        sums[i] += sign * (prefix[i + span] - prefix[i]);
+      }
+    }
+
+    /**
+     * Write the rounded mean of the window of every r,g,b value of the current row.
+     *
+     * @param out the array to write to, width * 3 long.
+     */
+    private void mean(int[] out) {
+      long half = area / 2;
+      for (int i = 0; i < sums.length; i++) {
+        out[i] = (int) ((sums[i] + half) / area);
+      }
+    }
+  }
+}
@@ -1,7 +1,13 @@
 package operations;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+import model.Cancellation;
+import model.HistogramChannel;
 import model.IImage;
-import model.ImageImpl;
+import model.IImageHistogram;
+import model.ImageHistogramImpl;
 
 /**
  * Class implements IOperation interface.
@@ -9,7 +15,10 @@ import model.ImageImpl;
  * If the value is greater than 0 it brightens the image,
  * if it is less than 0 it darkens and if it is 0 it does not change.
  */
-public class BrightenOperation implements IOperation {
+public class BrightenOperation implements IPointOperation {
+  private static final Set<HistogramChannel> RGB = EnumSet.of(
+          HistogramChannel.RED, HistogramChannel.GREEN, HistogramChannel.BLUE);
+
   private final int value;
 
   /**
@@ -36,36 +45,112 @@ public class BrightenOperation implements IOperation {
       throw new IllegalArgumentException("Image object cannot be null");
     }
 
-    IImage result = new ImageImpl(image.getWidth(), image.getHeight(), image.getMaxValue());
-
-    for (int y = 0; y < image.getHeight(); y++) {
-      for (int x = 0; x < image.getWidth(); x++) {
-        int[] pixel = image.getPixel(x, y);
-        int r;
-        int g;
-        int b;
-
-        if (value > 0) {
-          // set to min of maxValue or value
-          r = Math.min(pixel[0] + value, image.getMaxValue());
-          g = Math.min(pixel[1] + value, image.getMaxValue());
-          b = Math.min(pixel[2] + value, image.getMaxValue());
-        } else if (value < 0) {
-          // set to max of 0 or value
-          r = Math.max(pixel[0] + value, 0);
-          g = Math.max(pixel[1] + value, 0);
-          b = Math.max(pixel[2] + value, 0);
-        } else {
-          // keep the same r,g,b value
-          r = pixel[0];
-          g = pixel[1];
-          b = pixel[2];
+    IImage result = image.createBlank(image.getWidth(), image.getHeight(), image.getMaxValue());
+
+    // go tile by tile so images that do not fit in memory are processed one piece at a time
+    Thread owner = Thread.currentThread();
+    image.forEachTile((tileX, tileY, tileWidth, tileHeight) -> {
+      Cancellation.check(owner);
+      for (int y = tileY; y < tileY + tileHeight; y++) {
+        for (int x = tileX; x < tileX + tileWidth; x++) {
+          int[] pixel = image.getPixel(x, y);
+          int r;
+          int g;
+          int b;
+
+          if (value > 0) {
+            // set to min of maxValue or value
+            r = Math.min(pixel[0] + value, image.getMaxValue());
+            g = Math.min(pixel[1] + value, image.getMaxValue());
+            b = Math.min(pixel[2] + value, image.getMaxValue());
+          } else if (value < 0) {
+            // set to max of 0 or value
+            r = Math.max(pixel[0] + value, 0);
+            g = Math.max(pixel[1] + value, 0);
+            b = Math.max(pixel[2] + value, 0);
+          } else {
+            // keep the same r,g,b value
+            r = pixel[0];
+            g = pixel[1];
+            b = pixel[2];
+          }
+
+          result.setPixel(x, y, r, g, b);
         }
+      }
+    });
 
-        result.setPixel(x, y, r, g, b);
+    return result;
+  }
+
+  /**
+   * Derive the histogram of the brightened image from the source histogram.
+   * Every red, green and blue bin moves by the brighten value and bins pushed past
+   * 0 or maxValue are merged into the end bin. The intensity bins move by the same value
+   * as long as no channel is clamped; otherwise intensity depends on the individual pixels
+   * and is left out of the derived histogram.
+   *
+   * @param histogram the histogram of the source image.
+   * @param maxValue  the max color value of the source image.
+   * @return the histogram of the brightened image, or null if it cannot be derived exactly.
+   * @throws IllegalArgumentException if histogram is null.
+   */
+  @Override
+  public IImageHistogram mapHistogram(IImageHistogram histogram, int maxValue) {
+    if (histogram == null) {
+      throw new IllegalArgumentException("Histogram cannot be null");
+    }
+    if (histogram.getMaxValue() != maxValue || histogram.getBinWidth() != 1
+            || !histogram.getChannels().containsAll(RGB)) {
+      // values that share a bin may move to different bins, so where they go is not known
+      return null;
+    }
+
+    int[] red = histogram.getRedHistogram();
+    int[] green = histogram.getGreenHistogram();
+    int[] blue = histogram.getBlueHistogram();
+    boolean clamped = clamps(red, maxValue) || clamps(green, maxValue) || clamps(blue, maxValue);
+
+    if (clamped || !histogram.getChannels().contains(HistogramChannel.INTENSITY)) {
+      return new ImageHistogramImpl(shift(red, maxValue), shift(green, maxValue),
+              shift(blue, maxValue), new int[red.length], maxValue, RGB);
+    }
+    // without clamping (r + g + b + 3 * value) / 3 is exactly the old intensity plus value
+    return new ImageHistogramImpl(shift(red, maxValue), shift(green, maxValue),
+            shift(blue, maxValue), shift(histogram.getIntensityHistogram(), maxValue), maxValue);
+  }
+
+  /**
+   * Helper function to check if brightening would clamp any value counted in the bins.
+   *
+   * @param bins     the bins of one channel.
+   * @param maxValue the max color value of the image.
+   * @return true if a non-empty bin would move below 0 or above maxValue.
+   */
+  private boolean clamps(int[] bins, int maxValue) {
+    for (int i = 0; i < bins.length; i++) {
+      if (bins[i] != 0 && ((long) i + value < 0 || (long) i + value > maxValue)) {
+        return true;
       }
     }
+    return false;
+  }
 
+  /**
+   * Helper function to move every bin by the brighten value,
+   * merging bins that move past 0 or maxValue into the end bin.
+   *
+   * @param bins     the bins of one channel.
+   * @param maxValue the max color value of the image.
+   * @return the moved bins.
+   */
+  private int[] shift(int[] bins, int maxValue) {
+    int[] result = new int[bins.length];
+    for (int i = 0; i < bins.length; i++) {
+      if (bins[i] != 0) {
+        result[(int) Math.max(0, Math.min((long) i + value, maxValue))] += bins[i];
+      }
+    }
     return result;
   }
 }
@@ -0,0 +1,295 @@
+package operations;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import model.IImage;
+
+/**
+ * Runs spatial filters over an image in tiles of whole rows.
+ * Each tile is read once into a padded buffer small enough to stay in the cache, with the
+ * border pixels the filter needs around it filled in by the border mode, so the filters
+ * themselves run without any bounds checks. Tiles are filtered in parallel.
+ * Convolutions of 8 bit images are accumulated in fixed point integers.
+ */
+final class ConvolutionEngine {
+  // images smaller than this are filtered on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  // padded tile size in ints, 256KB fits the L2 cache of most cores
+  private static final int TILE_INTS = 1 << 16;
+  // at least this many output rows per tile so the border rows are not read too often
+  private static final int MIN_TILE_ROWS = 8;
+  // fractional bits of fixed point weights
+  private static final int FIXED_SHIFT = 12;
+  // largest sum of absolute weights that cannot overflow an int accumulator for 8 bit values
+  private static final double FIXED_MAX_WEIGHT = (double) Integer.MAX_VALUE
+          / (0xFF * (1 << FIXED_SHIFT)) / 2;
+
+  private ConvolutionEngine() {
+  }
+
+  /**
+   * Filter every tile of the image and write the filtered rows into the result.
+   *
+   * @param image   the image to filter.
+   * @param result  the image to write to, same size as image.
+   * @param radiusX the number of columns the filter reads left and right of a pixel.
+   * @param radiusY the number of rows the filter reads above and below a pixel.
+   * @param border  how pixels outside of the image are read.
+   * @param filter  the filter to run on every tile.
+   */
+  static void run(IImage image, IImage result, int radiusX, int radiusY, BorderMode border,
+                  TileFilter filter) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int paddedLength = (width + 2 * radiusX) * 3;
+    int tileRows = Math.max(MIN_TILE_ROWS, TILE_INTS / paddedLength - 2 * radiusY);
+    int tiles = (height + tileRows - 1) / tileRows;
+
+    IntStream indices = IntStream.range(0, tiles);
+    if ((long) width * height >= PARALLEL_THRESHOLD && tiles > 1
+            && ForkJoinPool.getCommonPoolParallelism() > 1) {
+      indices = indices.parallel();
+    }
+    indices.forEach(index -> {
+      int startY = index * tileRows;
+      int rows = Math.min(tileRows, height - startY);
+      Tile tile = new Tile(width, rows, radiusX, radiusY);
+      tile.read(image, startY, border);
+
+      int[] out = new int[rows * width * 3];
+      filter.filter(tile, out);
+      int[] row = new int[width * 3];
+      for (int y = 0; y < rows; y++) {
+        System.arraycopy(out, y * row.length, row, 0, row.length);
+        result.setRow(startY + y, row);
+      }
+    });
+  }
+
+  /**
+   * Convolve the output rows of a tile with a kernel.
+   * Separable kernels run as a pass along the rows followed by a pass along the columns.
+   *
+   * @param tile     the padded tile, read with at least the radius of the kernel.
+   * @param kernel   the kernel to convolve with.
+   * @param maxValue the max color value of the image.
+   * @return the rounded responses of every r,g,b value of the output rows, not clamped.
+   */
+  static int[] convolve(Tile tile, Kernel kernel, int maxValue) {
+    int[] out = new int[tile.rows * tile.width * 3];
+    if (kernel.isSeparable()) {
+      double[] row = kernel.getRowVector();
+      double[] column = kernel.getColumnVector();
+      if (maxValue <= 0xFF && sumOfMagnitudes(row) <= FIXED_MAX_WEIGHT
+              && sumOfMagnitudes(column) <= FIXED_MAX_WEIGHT) {
+        separableFixed(tile, toFixed(row), toFixed(column), out);
+      } else {
+        separable(tile, row, column, out);
+      }
+    } else {
+      double[] weights = kernel.getWeights();
+      if (maxValue <= 0xFF && sumOfMagnitudes(weights) <= FIXED_MAX_WEIGHT) {
+        directFixed(tile, kernel.getWidth(), kernel.getHeight(), toFixed(weights), out);
+      } else {
+        direct(tile, kernel.getWidth(), kernel.getHeight(), weights, out);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Helper function to convolve in two passes with fixed point weights. The row pass keeps
+   * its fractional bits, so the column pass accumulates in a long and rounds once.
+   */
+  private static void separableFixed(Tile tile, int[] row, int[] column, int[] out) {
+    int length = tile.width * 3;
+    int[] pass = new int[tile.paddedRows * length];
+    for (int y = 0; y < tile.paddedRows; y++) {
+      int in = y * tile.paddedLength;
+      for (int i = 0; i < length; i++) {
+        int sum = 0;
+        for (int k = 0; k < row.length; k++) {
+          sum += row[k] * tile.data[in + i + k * 3];
+        }
+        pass[y * length + i] = sum;
+      }
+    }
+    long half = 1L << (2 * FIXED_SHIFT - 1);
+    for (int y = 0; y < tile.rows; y++) {
+      for (int i = 0; i < length; i++) {
+        long sum = 0;
+        for (int k = 0; k < column.length; k++) {
+          sum += (long) column[k] * pass[(y + k) * length + i];
+        }
+        out[y * length + i] = (int) ((sum + half) >> (2 * FIXED_SHIFT));
+      }
+    }
+  }
+
+  /**
+   * Helper function to convolve in two passes with floating point weights.
+   */
+  private static void separable(Tile tile, double[] row, double[] column, int[] out) {
+    int length = tile.width * 3;
+    double[] pass = new double[tile.paddedRows * length];
+    for (int y = 0; y < tile.paddedRows; y++) {
+      int in = y * tile.paddedLength;
+      for (int i = 0; i < length; i++) {
+        double sum = 0;
+        for (int k = 0; k < row.length; k++) {
+          sum += row[k] * tile.data[in + i + k * 3];
+        }
+        pass[y * length + i] = sum;
+      }
+    }
+    for (int y = 0; y < tile.rows; y++) {
+      for (int i = 0; i < length; i++) {
+        double sum = 0;
+        for (int k = 0; k < column.length; k++) {
+          sum += column[k] * pass[(y + k) * length + i];
+        }
+        out[y * length + i] = (int) Math.round(sum);
+      }
+    }
+  }
+
+  /**
+   * Helper function to convolve a kernel that is not separable with fixed point weights.
+   */
+  private static void directFixed(Tile tile, int kernelWidth, int kernelHeight, int[] weights,
+                                  int[] out) {
+    int length = tile.width * 3;
+    int half = 1 << (FIXED_SHIFT - 1);
+    for (int y = 0; y < tile.rows; y++) {
+      for (int i = 0; i < length; i++) {
+        int sum = 0;
+        for (int ky = 0; ky < kernelHeight; ky++) {
+          int in = (y + ky) * tile.paddedLength + i;
+          int w = ky * kernelWidth;
+          for (int kx = 0; kx < kernelWidth; kx++) {
+            sum += weights[w + kx] * tile.data[in + kx * 3];
+          }
+        }
+        out[y * length + i] = (sum + half) >> FIXED_SHIFT;
+      }
+    }
+  }
+
+  /**
+   * Helper function to convolve a kernel that is not separable with floating point weights.
+   */
+  private static void direct(Tile tile, int kernelWidth, int kernelHeight, double[] weights,
+                             int[] out) {
+    int length = tile.width * 3;
+    for (int y = 0; y < tile.rows; y++) {
+      for (int i = 0; i < length; i++) {
+        double sum = 0;
+        for (int ky = 0; ky < kernelHeight; ky++) {
+          int in = (y + ky) * tile.paddedLength + i;
+          int w = ky * kernelWidth;
+          for (int kx = 0; kx < kernelWidth; kx++) {
+            sum += weights[w + kx] * tile.data[in + kx * 3];
+          }
+        }
+        out[y * length + i] = (int) Math.round(sum);
+      }
+    }
+  }
+
+  /**
+   * Helper function to round weights to fixed point.
+   *
+   * @param weights the weights.
+   * @return the weights times 2^FIXED_SHIFT, rounded.
+   */
+  private static int[] toFixed(double[] weights) {
+    int[] result = new int[weights.length];
+    for (int i = 0; i < weights.length; i++) {
+      result[i] = (int) Math.round(weights[i] * (1 << FIXED_SHIFT));
+    }
+    return result;
+  }
+
+  /**
+   * Helper function to add up the magnitudes of weights.
+   *
+   * @param weights the weights.
+   * @return the sum of their absolute values.
+   */
+  private static double sumOfMagnitudes(double[] weights) {
+    double sum = 0;
+    for (double weight : weights) {
+      sum += Math.abs(weight);
+    }
+    return sum;
+  }
+
+  /**
+   * A filter that is run on every tile of an image.
+   */
+  interface TileFilter {
+    /**
+     * Filter the output rows of a tile.
+     *
+     * @param tile the padded tile.
+     * @param out  the r,g,b values of the output rows to fill in, between 0 and maxValue.
+     */
+    void filter(Tile tile, int[] out);
+  }
+
+  /**
+   * A band of rows of an image with the rows and columns around it that a filter reads.
+   * Pixel (x, y) of the band is at data[(y + radiusY) * paddedLength + (x + radiusX) * 3].
+   */
+  static final class Tile {
+    final int width;
+    final int rows;
+    final int radiusX;
+    final int radiusY;
+    final int paddedRows;
+    final int paddedLength;
+    final int[] data;
+
+    private Tile(int width, int rows, int radiusX, int radiusY) {
+      this.width = width;
+      this.rows = rows;
+      this.radiusX = radiusX;
+      this.radiusY = radiusY;
+      this.paddedRows = rows + 2 * radiusY;
+      this.paddedLength = (width + 2 * radiusX) * 3;
+      this.data = new int[paddedRows * paddedLength];
+    }
+
+    /**
+     * Read the rows of the band and the border around it from the image.
+     *
+     * @param image  the image to read from.
+     * @param startY the first row of the band.
+     * @param border how pixels outside of the image are read.
+     */
+    private void read(IImage image, int startY, BorderMode border) {
+      int height = image.getHeight();
+      int[] row = new int[width * 3];
+      for (int y = 0; y < paddedRows; y++) {
+        int sourceY = border.resolve(startY - radiusY + y, height);
+        if (sourceY < 0) {
+          continue; // black, already zero
+        }
+        int offset = y * paddedLength;
+        image.getRow(sourceY, row);
+        System.arraycopy(row, 0, data, offset + radiusX * 3, row.length);
+        for (int x = 0; x < radiusX; x++) {
+          int left = border.resolve(x - radiusX, width);
+          int right = border.resolve(width + x, width);
+          if (left >= 0) {
+            System.arraycopy(row, left * 3, data, offset + x * 3, 3);
+          }
+          if (right >= 0) {
+            System.arraycopy(row, right * 3, data, offset + (radiusX + width + x) * 3, 3);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package operations;
+
+import model.IImage;
+
+/**
+ * Class implements IOperation interface.
+ * It convolves the red, green and blue channels of an image with a kernel, e.g. to blur
+ * or sharpen it, and clamps the results between 0 and the max value.
+ * Separable kernels are applied as two 1-D passes and 8 bit images are accumulated in fixed
+ * point integers. Tiles of rows are convolved in parallel.
+ */
+public class ConvolutionOperation implements IOperation {
+  private final Kernel kernel;
+  private final BorderMode border;
+
+  /**
+   * Constructor takes in the kernel, pixels outside of the image repeat the edge.
+   *
+   * @param kernel the kernel to convolve with.
+   * @throws IllegalArgumentException if kernel is null.
+   */
+  public ConvolutionOperation(Kernel kernel) {
+    this(kernel, BorderMode.CLAMP);
+  }
+
+  /**
+   * Constructor takes in the kernel and how pixels outside of the image are read.
+   *
+   * @param kernel the kernel to convolve with.
+   * @param border how pixels outside of the image are read.
+   * @throws IllegalArgumentException if kernel or border is null.
+   */
+  public ConvolutionOperation(Kernel kernel, BorderMode border) {
+    if (kernel == null || border == null) {
+      throw new IllegalArgumentException("Kernel and border mode cannot be null");
+    }
+    this.kernel = kernel;
+    this.border = border;
+  }
+
+  /**
+   * Convolve the image with the kernel.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    int maxValue = image.getMaxValue();
+    IImage result = image.createBlank(image.getWidth(), image.getHeight(), maxValue);
+    ConvolutionEngine.run(image, result, kernel.getWidth() / 2, kernel.getHeight() / 2, border,
+        (tile, out) -> {
+          int[] responses = ConvolutionEngine.convolve(tile, kernel, maxValue);
+          for (int i = 0; i < out.length; i++) {
+            out[i] = Math.max(0, Math.min(maxValue, responses[i]));
+          }
+        });
+    return result;
+  }
+}
@@ -0,0 +1,65 @@
+package operations;
+
+import model.IImageHistogram;
+
+/**
+ * Class extends from the AbstractLutOperation.
+ * It equalizes the histogram of every channel: each value is mapped through the cumulative
+ * distribution of its channel, so the values spread evenly over 0 to maxValue.
+ */
+public class EqualizeOperation extends AbstractLutOperation {
+  /**
+   * Constructor for an equalization that computes the histogram of the image on apply.
+   */
+  public EqualizeOperation() {
+    this(null);
+  }
+
+  /**
+   * Constructor for an equalization that uses a histogram that is already known.
+   *
+   * @param histogram the histogram of the source image, or null to compute it on apply.
+   */
+  public EqualizeOperation(IImageHistogram histogram) {
+    super(histogram);
+  }
+
+  /**
+   * Build the lookup table from the cumulative distribution of the channel.
+   * The lowest value present maps to 0 and the highest to maxValue.
+   *
+   * @param bins     the histogram of the channel.
+   * @param binWidth the number of values every bin covers.
+   * @param maxValue the max color value of the image.
+   * @return the lookup table, one entry for every bin.
+   */
+  @Override
+  protected int[] buildLut(int[] bins, int binWidth, int maxValue) {
+    long total = 0;
+    long cdfMin = 0;
+    for (int count : bins) {
+      if (cdfMin == 0) {
+        cdfMin = count;
+      }
+      total += count;
+    }
+
+    int[] lut = new int[bins.length];
+    if (total == cdfMin) {
+      // a single value has nothing to spread, keep it as it is
+      for (int i = 0; i < lut.length; i++) {
+        lut[i] = (int) Math.min((long) i * binWidth, maxValue);
+      }
+      return lut;
+    }
+
+    long cdf = 0;
+    for (int i = 0; i < bins.length; i++) {
+      cdf += bins[i];
+      if (cdf > cdfMin) {
+        lut[i] = (int) Math.round((double) (cdf - cdfMin) * maxValue / (total - cdfMin));
+      }
+    }
+    return lut;
+  }
+}
@@ -0,0 +1,91 @@
+package operations;
+
+import model.IImage;
+
+/**
+ * Class implements IOperation interface.
+ * It approximates a Gaussian blur with three box blurs whose widths are chosen so the
+ * variance of the combined filter matches the Gaussian. Each box pass costs the same whatever
+ * its radius, so the blur takes the same time for any standard deviation.
+ */
+public class GaussianBlurOperation implements IOperation {
+  private static final int PASSES = 3;
+
+  private final double sigma;
+  private final BorderMode border;
+
+  /**
+   * Constructor takes in the standard deviation, pixels outside of the image repeat the edge.
+   *
+   * @param sigma the standard deviation of the Gaussian in pixels.
+   * @throws IllegalArgumentException if sigma is not positive or is too large.
+   */
+  public GaussianBlurOperation(double sigma) {
+    this(sigma, BorderMode.CLAMP);
+  }
+
+  /**
+   * Constructor takes in the standard deviation and how pixels outside of the image are read.
+   *
+   * @param sigma  the standard deviation of the Gaussian in pixels.
+   * @param border how pixels outside of the image are read.
+   * @throws IllegalArgumentException if sigma is not positive or is too large,
+   *                                  or border is null.
+   */
+  public GaussianBlurOperation(double sigma, BorderMode border) {
+    if (!(sigma > 0)) {
+      throw new IllegalArgumentException("Sigma must be positive");
+    }
+    if (sigma > BoxBlurOperation.MAX_RADIUS) {
+      throw new IllegalArgumentException("Sigma is too large");
+    }
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode cannot be null");
+    }
+    this.sigma = sigma;
+    this.border = border;
+  }
+
+  /**
+   * Get the radii of the box passes for a standard deviation: boxes of the odd width w just
+   * below the ideal one, and then w + 2, in the mix whose variance is closest to sigma^2.
+   *
+   * @param sigma the standard deviation of the Gaussian in pixels.
+   * @return the radius of every box pass.
+   */
+  static int[] boxRadii(double sigma) {
+    double variance = 12 * sigma * sigma;
+    int lower = (int) Math.floor(Math.sqrt(variance / PASSES + 1));
+    if (lower % 2 == 0) {
+      lower--;
+    }
+    long lowerCount = Math.round(
+            (variance - PASSES * lower * lower - 4 * PASSES * lower - 3 * PASSES)
+                    / (-4.0 * lower - 4));
+    int[] radii = new int[PASSES];
+    for (int i = 0; i < PASSES; i++) {
+      int size = i < lowerCount ? lower : lower + 2;
+      radii[i] = (size - 1) / 2;
+    }
+    return radii;
+  }
+
+  /**
+   * Blur the image with the box passes.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    IImage result = image;
+    for (int radius : boxRadii(sigma)) {
+      result = new BoxBlurOperation(radius, border).apply(result);
+    }
+    return result;
+  }
+}
@@ -1,5 +1,8 @@
 package operations;
 
+import model.HistogramChannel;
+import model.IImageHistogram;
+
 /**
  * Class extends from the AbstractGrayScaleOperation.
  * It returns the green value and creates a greyscale IImage object based on the value.
@@ -17,4 +20,17 @@ public class GreenGreyScaleOperation extends AbstractGrayScaleOperation {
   protected int getValueToUse(int r, int g, int b) {
     return g;
   }
+
+  /**
+   * Derive the histogram of the greyscale image, which is the green histogram of the source.
+   *
+   * @param histogram the histogram of the source image.
+   * @param maxValue  the max color value of the source image.
+   * @return the histogram of the result, or null if it cannot be derived exactly.
+   * @throws IllegalArgumentException if histogram is null.
+   */
+  @Override
+  public IImageHistogram mapHistogram(IImageHistogram histogram, int maxValue) {
+    return mapChannelHistogram(histogram, maxValue, HistogramChannel.GREEN);
+  }
 }
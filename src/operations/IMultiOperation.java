@@ -0,0 +1,21 @@
+package operations;
+
+import java.util.List;
+
+import model.IImage;
+
+/**
+ * Interface for operations that create several images from one source image.
+ * It has only 1 method, apply() that takes in an Object of type IImage
+ * and returns a list of new Objects of type IImage.
+ */
+public interface IMultiOperation {
+  /**
+   * Apply the operation and create all of its result images from the source image.
+   *
+   * @param image object of type IImage.
+   * @return a list of new objects of type IImage, in the order the operation defines.
+   * @throws IllegalArgumentException if image object is null.
+   */
+  List<IImage> apply(IImage image) throws IllegalArgumentException;
+}
@@ -0,0 +1,23 @@
+package operations;
+
+import model.IImageHistogram;
+
+/**
+ * Interface for operations that change every pixel on its own, from its r, g and b values only.
+ * The histogram of the result of such an operation can often be derived from the histogram
+ * of the source image in time proportional to the number of bins,
+ * without looking at the pixels of the result.
+ */
+public interface IPointOperation extends IOperation {
+  /**
+   * Derive the histogram of the image this operation would create from the source histogram.
+   *
+   * @param histogram the histogram of the source image.
+   * @param maxValue  the max color value of the source image.
+   * @return the histogram of the result, or null if it cannot be derived exactly
+   *         and the result has to be scanned instead.
+   * @throws IllegalArgumentException if histogram is null.
+   */
+  IImageHistogram mapHistogram(IImageHistogram histogram, int maxValue)
+          throws IllegalArgumentException;
+}
@@ -0,0 +1,243 @@
+package operations;
+
+/**
+ * An immutable convolution kernel with odd width and height, centered on the middle weight.
+ * Kernels that are the outer product of a column and a row vector are detected as separable,
+ * so they can be applied as two 1-D passes: k + k operations per pixel instead of k * k.
+ */
+public final class Kernel {
+  // relative tolerance when checking if a kernel is an outer product
+  private static final double SEPARABLE_TOLERANCE = 1e-9;
+
+  private final int width;
+  private final int height;
+  private final double[] weights; // row-major, height rows of width weights
+  private final double[] columnVector; // null unless separable
+  private final double[] rowVector; // null unless separable
+
+  /**
+   * Constructor takes in the size and weights of the kernel.
+   *
+   * @param width   the number of columns, odd.
+   * @param height  the number of rows, odd.
+   * @param weights the weights row by row, width * height of them.
+   * @throws IllegalArgumentException if a size is not positive and odd, or the weights are
+   *                                  null, the wrong number, or not finite.
+   */
+  public Kernel(int width, int height, double... weights) {
+    if (width <= 0 || height <= 0 || width % 2 == 0 || height % 2 == 0) {
+      throw new IllegalArgumentException("Kernel sizes must be positive and odd");
+    }
+    if (weights == null || weights.length != width * height) {
+      throw new IllegalArgumentException("Kernel needs " + width * height + " weights");
+    }
+    for (double weight : weights) {
+      if (!Double.isFinite(weight)) {
+        throw new IllegalArgumentException("Kernel weights must be finite");
+      }
+    }
+    this.width = width;
+    this.height = height;
+    this.weights = weights.clone();
+
+    double[][] vectors = factor(width, height, this.weights);
+    this.columnVector = vectors == null ? null : vectors[0];
+    this.rowVector = vectors == null ? null : vectors[1];
+  }
+
+  /**
+   * Create the 3x3 Gaussian blur kernel, 1/16 [1 2 1; 2 4 2; 1 2 1].
+   *
+   * @return the blur kernel.
+   */
+  public static Kernel blur() {
+    return new Kernel(3, 3,
+            1 / 16.0, 1 / 8.0, 1 / 16.0,
+            1 / 8.0, 1 / 4.0, 1 / 8.0,
+            1 / 16.0, 1 / 8.0, 1 / 16.0);
+  }
+
+  /**
+   * Create the 5x5 sharpen kernel: 1 in the middle, 1/4 around it and -1/8 on the border.
+   *
+   * @return the sharpen kernel.
+   */
+  public static Kernel sharpen() {
+    double e = -1 / 8.0;
+    double q = 1 / 4.0;
+    return new Kernel(5, 5,
+            e, e, e, e, e,
+            e, q, q, q, e,
+            e, q, 1, q, e,
+            e, q, q, q, e,
+            e, e, e, e, e);
+  }
+
+  /**
+   * Create a normalized Gaussian kernel reaching 3 standard deviations from the center.
+   *
+   * @param sigma the standard deviation in pixels.
+   * @return the Gaussian kernel.
+   * @throws IllegalArgumentException if sigma is not positive.
+   */
+  public static Kernel gaussian(double sigma) {
+    if (!(sigma > 0)) {
+      throw new IllegalArgumentException("Sigma must be positive");
+    }
+    int radius = (int) Math.ceil(3 * sigma);
+    int size = 2 * radius + 1;
+    double[] line = new double[size];
+    double sum = 0;
+    for (int i = 0; i < size; i++) {
+      line[i] = Math.exp(-((i - radius) * (i - radius)) / (2 * sigma * sigma));
+      sum += line[i];
+    }
+    double[] weights = new double[size * size];
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        weights[y * size + x] = line[y] * line[x] / (sum * sum);
+      }
+    }
+    return new Kernel(size, size, weights);
+  }
+
+  /**
+   * Create the horizontal Sobel kernel [-1 0 1; -2 0 2; -1 0 1].
+   *
+   * @return the horizontal Sobel kernel.
+   */
+  public static Kernel sobelX() {
+    return new Kernel(3, 3, -1, 0, 1, -2, 0, 2, -1, 0, 1);
+  }
+
+  /**
+   * Create the vertical Sobel kernel [-1 -2 -1; 0 0 0; 1 2 1].
+   *
+   * @return the vertical Sobel kernel.
+   */
+  public static Kernel sobelY() {
+    return new Kernel(3, 3, -1, -2, -1, 0, 0, 0, 1, 2, 1);
+  }
+
+  /**
+   * Helper function to split a kernel into a column and a row vector if it is their outer
+   * product. The column through the largest weight and the row through it, divided by
+   * that weight, are the only candidates.
+   *
+   * @param width   the number of columns.
+   * @param height  the number of rows.
+   * @param weights the weights row by row.
+   * @return the column and row vectors, or null if the kernel is not separable.
+   */
+  private static double[][] factor(int width, int height, double[] weights) {
+    int pivot = 0;
+    for (int i = 1; i < weights.length; i++) {
+      if (Math.abs(weights[i]) > Math.abs(weights[pivot])) {
+        pivot = i;
+      }
+    }
+    double largest = weights[pivot];
+    int pivotRow = pivot / width;
+    int pivotColumn = pivot % width;
+
+    double[] column = new double[height];
+    double[] row = new double[width];
+    if (largest == 0) {
+      // all zero
+      return new double[][]{column, row};
+    }
+    for (int y = 0; y < height; y++) {
+      column[y] = weights[y * width + pivotColumn];
+    }
+    for (int x = 0; x < width; x++) {
+      row[x] = weights[pivotRow * width + x] / largest;
+    }
+
+    double tolerance = SEPARABLE_TOLERANCE * Math.abs(largest);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (Math.abs(weights[y * width + x] - column[y] * row[x]) > tolerance) {
+          return null;
+        }
+      }
+    }
+    return new double[][]{column, row};
+  }
+
+  /**
+   * Get the number of columns.
+   *
+   * @return the width of the kernel.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Get the number of rows.
+   *
+   * @return the height of the kernel.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Get a weight of the kernel.
+   *
+   * @param x the column, 0 is the left.
+   * @param y the row, 0 is the top.
+   * @return the weight.
+   * @throws IllegalArgumentException if x or y is out of range.
+   */
+  public double getWeight(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Coordinates out of range");
+    }
+    return weights[y * width + x];
+  }
+
+  /**
+   * Check whether the kernel is the outer product of a column and a row vector.
+   *
+   * @return true if the kernel can be applied as two 1-D passes.
+   */
+  public boolean isSeparable() {
+    return rowVector != null;
+  }
+
+  /**
+   * Get the vector applied along each row when the kernel is separable.
+   *
+   * @return a copy of the row vector, width weights.
+   * @throws IllegalStateException if the kernel is not separable.
+   */
+  public double[] getRowVector() {
+    if (rowVector == null) {
+      throw new IllegalStateException("Kernel is not separable");
+    }
+    return rowVector.clone();
+  }
+
+  /**
+   * Get the vector applied along each column when the kernel is separable.
+   *
+   * @return a copy of the column vector, height weights.
+   * @throws IllegalStateException if the kernel is not separable.
+   */
+  public double[] getColumnVector() {
+    if (columnVector == null) {
+      throw new IllegalStateException("Kernel is not separable");
+    }
+    return columnVector.clone();
+  }
+
+  /**
+   * Get all weights row by row.
+   *
+   * @return a copy of the weights.
+   */
+  double[] getWeights() {
+    return weights.clone();
+  }
+}
@@ -0,0 +1,85 @@
+package operations;
+
+import model.IImageHistogram;
+
+/**
+ * Class extends from the AbstractLutOperation.
+ * It sets the levels of every channel automatically: the darkest and brightest values of the
+ * channel, ignoring a small share of outliers at each end, are stretched to 0 and maxValue.
+ */
+public class LevelsOperation extends AbstractLutOperation {
+  private final double clipPercent;
+
+  /**
+   * Constructor for auto levels that computes the histogram of the image on apply.
+   *
+   * @param clipPercent the percent of pixels ignored at each end of every channel.
+   * @throws IllegalArgumentException if clipPercent is negative or 50 or more.
+   */
+  public LevelsOperation(double clipPercent) {
+    this(clipPercent, null);
+  }
+
+  /**
+   * Constructor for auto levels that uses a histogram that is already known.
+   *
+   * @param clipPercent the percent of pixels ignored at each end of every channel.
+   * @param histogram   the histogram of the source image, or null to compute it on apply.
+   * @throws IllegalArgumentException if clipPercent is negative or 50 or more.
+   */
+  public LevelsOperation(double clipPercent, IImageHistogram histogram) {
+    super(histogram);
+    if (!(clipPercent >= 0 && clipPercent < 50)) {
+      throw new IllegalArgumentException("Clip percent must be from 0 to less than 50");
+    }
+    this.clipPercent = clipPercent;
+  }
+
+  /**
+   * Build the lookup table that stretches the black and white points of the channel
+   * to 0 and maxValue. Values outside of them are clamped.
+   *
+   * @param bins     the histogram of the channel.
+   * @param binWidth the number of values every bin covers.
+   * @param maxValue the max color value of the image.
+   * @return the lookup table, one entry for every bin.
+   */
+  @Override
+  protected int[] buildLut(int[] bins, int binWidth, int maxValue) {
+    long total = 0;
+    for (int count : bins) {
+      total += count;
+    }
+    long clip = (long) (total * clipPercent / 100);
+
+    // black point: first bin with more than the clipped pixels at or below it
+    int low = 0;
+    long below = 0;
+    while (low < bins.length - 1 && below + bins[low] <= clip) {
+      below += bins[low];
+      low++;
+    }
+    // white point: last bin with more than the clipped pixels at or above it
+    int high = bins.length - 1;
+    long above = 0;
+    while (high > 0 && above + bins[high] <= clip) {
+      above += bins[high];
+      high--;
+    }
+
+    long black = (long) low * binWidth;
+    long white = Math.min((long) high * binWidth + binWidth - 1, maxValue);
+    int[] lut = new int[bins.length];
+    for (int i = 0; i < lut.length; i++) {
+      long value = Math.min((long) i * binWidth, maxValue);
+      if (white <= black) {
+        // nothing to stretch
+        lut[i] = (int) value;
+      } else {
+        long mapped = Math.round((double) (value - black) * maxValue / (white - black));
+        lut[i] = (int) Math.max(0, Math.min(mapped, maxValue));
+      }
+    }
+    return lut;
+  }
+}
@@ -0,0 +1,69 @@
+package operations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Cancellation;
+import model.IImage;
+
+/**
+ * Class implements IMultiOperation interface.
+ * It creates several greyscale images from the same source in a single pass:
+ * every source pixel is read once and the grey value of every requested component
+ * is written to its own result image.
+ */
+public class MultiComponentOperation implements IMultiOperation {
+  private final List<AbstractGrayScaleOperation> components;
+
+  /**
+   * Constructor takes in the greyscale operations whose results should be created.
+   *
+   * @param components the greyscale operations, one result image is created for each.
+   * @throws IllegalArgumentException if components is null or empty.
+   */
+  public MultiComponentOperation(List<AbstractGrayScaleOperation> components) {
+    if (components == null || components.isEmpty()) {
+      throw new IllegalArgumentException("At least one component is needed");
+    }
+    this.components = new ArrayList<>(components);
+  }
+
+  /**
+   * Apply every greyscale operation to the image in one pass over its pixels.
+   *
+   * @param image object of type IImage.
+   * @return the greyscale images in the same order as the operations.
+   * @throws IllegalArgumentException if image object is null.
+   */
+  @Override
+  public List<IImage> apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+
+    int count = components.size();
+    AbstractGrayScaleOperation[] operations =
+            components.toArray(new AbstractGrayScaleOperation[0]);
+    IImage[] results = new IImage[count];
+    for (int i = 0; i < count; i++) {
+      results[i] = image.createBlankGrey(
+              image.getWidth(), image.getHeight(), image.getMaxValue());
+    }
+
+    Thread owner = Thread.currentThread();
+    image.forEachTile((tileX, tileY, tileWidth, tileHeight) -> {
+      Cancellation.check(owner);
+      for (int y = tileY; y < tileY + tileHeight; y++) {
+        for (int x = tileX; x < tileX + tileWidth; x++) {
+          int[] pixel = image.getPixel(x, y);
+          for (int i = 0; i < count; i++) {
+            int grayValue = operations[i].getValueToUse(pixel[0], pixel[1], pixel[2]);
+            results[i].setPixel(x, y, grayValue, grayValue, grayValue);
+          }
+        }
+      }
+    });
+
+    return List.of(results);
+  }
+}
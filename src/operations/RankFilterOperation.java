@@ -0,0 +1,275 @@
+package operations;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import model.IImage;
+
+/**
+ * Class implements IOperation interface.
+ * It replaces every r,g,b value with the value at a percentile of its channel over a square
+ * window around the pixel: the median at 50 removes salt and pepper noise while keeping edges,
+ * 0 and 100 give the minimum and maximum.
+ * Each channel keeps a histogram of the window that slides along the rows in a snake order,
+ * so moving one pixel adds and removes a single row or column of the window (Huang's
+ * algorithm). The histograms have a coarse and a fine level, so finding the percentile reads
+ * two short runs of bins instead of every bin. Bands of rows are filtered in parallel.
+ */
+public class RankFilterOperation implements IOperation {
+  /**
+   * The largest radius, the window count still fits in an int.
+   */
+  public static final int MAX_RADIUS = 1 << 12;
+  /**
+   * The largest max value of an image the filter supports, histograms are one bin per value.
+   */
+  public static final int MAX_VALUE = 0xFFFF;
+  // images smaller than this are filtered on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private final int radius;
+  private final double percentile;
+  private final BorderMode border;
+
+  /**
+   * Constructor takes in the radius and percentile, pixels outside of the image repeat the
+   * edge.
+   *
+   * @param radius     the number of pixels the window reaches on each side.
+   * @param percentile the percentile to take from 0 (minimum) to 100 (maximum).
+   * @throws IllegalArgumentException if radius or percentile is out of range.
+   */
+  public RankFilterOperation(int radius, double percentile) {
+    this(radius, percentile, BorderMode.CLAMP);
+  }
+
+  /**
+   * Constructor takes in the radius, percentile and how pixels outside of the image are read.
+   *
+   * @param radius     the number of pixels the window reaches on each side.
+   * @param percentile the percentile to take from 0 (minimum) to 100 (maximum).
+   * @param border     how pixels outside of the image are read.
+   * @throws IllegalArgumentException if radius or percentile is out of range, or border is
+   *                                  null.
+   */
+  public RankFilterOperation(int radius, double percentile, BorderMode border) {
+    if (radius < 0 || radius > MAX_RADIUS) {
+      throw new IllegalArgumentException("Radius must be between 0 and " + MAX_RADIUS);
+    }
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode cannot be null");
+    }
+    this.radius = radius;
+    this.percentile = percentile;
+    this.border = border;
+  }
+
+  /**
+   * Create a median filter.
+   *
+   * @param radius the number of pixels the window reaches on each side.
+   * @return the filter taking the 50th percentile.
+   * @throws IllegalArgumentException if radius is out of range.
+   */
+  public static RankFilterOperation median(int radius) {
+    return new RankFilterOperation(radius, 50);
+  }
+
+  /**
+   * Filter the image.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null or its max value is larger than
+   *                                  MAX_VALUE.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    if (image.getMaxValue() > MAX_VALUE) {
+      throw new IllegalArgumentException(
+              "Rank filters support max values up to " + MAX_VALUE);
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    IImage result = image.createBlank(width, height, image.getMaxValue());
+
+    int size = 2 * radius + 1;
+    int rank = (int) Math.round(percentile / 100 * ((long) size * size - 1));
+
+    int bandCount = 1;
+    if ((long) width * height >= PARALLEL_THRESHOLD) {
+      // a few bands per worker so uneven bands still balance out
+      bandCount = Math.min(height, ForkJoinPool.getCommonPoolParallelism() * 4);
+    }
+    int bands = bandCount;
+
+    IntStream indices = IntStream.range(0, bands);
+    if (bands > 1) {
+      indices = indices.parallel();
+    }
+    indices.forEach(band -> {
+      int startY = (int) ((long) height * band / bands);
+      int endY = (int) ((long) height * (band + 1) / bands);
+      Window window = new Window(image, rank);
+      for (int y = startY - radius; y <= startY + radius; y++) {
+        window.load(y);
+        window.addRow(y, 0, 1);
+      }
+
+      int[] row = new int[width * 3];
+      int x = 0; // the window covers padded columns x to x + size - 1
+      int direction = 1;
+      for (int y = startY; y < endY; y++) {
+        if (y > startY) {
+          window.addRow(y - 1 - radius, x, -1);
+          window.load(y + radius);
+          window.addRow(y + radius, x, 1);
+        }
+        for (int step = 0; step < width; step++) {
+          if (step > 0) {
+            if (direction > 0) {
+              window.addColumn(x, -1);
+              window.addColumn(x + size, 1);
+              x++;
+            } else {
+              window.addColumn(x + size - 1, -1);
+              window.addColumn(x - 1, 1);
+              x--;
+            }
+          }
+          row[x * 3] = window.select(0);
+          row[x * 3 + 1] = window.select(1);
+          row[x * 3 + 2] = window.select(2);
+        }
+        result.setRow(y, row);
+        direction = -direction;
+      }
+    });
+    return result;
+  }
+
+  /**
+   * The rows of the window of one band and the histograms of its three channels.
+   */
+  private final class Window {
+    private final IImage image;
+    private final int size;
+    private final int rank;
+    private final int[] columns; // source column of every padded column, -1 for black
+    private final int[][] rows; // ring of the padded rows in the window, indexed by y mod size
+    private final int[] sourceRow;
+    private final int shift; // fine bins per coarse bin is 2^shift
+    private final int[][] fine;
+    private final int[][] coarse;
+
+    private Window(IImage image, int rank) {
+      this.image = image;
+      this.size = 2 * radius + 1;
+      this.rank = rank;
+      int width = image.getWidth();
+      this.columns = new int[width + 2 * radius];
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = border.resolve(i - radius, width);
+      }
+      this.rows = new int[size][columns.length * 3];
+      this.sourceRow = new int[width * 3];
+
+      int maxValue = image.getMaxValue();
+      int bits = 32 - Integer.numberOfLeadingZeros(maxValue);
+      this.shift = (bits + 1) / 2;
+      this.fine = new int[3][maxValue + 1];
+      this.coarse = new int[3][(maxValue >> shift) + 1];
+    }
+
+    /**
+     * Read a row of the image into the ring, replacing the row size rows above it.
+     *
+     * @param y the row, may be outside of the image.
+     */
+    private void load(int y) {
+      int[] target = rows[Math.floorMod(y, size)];
+      int sourceY = border.resolve(y, image.getHeight());
+      if (sourceY < 0) {
+        Arrays.fill(target, 0);
+        return;
+      }
+      image.getRow(sourceY, sourceRow);
+      for (int p = 0; p < columns.length; p++) {
+        int x = columns[p];
+        if (x < 0) {
+          target[p * 3] = 0;
+          target[p * 3 + 1] = 0;
+          target[p * 3 + 2] = 0;
+        } else {
+          target[p * 3] = sourceRow[x * 3];
+          target[p * 3 + 1] = sourceRow[x * 3 + 1];
+          target[p * 3 + 2] = sourceRow[x * 3 + 2];
+        }
+      }
+    }
+
+    /**
+     * Add the pixels of a row within the window to the histograms, or remove them.
+     *
+     * @param y    the row, must be in the ring.
+     * @param from the first padded column of the window.
+     * @param sign 1 to add the pixels, -1 to remove them.
+     */
+    private void addRow(int y, int from, int sign) {
+      int[] row = rows[Math.floorMod(y, size)];
+      for (int p = from; p < from + size; p++) {
+        add(row, p, sign);
+      }
+    }
+
+    /**
+     * Add the pixels of a padded column in every row of the window, or remove them.
+     *
+     * @param p    the padded column.
+     * @param sign 1 to add the pixels, -1 to remove them.
+     */
+    private void addColumn(int p, int sign) {
+      for (int[] row : rows) {
+        add(row, p, sign);
+      }
+    }
+
+    private void add(int[] row, int p, int sign) {
+      for (int channel = 0; channel < 3; channel++) {
+        int value = row[p * 3 + channel];
+        fine[channel][value] += sign;
+        coarse[channel][value >> shift] += sign;
+      }
+    }
+
+    /**
+     * Find the value at the rank of the window in one channel.
+     *
+     * @param channel the channel, 0 for red, 1 for green and 2 for blue.
+     * @return the smallest value with more than rank values of the window at or below it.
+     */
+    private int select(int channel) {
+      int[] coarseBins = coarse[channel];
+      int[] fineBins = fine[channel];
+      int below = 0;
+      int bin = 0;
+      while (below + coarseBins[bin] <= rank) {
+        below += coarseBins[bin];
+        bin++;
+      }
+      int value = bin << shift;
+      while (below + fineBins[value] <= rank) {
+        below += fineBins[value];
+        value++;
+      }
+      return value;
+    }
+  }
+}
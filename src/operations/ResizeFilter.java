@@ -0,0 +1,65 @@
+package operations;
+
+/**
+ * How a resize blends the source pixels around each result pixel.
+ */
+public enum ResizeFilter {
+  /**
+   * Take the source pixel under the center of the result pixel. Fastest, but aliases.
+   */
+  NEAREST(0),
+  /**
+   * Blend linearly between neighbours, widened when shrinking so every source pixel counts.
+   */
+  BILINEAR(1),
+  /**
+   * Average the source pixels under the result pixel, weighted by how much of each it covers.
+   */
+  AREA(0),
+  /**
+   * Windowed sinc over three lobes. Sharpest when shrinking, may ring slightly at hard edges.
+   */
+  LANCZOS(3);
+
+  private final double support;
+
+  ResizeFilter(double support) {
+    this.support = support;
+  }
+
+  /**
+   * Get the distance from the center, in source pixels at scale 1, the filter reaches.
+   *
+   * @return the support of the filter.
+   */
+  double getSupport() {
+    return support;
+  }
+
+  /**
+   * Get the weight of a source pixel at a distance from the center of the result pixel,
+   * for the filters defined by a kernel.
+   *
+   * @param x the distance in source pixels at scale 1.
+   * @return the unnormalized weight.
+   */
+  double weight(double x) {
+    double distance = Math.abs(x);
+    switch (this) {
+      case BILINEAR:
+        return Math.max(0, 1 - distance);
+      case LANCZOS:
+        return distance < support ? sinc(distance) * sinc(distance / support) : 0;
+      default:
+        return distance <= 0.5 ? 1 : 0;
+    }
+  }
+
+  private static double sinc(double x) {
+    if (x == 0) {
+      return 1;
+    }
+    double angle = Math.PI * x;
+    return Math.sin(angle) / angle;
+  }
+}
@@ -0,0 +1,270 @@
+package operations;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import model.Cancellation;
+import model.IImage;
+
+/**
+ * Class implements IOperation interface.
+ * It resizes an image to a new width and height with a choice of filter.
+ * The weights every result column and row take from the source are computed once per axis
+ * into tables, and the image is resampled along the rows and then along the columns.
+ * Bands of result rows are resampled in parallel, each resampling only the source rows it needs.
+ * Large reductions first average blocks of whole pixels with integer sums, which is cheap,
+ * and leave the filter a reduction of less than PRESHRINK_RATIO to do.
+ */
+public class ResizeOperation implements IOperation {
+  /**
+   * Reductions of at least this ratio along an axis are pre-shrunk with a box average.
+   */
+  public static final int PRESHRINK_RATIO = 4;
+  // result rows per band, the source rows of a band are kept resampled along the row
+  private static final int BAND_ROWS = 32;
+  // images smaller than this are resized on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private final int width;
+  private final int height;
+  private final ResizeFilter filter;
+
+  /**
+   * Constructor takes in the size of the result and the filter.
+   *
+   * @param width  the width of the result.
+   * @param height the height of the result.
+   * @param filter how the source pixels are blended.
+   * @throws IllegalArgumentException if a dimension is not positive or filter is null.
+   */
+  public ResizeOperation(int width, int height, ResizeFilter filter) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be non-zero and positive");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("Filter cannot be null");
+    }
+    this.width = width;
+    this.height = height;
+    this.filter = filter;
+  }
+
+  /**
+   * Resize the image.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    IImage source = image;
+    if (filter != ResizeFilter.NEAREST) {
+      int factorX = Math.max(1, image.getWidth() / width / (PRESHRINK_RATIO / 2));
+      int factorY = Math.max(1, image.getHeight() / height / (PRESHRINK_RATIO / 2));
+      if (factorX > 1 || factorY > 1) {
+        source = shrink(image, factorX, factorY);
+      }
+    }
+    return resample(source);
+  }
+
+  /**
+   * Helper function to average blocks of whole pixels with integer sums.
+   * Blocks at the right and bottom edges may be smaller.
+   *
+   * @param image   the image to shrink.
+   * @param factorX the block width.
+   * @param factorY the block height.
+   * @return the shrunk image.
+   */
+  private static IImage shrink(IImage image, int factorX, int factorY) {
+    int sourceWidth = image.getWidth();
+    int sourceHeight = image.getHeight();
+    int resultWidth = (sourceWidth + factorX - 1) / factorX;
+    int resultHeight = (sourceHeight + factorY - 1) / factorY;
+    IImage result = image.createBlank(resultWidth, resultHeight, image.getMaxValue());
+
+    Thread owner = Thread.currentThread();
+    indices(resultHeight, (long) sourceWidth * sourceHeight).forEach(y -> {
+      Cancellation.check(owner);
+      int[] row = new int[sourceWidth * 3];
+      long[] sums = new long[resultWidth * 3];
+      int startY = y * factorY;
+      int endY = Math.min(sourceHeight, startY + factorY);
+      for (int sourceY = startY; sourceY < endY; sourceY++) {
+        image.getRow(sourceY, row);
+        for (int x = 0; x < sourceWidth; x++) {
+          int i = x / factorX * 3;
+          sums[i] += row[x * 3];
+          sums[i + 1] += row[x * 3 + 1];
+          sums[i + 2] += row[x * 3 + 2];
+        }
+      }
+      int[] out = new int[resultWidth * 3];
+      for (int x = 0; x < resultWidth; x++) {
+        long count = (long) (Math.min(sourceWidth, (x + 1) * factorX) - x * factorX)
+                * (endY - startY);
+        for (int c = 0; c < 3; c++) {
+          out[x * 3 + c] = (int) ((sums[x * 3 + c] + count / 2) / count);
+        }
+      }
+      result.setRow(y, out);
+    });
+    return result;
+  }
+
+  /**
+   * Helper function to resample an image with the weight tables of the filter.
+   *
+   * @param image the image to resample.
+   * @return the resampled image.
+   */
+  private IImage resample(IImage image) {
+    int sourceWidth = image.getWidth();
+    int maxValue = image.getMaxValue();
+    WeightTable columns = new WeightTable(sourceWidth, width, filter);
+    WeightTable rows = new WeightTable(image.getHeight(), height, filter);
+    IImage result = image.createBlank(width, height, maxValue);
+
+    int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+    Thread owner = Thread.currentThread();
+    indices(bands, (long) width * height).forEach(band -> {
+      Cancellation.check(owner);
+      int startY = band * BAND_ROWS;
+      int endY = Math.min(height, startY + BAND_ROWS);
+      int firstRow = rows.start[startY];
+      int lastRow = firstRow;
+      for (int y = startY; y < endY; y++) {
+        lastRow = Math.max(lastRow, rows.start[y] + rows.count[y]);
+      }
+
+      // resample the source rows of the band along the row
+      int[] row = new int[sourceWidth * 3];
+      float[][] resampled = new float[lastRow - firstRow][width * 3];
+      for (int sourceY = firstRow; sourceY < lastRow; sourceY++) {
+        image.getRow(sourceY, row);
+        float[] line = resampled[sourceY - firstRow];
+        for (int x = 0; x < width; x++) {
+          int w = x * columns.stride;
+          int i = columns.start[x] * 3;
+          float r = 0;
+          float g = 0;
+          float b = 0;
+          for (int k = 0; k < columns.count[x]; k++) {
+            float weight = columns.weights[w + k];
+            r += weight * row[i];
+            g += weight * row[i + 1];
+            b += weight * row[i + 2];
+            i += 3;
+          }
+          line[x * 3] = r;
+          line[x * 3 + 1] = g;
+          line[x * 3 + 2] = b;
+        }
+      }
+
+      // then along the columns
+      int[] out = new int[width * 3];
+      float[] sums = new float[width * 3];
+      for (int y = startY; y < endY; y++) {
+        Arrays.fill(sums, 0);
+        int w = y * rows.stride;
+        for (int k = 0; k < rows.count[y]; k++) {
+          float weight = rows.weights[w + k];
+          float[] line = resampled[rows.start[y] + k - firstRow];
+          for (int i = 0; i < sums.length; i++) {
+            sums[i] += weight * line[i];
+          }
+        }
+        for (int i = 0; i < out.length; i++) {
+          out[i] = Math.max(0, Math.min(maxValue, Math.round(sums[i])));
+        }
+        result.setRow(y, out);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Helper function to get the indices of work items, in parallel for large images.
+   *
+   * @param count  the number of work items.
+   * @param pixels the number of pixels the work covers.
+   * @return the stream of indices.
+   */
+  private static IntStream indices(int count, long pixels) {
+    IntStream indices = IntStream.range(0, count);
+    if (pixels >= PARALLEL_THRESHOLD && count > 1
+            && ForkJoinPool.getCommonPoolParallelism() > 1) {
+      indices = indices.parallel();
+    }
+    return indices;
+  }
+
+  /**
+   * The source pixels every result pixel along one axis is made of, and their weights.
+   * Result pixel i takes count[i] source pixels from start[i], with the weights at
+   * weights[i * stride] onwards, which add up to 1.
+   */
+  private static final class WeightTable {
+    private final int[] start;
+    private final int[] count;
+    private final float[] weights;
+    private final int stride;
+
+    private WeightTable(int sourceSize, int resultSize, ResizeFilter filter) {
+      double scale = (double) sourceSize / resultSize;
+      // shrinking widens the filter so it covers every source pixel
+      double filterScale = Math.max(scale, 1);
+      double support = filter == ResizeFilter.AREA ? Math.max(scale, 1) / 2 + 1
+              : filter.getSupport() * filterScale;
+      this.stride = Math.min(sourceSize, (int) Math.ceil(support) * 2 + 1);
+      this.start = new int[resultSize];
+      this.count = new int[resultSize];
+      this.weights = new float[resultSize * stride];
+
+      double[] row = new double[stride];
+      for (int i = 0; i < resultSize; i++) {
+        double center = (i + 0.5) * scale;
+        int first;
+        int last;
+        if (filter == ResizeFilter.NEAREST) {
+          first = Math.min(sourceSize - 1, (int) center);
+          last = first + 1;
+          row[0] = 1;
+        } else if (filter == ResizeFilter.AREA) {
+          double left = i * scale;
+          double right = (i + 1) * scale;
+          first = Math.min(sourceSize - 1, (int) Math.floor(left));
+          last = Math.min(sourceSize, Math.max(first + 1, (int) Math.ceil(right)));
+          for (int j = first; j < last; j++) {
+            row[j - first] = Math.max(0, Math.min(j + 1, right) - Math.max(j, left));
+          }
+        } else {
+          first = Math.max(0, (int) Math.floor(center - support + 0.5));
+          last = Math.min(sourceSize, (int) Math.floor(center + support + 0.5));
+          last = Math.max(last, first + 1);
+          for (int j = first; j < last; j++) {
+            row[j - first] = filter.weight((j + 0.5 - center) / filterScale);
+          }
+        }
+        last = Math.min(last, first + stride);
+
+        double total = 0;
+        for (int j = 0; j < last - first; j++) {
+          total += row[j];
+        }
+        start[i] = first;
+        count[i] = last - first;
+        for (int j = 0; j < last - first; j++) {
+          weights[i * stride + j] = (float) (total != 0 ? row[j] / total : 1.0 / (last - first));
+        }
+      }
+    }
+  }
+}
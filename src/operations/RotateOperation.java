@@ -0,0 +1,43 @@
+package operations;
+
+import model.IImage;
+import model.ImageView;
+
+/**
+ * Class implements IOperation interface.
+ * It rotates an image clockwise by 90, 180 or 270 degrees into a new image.
+ * The pixels are copied in parallel bands, and quarter turns gather them in cache-sized
+ * blocks, see ImageView.materialize(). Use ImageView.rotate() instead for a view that copies
+ * nothing.
+ */
+public class RotateOperation implements IOperation {
+  private final int degrees;
+
+  /**
+   * Constructor takes in the angle to rotate by.
+   *
+   * @param degrees the clockwise angle, 90, 180 or 270.
+   * @throws IllegalArgumentException if the angle is not 90, 180 or 270.
+   */
+  public RotateOperation(int degrees) {
+    if (degrees != 90 && degrees != 180 && degrees != 270) {
+      throw new IllegalArgumentException("Rotation must be 90, 180 or 270 degrees");
+    }
+    this.degrees = degrees;
+  }
+
+  /**
+   * Rotate the image.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    return ImageView.rotate(image, degrees).materialize();
+  }
+}
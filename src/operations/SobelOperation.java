@@ -0,0 +1,61 @@
+package operations;
+
+import model.IImage;
+
+/**
+ * Class implements IOperation interface.
+ * It detects edges with the Sobel operator: every r,g,b value becomes the magnitude of the
+ * gradient of its channel, from the horizontal and vertical Sobel kernels, clamped to the max
+ * value. Both kernels are applied to the same tiles, so the image is read once.
+ */
+public class SobelOperation implements IOperation {
+  private static final Kernel HORIZONTAL = Kernel.sobelX();
+  private static final Kernel VERTICAL = Kernel.sobelY();
+
+  private final BorderMode border;
+
+  /**
+   * Constructor for the operation, pixels outside of the image repeat the edge.
+   */
+  public SobelOperation() {
+    this(BorderMode.CLAMP);
+  }
+
+  /**
+   * Constructor takes in how pixels outside of the image are read.
+   *
+   * @param border how pixels outside of the image are read.
+   * @throws IllegalArgumentException if border is null.
+   */
+  public SobelOperation(BorderMode border) {
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode cannot be null");
+    }
+    this.border = border;
+  }
+
+  /**
+   * Replace every r,g,b value of the image with the gradient magnitude of its channel.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    int maxValue = image.getMaxValue();
+    IImage result = image.createBlank(image.getWidth(), image.getHeight(), maxValue);
+    ConvolutionEngine.run(image, result, 1, 1, border, (tile, out) -> {
+      int[] gx = ConvolutionEngine.convolve(tile, HORIZONTAL, maxValue);
+      int[] gy = ConvolutionEngine.convolve(tile, VERTICAL, maxValue);
+      for (int i = 0; i < out.length; i++) {
+        double magnitude = Math.sqrt((double) gx[i] * gx[i] + (double) gy[i] * gy[i]);
+        out[i] = (int) Math.min(maxValue, Math.round(magnitude));
+      }
+    });
+    return result;
+  }
+}
@@ -0,0 +1,154 @@
+package operations;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import model.IImage;
+
+/**
+ * A summed-area table (integral image) of the red, green and blue channels of a band of rows
+ * of an image. Entry (x, y) holds the sum of every value above and to the left of it, so the
+ * sum or mean of any rectangle is found from four entries in constant time, whatever its size.
+ * Sums are kept in longs and the constructor refuses images whose total could overflow them.
+ */
+public final class SummedAreaTable {
+  // images smaller than this are summed on the calling thread, forking would cost more
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private final int width;
+  private final int startY;
+  private final int endY;
+  private final long[][] table; // row y - startY: (width + 1) * 3 sums, first row all zero
+
+  /**
+   * Constructor builds the table of the whole image.
+   *
+   * @param image the image to sum.
+   * @throws IllegalArgumentException if image is null or its sum could overflow a long.
+   */
+  public SummedAreaTable(IImage image) {
+    this(image, 0, image == null ? 0 : image.getHeight());
+  }
+
+  /**
+   * Constructor builds the table of a band of rows of an image. Only rectangles within the
+   * band can be summed, but the table takes memory for the band alone.
+   *
+   * @param image  the image to sum.
+   * @param startY the first row of the band.
+   * @param endY   the row after the last row of the band.
+   * @throws IllegalArgumentException if image is null, the band is empty or out of range,
+   *                                  or its sum could overflow a long.
+   */
+  public SummedAreaTable(IImage image, int startY, int endY) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    if (startY < 0 || endY > image.getHeight() || startY >= endY) {
+      throw new IllegalArgumentException("Rows out of range");
+    }
+    int width = image.getWidth();
+    if ((long) (width + 1) * 3 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too wide for a summed-area table");
+    }
+    try {
+      Math.multiplyExact(Math.multiplyExact((long) image.getMaxValue(), width),
+              (long) (endY - startY));
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Image is too large for a summed-area table");
+    }
+    this.width = width;
+    this.startY = startY;
+    this.endY = endY;
+    this.table = build(image, startY, endY);
+  }
+
+  /**
+   * Helper function to build the table: prefix sums along every row in parallel, then
+   * along every column in parallel strips of columns.
+   */
+  private static long[][] build(IImage image, int startY, int endY) {
+    int width = image.getWidth();
+    int rows = endY - startY;
+    int length = (width + 1) * 3;
+    long[][] table = new long[rows + 1][];
+    table[0] = new long[length];
+    boolean parallel = (long) width * rows >= PARALLEL_THRESHOLD;
+
+    IntStream rowIndices = IntStream.range(0, rows);
+    if (parallel) {
+      rowIndices = rowIndices.parallel();
+    }
+    rowIndices.forEach(y -> {
+      int[] row = new int[width * 3];
+      image.getRow(startY + y, row);
+      long[] sums = new long[length];
+      for (int i = 0; i < row.length; i++) {
+        sums[i + 3] = sums[i] + row[i];
+      }
+      table[y + 1] = sums;
+    });
+
+    int strips = parallel ? Math.min(length, ForkJoinPool.getCommonPoolParallelism() * 4) : 1;
+    IntStream stripIndices = IntStream.range(0, strips);
+    if (strips > 1) {
+      stripIndices = stripIndices.parallel();
+    }
+    stripIndices.forEach(strip -> {
+      int start = (int) ((long) length * strip / strips);
+      int end = (int) ((long) length * (strip + 1) / strips);
+      for (int y = 1; y <= rows; y++) {
+        long[] above = table[y - 1];
+        long[] current = table[y];
+        for (int i = start; i < end; i++) {
+          current[i] += above[i];
+        }
+      }
+    });
+    return table;
+  }
+
+  /**
+   * Get the sum of one channel over a rectangle.
+   *
+   * @param channel the channel, 0 for red, 1 for green and 2 for blue.
+   * @param x0      the left column of the rectangle.
+   * @param y0      the top row of the rectangle.
+   * @param x1      the column after the right edge of the rectangle.
+   * @param y1      the row after the bottom edge of the rectangle.
+   * @return the sum of the channel over the rectangle, 0 if it is empty.
+   * @throws IllegalArgumentException if the channel is not 0 to 2 or the rectangle is not
+   *                                  within the rows of the table.
+   */
+  public long sum(int channel, int x0, int y0, int x1, int y1) {
+    if (channel < 0 || channel > 2) {
+      throw new IllegalArgumentException("Channel must be 0, 1 or 2");
+    }
+    if (x0 < 0 || x1 > width || x0 > x1 || y0 < startY || y1 > endY || y0 > y1) {
+      throw new IllegalArgumentException("Rectangle out of range");
+    }
+    long[] top = table[y0 - startY];
+    long[] bottom = table[y1 - startY];
+    return bottom[x1 * 3 + channel] - bottom[x0 * 3 + channel]
+            - top[x1 * 3 + channel] + top[x0 * 3 + channel];
+  }
+
+  /**
+   * Get the mean of one channel over a rectangle.
+   *
+   * @param channel the channel, 0 for red, 1 for green and 2 for blue.
+   * @param x0      the left column of the rectangle.
+   * @param y0      the top row of the rectangle.
+   * @param x1      the column after the right edge of the rectangle.
+   * @param y1      the row after the bottom edge of the rectangle.
+   * @return the mean of the channel over the rectangle.
+   * @throws IllegalArgumentException if the channel is not 0 to 2 or the rectangle is empty
+   *                                  or not within the rows of the table.
+   */
+  public double mean(int channel, int x0, int y0, int x1, int y1) {
+    if (x0 >= x1 || y0 >= y1) {
+      throw new IllegalArgumentException("Rectangle is empty");
+    }
+    return (double) sum(channel, x0, y0, x1, y1) / ((long) (x1 - x0) * (y1 - y0));
+  }
+}
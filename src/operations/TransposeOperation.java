@@ -0,0 +1,27 @@
+package operations;
+
+import model.IImage;
+import model.ImageView;
+
+/**
+ * Class implements IOperation interface.
+ * It mirrors an image along its main diagonal into a new image, rows become columns.
+ * The pixels are gathered in cache-sized blocks in parallel bands, see
+ * ImageView.materialize(). Use ImageView.transpose() instead for a view that copies nothing.
+ */
+public class TransposeOperation implements IOperation {
+  /**
+   * Transpose the image.
+   *
+   * @param image object of type IImage.
+   * @return a new object of type IImage after the changes are applied.
+   * @throws IllegalArgumentException if image object is null.
+   */
+  @Override
+  public IImage apply(IImage image) {
+    if (image == null) {
+      throw new IllegalArgumentException("Image object cannot be null");
+    }
+    return ImageView.transpose(image).materialize();
+  }
+}
@@ -1,18 +1,66 @@
 package view;
 
 import java.awt.Color;
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import model.IImage;
+import model.IImagePyramid;
 
 /**
- * Custom drawing panel for displaying scrollable images.
+ * Custom drawing panel for displaying scrollable images with zoom and pan.
+ * Only the tiles that intersect the visible area are converted and drawn, from the smallest
+ * pyramid level that still has as many pixels as are shown, and converted tiles are kept in an
+ * LRU cache. Opening a huge image converts the few tiles on screen rather than the whole image.
+ * When zoomed out the tiles are also kept scaled to the screen, so repainting only copies them.
+ * Levels that do not exist yet are created in the background while a message is shown.
+ * Drag the image to pan, hold control and turn the mouse wheel to zoom around the pointer.
+ * A brightness preview can be laid over the image: the visible tiles are passed through a
+ * lookup table when they are drawn, which costs about as much as the screen has pixels,
+ * however large the image is.
+ * The "zoom" property changes whenever the zoom does.
  */
 class DrawingPanel extends JPanel {
-  private BufferedImage image;
+  // zoom limits, and the factor one step of the zoom buttons or mouse wheel changes zoom by
+  static final double MIN_ZOOM = 1.0 / 256;
+  static final double MAX_ZOOM = 16;
+  static final double ZOOM_STEP = Math.sqrt(2);
+  // 256 tiles of 256x256 pixels keep about 64 MB of converted pixels
+  private static final int CACHED_TILES = 256;
+
+  private final TileCache tiles;
+  private IImagePyramid pyramid;
+  private int fullWidth;
+  private int fullHeight;
+  private double zoom;
+  private Point dragStart;
+  private SwingWorker<Void, Void> levelBuilder; // creates a missing pyramid level, or null
+  private IImagePyramid failedPyramid; // a level of it could not be created, not tried again
+  private int previewBrightness; // 0 when there is no preview
+  private int[] previewTable; // 8 bit lookup table of the preview, or null
+  private final Map<Long, PreviewTile> previewTiles;
+  private final int[] previewSource; // pixels of the tile being previewed
+  private final Map<Long, PreviewTile> screenTiles; // tiles scaled to the current zoom
 
   /**
    * Constructor for the drawing panel.
@@ -21,22 +69,77 @@ class DrawingPanel extends JPanel {
     super();
     setBackground(Color.WHITE);
     setPreferredSize(new Dimension(800, 800));
+    this.tiles = new TileCache(CACHED_TILES);
+    this.previewTiles = new HashMap<>();
+    this.previewSource = new int[TileCache.TILE_SIZE * TileCache.TILE_SIZE];
+    this.screenTiles = new HashMap<>();
+    this.zoom = 1;
+
+    MouseAdapter mouse = new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        dragStart = e.getLocationOnScreen();
+        setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
+      }
+
+      @Override
+      public void mouseDragged(MouseEvent e) {
+        Point location = e.getLocationOnScreen();
+        if (dragStart != null) {
+          pan(dragStart.x - location.x, dragStart.y - location.y);
+        }
+        dragStart = location;
+      }
+
+      @Override
+      public void mouseReleased(MouseEvent e) {
+        dragStart = null;
+        setCursor(Cursor.getDefaultCursor());
+      }
+
+      @Override
+      public void mouseWheelMoved(MouseWheelEvent e) {
+        if (e.isControlDown() && pyramid != null) {
+          setZoom(zoom * Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getPoint());
+          return;
+        }
+        // scroll as usual, the scroll pane only sees wheel events nobody else listens to
+        JScrollPane scrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(
+                JScrollPane.class, DrawingPanel.this);
+        if (scrollPane != null) {
+          scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(
+                  DrawingPanel.this, e, scrollPane));
+        }
+      }
+    };
+    addMouseListener(mouse);
+    addMouseMotionListener(mouse);
+    addMouseWheelListener(mouse);
   }
 
   /**
-   * Draw an image on this panel.
+   * Draw an image on this panel at the current zoom, from the levels of its pyramid.
    *
-   * @param image the BufferedImage to draw.
-   * @throws IllegalArgumentException if image is null.
+   * @param pyramid the pyramid of the image to draw.
+   * @throws IllegalArgumentException if pyramid is null.
    */
-  public void drawImage(BufferedImage image) {
-    if (image == null) {
+  public void drawImage(IImagePyramid pyramid) {
+    if (pyramid == null) {
       throw new IllegalArgumentException("Image cannot be null.");
     }
-    this.image = image;
+    if (pyramid != this.pyramid) {
+      // a preview and the screen tiles belong to the image they were made for
+      setPreviewBrightness(0);
+      screenTiles.clear();
+    }
+    this.pyramid = pyramid;
+    // the size is known without decoding, the image itself may still be decoded by buildLevel
+    this.fullWidth = pyramid.getWidth();
+    this.fullHeight = pyramid.getHeight();
+    tiles.setPyramid(pyramid);
 
-    // Update panel size to match image size for proper scrolling
-    setPreferredSize(new Dimension(image.getWidth(), image.getHeight()));
+    // Update panel size to match the drawn size for proper scrolling
+    setPreferredSize(new Dimension(getDrawnWidth(), getDrawnHeight()));
 
     // Call the paintComponent method to draw the image on screen
     revalidate();
@@ -47,12 +150,103 @@ class DrawingPanel extends JPanel {
    * Clear the current image.
    */
   public void clearImage() {
-    this.image = null;
+    setPreviewBrightness(0);
+    screenTiles.clear();
+    this.pyramid = null;
+    tiles.setPyramid(null);
     setPreferredSize(new Dimension(800, 800));
     revalidate();
     repaint();
   }
 
+  /**
+   * Preview the image brightened by an amount, without changing it.
+   * The amount is in the units of the image, e.g. 0 to 255 for an 8 bit image.
+   *
+   * @param amount the amount to brighten by, negative to darken, 0 to end the preview.
+   */
+  public void setPreviewBrightness(int amount) {
+    if (amount == previewBrightness) {
+      return;
+    }
+    previewBrightness = amount;
+    if (amount == 0 || pyramid == null) {
+      previewTable = null;
+      previewTiles.clear();
+    } else {
+      // the tiles are 8 bit, move them by the amount scaled to 8 bits
+      double shift = amount * 255.0 / pyramid.getMaxValue();
+      previewTable = new int[256];
+      for (int i = 0; i < 256; i++) {
+        previewTable[i] = (int) Math.max(0, Math.min(255, Math.round(i + shift)));
+      }
+    }
+    repaint();
+  }
+
+  /**
+   * Get the zoom the image is drawn at.
+   *
+   * @return the drawn size over the size of the image.
+   */
+  public double getZoom() {
+    return zoom;
+  }
+
+  /**
+   * Change the zoom, keeping the point of the image under an anchor where it is on screen.
+   * The zoom is limited to MIN_ZOOM and MAX_ZOOM, and zooms close to a power of two snap
+   * to it so a pyramid level is drawn without scaling.
+   *
+   * @param newZoom the new zoom.
+   * @param anchor  the point on this panel to zoom around, or null for the center of the
+   *                visible area.
+   */
+  public void setZoom(double newZoom, Point anchor) {
+    double limited = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+    double power = Math.scalb(1.0, Math.getExponent(limited));
+    if (Math.abs(limited - power) < power * 1e-6) {
+      limited = power;
+    }
+    if (limited == zoom) {
+      return;
+    }
+
+    Rectangle visible = getVisibleRect();
+    Point center = anchor != null ? anchor
+            : new Point(visible.x + visible.width / 2, visible.y + visible.height / 2);
+    double imageX = center.x / zoom;
+    double imageY = center.y / zoom;
+    double oldZoom = zoom;
+    zoom = limited;
+    screenTiles.clear();
+    setPreferredSize(new Dimension(getDrawnWidth(), getDrawnHeight()));
+
+    JViewport viewport = getViewport();
+    if (viewport != null) {
+      viewport.setViewSize(getPreferredSize());
+      scrollTo((int) Math.round(imageX * zoom) - (center.x - visible.x),
+              (int) Math.round(imageY * zoom) - (center.y - visible.y));
+    }
+    revalidate();
+    repaint();
+    firePropertyChange("zoom", oldZoom, zoom);
+  }
+
+  /**
+   * Get the zoom that fits the full image into a visible area, never more than 1.
+   *
+   * @param width  the width of the visible area.
+   * @param height the height of the visible area.
+   * @return the zoom that fits, or 1 if no image is drawn.
+   */
+  public double getFitZoom(int width, int height) {
+    if (pyramid == null || width <= 0 || height <= 0) {
+      return 1;
+    }
+    return Math.min(1, Math.min((double) width / fullWidth, (double) height / fullHeight));
+  }
+
   /**
    * Paint Component display the image on screen.
    * It overrides the JFrame implementation of paintComponent
@@ -64,16 +258,232 @@ class DrawingPanel extends JPanel {
   protected void paintComponent(Graphics g) {
     super.paintComponent(g);
 
-    if (this.image != null) {
-      g.drawImage(this.image, 0, 0, this);
-    } else {
+    if (this.pyramid == null) {
       // Draw placeholder text when no image is loaded
-      g.setColor(Color.GRAY);
-      FontMetrics fm = g.getFontMetrics();
-      String message = "No image loaded";
-      int x = (getWidth() - fm.stringWidth(message)) / 2;
-      int y = getHeight() / 2;
-      g.drawString(message, x, y);
+      paintMessage(g, "No image loaded");
+    } else if (pyramid == failedPyramid) {
+      paintMessage(g, "Preview unavailable");
+    } else if (!pyramid.hasLevel(pyramid.getLevelForScale(zoom))) {
+      buildLevel(pyramid, pyramid.getLevelForScale(zoom));
+      paintMessage(g, "Preparing preview...");
+    } else {
+      paintTiles((Graphics2D) g);
+    }
+  }
+
+  /**
+   * Helper function to draw a message in the middle of the visible area.
+   *
+   * @param g       the graphics to draw with.
+   * @param message the message to draw.
+   */
+  private void paintMessage(Graphics g, String message) {
+    Rectangle visible = getVisibleRect();
+    g.setColor(Color.GRAY);
+    FontMetrics fm = g.getFontMetrics();
+    int x = visible.x + (visible.width - fm.stringWidth(message)) / 2;
+    int y = visible.y + visible.height / 2;
+    g.drawString(message, x, y);
+  }
+
+  /**
+   * Helper function to create a pyramid level off the event dispatch thread and repaint once
+   * it exists. Only one level is created at a time.
+   *
+   * @param target the pyramid to create the level of.
+   * @param level  the level to create.
+   */
+  private void buildLevel(IImagePyramid target, int level) {
+    if (levelBuilder != null) {
+      return;
+    }
+    levelBuilder = new SwingWorker<>() {
+      @Override
+      protected Void doInBackground() {
+        target.getLevel(level);
+        return null;
+      }
+
+      @Override
+      protected void done() {
+        levelBuilder = null;
+        try {
+          get();
+        } catch (InterruptedException | ExecutionException e) {
+          failedPyramid = target;
+        }
+        repaint();
+      }
+    };
+    levelBuilder.execute();
+  }
+
+  /**
+   * Helper function to draw the tiles of the pyramid level that suits the zoom which
+   * intersect the area being painted.
+   *
+   * @param g the graphics to draw with.
+   */
+  private void paintTiles(Graphics2D g) {
+    int level = pyramid.getLevelForScale(zoom);
+    IImage image = pyramid.getLevel(level);
+    double scaleX = (double) getDrawnWidth() / image.getWidth();
+    double scaleY = (double) getDrawnHeight() / image.getHeight();
+    // smooth when shrinking the level, show whole pixels when zoomed in past 1:1
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, scaleX < 1
+            ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+            : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(0, 0, getDrawnWidth(), getDrawnHeight());
+    }
+    double tileWidth = TileCache.TILE_SIZE * scaleX;
+    double tileHeight = TileCache.TILE_SIZE * scaleY;
+    int columns = (image.getWidth() + TileCache.TILE_SIZE - 1) / TileCache.TILE_SIZE;
+    int rows = (image.getHeight() + TileCache.TILE_SIZE - 1) / TileCache.TILE_SIZE;
+    int firstColumn = Math.max(0, (int) (clip.x / tileWidth));
+    int lastColumn = Math.min(columns - 1, (int) ((clip.x + clip.width) / tileWidth));
+    int firstRow = Math.max(0, (int) (clip.y / tileHeight));
+    int lastRow = Math.min(rows - 1, (int) ((clip.y + clip.height) / tileHeight));
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        long key = TileCache.key(level, column, row);
+        BufferedImage tile = tiles.getTile(level, column, row);
+        int x = column * TileCache.TILE_SIZE;
+        int y = row * TileCache.TILE_SIZE;
+        // both edges are rounded the same way, so neighbouring tiles meet without gaps
+        int left = (int) Math.round(x * scaleX);
+        int top = (int) Math.round(y * scaleY);
+        int right = (int) Math.round((x + tile.getWidth()) * scaleX);
+        int bottom = (int) Math.round((y + tile.getHeight()) * scaleY);
+        if (scaleX < 1 && right > left && bottom > top) {
+          tile = screenTile(key, tile, right - left, bottom - top);
+        }
+        if (previewTable != null) {
+          tile = previewTile(key, tile);
+        }
+        g.drawImage(tile, left, top, right, bottom, 0, 0, tile.getWidth(), tile.getHeight(), null);
+      }
+    }
+  }
+
+  /**
+   * Helper function to get a tile scaled to the size it is drawn at, scaling it only the first
+   * time it is drawn at the current zoom.
+   *
+   * @param key    the key of the tile.
+   * @param tile   the converted tile.
+   * @param width  the drawn width.
+   * @param height the drawn height.
+   * @return the scaled tile.
+   */
+  private BufferedImage screenTile(long key, BufferedImage tile, int width, int height) {
+    PreviewTile scaled = screenTiles.get(key);
+    if (scaled == null || scaled.source != tile) {
+      if (screenTiles.size() >= CACHED_TILES) {
+        screenTiles.clear();
+      }
+      scaled = new PreviewTile(tile, width, height);
+      Graphics2D g = scaled.image.createGraphics();
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+              RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.drawImage(tile, 0, 0, width, height, null);
+      g.dispose();
+      screenTiles.put(key, scaled);
+    }
+    return scaled.image;
+  }
+
+  /**
+   * Helper function to get a tile with the brightness preview applied.
+   * The buffers of the tiles are reused from one change of the preview to the next,
+   * and a tile is only passed through the lookup table again when the preview changes.
+   *
+   * @param key  the key of the tile.
+   * @param tile the converted tile.
+   * @return the tile with the preview applied.
+   */
+  private BufferedImage previewTile(long key, BufferedImage tile) {
+    PreviewTile preview = previewTiles.get(key);
+    if (preview == null || preview.source != tile) {
+      if (previewTiles.size() >= CACHED_TILES) {
+        previewTiles.clear();
+      }
+      preview = new PreviewTile(tile, tile.getWidth(), tile.getHeight());
+      previewTiles.put(key, preview);
+    }
+    if (preview.amount != previewBrightness) {
+      // the tile may be a view of a larger buffer, copy its pixels out row by row
+      int[] source = (int[]) tile.getRaster().getDataElements(
+              0, 0, tile.getWidth(), tile.getHeight(), previewSource);
+      int[] target = ((DataBufferInt) preview.image.getRaster().getDataBuffer()).getData();
+      int[] table = previewTable;
+      for (int i = 0; i < target.length; i++) {
+        int rgb = source[i];
+        target[i] = (table[(rgb >> 16) & 0xFF] << 16) | (table[(rgb >> 8) & 0xFF] << 8)
+                | table[rgb & 0xFF];
+      }
+      preview.amount = previewBrightness;
+    }
+    return preview.image;
+  }
+
+  /**
+   * Helper function to move the visible area by a number of pixels.
+   *
+   * @param dx the pixels to move right.
+   * @param dy the pixels to move down.
+   */
+  private void pan(int dx, int dy) {
+    JViewport viewport = getViewport();
+    if (viewport != null) {
+      Point position = viewport.getViewPosition();
+      scrollTo(position.x + dx, position.y + dy);
+    }
+  }
+
+  /**
+   * Helper function to move the top left corner of the visible area,
+   * kept within the panel.
+   *
+   * @param x the new left edge.
+   * @param y the new top edge.
+   */
+  private void scrollTo(int x, int y) {
+    JViewport viewport = getViewport();
+    Dimension extent = viewport.getExtentSize();
+    Dimension size = viewport.getViewSize();
+    viewport.setViewPosition(new Point(
+            Math.max(0, Math.min(x, size.width - extent.width)),
+            Math.max(0, Math.min(y, size.height - extent.height))));
+  }
+
+  private JViewport getViewport() {
+    return getParent() instanceof JViewport ? (JViewport) getParent() : null;
+  }
+
+  private int getDrawnWidth() {
+    return (int) Math.max(1, Math.round(fullWidth * zoom));
+  }
+
+  private int getDrawnHeight() {
+    return (int) Math.max(1, Math.round(fullHeight * zoom));
+  }
+
+  /**
+   * A tile made from a converted tile, scaled to the screen or with the brightness preview
+   * applied, and the preview amount it was made with.
+   */
+  private static final class PreviewTile {
+    private final BufferedImage source;
+    private final BufferedImage image;
+    private int amount;
+
+    private PreviewTile(BufferedImage source, int width, int height) {
+      this.source = source;
+      this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
     }
   }
-}
\ No newline at end of file
+}
@@ -7,30 +7,41 @@ import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
 import javax.swing.DefaultListModel;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
 import javax.swing.JSlider;
+import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
 import javax.swing.WindowConstants;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import model.IImage;
 import model.IImageHistogram;
+import model.IImagePyramid;
 
 /**
  * GUI view for the image processing application using Java Swing.
@@ -38,6 +49,16 @@ import model.IImageHistogram;
  * events to registered listeners.
  */
 public class GUIView extends JFrame implements ActionListener {
+  // the brightness is applied to the full image once the slider rests this long
+  private static final int BRIGHTNESS_APPLY_DELAY_MS = 400;
+  // thumbnails of the image list are fitted into a square of this many pixels
+  public static final int THUMBNAIL_SIZE = 48;
+  // the most thumbnails kept, about 9 KB each
+  private static final int CACHED_THUMBNAILS = 512;
+  // thumbnails are requested once scrolling rests this long
+  private static final int THUMBNAIL_REQUEST_DELAY_MS = 100;
+  // images on each side of the selected one that are prepared in the background
+  private static final int PREFETCHED_NEIGHBORS = 2;
 
   // Main display components
   private final DrawingPanel drawingPanel;
@@ -54,6 +75,8 @@ public class GUIView extends JFrame implements ActionListener {
   private final JLabel imagesLabel;
   private String imageName;
   private final DefaultListModel<String> listModel;
+  private final Map<String, Icon> thumbnails; // least recently used first
+  private final Timer thumbnailRequestTimer;
 
   // Control buttons
   private final JButton loadImageButton;
@@ -66,10 +89,27 @@ public class GUIView extends JFrame implements ActionListener {
   private final JButton valueComponentButton;
   private final JButton intensityComponentButton;
   private final JButton lumaComponentButton;
+  private final JButton allComponentsButton;
+  private final JButton equalizeButton;
+  private final JButton levelsButton;
+  private final JButton resizeButton;
+  private final JButton zoomInButton;
+  private final JButton zoomOutButton;
+  private final JButton zoomFitButton;
+  private final JButton zoomActualButton;
+  private final JLabel zoomLabel;
+
+  // Progress of operations running in the background
+  private final JPanel progressPanel;
+  private final JProgressBar progressBar;
+  private final JLabel progressLabel;
+  private final JButton cancelButton;
 
   // Input components
   private final JSlider brightnessSlider;
   private final JLabel brightnessLabel;
+  private final Timer brightnessApplyTimer;
+  private boolean resettingBrightness; // the slider is moved back to 0 by the program
 
   // View listeners
   private final List<ImageViewListener> viewListeners;
@@ -90,6 +130,15 @@ public class GUIView extends JFrame implements ActionListener {
     this.imageList = new JList<>(this.listModel);
     this.imageName = "";
     this.imagesLabel = new JLabel("Images");
+    this.thumbnails = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Icon> eldest) {
+        return size() > CACHED_THUMBNAILS;
+      }
+    };
+    this.thumbnailRequestTimer = new Timer(THUMBNAIL_REQUEST_DELAY_MS,
+            e -> requestThumbnails());
+    this.thumbnailRequestTimer.setRepeats(false);
 
     // Initialize buttons
     this.loadImageButton = new JButton("Load Image");
@@ -102,10 +151,25 @@ public class GUIView extends JFrame implements ActionListener {
     this.valueComponentButton = new JButton("Value Component");
     this.intensityComponentButton = new JButton("Intensity Component");
     this.lumaComponentButton = new JButton("Luma Component");
+    this.allComponentsButton = new JButton("All Components");
+    this.equalizeButton = new JButton("Equalize");
+    this.levelsButton = new JButton("Auto Levels");
+    this.resizeButton = new JButton("Resize");
+    this.zoomInButton = new JButton("+");
+    this.zoomOutButton = new JButton("-");
+    this.zoomFitButton = new JButton("Fit");
+    this.zoomActualButton = new JButton("1:1");
+    this.zoomLabel = new JLabel("100%");
+    this.progressBar = new JProgressBar();
+    this.progressLabel = new JLabel();
+    this.cancelButton = new JButton("Cancel");
+    this.progressPanel = createProgressPanel();
 
     // Initialize input components
     this.brightnessSlider = new JSlider(-100, 100, 0);
     this.brightnessLabel = new JLabel("Brightness: 0");
+    this.brightnessApplyTimer = new Timer(BRIGHTNESS_APPLY_DELAY_MS, e -> handleBrighten());
+    this.brightnessApplyTimer.setRepeats(false);
 
     // Create panels
     this.operationsPanel = createOperationsPanel();
@@ -127,7 +191,7 @@ public class GUIView extends JFrame implements ActionListener {
     setLayout(new BorderLayout());
 
     // Add components to frame
-    add(this.imageScrollPane, BorderLayout.CENTER);
+    add(createDisplayPanel(), BorderLayout.CENTER);
     add(this.eastPanel, BorderLayout.EAST);
     add(this.southPanel, BorderLayout.SOUTH);
   }
@@ -168,11 +232,59 @@ public class GUIView extends JFrame implements ActionListener {
     this.lumaComponentButton.addActionListener(this);
     this.lumaComponentButton.setActionCommand("lumaComponent");
 
-    // Brightness slider
+    this.allComponentsButton.addActionListener(this);
+    this.allComponentsButton.setActionCommand("allComponents");
+
+    this.equalizeButton.addActionListener(this);
+    this.equalizeButton.setActionCommand("equalize");
+
+    this.levelsButton.addActionListener(this);
+    this.levelsButton.setActionCommand("levels");
+
+    this.resizeButton.addActionListener(this);
+    this.resizeButton.setActionCommand("resize");
+
+    // Zoom
+    this.zoomInButton.addActionListener(this);
+    this.zoomInButton.setActionCommand("zoomIn");
+
+    this.zoomOutButton.addActionListener(this);
+    this.zoomOutButton.setActionCommand("zoomOut");
+
+    this.zoomFitButton.addActionListener(this);
+    this.zoomFitButton.setActionCommand("zoomFit");
+
+    this.zoomActualButton.addActionListener(this);
+    this.zoomActualButton.setActionCommand("zoomActual");
+
+    this.cancelButton.addActionListener(this);
+    this.cancelButton.setActionCommand("cancel");
+
+    // the panel also zooms with control and the mouse wheel, keep the label in step
+    this.drawingPanel.addPropertyChangeListener("zoom", e -> {
+      double zoom = drawingPanel.getZoom();
+      zoomLabel.setText(String.format(zoom < 0.1 ? "%.2f%%" : "%.0f%%", zoom * 100));
+    });
+
+    // Brightness slider, previewed on every tick and applied once it rests
     this.brightnessSlider.addChangeListener(e -> {
-      if (!brightnessSlider.getValueIsAdjusting()) {
-        int value = brightnessSlider.getValue();
-        brightnessLabel.setText("Brightness: " + value);
+      int value = brightnessSlider.getValue();
+      brightnessLabel.setText("Brightness: " + value);
+      if (resettingBrightness) {
+        return;
+      }
+      String selectedImageName = getSelectedImageName();
+      if (selectedImageName == null) {
+        return;
+      }
+      drawingPanel.setPreviewBrightness(value);
+      for (ImageViewListener listener : viewListeners) {
+        listener.onBrightnessPreview(selectedImageName, value);
+      }
+      if (brightnessSlider.getValueIsAdjusting()) {
+        brightnessApplyTimer.stop();
+      } else {
+        brightnessApplyTimer.restart();
       }
     });
 
@@ -180,11 +292,15 @@ public class GUIView extends JFrame implements ActionListener {
     imageList.addListSelectionListener(e -> {
       if (!e.getValueIsAdjusting()) { // Only handle final selection
         String selectedImageName = imageList.getSelectedValue();
+        // a brightness that was not applied yet belonged to the image selected before
+        brightnessApplyTimer.stop();
+        resetBrightnessSlider();
         if (selectedImageName != null) {
           // Notify listeners to display the selected image
           for (ImageViewListener listener : viewListeners) {
             listener.displaySelectedImage(selectedImageName);
           }
+          prefetchNeighbors(imageList.getSelectedIndex());
         }
       }
     });
@@ -224,7 +340,7 @@ public class GUIView extends JFrame implements ActionListener {
 
     // Grayscale operations
     JPanel grayscalePanel = new JPanel();
-    grayscalePanel.setLayout(new GridLayout(3, 2, 5, 5));
+    grayscalePanel.setLayout(new GridLayout(4, 2, 5, 5));
     grayscalePanel.setBorder(BorderFactory.createTitledBorder("Grayscale Operations"));
 
     grayscalePanel.add(redComponentButton);
@@ -233,9 +349,61 @@ public class GUIView extends JFrame implements ActionListener {
     grayscalePanel.add(valueComponentButton);
     grayscalePanel.add(intensityComponentButton);
     grayscalePanel.add(lumaComponentButton);
+    grayscalePanel.add(allComponentsButton);
 
     panel.add(grayscalePanel);
 
+    // Tone adjustments built from the histogram
+    JPanel adjustmentsPanel = new JPanel();
+    adjustmentsPanel.setLayout(new GridLayout(2, 1, 5, 5));
+    adjustmentsPanel.setBorder(BorderFactory.createTitledBorder("Adjustments"));
+
+    adjustmentsPanel.add(equalizeButton);
+    adjustmentsPanel.add(levelsButton);
+
+    panel.add(adjustmentsPanel);
+
+    // Size changes
+    JPanel transformPanel = new JPanel();
+    transformPanel.setLayout(new GridLayout(1, 1, 5, 5));
+    transformPanel.setBorder(BorderFactory.createTitledBorder("Transform"));
+
+    transformPanel.add(resizeButton);
+
+    panel.add(transformPanel);
+
+    return panel;
+  }
+
+  /**
+   * Create the display panel with the zoom controls above the scrollable image.
+   */
+  private JPanel createDisplayPanel() {
+    JPanel zoomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+    zoomPanel.add(new JLabel("Zoom:"));
+    zoomPanel.add(zoomOutButton);
+    zoomPanel.add(zoomInButton);
+    zoomPanel.add(zoomFitButton);
+    zoomPanel.add(zoomActualButton);
+    zoomPanel.add(zoomLabel);
+
+    JPanel panel = new JPanel(new BorderLayout());
+    panel.add(zoomPanel, BorderLayout.NORTH);
+    panel.add(this.imageScrollPane, BorderLayout.CENTER);
+    panel.add(this.progressPanel, BorderLayout.SOUTH);
+    return panel;
+  }
+
+  /**
+   * Create the progress panel shown while operations run in the background.
+   */
+  private JPanel createProgressPanel() {
+    JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+    progressBar.setIndeterminate(true);
+    panel.add(progressBar);
+    panel.add(progressLabel);
+    panel.add(cancelButton);
+    panel.setVisible(false);
     return panel;
   }
 
@@ -253,7 +421,29 @@ public class GUIView extends JFrame implements ActionListener {
 
     // Setup image list
     imageList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    imageList.setCellRenderer(new ThumbnailCellRenderer(thumbnails, THUMBNAIL_SIZE));
+    // with a fixed cell size the list never measures its rows, however many there are
+    imageList.setPrototypeCellValue("a fairly long image name");
+    imageList.setFixedCellHeight(THUMBNAIL_SIZE + 4);
     JScrollPane listScrollPane = new JScrollPane(imageList);
+    // ask for the thumbnails of the rows that scroll into view, or are added or removed
+    listScrollPane.getViewport().addChangeListener(e -> thumbnailRequestTimer.restart());
+    listModel.addListDataListener(new ListDataListener() {
+      @Override
+      public void intervalAdded(ListDataEvent e) {
+        thumbnailRequestTimer.restart();
+      }
+
+      @Override
+      public void intervalRemoved(ListDataEvent e) {
+        thumbnailRequestTimer.restart();
+      }
+
+      @Override
+      public void contentsChanged(ListDataEvent e) {
+        thumbnailRequestTimer.restart();
+      }
+    });
     listScrollPane.setPreferredSize(new Dimension(180, 150));
     panel.add(listScrollPane);
 
@@ -280,20 +470,100 @@ public class GUIView extends JFrame implements ActionListener {
    */
   public void addImageId(String imageId) {
     if (imageId != null && !imageId.trim().isEmpty()) {
+      thumbnails.remove(imageId); // an image stored under the name before was replaced
       listModel.add(0, imageId);
       imageList.setSelectedIndex(0); // Select the newly added image
     }
   }
 
+  /**
+   * Add several image IDs to the list of loaded images and select the first one.
+   * The list selection only changes once, so only the first image is displayed.
+   *
+   * @param imageIds the IDs of the images to add, in display order.
+   */
+  public void addImageIds(List<String> imageIds) {
+    if (imageIds == null || imageIds.isEmpty()) {
+      return;
+    }
+    for (int i = imageIds.size() - 1; i >= 0; i--) {
+      String imageId = imageIds.get(i);
+      if (imageId != null && !imageId.trim().isEmpty()) {
+        thumbnails.remove(imageId);
+        listModel.add(0, imageId);
+      }
+    }
+    imageList.setSelectedIndex(0);
+  }
+
   /**
    * Remove an image name from the list.
    *
    * @param imageName the name of the image to remove.
    */
   public void removeImageName(String imageName) {
+    thumbnails.remove(imageName);
     listModel.removeElement(imageName);
   }
 
+  /**
+   * Show the thumbnail of an image in the image list.
+   * This method is called by the controller when a requested thumbnail is ready.
+   *
+   * @param imageName the name of the image.
+   * @param thumbnail the thumbnail, at most THUMBNAIL_SIZE pixels wide and high.
+   * @throws IllegalArgumentException if thumbnail is null.
+   */
+  public void updateThumbnail(String imageName, IImage thumbnail) {
+    if (thumbnail == null) {
+      throw new IllegalArgumentException("Thumbnail cannot be null");
+    }
+    // scaled to 8 bits like the tiles of the drawn image
+    thumbnails.put(imageName, new ImageIcon(TileCache.convert(thumbnail, 0, 0,
+            thumbnail.getWidth(), thumbnail.getHeight())));
+    imageList.repaint();
+  }
+
+  /**
+   * Helper function to ask the listeners to get the images next to the selected one ready,
+   * so that moving through the list shows them straight away.
+   *
+   * @param selected the index of the selected row.
+   */
+  private void prefetchNeighbors(int selected) {
+    List<String> neighbors = new ArrayList<>();
+    for (int distance = 1; distance <= PREFETCHED_NEIGHBORS; distance++) {
+      for (int index : new int[]{selected + distance, selected - distance}) {
+        if (index >= 0 && index < listModel.size()) {
+          neighbors.add(listModel.get(index));
+        }
+      }
+    }
+    for (ImageViewListener listener : viewListeners) {
+      listener.onPrefetchImages(neighbors);
+    }
+  }
+
+  /**
+   * Helper function to ask the listeners for the thumbnails of the visible rows that have none.
+   * The request is made even when every visible row has one, so that the listeners can drop
+   * the thumbnails of rows that were scrolled out of view.
+   */
+  private void requestThumbnails() {
+    List<String> missing = new ArrayList<>();
+    int first = imageList.getFirstVisibleIndex();
+    int last = imageList.getLastVisibleIndex();
+    for (int i = Math.max(0, first); first >= 0 && i <= last; i++) {
+      String name = listModel.get(i);
+      if (!thumbnails.containsKey(name) && !missing.contains(name)) {
+        missing.add(name);
+      }
+    }
+    for (ImageViewListener listener : viewListeners) {
+      listener.onThumbnailsRequested(missing);
+    }
+  }
+
   /**
    * Get the currently selected image name from the list.
    *
@@ -307,11 +577,12 @@ public class GUIView extends JFrame implements ActionListener {
    * Update the viewing area with a new image.
    * This method is called by the controller when it has loaded a new image.
    * or an operation has been performed to update what image is being displayed.
+   * Only the visible part of the image is converted, from the pyramid level that suits the zoom.
    *
-   * @param image the BufferedImage to display.
+   * @param image the pyramid of the image to display.
    * @throws IllegalArgumentException if image is null.
    */
-  public void updateViewingArea(BufferedImage image) {
+  public void updateViewingArea(IImagePyramid image) {
     if (image == null) {
       throw new IllegalArgumentException("Image cannot be null");
     }
@@ -319,6 +590,25 @@ public class GUIView extends JFrame implements ActionListener {
     setOperationButtonsEnabled(true);
   }
 
+
+  /**
+   * Show the progress bar with what is running in the background.
+   * The rest of the window stays usable, further operations are queued.
+   *
+   * @param message what is running, e.g. "Loading koala".
+   */
+  public void showProgress(String message) {
+    progressLabel.setText(message);
+    progressPanel.setVisible(true);
+  }
+
+  /**
+   * Hide the progress bar once nothing runs in the background.
+   */
+  public void hideProgress() {
+    progressPanel.setVisible(false);
+  }
+
   /**
    * Update the histogram display with new histogram data.
    *
@@ -337,6 +627,20 @@ public class GUIView extends JFrame implements ActionListener {
     setOperationButtonsEnabled(false);
   }
 
+  /**
+   * End the brightness preview of the displayed image, for a brighten that failed or was
+   * cancelled. A new amount the slider was moved to since keeps being previewed.
+   *
+   * @return true if the preview was ended, false if the slider previews a new amount.
+   */
+  public boolean endBrightnessPreview() {
+    if (brightnessSlider.getValue() != 0) {
+      return false;
+    }
+    drawingPanel.setPreviewBrightness(0);
+    return true;
+  }
+
   /**
    * Show an error message to the user.
    *
@@ -371,6 +675,14 @@ public class GUIView extends JFrame implements ActionListener {
     valueComponentButton.setEnabled(enabled);
     intensityComponentButton.setEnabled(enabled);
     lumaComponentButton.setEnabled(enabled);
+    allComponentsButton.setEnabled(enabled);
+    equalizeButton.setEnabled(enabled);
+    levelsButton.setEnabled(enabled);
+    resizeButton.setEnabled(enabled);
+    zoomInButton.setEnabled(enabled);
+    zoomOutButton.setEnabled(enabled);
+    zoomFitButton.setEnabled(enabled);
+    zoomActualButton.setEnabled(enabled);
   }
 
   /**
@@ -399,7 +711,10 @@ public class GUIView extends JFrame implements ActionListener {
    * Reset the brightness slider to zero.
    */
   private void resetBrightnessSlider() {
+    // the preview stays until the brightened image is displayed
+    resettingBrightness = true;
     brightnessSlider.setValue(0);
+    resettingBrightness = false;
     brightnessLabel.setText("Brightness: 0");
   }
 
@@ -442,6 +757,36 @@ public class GUIView extends JFrame implements ActionListener {
         case "lumaComponent":
           handleGrayscaleOperation("luma-component");
           break;
+        case "allComponents":
+          handleAllComponents();
+          break;
+        case "equalize":
+          handleAdjustment("equalize");
+          break;
+        case "levels":
+          handleAdjustment("levels");
+          break;
+        case "resize":
+          handleResize();
+          break;
+        case "zoomIn":
+          drawingPanel.setZoom(drawingPanel.getZoom() * DrawingPanel.ZOOM_STEP, null);
+          break;
+        case "zoomOut":
+          drawingPanel.setZoom(drawingPanel.getZoom() / DrawingPanel.ZOOM_STEP, null);
+          break;
+        case "zoomFit":
+          Dimension visible = imageScrollPane.getViewport().getExtentSize();
+          drawingPanel.setZoom(drawingPanel.getFitZoom(visible.width, visible.height), null);
+          break;
+        case "zoomActual":
+          drawingPanel.setZoom(1, null);
+          break;
+        case "cancel":
+          for (ImageViewListener listener : viewListeners) {
+            listener.onCancelOperations();
+          }
+          break;
         default:
           throw new IllegalStateException("Unknown action command: " + command);
       }
@@ -456,12 +801,27 @@ public class GUIView extends JFrame implements ActionListener {
   private void handleLoadImage() {
     JFileChooser fileChooser = new JFileChooser(".");
     FileNameExtensionFilter filter = new FileNameExtensionFilter(
-            "Image Files", "jpg", "jpeg", "png", "ppm", "bmp");
+            "Image Files", "jpg", "jpeg", "png", "ppm", "pgm", "bmp");
     fileChooser.setFileFilter(filter);
+    fileChooser.setMultiSelectionEnabled(true);
 
     int result = fileChooser.showOpenDialog(this);
 
-    if (result == JFileChooser.APPROVE_OPTION) {
+    if (result == JFileChooser.APPROVE_OPTION && fileChooser.getSelectedFiles().length > 1) {
+      // several files are named after themselves instead of asking for every name
+      List<String> filePaths = new ArrayList<>();
+      List<String> imageNames = new ArrayList<>();
+      for (File file : fileChooser.getSelectedFiles()) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) : name;
+        filePaths.add(file.getAbsolutePath());
+        imageNames.add(imageNames.contains(baseName) ? name : baseName);
+      }
+      for (ImageViewListener listener : viewListeners) {
+        listener.onLoadImages(filePaths, imageNames);
+      }
+    } else if (result == JFileChooser.APPROVE_OPTION) {
       File selectedFile = fileChooser.getSelectedFile();
       String filePath = selectedFile.getAbsolutePath();
 
@@ -526,9 +886,10 @@ public class GUIView extends JFrame implements ActionListener {
    * @return the selected format (lowercase), or null if cancelled.
    */
   private String showFormatSelectionDialog() {
-    String[] formats = {"PPM", "JPEG", "PNG", "BMP"};
+    String[] formats = {"PPM", "PGM", "JPEG", "PNG", "BMP"};
     String[] descriptions = {
         "PPM - Portable Pixmap Format (text-based)",
+        "PGM - Portable Graymap Format (text-based, greyscale images only)",
         "JPEG - Joint Photographic Experts Group (lossy compression)",
         "PNG - Portable Network Graphics (lossless compression)",
         "BMP - Windows Bitmap (uncompressed)"
@@ -587,6 +948,8 @@ public class GUIView extends JFrame implements ActionListener {
     switch (format) {
       case "ppm":
         return new FileNameExtensionFilter("PPM Files (*.ppm)", "ppm");
+      case "pgm":
+        return new FileNameExtensionFilter("PGM Files (*.pgm)", "pgm");
       case "jpeg":
         return new FileNameExtensionFilter("JPEG Files (*.jpg, *.jpeg)", "jpg", "jpeg");
       case "png":
@@ -595,7 +958,7 @@ public class GUIView extends JFrame implements ActionListener {
         return new FileNameExtensionFilter("BMP Files (*.bmp)", "bmp");
       default:
         return new FileNameExtensionFilter(
-                "All Supported Images", "ppm", "jpg", "jpeg", "png", "bmp");
+                "All Supported Images", "ppm", "pgm", "jpg", "jpeg", "png", "bmp");
     }
   }
 
@@ -612,6 +975,9 @@ public class GUIView extends JFrame implements ActionListener {
       case "ppm":
         extension = ".ppm";
         break;
+      case "pgm":
+        extension = ".pgm";
+        break;
       case "jpeg":
         extension = ".jpg";
         break;
@@ -668,6 +1034,7 @@ public class GUIView extends JFrame implements ActionListener {
    * Handle brighten button click.
    */
   private void handleBrighten() {
+    brightnessApplyTimer.stop();
     String selectedImageName = getSelectedImageName();
     if (selectedImageName == null) {
       showError("Please select an image to brighten.");
@@ -675,6 +1042,10 @@ public class GUIView extends JFrame implements ActionListener {
     }
 
     int brightnessValue = getBrightnessValue();
+    if (brightnessValue == 0) {
+      // nothing to change
+      return;
+    }
 
     // Notify all listeners
     for (ImageViewListener listener : viewListeners) {
@@ -702,4 +1073,96 @@ public class GUIView extends JFrame implements ActionListener {
       listener.onGrayscaleOperation(selectedImageName, operation);
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Handle the all components button click.
+   */
+  private void handleAllComponents() {
+    String selectedImageName = getSelectedImageName();
+    if (selectedImageName == null) {
+      showError("Please select an image to extract the components of.");
+      return;
+    }
+
+    // Notify all listeners
+    for (ImageViewListener listener : viewListeners) {
+      listener.onAllComponentsOperation(selectedImageName);
+    }
+  }
+
+  /**
+   * Handle tone adjustment requests.
+   *
+   * @param operation the type of adjustment.
+   */
+  private void handleAdjustment(String operation) {
+    String selectedImageName = getSelectedImageName();
+    if (selectedImageName == null) {
+      showError("Please select an image to apply " + operation + ".");
+      return;
+    }
+
+    // Notify all listeners
+    for (ImageViewListener listener : viewListeners) {
+      listener.onAdjustmentOperation(selectedImageName, operation);
+    }
+  }
+
+  /**
+   * Handle resize requests. The user enters the new width and height and picks a filter,
+   * leaving one of the dimensions empty keeps the aspect ratio of the image.
+   */
+  private void handleResize() {
+    String selectedImageName = getSelectedImageName();
+    if (selectedImageName == null) {
+      showError("Please select an image to resize.");
+      return;
+    }
+
+    JTextField widthField = new JTextField(6);
+    JTextField heightField = new JTextField(6);
+    JComboBox<String> filterBox = new JComboBox<>(
+            new String[]{"lanczos", "area", "bilinear", "nearest"});
+
+    JPanel panel = new JPanel(new GridLayout(3, 2, 5, 5));
+    panel.add(new JLabel("Width:"));
+    panel.add(widthField);
+    panel.add(new JLabel("Height:"));
+    panel.add(heightField);
+    panel.add(new JLabel("Filter:"));
+    panel.add(filterBox);
+
+    int result = JOptionPane.showConfirmDialog(
+            this,
+            panel,
+            "Resize " + selectedImageName,
+            JOptionPane.OK_CANCEL_OPTION,
+            JOptionPane.PLAIN_MESSAGE
+    );
+    if (result != JOptionPane.OK_OPTION) {
+      return;
+    }
+
+    int width;
+    int height;
+    try {
+      String widthText = widthField.getText().trim();
+      String heightText = heightField.getText().trim();
+      width = widthText.isEmpty() ? 0 : Integer.parseInt(widthText);
+      height = heightText.isEmpty() ? 0 : Integer.parseInt(heightText);
+    } catch (NumberFormatException e) {
+      showError("Width and height must be whole numbers.");
+      return;
+    }
+    if (width < 0 || height < 0 || (width == 0 && height == 0)) {
+      showError("Enter a positive width, height or both.");
+      return;
+    }
+
+    // Notify all listeners
+    for (ImageViewListener listener : viewListeners) {
+      listener.onResizeOperation(
+              selectedImageName, width, height, (String) filterBox.getSelectedItem());
+    }
+  }
+}
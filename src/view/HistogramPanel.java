@@ -17,6 +17,9 @@ import model.IImageHistogram;
  * Custom panel to display image histogram.
  */
 public class HistogramPanel extends JPanel {
+  // the most points drawn for each line, higher bit depths are downsampled to this
+  private static final int DISPLAY_BINS = 256;
+
   private IImageHistogram histogram;
 
   /**
@@ -38,6 +41,7 @@ public class HistogramPanel extends JPanel {
    */
   public void updateHistogram(IImageHistogram histogram) {
     this.histogram = histogram;
+    updateTitle();
     repaint();
   }
 
@@ -46,9 +50,21 @@ public class HistogramPanel extends JPanel {
    */
   public void clearHistogram() {
     this.histogram = null;
+    updateTitle();
     repaint();
   }
 
+  /**
+   * Helper function to mark sampled histograms in the title until the exact one arrives.
+   */
+  private void updateTitle() {
+    if (histogram != null && histogram.isApproximate()) {
+      setBorder(BorderFactory.createTitledBorder("Image Histogram (approximate)"));
+    } else {
+      setBorder(BorderFactory.createTitledBorder("Image Histogram"));
+    }
+  }
+
   /**
    * Paint Component display the image on screen.
    * It overrides the JFrame implementation of paintComponent
@@ -98,7 +114,9 @@ public class HistogramPanel extends JPanel {
 
     // Draw axis labels
     g2d.drawString("0", margin - 15, height - margin - 35);
-    g2d.drawString("255", width - margin - 15, height - margin - 35);
+    String maxLabel = String.valueOf(histogram.getMaxValue());
+    g2d.drawString(maxLabel, width - margin - g2d.getFontMetrics().stringWidth(maxLabel) / 2,
+            height - margin - 35);
     g2d.drawString("Value", width / 2 - 15, height - 10);
 
     // Rotate and draw Y-axis label
@@ -107,14 +125,15 @@ public class HistogramPanel extends JPanel {
     g2dCopy.drawString("Frequency", -height / 2 - 30, 15);
     g2dCopy.dispose();
 
-    // Get histogram data
-    int[] redHist = histogram.getRedHistogram();
-    int[] greenHist = histogram.getGreenHistogram();
-    int[] blueHist = histogram.getBlueHistogram();
-    int[] intensityHist = histogram.getIntensityHistogram();
+    // Get histogram data, merging bins of high bit depth images instead of recounting
+    IImageHistogram display = histogram.downsample(DISPLAY_BINS);
+    int[] redHist = display.getRedHistogram();
+    int[] greenHist = display.getGreenHistogram();
+    int[] blueHist = display.getBlueHistogram();
+    int[] intensityHist = display.getIntensityHistogram();
 
     // Find max value for scaling
-    int maxValue = histogram.getOverallMaxCount();
+    int maxValue = display.getOverallMaxCount();
 
     if (maxValue > 0) {
       // Draw histogram lines with respective colors
@@ -151,15 +170,16 @@ public class HistogramPanel extends JPanel {
                                  int chartWidth, int chartHeight, int maxValue) {
     g2d.setColor(color);
 
-    for (int i = 0; i < 255; i++) {
+    int bins = histogram.length;
+    for (int i = 0; i < bins - 1; i++) {
       // Calculate X coordinate for current point (i)
-      int x1 = startX + (i * chartWidth) / 256;
+      int x1 = startX + (i * chartWidth) / bins;
       // Calculate X coordinate for next point (i+1)
-      int x2 = startX + ((i + 1) * chartWidth) / 256;
+      int x2 = startX + ((i + 1) * chartWidth) / bins;
       // Calculate Y coordinate for current histogram value
-      int y1 = startY - (histogram[i] * chartHeight) / maxValue;
+      int y1 = startY - (int) (((long) histogram[i] * chartHeight) / maxValue);
       // Calculate Y coordinate for next histogram value
-      int y2 = startY - (histogram[i + 1] * chartHeight) / maxValue;
+      int y2 = startY - (int) (((long) histogram[i + 1] * chartHeight) / maxValue);
 
       // Draw the line from x1 -> x2 and y1 -> y2
       g2d.drawLine(x1, y1, x2, y2);
@@ -1,5 +1,7 @@
 package view;
 
+import java.util.List;
+
 /**
  * Interface for listening to high-level view events.
  * Controllers should implement this interface to receive notifications
@@ -14,6 +16,15 @@ public interface ImageViewListener {
    */
   void onLoadImage(String filePath, String imageName);
 
+  /**
+   * Called when the user requests to load several images at once.
+   * The images are added to the list together and the first one is displayed.
+   *
+   * @param filePaths  the paths to the image files.
+   * @param imageNames the names to assign to the loaded images, in the same order.
+   */
+  void onLoadImages(List<String> filePaths, List<String> imageNames);
+
   /**
    * Called when the user requests to save an image.
    *
@@ -38,6 +49,15 @@ public interface ImageViewListener {
    */
   void onBrightnessOperation(String imageName, int amount);
 
+  /**
+   * Called on every change of the brightness slider, before the brightness is applied.
+   * The view previews the image itself, the listener may update the histogram to match.
+   *
+   * @param imageName the name of the previewed image.
+   * @param amount    the amount previewed, 0 when the preview ends.
+   */
+  void onBrightnessPreview(String imageName, int amount);
+
   /**
    * Called when the user requests a grayscale operation.
    *
@@ -47,10 +67,58 @@ public interface ImageViewListener {
    */
   void onGrayscaleOperation(String imageName, String operation);
 
+  /**
+   * Called when the user requests all greyscale components of an image at once.
+   *
+   * @param imageName the name of the source image.
+   */
+  void onAllComponentsOperation(String imageName);
+
+  /**
+   * Called when the user requests a tone adjustment built from the histogram of the image.
+   *
+   * @param imageName the name of the source image.
+   * @param operation the type of adjustment ("equalize" or "levels").
+   */
+  void onAdjustmentOperation(String imageName, String operation);
+
+  /**
+   * Called when the user requests to resize an image.
+   *
+   * @param imageName the name of the source image.
+   * @param width     the width of the result, 0 to keep the aspect ratio.
+   * @param height    the height of the result, 0 to keep the aspect ratio.
+   * @param filter    the name of the filter ("nearest", "bilinear", "area" or "lanczos").
+   */
+  void onResizeOperation(String imageName, int width, int height, String filter);
+
   /**
    * Called when the user selects an image from already loaded images.
    *
    * @param imageName the name to assign to the displayed image.
    */
   void displaySelectedImage(String imageName);
+
+  /**
+   * Called when rows of the image list without a thumbnail are visible, and whenever the visible
+   * rows change. Thumbnails requested before for rows that are not in the list anymore are
+   * no longer needed. Every thumbnail is handed back with GUIView.updateThumbnail.
+   *
+   * @param imageNames the names of the visible images without a thumbnail, from the top.
+   */
+  void onThumbnailsRequested(List<String> imageNames);
+
+  /**
+   * Called when an image is selected, with the images next to it in the list.
+   * They are likely to be selected next, so they can be prepared in the background.
+   * Images asked for before that are not in the list anymore are no longer needed.
+   *
+   * @param imageNames the names of the neighboring images, nearest first.
+   */
+  void onPrefetchImages(List<String> imageNames);
+
+  /**
+   * Called when the user cancels the operations that are running or waiting to run.
+   */
+  void onCancelOperations();
 }
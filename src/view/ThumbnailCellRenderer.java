@@ -0,0 +1,68 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.util.Map;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.Icon;
+import javax.swing.JList;
+
+/**
+ * Cell renderer of the image list that shows the thumbnail of an image next to its name.
+ * Rendering never creates a thumbnail, rows whose thumbnail is not ready yet show an empty
+ * frame of the same size, so the list stays responsive however many images it holds.
+ */
+final class ThumbnailCellRenderer extends DefaultListCellRenderer {
+  private static final long serialVersionUID = 1L;
+
+  private final Map<String, Icon> thumbnails;
+  private final Icon placeholder;
+
+  /**
+   * Constructor creates a renderer that takes the thumbnails from a map.
+   *
+   * @param thumbnails the thumbnails by image name, read on every paint.
+   * @param size       the width and height thumbnails are fitted into.
+   */
+  ThumbnailCellRenderer(Map<String, Icon> thumbnails, int size) {
+    this.thumbnails = thumbnails;
+    this.placeholder = new Icon() {
+      @Override
+      public void paintIcon(Component c, Graphics g, int x, int y) {
+        g.setColor(Color.GRAY);
+        g.drawRect(x, y, size - 1, size - 1);
+      }
+
+      @Override
+      public int getIconWidth() {
+        return size;
+      }
+
+      @Override
+      public int getIconHeight() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Render a row of the list as the thumbnail and the name of the image.
+   *
+   * @param list         the list being painted.
+   * @param value        the image name of the row.
+   * @param index        the index of the row.
+   * @param isSelected   whether the row is selected.
+   * @param cellHasFocus whether the row has the focus.
+   * @return the component that paints the row.
+   */
+  @Override
+  public Component getListCellRendererComponent(
+          JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+    super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+    Icon thumbnail = thumbnails.get(String.valueOf(value));
+    setIcon(thumbnail != null ? thumbnail : placeholder);
+    return this;
+  }
+}
@@ -0,0 +1,169 @@
+package view;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import model.IImage;
+import model.IImagePyramid;
+import model.PackedRgbImage;
+import view.writer.StandardImageWriter;
+
+/**
+ * Least recently used cache of the tiles of image pyramids, converted for display.
+ * Tiles are TILE_SIZE x TILE_SIZE pixels of a pyramid level, smaller at the right and bottom
+ * edges, and are only converted when first drawn. Levels stored as a PackedRgbImage are not
+ * converted at all, their tiles are views of the pixels of the level.
+ * The tiles of every pyramid drawn are kept until the capacity runs out, so drawing an image
+ * again costs nothing. A pyramid, and its tiles, are released once nothing else uses it,
+ * which is what happens when the image it was built from is replaced.
+ */
+final class TileCache {
+  static final int TILE_SIZE = 256;
+
+  private final int capacity;
+  private final Map<IImagePyramid, Map<Long, BufferedImage>> pyramids;
+  private final Map<IImage, BufferedImage> wrappedLevels; // packed levels wrapped for display
+  private IImagePyramid pyramid;
+  private Map<Long, BufferedImage> tiles; // the tiles of pyramid
+
+  /**
+   * Constructor creates an empty cache.
+   *
+   * @param capacity the largest number of tiles kept.
+   * @throws IllegalArgumentException if capacity is not positive.
+   */
+  TileCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.pyramids = new WeakHashMap<>();
+    this.wrappedLevels = new WeakHashMap<>();
+  }
+
+  /**
+   * Set the pyramid the tiles are taken from. The tiles of other pyramids stay cached.
+   *
+   * @param pyramid the pyramid, or null to take tiles from none.
+   */
+  void setPyramid(IImagePyramid pyramid) {
+    this.pyramid = pyramid;
+    this.tiles = pyramid == null ? null
+            : pyramids.computeIfAbsent(pyramid, p -> new LinkedHashMap<>(16, 0.75f, true));
+  }
+
+  /**
+   * Get a tile of a level of the pyramid, converting it if it is not cached.
+   *
+   * @param level the pyramid level.
+   * @param tileX the column of the tile.
+   * @param tileY the row of the tile.
+   * @return the converted tile.
+   * @throws IllegalStateException if no pyramid is set.
+   */
+  BufferedImage getTile(int level, int tileX, int tileY) {
+    if (pyramid == null) {
+      throw new IllegalStateException("No pyramid to take tiles from");
+    }
+    long key = key(level, tileX, tileY);
+    BufferedImage tile = tiles.get(key);
+    if (tile == null) {
+      IImage image = pyramid.getLevel(level);
+      int x = tileX * TILE_SIZE;
+      int y = tileY * TILE_SIZE;
+      int width = Math.min(TILE_SIZE, image.getWidth() - x);
+      int height = Math.min(TILE_SIZE, image.getHeight() - y);
+      if (image instanceof PackedRgbImage) {
+        tile = wrappedLevels.computeIfAbsent(image,
+                i -> StandardImageWriter.wrap((PackedRgbImage) i)).getSubimage(x, y, width, height);
+      } else {
+        tile = convert(image, x, y, width, height);
+      }
+      makeRoom();
+      tiles.put(key, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Helper function to drop least recently used tiles until another one fits.
+   * Tiles of the other pyramids are dropped before the tiles of the current one.
+   */
+  private void makeRoom() {
+    int size = 0;
+    for (Map<Long, BufferedImage> cached : pyramids.values()) {
+      size += cached.size();
+    }
+    for (Map<Long, BufferedImage> cached : pyramids.values()) {
+      if (cached != tiles) {
+        size = drop(cached, size);
+      }
+    }
+    drop(tiles, size);
+  }
+
+  /**
+   * Helper function to drop the least recently used tiles of one pyramid while the cache is full.
+   *
+   * @param cached the tiles of the pyramid.
+   * @param size   the number of tiles in the cache.
+   * @return the number of tiles left in the cache.
+   */
+  private int drop(Map<Long, BufferedImage> cached, int size) {
+    Iterator<BufferedImage> eldest = cached.values().iterator();
+    while (size >= capacity && eldest.hasNext()) {
+      eldest.next();
+      eldest.remove();
+      size--;
+    }
+    return size;
+  }
+
+  /**
+   * Get the key of a tile, unique within a pyramid.
+   *
+   * @param level the pyramid level.
+   * @param tileX the column of the tile.
+   * @param tileY the row of the tile.
+   * @return the key of the tile.
+   */
+  static long key(int level, int tileX, int tileY) {
+    return ((long) level << 58) | ((long) tileX << 29) | tileY;
+  }
+
+  /**
+   * Convert a rectangle of an image to an 8 bit rgb buffered image, for display.
+   * Images with another max value are scaled to 0-255.
+   *
+   * @param image  the image to convert from.
+   * @param x      the left column of the rectangle.
+   * @param y      the top row of the rectangle.
+   * @param width  the width of the rectangle.
+   * @param height the height of the rectangle.
+   * @return the converted rectangle.
+   */
+  static BufferedImage convert(IImage image, int x, int y, int width, int height) {
+    int[] region = new int[width * height * 3];
+    image.getRegion(x, y, width, height, region);
+
+    BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] data = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+    int maxValue = image.getMaxValue();
+    for (int i = 0; i < data.length; i++) {
+      int r = region[i * 3];
+      int g = region[i * 3 + 1];
+      int b = region[i * 3 + 2];
+      if (maxValue != 255) {
+        r = (int) ((r * 255L + maxValue / 2) / maxValue);
+        g = (int) ((g * 255L + maxValue / 2) / maxValue);
+        b = (int) ((b * 255L + maxValue / 2) / maxValue);
+      }
+      data[i] = (r << 16) | (g << 8) | b;
+    }
+    return tile;
+  }
+}
@@ -17,4 +17,23 @@ public interface IViewReader {
    * @throws IOException if fail to read the file.
    */
   IImage read() throws IOException;
+
+  /**
+   * Read a file keeping only every step-th pixel of every step-th row,
+   * which is quicker and takes less memory than reading every pixel when step is above 1.
+   *
+   * @param step the distance between the pixels kept, 1 to read every pixel.
+   * @return a object of type IImage, of the size divided by step and rounded up.
+   * @throws IllegalArgumentException if step is not positive.
+   * @throws IOException              if fail to read the file.
+   */
+  IImage read(int step) throws IOException;
+
+  /**
+   * Read only the header of a file, without decoding any pixel.
+   *
+   * @return the width, height and max value of the image, in that order.
+   * @throws IOException if fail to read the header.
+   */
+  int[] readHeader() throws IOException;
 }
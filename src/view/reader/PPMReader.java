@@ -4,10 +4,11 @@ import java.io.IOException;
 import java.util.Scanner;
 
 import model.IImage;
-import model.ImageImpl;
+import model.ImageFactory;
 
 /**
  * Class takes in a PPM file and returns an object of type IImage.
+ * Plain PGM files (P2) are also read, they give a single channel greyscale image.
  * Throws and IOException if fail to read the PPM file.
  */
 public class PPMReader implements IViewReader {
@@ -54,30 +55,110 @@ public class PPMReader implements IViewReader {
    */
   @Override
   public IImage read() throws IOException {
-    Scanner scanner = new Scanner(readable);
+    return read(1);
+  }
 
-    String token = readNextToken(scanner);
-    if (!token.equals("P3")) {
-      throw new IOException("Invalid PPM file");
+  /**
+   * Read a file keeping only every step-th pixel of every step-th row.
+   * Every value of the file is still parsed, but only the kept pixels are stored.
+   *
+   * @param step the distance between the pixels kept, 1 to read every pixel.
+   * @return a object of type IImage, of the size divided by step and rounded up.
+   * @throws IllegalArgumentException if step is not positive.
+   * @throws IOException              if fail to read the file.
+   */
+  @Override
+  public IImage read(int step) throws IOException {
+    if (step <= 0) {
+      throw new IllegalArgumentException("Step must be positive");
     }
+    Scanner scanner = new Scanner(readable);
+    boolean greyscale = readMagicNumber(scanner);
 
     int width = Integer.parseInt(readNextToken(scanner));
     int height = Integer.parseInt(readNextToken(scanner));
     int maxValue = Integer.parseInt(readNextToken(scanner));
+    int resultWidth = (width + step - 1) / step;
+    int resultHeight = (height + step - 1) / step;
+
+    if (greyscale) {
+      return readGreyPixels(scanner,
+              ImageFactory.createGreyImage(resultWidth, resultHeight, maxValue), width, step);
+    }
 
-    IImage image = new ImageImpl(width, height, maxValue);
+    IImage image = ImageFactory.createImage(resultWidth, resultHeight, maxValue);
 
-    // Set Pixel
-    for (int y = 0; y < height; y++) {
+    // Set Pixel, the rows after the last kept one are not parsed
+    for (int y = 0; y < (resultHeight - 1) * step + 1; y++) {
       for (int x = 0; x < width; x++) {
         int r = Integer.parseInt(readNextToken(scanner));
         int g = Integer.parseInt(readNextToken(scanner));
         int b = Integer.parseInt(readNextToken(scanner));
 
-        image.setPixel(x, y, r, g, b);
+        if (x % step == 0 && y % step == 0) {
+          image.setPixel(x / step, y / step, r, g, b);
+        }
       }
     }
 
     return image;
   }
+
+  /**
+   * Read only the header of a file, without parsing any pixel.
+   *
+   * @return the width, height and max value of the image, in that order.
+   * @throws IOException if fail to read the header.
+   */
+  @Override
+  public int[] readHeader() throws IOException {
+    Scanner scanner = new Scanner(readable);
+    readMagicNumber(scanner);
+    try {
+      return new int[]{Integer.parseInt(readNextToken(scanner)),
+          Integer.parseInt(readNextToken(scanner)), Integer.parseInt(readNextToken(scanner))};
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid PPM header: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Helper method to read the magic number at the start of a file.
+   *
+   * @param scanner of type Scanner positioned at the start of the file.
+   * @return true for a greyscale PGM file, false for a PPM file.
+   * @throws IOException if the file is neither.
+   */
+  private boolean readMagicNumber(Scanner scanner) throws IOException {
+    String token = readNextToken(scanner);
+    if (!token.equals("P3") && !token.equals("P2")) {
+      throw new IOException("Invalid PPM file");
+    }
+    return token.equals("P2");
+  }
+
+  /**
+   * Helper method to read the pixels of a PGM file, one grey value per pixel.
+   *
+   * @param scanner of type Scanner positioned after the header.
+   * @param image   the blank greyscale image to fill, of the size divided by step.
+   * @param width   the width of the file.
+   * @param step    the distance between the pixels kept.
+   * @return the filled image.
+   * @throws IOException if fail to read the input.
+   */
+  private IImage readGreyPixels(Scanner scanner, IImage image, int width, int step)
+          throws IOException {
+    // the rows after the last kept one are not parsed
+    int height = (image.getHeight() - 1) * step + 1;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int grey = Integer.parseInt(readNextToken(scanner));
+        if (x % step == 0 && y % step == 0) {
+          image.setPixel(x / step, y / step, grey, grey, grey);
+        }
+      }
+    }
+    return image;
+  }
 }
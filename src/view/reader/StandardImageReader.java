@@ -3,11 +3,16 @@ package view.reader;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import model.IImage;
-import model.ImageImpl;
+import model.ImageFactory;
+import model.PackedRgbImage;
 
 /**
  * Reader for standard image formats (JPEG, PNG, BMP) using ImageIO.
@@ -35,28 +40,38 @@ public class StandardImageReader implements IViewReader {
    */
   @Override
   public IImage read() throws IOException {
+    return read(1);
+  }
+
+  /**
+   * Read a file keeping only every step-th pixel of every step-th row.
+   * The decoder skips the other pixels itself, so a large step reads a large file quickly.
+   *
+   * @param step the distance between the pixels kept, 1 to read every pixel.
+   * @return a object of type IImage, of the size divided by step and rounded up.
+   * @throws IllegalArgumentException if step is not positive.
+   * @throws IOException              if fail to read the file.
+   */
+  @Override
+  public IImage read(int step) throws IOException {
+    if (step <= 0) {
+      throw new IllegalArgumentException("Step must be positive");
+    }
     try {
-      BufferedImage bufferedImage = ImageIO.read(inputStream);
+      BufferedImage bufferedImage;
+      if (step == 1) {
+        bufferedImage = ImageIO.read(inputStream);
+      } else {
+        bufferedImage = readImage(reader -> {
+          ImageReadParam param = reader.getDefaultReadParam();
+          param.setSourceSubsampling(step, step, 0, 0);
+          return reader.read(0, param);
+        });
+      }
       if (bufferedImage == null) {
         throw new IOException("Could not read image in format: " + format);
       }
-      int width = bufferedImage.getWidth();
-      int height = bufferedImage.getHeight();
-      IImage image = new ImageImpl(width, height, 255);
-
-      for (int y = 0; y < height; y++) {
-        for (int x = 0; x < width; x++) {
-          int rgb = bufferedImage.getRGB(x, y);
-          // shift the rgb value to get the component (red or green or blue) individually
-          // and mask it so only the lowest 8 bit remains (to get the component's integer value)
-          int r = (rgb >> 16) & 0xFF;
-          int g = (rgb >> 8) & 0xFF;
-          int b = rgb & 0xFF;
-          image.setPixel(x, y, r, g, b);
-        }
-      }
-
-      return image;
+      return convert(bufferedImage);
 
     } catch (IOException e) {
       throw new IOException("Failed to read file: " + e.getMessage());
@@ -64,4 +79,101 @@ public class StandardImageReader implements IViewReader {
       inputStream.close();
     }
   }
+
+  /**
+   * Read only the header of a file, without decoding any pixel.
+   * Images read by this reader are always 8 bit, so the max value is 255.
+   *
+   * @return the width, height and max value of the image, in that order.
+   * @throws IOException if fail to read the header.
+   */
+  @Override
+  public int[] readHeader() throws IOException {
+    try {
+      int[] header = readImage(reader -> new int[]{
+          reader.getWidth(0), reader.getHeight(0), 255});
+      if (header == null) {
+        throw new IOException("Could not read image in format: " + format);
+      }
+      return header;
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  /**
+   * Helper function to read from the stream with the first ImageIO reader that accepts it.
+   *
+   * @param step what to read with the reader.
+   * @param <T>  the type of what is read.
+   * @return what was read, or null if no reader accepts the stream.
+   * @throws IOException if fail to read the file.
+   */
+  private <T> T readImage(ReadStep<T> step) throws IOException {
+    try (ImageInputStream input = ImageIO.createImageInputStream(inputStream)) {
+      Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+      if (readers == null || !readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        return step.read(reader);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Helper function to convert a buffered image to an 8 bit image.
+   *
+   * @param bufferedImage the buffered image to convert.
+   * @return a object of type IImage.
+   */
+  private static IImage convert(BufferedImage bufferedImage) {
+    int width = bufferedImage.getWidth();
+    int height = bufferedImage.getHeight();
+    IImage image = ImageFactory.createImage(width, height, 255);
+
+    if (image instanceof PackedRgbImage) {
+      // read straight into the pixel buffer, only the alpha byte has to be cleared
+      int[] data = ((PackedRgbImage) image).getDataBuffer().getData();
+      bufferedImage.getRGB(0, 0, width, height, data, 0, width);
+      for (int i = 0; i < data.length; i++) {
+        data[i] &= 0xFFFFFF;
+      }
+      return image;
+    }
+
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int rgb = bufferedImage.getRGB(x, y);
+        // shift the rgb value to get the component (red or green or blue) individually
+        // and mask it so only the lowest 8 bit remains (to get the component's integer value)
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        image.setPixel(x, y, r, g, b);
+      }
+    }
+
+    return image;
+  }
+
+  /**
+   * What to read with an ImageIO reader that is set up on the stream.
+   *
+   * @param <T> the type of what is read.
+   */
+  private interface ReadStep<T> {
+    /**
+     * Read from the reader.
+     *
+     * @param reader the reader, with the stream as its input.
+     * @return what was read.
+     * @throws IOException if fail to read.
+     */
+    T read(ImageReader reader) throws IOException;
+  }
 }
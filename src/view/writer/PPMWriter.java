@@ -2,14 +2,18 @@ package view.writer;
 
 import java.io.IOException;
 
+import model.GreyImage;
 import model.IImage;
 
 /**
  * Class takes in an object of type IImage and writes to an appendable.
+ * It writes a plain PPM (P3) file, or a plain PGM (P2) file with one value per pixel
+ * when created in greyscale mode.
  * Throws an IOException if fail to write to the appendable.
  */
 public class PPMWriter implements IWriter {
   private final Appendable appendable;
+  private final boolean greyscale;
 
   /**
    * Constructor takes in an appendable of type Appendable.
@@ -18,10 +22,22 @@ public class PPMWriter implements IWriter {
    * @throws IllegalArgumentException if Appendable object is null.
    */
   public PPMWriter(Appendable appendable) {
+    this(appendable, false);
+  }
+
+  /**
+   * Constructor takes in an appendable of type Appendable and whether to write a PGM file.
+   *
+   * @param appendable of type Appendable to append the IImage object to.
+   * @param greyscale  true to write a greyscale PGM file, false to write a PPM file.
+   * @throws IllegalArgumentException if Appendable object is null.
+   */
+  public PPMWriter(Appendable appendable, boolean greyscale) {
     if (appendable == null) {
       throw new IllegalArgumentException("Appendable object cannot be null.");
     }
     this.appendable = appendable;
+    this.greyscale = greyscale;
   }
 
   /**
@@ -32,6 +48,10 @@ public class PPMWriter implements IWriter {
    */
   @Override
   public void write(IImage image) throws IOException {
+    if (greyscale) {
+      writeGrey(image);
+      return;
+    }
     try {
       appendable.append("P3\n");
       appendable.append(
@@ -64,4 +84,48 @@ public class PPMWriter implements IWriter {
       throw new IllegalStateException("write operation failed.");
     }
   }
+
+  /**
+   * Helper method to write the image as a PGM file with one grey value per pixel.
+   * A GreyImage is written straight from its single channel.
+   *
+   * @param image object of type IImage.
+   * @throws IOException              if fail to write to an appendable.
+   * @throws IllegalArgumentException if a pixel of the image is not grey.
+   */
+  private void writeGrey(IImage image) throws IOException {
+    GreyImage greyImage = image instanceof GreyImage ? (GreyImage) image : null;
+
+    appendable.append("P2\n");
+    appendable.append(String.valueOf(image.getWidth()))
+            .append(" ")
+            .append(String.valueOf(image.getHeight()))
+            .append("\n");
+    appendable.append(String.valueOf(image.getMaxValue()))
+            .append("\n");
+
+    for (int y = 0; y < image.getHeight(); y++) {
+      appendable.append(" "); // leading space for grey values in each column
+
+      for (int x = 0; x < image.getWidth(); x++) {
+        int grey;
+        if (greyImage != null) {
+          grey = greyImage.getGrey(x, y);
+        } else {
+          int[] pixel = image.getPixel(x, y);
+          if (pixel[0] != pixel[1] || pixel[1] != pixel[2]) {
+            throw new IllegalArgumentException("Only greyscale images can be saved as PGM");
+          }
+          grey = pixel[0];
+        }
+        appendable.append(String.valueOf(grey));
+
+        // if x does not reach the width, add a space in the middle.
+        if (x < image.getWidth() - 1) {
+          appendable.append(" ");
+        }
+      }
+      appendable.append("\n"); // new line after each row
+    }
+  }
 }
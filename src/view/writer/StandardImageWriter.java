@@ -1,15 +1,22 @@
 package view.writer;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.OutputStream;
 
 import javax.imageio.ImageIO;
 
+import model.GreyImage;
 import model.IImage;
+import model.PackedRgbImage;
 
 /**
  * Writes to new file for standard image formats (JPEG, PNG, BMP) using ImageIO.
+ * 8 bit greyscale images are written as single channel grey files.
  */
 public class StandardImageWriter implements IWriter {
   private final OutputStream outputStream;
@@ -39,7 +46,12 @@ public class StandardImageWriter implements IWriter {
       throw new IllegalArgumentException("Image object cannot be null");
     }
     try {
-      BufferedImage bufferedImage = convertToBufferedImage(image);
+      BufferedImage bufferedImage;
+      if (image instanceof GreyImage && image.getMaxValue() <= 255) {
+        bufferedImage = convertToGreyBufferedImage((GreyImage) image);
+      } else {
+        bufferedImage = convertToBufferedImage(image);
+      }
 
       boolean writeToFile = ImageIO.write(bufferedImage, format, outputStream);
       if (!writeToFile) {
@@ -53,11 +65,15 @@ public class StandardImageWriter implements IWriter {
 
   /**
    * Convert image of type IImage to buffered image.
+   * A PackedRgbImage is wrapped instead of copied, the result shares its pixels.
    *
    * @param image of type IImage to be converted.
    * @return a buffered image.
    */
   public static BufferedImage convertToBufferedImage(IImage image) {
+    if (image instanceof PackedRgbImage) {
+      return wrap((PackedRgbImage) image);
+    }
     int width = image.getWidth();
     int height = image.getHeight();
     BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
@@ -73,4 +89,38 @@ public class StandardImageWriter implements IWriter {
     }
     return bufferedImage;
   }
+
+  /**
+   * Wrap the pixel buffer of a packed image in a buffered image of TYPE_INT_RGB without copying.
+   * Changes to the image are visible in the buffered image and the other way around.
+   *
+   * @param image of type PackedRgbImage to be wrapped.
+   * @return a buffered image sharing the pixels of the image.
+   */
+  public static BufferedImage wrap(PackedRgbImage image) {
+    DirectColorModel colorModel = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+    WritableRaster raster = Raster.createPackedRaster(image.getDataBuffer(), image.getWidth(),
+            image.getHeight(), image.getWidth(), colorModel.getMasks(), null);
+    return new BufferedImage(colorModel, raster, false, null);
+  }
+
+  /**
+   * Convert a greyscale image to a single channel 8 bit buffered image.
+   *
+   * @param image of type GreyImage to be converted.
+   * @return a buffered image of type TYPE_BYTE_GRAY.
+   */
+  private static BufferedImage convertToGreyBufferedImage(GreyImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    byte[] data = ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData();
+
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        data[y * width + x] = (byte) image.getGrey(x, y);
+      }
+    }
+    return bufferedImage;
+  }
 }
@@ -11,17 +11,23 @@ import controller.commands.BrightenCommand;
 import controller.commands.GreenGreyScaleCommand;
 import controller.commands.ICommand;
 import controller.commands.IntensityGreyScaleCommand;
+import controller.commands.LoadCommand;
 import controller.commands.LumaGreyScaleCommand;
 import controller.commands.RedGreyScaleCommand;
 import controller.commands.ValueGreyScaleCommand;
+import model.CopyOnWriteImage;
 import model.IImage;
 import model.IImageStorage;
 import model.ImageImpl;
 import model.ImageStorageImpl;
+import model.ImageView;
+import model.LazyImage;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -647,6 +653,57 @@ public class IImageControllerTest {
     assertArrayEquals(new int[]{luma00, luma00, luma00}, luma.getPixel(0, 0));
   }
 
+  @Test
+  public void testComponentsCommandAll() {
+    imageDatabase.putImage("test", testImage);
+
+    String command = "components all test out\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, imageDatabase);
+    controller.run();
+
+    assertEquals("", output.toString());
+    assertArrayEquals(new int[]{100, 100, 100}, imageDatabase.getImage("out-red").getPixel(0, 0));
+    assertArrayEquals(new int[]{150, 150, 150},
+            imageDatabase.getImage("out-green").getPixel(0, 0));
+    assertArrayEquals(new int[]{200, 200, 200},
+            imageDatabase.getImage("out-blue").getPixel(0, 0));
+    assertArrayEquals(new int[]{200, 200, 200},
+            imageDatabase.getImage("out-value").getPixel(0, 0));
+    assertArrayEquals(new int[]{150, 150, 150},
+            imageDatabase.getImage("out-intensity").getPixel(0, 0));
+    int luma00 = (int) (0.2126 * 100 + 0.7152 * 150 + 0.0722 * 200);
+    assertArrayEquals(new int[]{luma00, luma00, luma00},
+            imageDatabase.getImage("out-luma").getPixel(0, 0));
+  }
+
+  @Test
+  public void testComponentsCommandSubset() {
+    mockStorage.putImage("img", testImage);
+    mockStorage.getLog().clear();
+
+    String command = "components luma,red img img\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    List<String> logs = mockStorage.getLog();
+    assertEquals(3, logs.size());
+    assertEquals("getImage: img", logs.get(0));
+    assertEquals("putImage: img-luma", logs.get(1));
+    assertEquals("putImage: img-red", logs.get(2));
+  }
+
+  @Test
+  public void testComponentsCommandUnknownComponent() {
+    imageDatabase.putImage("test", testImage);
+
+    String command = "components red,alpha test out\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, imageDatabase);
+    controller.run();
+
+    assertEquals("Error: Unknown component: alpha\n", output.toString());
+    assertFalse(imageDatabase.hasImage("out-red"));
+  }
+
   @Test
   public void testLoadCommandMissingArguments() {
     String command = "load\n";
@@ -816,5 +873,249 @@ public class IImageControllerTest {
     assertEquals("getImage: tosave", logs.get(0));
   }
 
+  @Test
+  public void testStatsCommand() {
+    imageDatabase.putImage("test", testImage);
+
+    String command = "stats test\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, imageDatabase);
+    controller.run();
+
+    String json = output.toString();
+    assertTrue(json.startsWith("{\"image\":\"test\",\"width\":2,\"height\":2,"
+            + "\"maxValue\":255,\"pixels\":4,\"channels\":{"));
+    assertTrue(json.contains(
+            "\"red\":{\"min\":0,\"max\":200,\"mean\":87.5,\"variance\":5468.75,"));
+    assertTrue(json.contains("\"p50\":50,"));
+    assertTrue(json.endsWith("}}\n"));
+    // percentiles were counted with the moments, no histogram was computed
+    assertFalse(imageDatabase.hasHistogram("test"));
+  }
+
+  @Test
+  public void testStatsCommandMissingName() {
+    String command = "stats\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, imageDatabase);
+    controller.run();
+
+    assertEquals("Error: Wrong inputs. Usage: stats image-name\n", output.toString());
+  }
+
+  @Test
+  public void testEqualizeAndLevelsCommands() {
+    mockStorage.putImage("img", testImage);
+    mockStorage.getLog().clear();
+
+    String command = "equalize img img-eq\nlevels 0.5 img img-levels\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    assertEquals("", output.toString());
+    List<String> logs = mockStorage.getLog();
+    assertEquals(4, logs.size());
+    assertEquals("getImage: img", logs.get(0));
+    assertEquals("putImage: img-eq", logs.get(1));
+    assertEquals("getImage: img", logs.get(2));
+    assertEquals("putImage: img-levels", logs.get(3));
+  }
+
+  @Test
+  public void testLevelsCommandBadClip() {
+    String command = "levels abc img out\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    assertEquals("Error: clip-percent must be a number\n", output.toString());
+  }
+
+  @Test
+  public void testFilterCommands() {
+    mockStorage.putImage("img", testImage);
+    mockStorage.getLog().clear();
+    String command = "blur img img-blur\nsharpen img img-sharp\nsobel img img-edges\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    assertEquals("", output.toString());
+    List<String> logs = mockStorage.getLog();
+    assertEquals(6, logs.size());
+    assertEquals("putImage: img-blur", logs.get(1));
+    assertEquals("putImage: img-sharp", logs.get(3));
+    assertEquals("putImage: img-edges", logs.get(5));
+  }
+
+  @Test
+  public void testBlurCommandMissingDest() {
+    String command = "blur img\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    assertEquals("Error: Wrong inputs. Usage: blur image-name dest-image-name\n",
+            output.toString());
+  }
+
+  @Test
+  public void testBlurRadiusCommands() {
+    mockStorage.putImage("img", testImage);
+    mockStorage.getLog().clear();
+    String command = "box-blur 2 img img-box\ngaussian-blur 1.5 img img-gauss\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    assertEquals("", output.toString());
+    List<String> logs = mockStorage.getLog();
+    assertEquals(4, logs.size());
+    assertEquals("putImage: img-box", logs.get(1));
+    assertEquals("putImage: img-gauss", logs.get(3));
+  }
+
+  @Test
+  public void testBoxBlurCommandBadRadius() {
+    String command = "box-blur big img out\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    assertEquals("Error: radius must be an integer\n", output.toString());
+  }
+
+  @Test
+  public void testMedianAndRankCommands() {
+    mockStorage.putImage("img", testImage);
+    mockStorage.getLog().clear();
+    String command = "median 1 img img-median\nrank 100 2 img img-max\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    assertEquals("", output.toString());
+    List<String> logs = mockStorage.getLog();
+    assertEquals(4, logs.size());
+    assertEquals("putImage: img-median", logs.get(1));
+    assertEquals("putImage: img-max", logs.get(3));
+  }
+
+  @Test
+  public void testViewCommands() {
+    imageDatabase.putImage("img", testImage);
+    String command = "crop 0 0 1 1 img img-crop\nflip-horizontal img img-flip\n"
+            + "rotate-90 img-flip img-turn\nmaterialize img-turn img-copy\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, imageDatabase);
+    controller.run();
+
+    assertEquals("", output.toString());
+    IImage crop = imageDatabase.getImage("img-crop");
+    assertEquals(1, crop.getWidth());
+    assertArrayEquals(testImage.getPixel(0, 0), crop.getPixel(0, 0));
+    IImage turned = imageDatabase.getImage("img-turn");
+    IImage copy = imageDatabase.getImage("img-copy");
+    assertTrue(turned instanceof ImageView);
+    assertFalse(copy instanceof ImageView);
+    assertEquals(testImage.getHeight(), copy.getWidth());
+    // mirrored then turned clockwise, the bottom left corner ends up at the bottom left
+    assertArrayEquals(testImage.getPixel(0, testImage.getHeight() - 1),
+            copy.getPixel(0, testImage.getWidth() - 1));
+  }
 
-}
\ No newline at end of file
+  @Test
+  public void testMaterializeCommandSnapshotsCopyOnWriteImage() {
+    CopyOnWriteImage source = new CopyOnWriteImage(testImage);
+    imageDatabase.putImage("img", source);
+    String command = "materialize img img-copy\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, imageDatabase);
+    controller.run();
+
+    assertEquals("", output.toString());
+    IImage copy = imageDatabase.getImage("img-copy");
+    assertNotSame(source, copy);
+    assertTrue(copy instanceof CopyOnWriteImage);
+    source.setPixel(0, 0, 0, 0, 0);
+    assertArrayEquals(testImage.getPixel(0, 0), copy.getPixel(0, 0));
+  }
+
+  @Test
+  public void testCropCommandOutsideImage() {
+    imageDatabase.putImage("img", testImage);
+    String command = "crop 0 0 100 100 img out\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, imageDatabase);
+    controller.run();
+
+    assertEquals("Error: Crop rectangle is outside of the image\n", output.toString());
+  }
+
+  @Test
+  public void testResizeCommandKeepsAspectRatio() {
+    imageDatabase.putImage("img", testImage);
+    String command = "resize 4 0 lanczos img img-big\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, imageDatabase);
+    controller.run();
+
+    assertEquals("", output.toString());
+    IImage big = imageDatabase.getImage("img-big");
+    assertEquals(4, big.getWidth());
+    assertEquals(Math.round(4.0 * testImage.getHeight() / testImage.getWidth()),
+            big.getHeight());
+  }
+
+  @Test
+  public void testResizeCommandUnknownFilter() {
+    String command = "resize 4 4 cubic img out\n";
+    controller = new ImageControllerImpl(new StringReader(command), output, mockStorage);
+    controller.run();
+
+    assertEquals("Error: Unknown filter: cubic, use nearest, bilinear, area or lanczos\n",
+            output.toString());
+  }
+
+  @Test
+  public void testStagedStorageCommitsOnlyWhenAsked() {
+    imageDatabase.putImage("img", testImage);
+    StagedStorage staging = new StagedStorage(imageDatabase, "img");
+    new BrightenCommand(10, "img", "img-bright", staging).run();
+
+    assertFalse(imageDatabase.hasImage("img-bright"));
+    assertEquals(List.of("img-bright"), staging.getWrittenNames());
+    staging.commit();
+    assertSame(staging.getImage("img-bright"), imageDatabase.getImage("img-bright"));
+
+    StagedStorage cancelled = new StagedStorage(imageDatabase, "img");
+    new BrightenCommand(10, "img", "img", cancelled).run();
+    cancelled.discard();
+    assertSame(testImage, imageDatabase.getImage("img"));
+  }
+
+  @Test
+  public void testThumbnailFitsSizeAndKeepsAspectRatio() {
+    IImage image = new ImageImpl(200, 100, 255);
+    for (int y = 90; y < 100; y++) {
+      for (int x = 190; x < 200; x++) {
+        image.setPixel(x, y, 255, 0, 0);
+      }
+    }
+
+    IImage thumbnail = ThumbnailGenerator.createThumbnail(image, 48);
+    assertEquals(48, thumbnail.getWidth());
+    assertEquals(24, thumbnail.getHeight());
+    assertArrayEquals(new int[]{255, 0, 0}, thumbnail.getPixel(47, 23));
+
+    // an image that is not decoded yet is decoded subsampled and stays undecoded
+    LazyImage lazy = new LazyImage(200, 100, 255,
+            step -> new ImageImpl((200 + step - 1) / step, (100 + step - 1) / step, 255));
+    assertEquals(24, ThumbnailGenerator.createThumbnail(lazy, 48).getHeight());
+    assertFalse(lazy.isDecoded());
+    assertSame(testImage, ThumbnailGenerator.createThumbnail(testImage, 48));
+  }
+
+  @Test
+  public void testLazyLoadReadsOnlyTheHeader() {
+    new LoadCommand("./res/my_cat.png", "lazy", imageDatabase, true).run();
+    new LoadCommand("./res/my_cat.png", "eager", imageDatabase).run();
+    IImage lazy = imageDatabase.getImage("lazy");
+    IImage eager = imageDatabase.getImage("eager");
+
+    assertTrue(lazy instanceof LazyImage);
+    assertFalse(((LazyImage) lazy).isDecoded());
+    assertEquals(eager.getWidth(), lazy.getWidth());
+    assertEquals(eager.getHeight(), lazy.getHeight());
+    assertArrayEquals(eager.getPixel(10, 20), lazy.getPixel(10, 20));
+    assertTrue(((LazyImage) lazy).isDecoded());
+  }
+}
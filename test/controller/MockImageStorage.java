@@ -6,7 +6,11 @@ import java.util.List;
 import java.util.Map;
 
 import model.IImage;
+import model.IImageHistogram;
+import model.IImagePyramid;
 import model.IImageStorage;
+import model.ImageHistogramImpl;
+import model.ImagePyramidImpl;
 
 /**
  * Mock implementation of IImageStorage for testing controller parsing.
@@ -15,6 +19,7 @@ import model.IImageStorage;
 public class MockImageStorage implements IImageStorage {
   private final List<String> log;
   private final Map<String, IImage> images;
+  private final Map<String, IImageHistogram> histograms;
 
   /**
    * Constructor initializes the log and image storage.
@@ -22,6 +27,7 @@ public class MockImageStorage implements IImageStorage {
   public MockImageStorage() {
     this.log = new ArrayList<>();
     this.images = new HashMap<>();
+    this.histograms = new HashMap<>();
   }
 
   /**
@@ -79,6 +85,7 @@ public class MockImageStorage implements IImageStorage {
   public void putImage(String name, IImage image) {
     log.add("putImage: " + name);
     images.put(name, image);
+    histograms.remove(name);
   }
 
   /**
@@ -92,6 +99,78 @@ public class MockImageStorage implements IImageStorage {
     return new HashMap<>(images);
   }
 
+  /**
+   * Remove an image from database.
+   *
+   * @param name name of the image to delete.
+   */
+  @Override
+  public void removeImage(String name) {
+    log.add("removeImage: " + name);
+    images.remove(name);
+    histograms.remove(name);
+  }
+
+  /**
+   * Get the histogram of a stored image.
+   * Not logged, so the logs only show the calls the commands make on images.
+   *
+   * @param name the name of the image.
+   * @return the histogram of the image.
+   * @throws IllegalArgumentException if no image exists with this name.
+   */
+  @Override
+  public IImageHistogram getHistogram(String name) {
+    IImageHistogram histogram = histograms.get(name);
+    if (histogram == null) {
+      IImage image = images.get(name);
+      if (image == null) {
+        throw new IllegalArgumentException("No image found: " + name);
+      }
+      histogram = new ImageHistogramImpl(image);
+      histograms.put(name, histogram);
+    }
+    return histogram;
+  }
+
+  /**
+   * Checks if the histogram of a stored image is cached. Not logged.
+   *
+   * @param name the name of the image.
+   * @return true if the histogram is cached.
+   */
+  @Override
+  public boolean hasHistogram(String name) {
+    return histograms.containsKey(name);
+  }
+
+  /**
+   * Cache a histogram for a stored image. Not logged.
+   *
+   * @param name      the name of the image.
+   * @param histogram the histogram of the image.
+   */
+  @Override
+  public void putHistogram(String name, IImageHistogram histogram) {
+    histograms.put(name, histogram);
+  }
+
+  /**
+   * Get the pyramid of a stored image. Not logged.
+   *
+   * @param name the name of the image.
+   * @return a new pyramid of the image.
+   * @throws IllegalArgumentException if no image exists with this name.
+   */
+  @Override
+  public IImagePyramid getPyramid(String name) {
+    IImage image = images.get(name);
+    if (image == null) {
+      throw new IllegalArgumentException("No image found: " + name);
+    }
+    return new ImagePyramidImpl(image);
+  }
+
   /**
    * Get all the logs.
    *
@@ -3,26 +3,51 @@ package model;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 
+import controller.commands.BrightenCommand;
 import operations.BlueGreyScaleOperation;
+import operations.BorderMode;
+import operations.BoxBlurOperation;
 import operations.BrightenOperation;
+import operations.ConvolutionOperation;
+import operations.EqualizeOperation;
+import operations.GaussianBlurOperation;
 import operations.GreenGreyScaleOperation;
 import operations.IOperation;
+import operations.IPointOperation;
 import operations.IntensityGreyScaleOperation;
+import operations.Kernel;
+import operations.LevelsOperation;
 import operations.LumaGreyScaleOperation;
+import operations.RankFilterOperation;
 import operations.RedGreyScaleOperation;
+import operations.ResizeFilter;
+import operations.ResizeOperation;
+import operations.RotateOperation;
+import operations.SobelOperation;
+import operations.SummedAreaTable;
+import operations.TransposeOperation;
 import operations.ValueGreyScaleOperation;
 import view.reader.IViewReader;
 import view.reader.PPMReader;
 import view.writer.IWriter;
 import view.writer.PPMWriter;
+import view.writer.StandardImageWriter;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Extensive test cases to test all the Interfaces and implementation.
@@ -185,6 +210,1283 @@ public class IImageTest {
     assertArrayEquals(new int[]{255, 255, 255}, image.getPixel(1, 1));
   }
 
+  /**
+   * Copy-on-write Image Tests.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testCopyOnWriteImageNullImage() {
+    new CopyOnWriteImage(null);
+  }
+
+  @Test
+  public void testCopyOnWriteImageCopiesSource() {
+    IImage source = new ImageImpl(2, 1, 255);
+    source.setPixel(0, 0, 10, 20, 30);
+    source.setPixel(1, 0, 40, 50, 60);
+
+    IImage image = new CopyOnWriteImage(source);
+    source.setPixel(0, 0, 0, 0, 0);
+
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertArrayEquals(new int[]{10, 20, 30}, image.getPixel(0, 0));
+    assertArrayEquals(new int[]{40, 50, 60}, image.getPixel(1, 0));
+  }
+
+  @Test
+  public void testCopyOnWriteSnapshotIsIndependent() {
+    CopyOnWriteImage image = new CopyOnWriteImage(2, 2, 255);
+    image.setPixel(0, 0, 100, 150, 200);
+    image.setPixel(1, 1, 1, 2, 3);
+
+    CopyOnWriteImage snapshot = image.snapshot();
+    image.setPixel(0, 0, 5, 5, 5);
+    snapshot.setPixel(1, 1, 9, 9, 9);
+
+    assertArrayEquals(new int[]{5, 5, 5}, image.getPixel(0, 0));
+    assertArrayEquals(new int[]{1, 2, 3}, image.getPixel(1, 1));
+    assertArrayEquals(new int[]{100, 150, 200}, snapshot.getPixel(0, 0));
+    assertArrayEquals(new int[]{9, 9, 9}, snapshot.getPixel(1, 1));
+  }
+
+  @Test
+  public void testCopyOnWriteSnapshotOfSnapshot() {
+    CopyOnWriteImage image = new CopyOnWriteImage(1, 1, 255);
+    image.setPixel(0, 0, 10, 10, 10);
+    CopyOnWriteImage first = image.snapshot();
+    CopyOnWriteImage second = first.snapshot();
+
+    first.setPixel(0, 0, 20, 20, 20);
+
+    assertArrayEquals(new int[]{10, 10, 10}, image.getPixel(0, 0));
+    assertArrayEquals(new int[]{20, 20, 20}, first.getPixel(0, 0));
+    assertArrayEquals(new int[]{10, 10, 10}, second.getPixel(0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCopyOnWriteSetPixelOutOfRange() {
+    new CopyOnWriteImage(2, 2, 255).setPixel(0, 0, 256, 0, 0);
+  }
+
+  /**
+   * Tiled Image Tests.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testTiledImageInvalidTileSize() {
+    new TiledImage(10, 10, 255, 0, 4);
+  }
+
+  @Test
+  public void testTiledImageUnwrittenPixelsAreBlack() {
+    IImage image = new TiledImage(5, 5, 255, 2, 1);
+    assertArrayEquals(new int[]{0, 0, 0}, image.getPixel(4, 4));
+  }
+
+  @Test
+  public void testTiledImageEvictsAndReloadsTiles() {
+    TiledImage image = new TiledImage(5, 3, 255, 2, 2);
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 5; x++) {
+        image.setPixel(x, y, x, y, x + y);
+      }
+    }
+    assertEquals(2, image.getResidentTileCount());
+
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 5; x++) {
+        assertArrayEquals(new int[]{x, y, x + y}, image.getPixel(x, y));
+      }
+    }
+    image.close();
+  }
+
+  @Test
+  public void testTiledImageRegionAcrossTiles() {
+    TiledImage image = new TiledImage(5, 5, 255, 2, 2);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 5; x++) {
+        image.setPixel(x, y, x, y, x + y);
+      }
+    }
+    int[] region = new int[3 * 4 * 3];
+    image.getRegion(1, 1, 3, 4, region);
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 3; x++) {
+        int i = (y * 3 + x) * 3;
+        assertArrayEquals(new int[]{x + 1, y + 1, x + y + 2},
+                new int[]{region[i], region[i + 1], region[i + 2]});
+      }
+    }
+    image.close();
+  }
+
+  @Test
+  public void testTiledImageForEachTileCoversImage() {
+    IImage image = new TiledImage(5, 3, 255, 2, 2);
+    int[] area = new int[1];
+    image.forEachTile((x, y, width, height) -> area[0] += width * height);
+    assertEquals(15, area[0]);
+  }
+
+  @Test
+  public void testOperationOnTiledImageGivesTiledImage() {
+    IImage image = new TiledImage(3, 3, 255, 2, 1);
+    image.setPixel(2, 2, 10, 20, 30);
+
+    IImage result = new BrightenOperation(10).apply(image);
+
+    assertTrue(result instanceof TiledImage);
+    assertArrayEquals(new int[]{20, 30, 40}, result.getPixel(2, 2));
+    assertArrayEquals(new int[]{10, 10, 10}, result.getPixel(0, 0));
+  }
+
+  /**
+   * Off-heap Image Tests.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testImageImplTooLarge() {
+    new ImageImpl(50000, 50000, 255);
+  }
+
+  @Test
+  public void testOffHeapImageSetGetPixel() {
+    IImage image = new OffHeapImage(3, 2, 255);
+    image.setPixel(2, 1, 255, 128, 0);
+    assertArrayEquals(new int[]{255, 128, 0}, image.getPixel(2, 1));
+    assertArrayEquals(new int[]{0, 0, 0}, image.getPixel(0, 0));
+  }
+
+  @Test
+  public void testOffHeapImageSixteenBit() {
+    IImage image = new OffHeapImage(2, 2, 65535);
+    image.setPixel(1, 1, 65535, 300, 1);
+    assertArrayEquals(new int[]{65535, 300, 1}, image.getPixel(1, 1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testOffHeapImageClosed() {
+    OffHeapImage image = new OffHeapImage(2, 2, 255);
+    image.close();
+    image.getPixel(0, 0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStorageClosesRemovedOffHeapImage() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new OffHeapImage(2, 2, 255);
+    storage.putImage("big", image);
+    storage.removeImage("big");
+    image.getPixel(0, 0);
+  }
+
+  @Test
+  public void testStorageKeepsOffHeapImageStoredTwice() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new OffHeapImage(2, 2, 255);
+    storage.putImage("big", image);
+    storage.putImage("copy", image);
+    storage.removeImage("big");
+    assertArrayEquals(new int[]{0, 0, 0}, image.getPixel(0, 0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStorageClosesRemovedImageAfterLastReader() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new OffHeapImage(2, 2, 255);
+    storage.putImage("big", image);
+    storage.retain(image);
+    storage.retain(image);
+    storage.removeImage("big");
+    storage.release(image);
+    // one reader is still reading it
+    assertArrayEquals(new int[]{0, 0, 0}, image.getPixel(0, 0));
+    storage.release(image);
+    image.getPixel(0, 0);
+  }
+
+  @Test
+  public void testStorageKeepsReaddedImageOpenAfterReader() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new OffHeapImage(2, 2, 255);
+    storage.putImage("big", image);
+    storage.retain(image);
+    storage.removeImage("big");
+    storage.putImage("again", image);
+    storage.release(image);
+    assertArrayEquals(new int[]{0, 0, 0}, image.getPixel(0, 0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testClosedPyramidCannotBeUsed() {
+    ImagePyramidImpl pyramid = new ImagePyramidImpl(new ImageImpl(4, 4, 255));
+    pyramid.close();
+    assertFalse(pyramid.hasLevel(0));
+    pyramid.getLevel(1);
+  }
+
+  /**
+   * Greyscale Image Tests.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGreyImageUnequalComponents() {
+    new GreyImage(2, 2, 255).setPixel(0, 0, 10, 20, 10);
+  }
+
+  @Test
+  public void testGreyImageReadsEqualComponents() {
+    GreyImage image = new GreyImage(2, 1, 255);
+    image.setGrey(1, 0, 200);
+    assertArrayEquals(new int[]{200, 200, 200}, image.getPixel(1, 0));
+    assertEquals(200, image.getGrey(1, 0));
+  }
+
+  @Test
+  public void testGreyImageSixteenBit() {
+    GreyImage image = new GreyImage(1, 1, 65535);
+    image.setPixel(0, 0, 40000, 40000, 40000);
+    assertEquals(40000, image.getGrey(0, 0));
+  }
+
+  @Test
+  public void testGrayscaleOperationGivesGreyImage() {
+    IImage image = new ImageImpl(1, 1, 255);
+    image.setPixel(0, 0, 10, 20, 30);
+    IImage result = new BlueGreyScaleOperation().apply(image);
+    assertTrue(result instanceof GreyImage);
+    assertArrayEquals(new int[]{30, 30, 30}, result.getPixel(0, 0));
+  }
+
+  @Test
+  public void testPGMWriteAndRead() throws IOException {
+    GreyImage image = new GreyImage(2, 1, 255);
+    image.setGrey(0, 0, 12);
+    image.setGrey(1, 0, 34);
+
+    StringBuilder builder = new StringBuilder();
+    new PPMWriter(builder, true).write(image);
+    assertEquals("P2\n2 1\n255\n 12 34\n", builder.toString());
+
+    IImage read = new PPMReader(new StringReader(builder.toString())).read();
+    assertTrue(read instanceof GreyImage);
+    assertArrayEquals(new int[]{34, 34, 34}, read.getPixel(1, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPGMWriterColorImage() throws IOException {
+    IImage image = new ImageImpl(1, 1, 255);
+    image.setPixel(0, 0, 1, 2, 3);
+    new PPMWriter(new StringBuilder(), true).write(image);
+  }
+
+  /**
+   * Test bulk row access and the parallel histogram.
+   */
+  @Test
+  public void testGetRowMatchesPixels() {
+    IImage[] images = {new ImageImpl(5, 3, 255), new TiledImage(5, 3, 255, 2, 4),
+        new CopyOnWriteImage(5, 3, 255), new OffHeapImage(5, 3, 255)};
+    for (IImage image : images) {
+      image.setPixel(4, 1, 7, 8, 9);
+      image.setPixel(0, 1, 1, 2, 3);
+      int[] row = new int[15];
+      image.getRow(1, row);
+      assertArrayEquals(new int[]{1, 2, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 7, 8, 9}, row);
+    }
+  }
+
+  @Test
+  public void testSetRow() {
+    IImage image = new ImageImpl(2, 2, 255);
+    image.setRow(1, new int[]{1, 2, 3, 4, 5, 6});
+    assertArrayEquals(new int[]{4, 5, 6}, image.getPixel(1, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetRowOutOfRange() {
+    new ImageImpl(1, 1, 255).setRow(0, new int[]{1, 2, 256});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRowTooShort() {
+    new ImageImpl(2, 1, 255).getRow(0, new int[5]);
+  }
+
+  @Test
+  public void testParallelHistogramMatchesPixelCount() {
+    IImage image = new ImageImpl(300, 300, 255);
+    int[] red = new int[256];
+    int[] intensity = new int[256];
+    for (int y = 0; y < 300; y++) {
+      for (int x = 0; x < 300; x++) {
+        int r = (x * 7 + y) % 256;
+        int g = (x + y * 3) % 256;
+        int b = (x * y) % 256;
+        image.setPixel(x, y, r, g, b);
+        red[r]++;
+        intensity[(r + g + b) / 3]++;
+      }
+    }
+    IImageHistogram histogram = new ImageHistogramImpl(image);
+    assertArrayEquals(red, histogram.getRedHistogram());
+    assertArrayEquals(intensity, histogram.getIntensityHistogram());
+  }
+
+  @Test
+  public void testHistogramSelectedChannels() {
+    IImage image = new ImageImpl(2, 1, 255);
+    image.setPixel(0, 0, 10, 20, 30);
+    image.setPixel(1, 0, 10, 40, 50);
+    IImageHistogram histogram = new ImageHistogramImpl(image,
+            EnumSet.of(HistogramChannel.RED));
+    assertEquals(2, histogram.getRedHistogram()[10]);
+    assertArrayEquals(new int[256], histogram.getGreenHistogram());
+    assertArrayEquals(new int[256], histogram.getIntensityHistogram());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHistogramRejectsImageTooLargeToCount() {
+    // 65536 x 65536 pixels of one value would overflow an integer bin, nothing is decoded
+    IImage image = new LazyImage(1 << 16, 1 << 16, 255, step -> {
+      throw new IOException("should not be decoded");
+    });
+    new ImageHistogramImpl(image);
+  }
+
+  @Test
+  public void testStorageCachesHistogram() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new ImageImpl(1, 1, 255);
+    image.setPixel(0, 0, 10, 20, 30);
+    storage.addImage("a", image);
+    IImageHistogram first = storage.getHistogram("a");
+    assertTrue(first == storage.getHistogram("a"));
+    assertEquals(1, first.getRedHistogram()[10]);
+  }
+
+  @Test
+  public void testStorageHistogramInvalidatedOnPut() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new ImageImpl(1, 1, 255);
+    storage.addImage("a", image);
+    IImageHistogram first = storage.getHistogram("a");
+
+    IImage replacement = new ImageImpl(1, 1, 255);
+    replacement.setPixel(0, 0, 40, 40, 40);
+    storage.putImage("a", replacement);
+    IImageHistogram second = storage.getHistogram("a");
+    assertTrue(first != second);
+    assertEquals(1, second.getRedHistogram()[40]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStorageHistogramRemovedImage() {
+    IImageStorage storage = new ImageStorageImpl();
+    storage.addImage("a", new ImageImpl(1, 1, 255));
+    storage.getHistogram("a");
+    storage.removeImage("a");
+    storage.getHistogram("a");
+  }
+
+  /**
+   * Test histograms derived by point operations against scanning the result.
+   */
+  private static void assertSameHistogram(IImageHistogram expected, IImageHistogram actual) {
+    assertArrayEquals(expected.getRedHistogram(), actual.getRedHistogram());
+    assertArrayEquals(expected.getGreenHistogram(), actual.getGreenHistogram());
+    assertArrayEquals(expected.getBlueHistogram(), actual.getBlueHistogram());
+    assertArrayEquals(expected.getIntensityHistogram(), actual.getIntensityHistogram());
+  }
+
+  private static IImage histogramTestImage() {
+    IImage image = new ImageImpl(3, 1, 255);
+    image.setPixel(0, 0, 10, 20, 31);
+    image.setPixel(1, 0, 100, 150, 200);
+    image.setPixel(2, 0, 0, 5, 250);
+    return image;
+  }
+
+  @Test
+  public void testBrightenMapHistogramNoClamping() {
+    IImage image = histogramTestImage();
+    BrightenOperation operation = new BrightenOperation(5);
+    IImageHistogram mapped = operation.mapHistogram(new ImageHistogramImpl(image), 255);
+    assertEquals(EnumSet.allOf(HistogramChannel.class), mapped.getChannels());
+    assertSameHistogram(new ImageHistogramImpl(operation.apply(image)), mapped);
+  }
+
+  @Test
+  public void testBrightenMapHistogramClamping() {
+    IImage image = histogramTestImage();
+    BrightenOperation operation = new BrightenOperation(-20);
+    IImageHistogram mapped = operation.mapHistogram(new ImageHistogramImpl(image), 255);
+    assertEquals(2, mapped.getRedHistogram()[0]);
+    assertTrue(!mapped.getChannels().contains(HistogramChannel.INTENSITY));
+
+    IImage result = operation.apply(image);
+    assertSameHistogram(new ImageHistogramImpl(result),
+            ImageHistogramImpl.complete(mapped, result));
+  }
+
+  @Test
+  public void testComponentMapHistogram() {
+    IImage image = histogramTestImage();
+    IImageHistogram source = new ImageHistogramImpl(image);
+    IPointOperation[] operations = {new RedGreyScaleOperation(), new GreenGreyScaleOperation(),
+        new BlueGreyScaleOperation(), new IntensityGreyScaleOperation()};
+    for (IPointOperation operation : operations) {
+      assertSameHistogram(new ImageHistogramImpl(operation.apply(image)),
+              operation.mapHistogram(source, 255));
+    }
+    assertEquals(null, new LumaGreyScaleOperation().mapHistogram(source, 255));
+  }
+
+  @Test
+  public void testCommandCachesDerivedHistogram() {
+    IImageStorage storage = new ImageStorageImpl();
+    storage.addImage("a", histogramTestImage());
+    storage.getHistogram("a");
+    new BrightenCommand(30, "a", "b", storage).run();
+    assertTrue(storage.hasHistogram("b"));
+    assertSameHistogram(new ImageHistogramImpl(storage.getImage("b")),
+            storage.getHistogram("b"));
+  }
+
+  @Test
+  public void testSampledHistogramWithinErrorBound() {
+    IImage image = new ImageImpl(1000, 1000, 255);
+    for (int y = 0; y < 1000; y++) {
+      for (int x = 0; x < 1000; x++) {
+        int v = (x * 31 + y * 17) % 256;
+        image.setPixel(x, y, v, 255 - v, (x * y) % 256);
+      }
+    }
+    IImageHistogram exact = new ImageHistogramImpl(image);
+    IImageHistogram sampled = ImageHistogramImpl.sampled(image, 0.05);
+    assertTrue(sampled.isApproximate());
+
+    int[] exactRed = exact.getRedHistogram();
+    int[] sampledRed = sampled.getRedHistogram();
+    long exactSum = 0;
+    long sampledSum = 0;
+    for (int i = 0; i < 256; i++) {
+      exactSum += exactRed[i];
+      sampledSum += sampledRed[i];
+      assertTrue(Math.abs(exactSum - sampledSum) <= 0.05 * 1000 * 1000);
+    }
+  }
+
+  @Test
+  public void testSampledHistogramSmallImageIsExact() {
+    IImage image = histogramTestImage();
+    IImageHistogram sampled = ImageHistogramImpl.sampled(image, 0.05);
+    assertTrue(!sampled.isApproximate());
+    assertSameHistogram(new ImageHistogramImpl(image), sampled);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSampledHistogramBadErrorBound() {
+    ImageHistogramImpl.sampled(new ImageImpl(1, 1, 255), 0);
+  }
+
+  @Test
+  public void testSixteenBitHistogramKeepsValues() {
+    IImage image = new ImageImpl(2, 1, 65535);
+    image.setPixel(0, 0, 1000, 0, 65535);
+    image.setPixel(1, 0, 1001, 0, 65535);
+    IImageHistogram histogram = new ImageHistogramImpl(image);
+    assertEquals(65536, histogram.getRedHistogram().length);
+    assertEquals(1, histogram.getRedHistogram()[1000]);
+    assertEquals(1, histogram.getRedHistogram()[1001]);
+    assertEquals(2, histogram.getBlueHistogram()[65535]);
+    assertEquals(1, histogram.getBinWidth());
+  }
+
+  @Test
+  public void testHistogramDownsample() {
+    IImage image = new ImageImpl(2, 1, 65535);
+    image.setPixel(0, 0, 1000, 0, 65535);
+    image.setPixel(1, 0, 1001, 0, 65535);
+    IImageHistogram display = new ImageHistogramImpl(image).downsample(256);
+    assertEquals(256, display.getRedHistogram().length);
+    assertEquals(256, display.getBinWidth());
+    assertEquals(2, display.getRedHistogram()[1000 / 256]);
+    assertEquals(2, display.getBlueHistogram()[255]);
+    assertEquals(65535, display.getMaxValue());
+  }
+
+  @Test
+  public void testHistogramAdaptiveBins() {
+    IImage image = new ImageImpl(1, 1, 1 << 20);
+    image.setPixel(0, 0, 1 << 20, 0, 0);
+    IImageHistogram histogram = new ImageHistogramImpl(image);
+    assertEquals(17, histogram.getBinWidth());
+    assertEquals(1, histogram.getRedHistogram()[(1 << 20) / 17]);
+  }
+
+  @Test
+  public void testSixteenBitBrightenMapHistogram() {
+    IImage image = new ImageImpl(2, 1, 65535);
+    image.setPixel(0, 0, 1000, 2000, 60000);
+    image.setPixel(1, 0, 30000, 40000, 50000);
+    BrightenOperation operation = new BrightenOperation(1000);
+    assertSameHistogram(new ImageHistogramImpl(operation.apply(image)),
+            operation.mapHistogram(new ImageHistogramImpl(image), 65535));
+  }
+
+  @Test
+  public void testStatisticsMatchDirectComputation() {
+    IImage image = new ImageImpl(400, 300, 255);
+    double sum = 0;
+    double sumSquares = 0;
+    for (int y = 0; y < 300; y++) {
+      for (int x = 0; x < 400; x++) {
+        int r = (x * 7 + y * 3) % 256;
+        image.setPixel(x, y, r, x % 200, 255 - y % 100);
+        sum += r;
+        sumSquares += (double) r * r;
+      }
+    }
+    IImageStatistics stats = new ImageStatisticsImpl(image, new ImageHistogramImpl(image));
+    double mean = sum / 120000;
+    assertEquals(120000, stats.getPixelCount());
+    assertEquals(mean, stats.getMean(HistogramChannel.RED), 1e-9);
+    assertEquals(sumSquares / 120000 - mean * mean,
+            stats.getVariance(HistogramChannel.RED), 1e-6);
+    assertEquals(0, stats.getMin(HistogramChannel.GREEN));
+    assertEquals(199, stats.getMax(HistogramChannel.GREEN));
+    assertEquals(156, stats.getMin(HistogramChannel.BLUE));
+  }
+
+  @Test
+  public void testStatisticsPercentiles() {
+    IImage image = new ImageImpl(4, 1, 255);
+    image.setPixel(0, 0, 10, 0, 0);
+    image.setPixel(1, 0, 20, 0, 0);
+    image.setPixel(2, 0, 30, 0, 0);
+    image.setPixel(3, 0, 40, 0, 0);
+    IImageStatistics stats = new ImageStatisticsImpl(image, new ImageHistogramImpl(image));
+    assertEquals(10, stats.getPercentile(HistogramChannel.RED, 0));
+    assertEquals(10, stats.getPercentile(HistogramChannel.RED, 25));
+    assertEquals(20, stats.getPercentile(HistogramChannel.RED, 50));
+    assertEquals(40, stats.getPercentile(HistogramChannel.RED, 100));
+    assertEquals(25.0, stats.getMean(HistogramChannel.RED), 1e-9);
+    assertEquals(125.0, stats.getVariance(HistogramChannel.RED), 1e-9);
+  }
+
+  @Test
+  public void testStatisticsCountedPercentilesMatchHistogram() {
+    IImage image = new ImageImpl(400, 300, 255);
+    for (int y = 0; y < 300; y++) {
+      for (int x = 0; x < 400; x++) {
+        image.setPixel(x, y, (x * 7 + y * 3) % 256, x % 200, 255 - y % 100);
+      }
+    }
+    IImageStatistics counted = new ImageStatisticsImpl(image);
+    IImageStatistics known = new ImageStatisticsImpl(image, new ImageHistogramImpl(image));
+    for (HistogramChannel channel : HistogramChannel.values()) {
+      for (double percentile : new double[]{1, 25, 50, 75, 99, 100}) {
+        assertEquals(known.getPercentile(channel, percentile),
+                counted.getPercentile(channel, percentile));
+      }
+      assertEquals(known.getMean(channel), counted.getMean(channel), 1e-9);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStatisticsApproximateHistogram() {
+    IImage image = new ImageImpl(2000, 2000, 255);
+    new ImageStatisticsImpl(image, ImageHistogramImpl.sampled(image, 0.1));
+  }
+
+  @Test
+  public void testEqualizeSpreadsValues() {
+    IImage image = new ImageImpl(4, 1, 255);
+    image.setPixel(0, 0, 100, 100, 100);
+    image.setPixel(1, 0, 101, 101, 101);
+    image.setPixel(2, 0, 102, 102, 102);
+    image.setPixel(3, 0, 103, 103, 103);
+    IImage result = new EqualizeOperation().apply(image);
+    assertArrayEquals(new int[]{0, 0, 0}, result.getPixel(0, 0));
+    assertArrayEquals(new int[]{85, 85, 85}, result.getPixel(1, 0));
+    assertArrayEquals(new int[]{170, 170, 170}, result.getPixel(2, 0));
+    assertArrayEquals(new int[]{255, 255, 255}, result.getPixel(3, 0));
+  }
+
+  @Test
+  public void testLevelsStretchesRange() {
+    IImage image = new ImageImpl(3, 1, 255);
+    image.setPixel(0, 0, 50, 0, 10);
+    image.setPixel(1, 0, 100, 0, 10);
+    image.setPixel(2, 0, 150, 255, 10);
+    IImage result = new LevelsOperation(0).apply(image);
+    assertArrayEquals(new int[]{0, 0, 10}, result.getPixel(0, 0));
+    assertArrayEquals(new int[]{128, 0, 10}, result.getPixel(1, 0));
+    assertArrayEquals(new int[]{255, 255, 10}, result.getPixel(2, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLevelsBadClip() {
+    new LevelsOperation(50);
+  }
+
+  @Test
+  public void testLutMapHistogramMatchesScan() {
+    IImage image = new ImageImpl(300, 300, 255);
+    for (int y = 0; y < 300; y++) {
+      for (int x = 0; x < 300; x++) {
+        image.setPixel(x, y, (x + y) % 120 + 40, x % 90, (x * y) % 256);
+      }
+    }
+    IImageHistogram source = new ImageHistogramImpl(image);
+    IPointOperation[] operations = {new EqualizeOperation(source), new LevelsOperation(1, source)};
+    for (IPointOperation operation : operations) {
+      IImage result = operation.apply(image);
+      assertSameHistogram(new ImageHistogramImpl(result),
+              ImageHistogramImpl.complete(operation.mapHistogram(source, 255), result));
+    }
+  }
+
+  @Test
+  public void testKernelSeparability() {
+    Kernel blur = Kernel.blur();
+    assertTrue(blur.isSeparable());
+    double[] row = blur.getRowVector();
+    double[] column = blur.getColumnVector();
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 3; x++) {
+        assertEquals(blur.getWeight(x, y), column[y] * row[x], 1e-12);
+      }
+    }
+    assertTrue(Kernel.sobelX().isSeparable());
+    assertTrue(Kernel.gaussian(1.5).isSeparable());
+    assertFalse(Kernel.sharpen().isSeparable());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKernelEvenSize() {
+    new Kernel(2, 3, 1, 1, 1, 1, 1, 1);
+  }
+
+  @Test
+  public void testConvolutionMatchesDirectSum() {
+    // several tiles, and both the fixed point and the floating point paths
+    for (int maxValue : new int[]{255, 1000}) {
+      IImage image = new ImageImpl(300, 200, maxValue);
+      for (int y = 0; y < 200; y++) {
+        for (int x = 0; x < 300; x++) {
+          image.setPixel(x, y, (x * 7 + y * 3) % (maxValue + 1), (x * y) % (maxValue + 1),
+                  y % 2 == 0 ? maxValue : 0);
+        }
+      }
+      for (Kernel kernel : new Kernel[]{Kernel.blur(), Kernel.sharpen()}) {
+        for (BorderMode border : BorderMode.values()) {
+          IImage result = new ConvolutionOperation(kernel, border).apply(image);
+          for (int y = 0; y < 200; y += 7) {
+            for (int x = 0; x < 300; x += 3) {
+              assertArrayEquals(kernel + " " + border,
+                      convolvePixel(image, kernel, border, x, y), result.getPixel(x, y));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSobelFindsVerticalEdge() {
+    IImage image = new ImageImpl(6, 4, 255);
+    for (int y = 0; y < 4; y++) {
+      for (int x = 3; x < 6; x++) {
+        image.setPixel(x, y, 40, 40, 40);
+      }
+    }
+    IImage result = new SobelOperation().apply(image);
+    assertArrayEquals(new int[]{0, 0, 0}, result.getPixel(0, 1));
+    assertArrayEquals(new int[]{160, 160, 160}, result.getPixel(2, 1));
+    assertArrayEquals(new int[]{160, 160, 160}, result.getPixel(3, 1));
+    assertArrayEquals(new int[]{0, 0, 0}, result.getPixel(5, 1));
+  }
+
+  /**
+   * Helper function to convolve a single pixel straight from the definition.
+   */
+  private static int[] convolvePixel(IImage image, Kernel kernel, BorderMode border,
+                                     int x, int y) {
+    double[] sum = new double[3];
+    int rx = kernel.getWidth() / 2;
+    int ry = kernel.getHeight() / 2;
+    for (int ky = 0; ky < kernel.getHeight(); ky++) {
+      for (int kx = 0; kx < kernel.getWidth(); kx++) {
+        int sx = borderIndex(border, x + kx - rx, image.getWidth());
+        int sy = borderIndex(border, y + ky - ry, image.getHeight());
+        if (sx < 0 || sy < 0) {
+          continue;
+        }
+        int[] pixel = image.getPixel(sx, sy);
+        for (int c = 0; c < 3; c++) {
+          sum[c] += kernel.getWeight(kx, ky) * pixel[c];
+        }
+      }
+    }
+    int[] result = new int[3];
+    for (int c = 0; c < 3; c++) {
+      result[c] = (int) Math.max(0, Math.min(image.getMaxValue(), Math.round(sum[c])));
+    }
+    return result;
+  }
+
+  private static int borderIndex(BorderMode border, int index, int length) {
+    if (index >= 0 && index < length) {
+      return index;
+    }
+    switch (border) {
+      case CLAMP:
+        return index < 0 ? 0 : length - 1;
+      case REFLECT:
+        return index < 0 ? -index : 2 * (length - 1) - index;
+      case WRAP:
+        return Math.floorMod(index, length);
+      default:
+        return -1;
+    }
+  }
+
+  @Test
+  public void testSummedAreaTableSums() {
+    IImage image = new ImageImpl(7, 5, 255);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 7; x++) {
+        image.setPixel(x, y, x * 30 + y, y * 50, 255);
+      }
+    }
+    SummedAreaTable table = new SummedAreaTable(image);
+    SummedAreaTable band = new SummedAreaTable(image, 1, 4);
+    long red = 0;
+    for (int y = 1; y < 4; y++) {
+      for (int x = 2; x < 6; x++) {
+        red += image.getPixel(x, y)[0];
+      }
+    }
+    assertEquals(red, table.sum(0, 2, 1, 6, 4));
+    assertEquals(red, band.sum(0, 2, 1, 6, 4));
+    assertEquals(255L * 35, table.sum(2, 0, 0, 7, 5));
+    assertEquals(100.0, table.mean(1, 0, 2, 7, 3), 1e-12);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSummedAreaTableOutsideBand() {
+    new SummedAreaTable(new ImageImpl(4, 4, 255), 1, 3).sum(0, 0, 0, 4, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBoxBlurRejectsWindowSumOverflow() {
+    IImage image = new LazyImage(1, 1, Integer.MAX_VALUE, step -> {
+      throw new IOException("should not be decoded");
+    });
+    new BoxBlurOperation(BoxBlurOperation.MAX_RADIUS).apply(image);
+  }
+
+  @Test
+  public void testBoxBlurMatchesWindowMean() {
+    // enough rows for several parallel bands
+    IImage image = new ImageImpl(300, 250, 255);
+    for (int y = 0; y < 250; y++) {
+      for (int x = 0; x < 300; x++) {
+        image.setPixel(x, y, (x * 7 + y * 3) % 256, (x * y) % 256, y % 2 == 0 ? 255 : 0);
+      }
+    }
+    int radius = 3;
+    for (BorderMode border : BorderMode.values()) {
+      IImage result = new BoxBlurOperation(radius, border).apply(image);
+      for (int y = 0; y < 250; y += 7) {
+        for (int x = 0; x < 300; x += 3) {
+          long[] sum = new long[3];
+          for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+              int sx = borderIndex(border, x + dx, 300);
+              int sy = borderIndex(border, y + dy, 250);
+              if (sx >= 0 && sy >= 0) {
+                int[] pixel = image.getPixel(sx, sy);
+                for (int c = 0; c < 3; c++) {
+                  sum[c] += pixel[c];
+                }
+              }
+            }
+          }
+          int[] expected = new int[3];
+          for (int c = 0; c < 3; c++) {
+            expected[c] = (int) ((sum[c] + 24) / 49);
+          }
+          assertArrayEquals(border.toString(), expected, result.getPixel(x, y));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testGaussianBlurSpreadsImpulse() {
+    IImage image = new ImageImpl(41, 41, 1000);
+    image.setPixel(20, 20, 1000, 1000, 1000);
+    for (int y = 0; y < 41; y++) {
+      for (int x = 0; x < 41; x++) {
+        image.setPixel(x, y, 500, 500, image.getPixel(x, y)[2]);
+      }
+    }
+    IImage result = new GaussianBlurOperation(2).apply(image);
+    assertArrayEquals(new int[]{500, 500, 0}, result.getPixel(0, 0));
+    int center = result.getPixel(20, 20)[2];
+    assertTrue(center > 0 && center < 1000);
+    assertEquals(result.getPixel(18, 20)[2], result.getPixel(20, 22)[2]);
+    assertEquals(0, result.getPixel(20, 30)[2]);
+  }
+
+  @Test
+  public void testMedianRemovesSaltNoise() {
+    IImage image = new ImageImpl(5, 5, 255);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 5; x++) {
+        image.setPixel(x, y, 100, 100, 100);
+      }
+    }
+    image.setPixel(2, 2, 255, 0, 255);
+    IImage result = RankFilterOperation.median(1).apply(image);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 5; x++) {
+        assertArrayEquals(new int[]{100, 100, 100}, result.getPixel(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testRankFilterMatchesSortedWindow() {
+    // several bands, snake order in both directions, and a deeper image
+    for (int maxValue : new int[]{255, 1000}) {
+      IImage image = new ImageImpl(300, 250, maxValue);
+      for (int y = 0; y < 250; y++) {
+        for (int x = 0; x < 300; x++) {
+          image.setPixel(x, y, (x * 7 + y * 13) % (maxValue + 1), (x * y) % (maxValue + 1),
+                  (x ^ y) % (maxValue + 1));
+        }
+      }
+      int radius = 2;
+      for (double percentile : new double[]{0, 30, 50, 100}) {
+        for (BorderMode border : new BorderMode[]{BorderMode.REFLECT, BorderMode.ZERO}) {
+          IImage result = new RankFilterOperation(radius, percentile, border).apply(image);
+          for (int y = 0; y < 250; y += 11) {
+            for (int x = 0; x < 300; x += 7) {
+              int[] expected = new int[3];
+              for (int c = 0; c < 3; c++) {
+                int[] values = new int[25];
+                int count = 0;
+                for (int dy = -radius; dy <= radius; dy++) {
+                  for (int dx = -radius; dx <= radius; dx++) {
+                    int sx = borderIndex(border, x + dx, 300);
+                    int sy = borderIndex(border, y + dy, 250);
+                    values[count++] = sx < 0 || sy < 0 ? 0 : image.getPixel(sx, sy)[c];
+                  }
+                }
+                Arrays.sort(values);
+                expected[c] = values[(int) Math.round(percentile / 100 * 24)];
+              }
+              assertArrayEquals(percentile + " " + border, expected, result.getPixel(x, y));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRankFilterBadPercentile() {
+    new RankFilterOperation(1, 101);
+  }
+
+  @Test
+  public void testImageViewsRemapPixels() {
+    IImage image = new ImageImpl(4, 3, 255);
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 4; x++) {
+        image.setPixel(x, y, x, y, 0);
+      }
+    }
+    assertArrayEquals(new int[]{2, 1, 0}, ImageView.crop(image, 1, 1, 2, 2).getPixel(1, 0));
+    assertArrayEquals(new int[]{3, 0, 0}, ImageView.flipHorizontal(image).getPixel(0, 0));
+    assertArrayEquals(new int[]{0, 2, 0}, ImageView.flipVertical(image).getPixel(0, 0));
+    assertArrayEquals(new int[]{2, 1, 0}, ImageView.transpose(image).getPixel(1, 2));
+
+    ImageView rotated = ImageView.rotate(image, 90);
+    assertEquals(3, rotated.getWidth());
+    assertEquals(4, rotated.getHeight());
+    assertArrayEquals(new int[]{0, 2, 0}, rotated.getPixel(0, 0));
+    assertArrayEquals(new int[]{3, 0, 0}, rotated.getPixel(2, 3));
+
+    // a full turn and two half turns give the image back, still over the same parent
+    IImage round = ImageView.flipVertical(ImageView.flipHorizontal(
+            ImageView.rotate(ImageView.rotate(ImageView.rotate(rotated, 90), 180), 180)));
+    assertSame(image, ((ImageView) round).getParent());
+    for (IImage view : new IImage[]{rotated, round, ImageView.crop(round, 1, 0, 3, 2),
+            ImageView.crop(ImageView.flipHorizontal(image), 1, 1, 2, 2)}) {
+      int[] row = new int[view.getWidth() * 3];
+      for (int y = 0; y < view.getHeight(); y++) {
+        view.getRow(y, row);
+        for (int x = 0; x < view.getWidth(); x++) {
+          int[] pixel = view.getPixel(x, y);
+          assertArrayEquals(pixel, new int[]{row[x * 3], row[x * 3 + 1], row[x * 3 + 2]});
+          if (view == round) {
+            assertArrayEquals(image.getPixel(x, y), pixel);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testImageViewMaterializeAndOperations() {
+    IImage image = new ImageImpl(3, 2, 255);
+    image.setPixel(2, 1, 100, 100, 100);
+    ImageView view = ImageView.rotate(image, 180);
+    IImage copy = view.materialize();
+    IImage brightened = new BrightenOperation(10).apply(view);
+    image.setPixel(2, 1, 0, 0, 0);
+
+    assertFalse(copy instanceof ImageView);
+    assertArrayEquals(new int[]{100, 100, 100}, copy.getPixel(0, 0));
+    assertArrayEquals(new int[]{110, 110, 110}, brightened.getPixel(0, 0));
+    assertArrayEquals(new int[]{0, 0, 0}, view.getPixel(0, 0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testImageViewIsReadOnly() {
+    ImageView.flipVertical(new ImageImpl(2, 2, 255)).setPixel(0, 0, 1, 1, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testImageViewCropOutside() {
+    ImageView.crop(new ImageImpl(4, 4, 255), 2, 2, 3, 1);
+  }
+
+  @Test
+  public void testStorageKeepsViewedImageOpen() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new OffHeapImage(2, 2, 255);
+    image.setPixel(1, 1, 7, 7, 7);
+    storage.putImage("img", image);
+    storage.putImage("view", ImageView.flipHorizontal(image));
+    storage.removeImage("img");
+    assertArrayEquals(new int[]{7, 7, 7}, storage.getImage("view").getPixel(0, 1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStorageClosesImageWithLastView() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new OffHeapImage(2, 2, 255);
+    storage.putImage("img", image);
+    storage.putImage("view", ImageView.rotate(image, 90));
+    storage.removeImage("img");
+    storage.removeImage("view");
+    image.getPixel(0, 0);
+  }
+
+  @Test
+  public void testRotateAndTransposeAcrossBlocks() {
+    // sizes that are not multiples of the block size, in memory and off the heap
+    IImage[] images = {new ImageImpl(150, 70, 255), new OffHeapImage(70, 150, 1000)};
+    for (IImage image : images) {
+      int width = image.getWidth();
+      int height = image.getHeight();
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          image.setPixel(x, y, x, y, (x * y) % 256);
+        }
+      }
+      IImage turned = new RotateOperation(90).apply(image);
+      IImage upsideDown = new RotateOperation(180).apply(image);
+      IImage back = new RotateOperation(270).apply(image);
+      IImage transposed = new TransposeOperation().apply(image);
+      assertEquals(height, turned.getWidth());
+      assertEquals(width, turned.getHeight());
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          int[] pixel = image.getPixel(x, y);
+          assertArrayEquals(pixel, turned.getPixel(height - 1 - y, x));
+          assertArrayEquals(pixel, upsideDown.getPixel(width - 1 - x, height - 1 - y));
+          assertArrayEquals(pixel, back.getPixel(y, width - 1 - x));
+          assertArrayEquals(pixel, transposed.getPixel(y, x));
+        }
+      }
+    }
+  }
+
+  @Test(expected = CancellationException.class)
+  public void testResizeStopsWhenInterrupted() {
+    Thread.currentThread().interrupt();
+    try {
+      new ResizeOperation(50, 50, ResizeFilter.BILINEAR).apply(new ImageImpl(100, 100, 255));
+    } finally {
+      // clear the interrupt so it does not leak into other tests
+      Thread.interrupted();
+    }
+  }
+
+  @Test(expected = CancellationException.class)
+  public void testBrightenStopsWhenInterrupted() {
+    Thread.currentThread().interrupt();
+    try {
+      new BrightenOperation(10).apply(new ImageImpl(100, 100, 255));
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  public void testResizeKeepsFlatColor() {
+    // large reductions take the box pre-shrink first, upscaling must not ring either
+    IImage image = new ImageImpl(300, 250, 1000);
+    for (int y = 0; y < 250; y++) {
+      for (int x = 0; x < 300; x++) {
+        image.setPixel(x, y, 700, 20, 1000);
+      }
+    }
+    int[][] sizes = {{37, 20}, {10, 9}, {301, 500}};
+    for (ResizeFilter filter : ResizeFilter.values()) {
+      for (int[] size : sizes) {
+        IImage result = new ResizeOperation(size[0], size[1], filter).apply(image);
+        assertEquals(size[0], result.getWidth());
+        assertEquals(size[1], result.getHeight());
+        for (int y = 0; y < size[1]; y += 3) {
+          for (int x = 0; x < size[0]; x += 2) {
+            assertArrayEquals(filter.toString(), new int[]{700, 20, 1000},
+                    result.getPixel(x, y));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testResizeAreaAndNearest() {
+    IImage image = new ImageImpl(4, 2, 255);
+    for (int y = 0; y < 2; y++) {
+      for (int x = 0; x < 4; x++) {
+        int value = x * 40 + y * 100;
+        image.setPixel(x, y, value, value, value);
+      }
+    }
+    IImage area = new ResizeOperation(2, 1, ResizeFilter.AREA).apply(image);
+    assertArrayEquals(new int[]{70, 70, 70}, area.getPixel(0, 0));
+    assertArrayEquals(new int[]{150, 150, 150}, area.getPixel(1, 0));
+    IImage nearest = new ResizeOperation(2, 1, ResizeFilter.NEAREST).apply(image);
+    assertArrayEquals(new int[]{140, 140, 140}, nearest.getPixel(0, 0));
+    assertArrayEquals(new int[]{220, 220, 220}, nearest.getPixel(1, 0));
+    IImage grown = new ResizeOperation(8, 4, ResizeFilter.LANCZOS).apply(image);
+    assertTrue(grown.getPixel(0, 0)[0] < 40);
+    assertTrue(grown.getPixel(7, 3)[0] >= 200);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResizeZeroWidth() {
+    new ResizeOperation(0, 10, ResizeFilter.BILINEAR);
+  }
+
+  @Test
+  public void testPyramidHalvesLevels() {
+    IImage image = new ImageImpl(5, 3, 255);
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 5; x++) {
+        image.setPixel(x, y, x * 10, y * 10, 100);
+      }
+    }
+    IImagePyramid pyramid = new ImagePyramidImpl(image);
+    assertEquals(4, pyramid.getLevelCount());
+    assertSame(image, pyramid.getLevel(0));
+    IImage half = pyramid.getLevel(1);
+    assertEquals(3, half.getWidth());
+    assertEquals(2, half.getHeight());
+    // 2x2 blocks, then the odd column and row average what they have
+    assertArrayEquals(new int[]{5, 5, 100}, half.getPixel(0, 0));
+    assertArrayEquals(new int[]{40, 5, 100}, half.getPixel(2, 0));
+    assertArrayEquals(new int[]{40, 20, 100}, half.getPixel(2, 1));
+    assertEquals(1, pyramid.getLevel(3).getWidth());
+    assertSame(half, pyramid.getLevel(1));
+
+    assertEquals(0, pyramid.getLevelForScale(2));
+    assertEquals(1, pyramid.getLevelForScale(0.5));
+    assertEquals(1, pyramid.getLevelForScale(0.3));
+    assertEquals(2, pyramid.getLevelForScale(0.25));
+    assertEquals(3, pyramid.getLevelForScale(0.001));
+    assertTrue(new ImagePyramidImpl(new GreyImage(4, 4, 255)).getLevel(1) instanceof GreyImage);
+  }
+
+  @Test
+  public void testPyramidHalvesLargeMaxValue() {
+    int max = Integer.MAX_VALUE;
+    IImage image = new ImageImpl(2, 2, max);
+    for (int y = 0; y < 2; y++) {
+      for (int x = 0; x < 2; x++) {
+        image.setPixel(x, y, max, max, max - 1);
+      }
+    }
+    assertArrayEquals(new int[]{max, max, max - 1},
+            new ImagePyramidImpl(image).getLevel(1).getPixel(0, 0));
+  }
+
+  @Test(timeout = 10000)
+  public void testPyramidLevelBuildBlocksNeitherHasLevelNorClose() throws InterruptedException {
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    IImage image = new ImageImpl(4, 4, 255) {
+      @Override
+      public void getRow(int y, int[] row) {
+        reading.countDown();
+        try {
+          proceed.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.getRow(y, row);
+      }
+    };
+    ImagePyramidImpl pyramid = new ImagePyramidImpl(image);
+    Thread builder = new Thread(() -> pyramid.getLevel(1));
+    builder.start();
+    reading.await();
+    assertFalse(pyramid.hasLevel(1));
+    boolean[] freed = new boolean[1];
+    pyramid.close(() -> freed[0] = true);
+    // the source is still read, so it is freed by the builder once the level is made
+    assertFalse(freed[0]);
+    proceed.countDown();
+    builder.join();
+    assertTrue(freed[0]);
+    assertFalse(pyramid.hasLevel(1));
+  }
+
+  @Test
+  public void testStoragePyramidCachedUntilReplaced() {
+    IImageStorage storage = new ImageStorageImpl();
+    IImage image = new ImageImpl(8, 8, 255);
+    storage.putImage("img", image);
+    IImagePyramid pyramid = storage.getPyramid("img");
+    assertSame(pyramid, storage.getPyramid("img"));
+    IImage replacement = new ImageImpl(8, 8, 255);
+    storage.putImage("img", replacement);
+    assertSame(replacement, storage.getPyramid("img").getLevel(0));
+  }
+
+  @Test
+  public void testStoragePyramidOfLazyImageCachedWithoutDecoding() {
+    int[] decodes = new int[1];
+    LazyImage image = new LazyImage(8, 8, 255, step -> {
+      decodes[0]++;
+      return new ImageImpl(8, 8, 255);
+    });
+    IImageStorage storage = new ImageStorageImpl();
+    storage.putImage("img", image);
+    IImagePyramid pyramid = storage.getPyramid("img");
+    assertSame(pyramid, storage.getPyramid("img"));
+    assertEquals(0, decodes[0]);
+    assertFalse(image.isDecoded());
+  }
+
+  @Test
+  public void testLazyImageDecodesOnceOnFirstUse() {
+    IImage decoded = new ImageImpl(4, 2, 255);
+    decoded.setPixel(2, 0, 9, 8, 7);
+    int[] decodes = new int[2]; // full decodes, subsampled decodes
+    LazyImage image = new LazyImage(4, 2, 255, step -> {
+      decodes[step == 1 ? 0 : 1]++;
+      return step == 1 ? decoded : new ImageImpl(2, 1, 255);
+    });
+    ImagePyramidImpl pyramid = new ImagePyramidImpl(image);
+
+    assertEquals(4, pyramid.getWidth());
+    assertFalse(pyramid.hasLevel(0));
+    assertEquals(2, image.getSubsampled(2).getWidth());
+    assertFalse(image.isDecoded());
+    assertArrayEquals(new int[]{9, 8, 7}, image.getPixel(2, 0));
+    assertArrayEquals(new int[]{0, 0, 0}, image.getPixel(3, 1));
+    assertTrue(pyramid.hasLevel(0));
+    assertSame(decoded, pyramid.getLevel(0));
+    assertArrayEquals(new int[]{1, 1}, decodes);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testLazyImageRejectsWrongSize() {
+    new LazyImage(4, 4, 255, step -> new ImageImpl(2, 2, 255)).getPixel(0, 0);
+  }
+
+  @Test
+  public void testPPMReaderReadsHeaderAndSubsampled() throws IOException {
+    String ppm = "P3\n3 3\n255\n"
+            + "1 1 1 2 2 2 3 3 3\n"
+            + "4 4 4 5 5 5 6 6 6\n"
+            + "7 7 7 8 8 8 9 9 9\n";
+    assertArrayEquals(new int[]{3, 3, 255}, new PPMReader(new StringReader(ppm)).readHeader());
+
+    IImage image = new PPMReader(new StringReader(ppm)).read(2);
+    assertEquals(2, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertArrayEquals(new int[]{3, 3, 3}, image.getPixel(1, 0));
+    assertArrayEquals(new int[]{9, 9, 9}, image.getPixel(1, 1));
+  }
+
+  @Test
+  public void testPackedRgbImageStoresPixels() {
+    PackedRgbImage image = new PackedRgbImage(3, 2);
+    image.setPixel(1, 0, 255, 128, 7);
+    image.setRow(1, new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+    assertArrayEquals(new int[]{255, 128, 7}, image.getPixel(1, 0));
+    assertEquals(0xFF8007, image.getDataBuffer().getElem(1));
+    int[] region = new int[6];
+    image.getRegion(1, 1, 2, 1, region);
+    assertArrayEquals(new int[]{4, 5, 6, 7, 8, 9}, region);
+    assertTrue(image.createBlank(2, 2, 255) instanceof PackedRgbImage);
+    assertEquals(1023, image.createBlank(2, 2, 1023).getMaxValue());
+    assertTrue(ImageFactory.createImage(4, 4, 255) instanceof PackedRgbImage);
+    assertTrue(ImageFactory.createImage(4, 4, 1023) instanceof ImageImpl);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPackedRgbImageRejectsWideValues() {
+    new PackedRgbImage(2, 2).setPixel(0, 0, 256, 0, 0);
+  }
+
+  @Test
+  public void testPackedRgbImageWrapsWithoutCopy() {
+    PackedRgbImage image = new PackedRgbImage(2, 2);
+    image.setPixel(0, 1, 10, 20, 30);
+    BufferedImage wrapped = StandardImageWriter.convertToBufferedImage(image);
+
+    assertEquals(BufferedImage.TYPE_INT_RGB, wrapped.getType());
+    assertEquals(0x0A141E, wrapped.getRGB(0, 1) & 0xFFFFFF);
+    image.setPixel(1, 1, 1, 2, 3);
+    assertEquals(0x010203, wrapped.getRGB(1, 1) & 0xFFFFFF);
+  }
+
+  @Test
+  public void testGetRegionMatchesPixels() {
+    IImage[] images = {new ImageImpl(5, 4, 255), new GreyImage(5, 4, 255),
+        new CopyOnWriteImage(5, 4, 255), new OffHeapImage(5, 4, 255)};
+    for (IImage image : images) {
+      for (int y = 0; y < 4; y++) {
+        for (int x = 0; x < 5; x++) {
+          int value = x * 10 + y;
+          image.setPixel(x, y, value, value, value);
+        }
+      }
+      int[] region = new int[3 * 2 * 3];
+      image.getRegion(1, 2, 3, 2, region);
+      assertArrayEquals(new int[]{12, 12, 12, 22, 22, 22, 32, 32, 32,
+          13, 13, 13, 23, 23, 23, 33, 33, 33}, region);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRegionOutOfRange() {
+    new ImageImpl(4, 4, 255).getRegion(2, 2, 3, 1, new int[9]);
+  }
+
   /**
    * Test PPMReader.
    */
@@ -0,0 +1,103 @@
+package operations;
+
+import model.IImage;
+import model.ImageImpl;
+import model.OffHeapImage;
+
+/**
+ * Throughput benchmark of the rotate and transpose operations against a plain x/y loop.
+ * Run with the image sizes in megapixels as arguments, e.g. "1 4 16 64 200", and a heap
+ * large enough for two images of the largest size (12 bytes per pixel for ImageImpl).
+ * Sizes that do not fit the heap are run with OffHeapImage instead.
+ */
+public class RotateBenchmark {
+  private static final int RUNS = 3;
+
+  /**
+   * Run the benchmark.
+   *
+   * @param args the image sizes in megapixels, 1, 4, 16, 64 and 200 if there are none.
+   */
+  public static void main(String[] args) {
+    double[] sizes = {1, 4, 16, 64, 200};
+    if (args.length > 0) {
+      sizes = new double[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Double.parseDouble(args[i]);
+      }
+    }
+    System.out.printf("%8s %10s %12s %12s %12s %12s %12s%n", "MP", "storage",
+            "naive 90", "rotate 90", "rotate 180", "rotate 270", "transpose");
+    for (double size : sizes) {
+      int side = (int) Math.sqrt(size * 1e6);
+      // width and height differ so a wrong transpose cannot pass for a right one
+      int width = side + side / 4;
+      int height = side - side / 4;
+      long bytes = (long) width * height * 12 * 2;
+      IImage image;
+      if (bytes < Runtime.getRuntime().maxMemory() * 0.8) {
+        image = new ImageImpl(width, height, 255);
+      } else {
+        image = new OffHeapImage(width, height, 255);
+      }
+      fill(image);
+
+      double pixels = (double) width * height / 1e6;
+      System.out.printf("%8.1f %10s %12s %12s %12s %12s %12s%n", pixels,
+              image.getClass().getSimpleName(),
+              pixels <= 16 ? rate(pixels, RotateBenchmark::naiveRotate, image) : "-",
+              rate(pixels, new RotateOperation(90)::apply, image),
+              rate(pixels, new RotateOperation(180)::apply, image),
+              rate(pixels, new RotateOperation(270)::apply, image),
+              rate(pixels, new TransposeOperation()::apply, image));
+      if (image instanceof OffHeapImage) {
+        ((OffHeapImage) image).close();
+      }
+    }
+  }
+
+  /**
+   * Helper function to time an operation and format its best throughput.
+   */
+  private static String rate(double megapixels, IOperation operation, IImage image) {
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      IImage result = operation.apply(image);
+      best = Math.min(best, System.nanoTime() - start);
+      if (result instanceof OffHeapImage) {
+        ((OffHeapImage) result).close();
+      }
+    }
+    return String.format("%.1f MP/s", megapixels / (best / 1e9));
+  }
+
+  /**
+   * Helper function to rotate clockwise with a plain loop over the pixels, for comparison.
+   */
+  private static IImage naiveRotate(IImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    IImage result = image.createBlank(height, width, image.getMaxValue());
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int[] pixel = image.getPixel(x, y);
+        result.setPixel(height - 1 - y, x, pixel[0], pixel[1], pixel[2]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Helper function to fill an image with a pattern row by row.
+   */
+  private static void fill(IImage image) {
+    int[] row = new int[image.getWidth() * 3];
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] = (i * 7 + y) & 0xFF;
+      }
+      image.setRow(y, row);
+    }
+  }
+}